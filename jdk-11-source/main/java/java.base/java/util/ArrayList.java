@@ -1752,6 +1752,45 @@ public class ArrayList<E> extends AbstractList<E>
         modCount++;
     }
 
+    /**
+     * Sorts this list according to the order induced by the specified
+     * {@link Comparator}, using a parallel sort-merge of the backing
+     * array if the list is large.  The elements are sorted in place in
+     * the backing array, with a temporary workspace no larger than the
+     * list; the list is not copied out and back.
+     *
+     * <p>This sort is guaranteed to be <i>stable</i>.  The comparator
+     * may be invoked concurrently from multiple threads, and so must not
+     * depend on thread-confined state.  The list must not be structurally
+     * modified while it is being sorted.
+     *
+     * @implNote Lists with at most 8192 elements, or in the absence of
+     * parallelism in the {@link java.util.concurrent.ForkJoinPool#commonPool()
+     * common pool}, are sorted as by {@link #sort(Comparator)}.  Larger
+     * lists are sorted by the algorithm of
+     * {@link Arrays#parallelSort(Object[], int, int, Comparator)}.
+     *
+     * @param c the {@code Comparator} used to compare list elements.
+     *          A {@code null} value indicates that the elements'
+     *          {@linkplain Comparable natural ordering} should be used
+     * @throws ClassCastException if the list contains elements that are not
+     *         <i>mutually comparable</i> using the specified comparator
+     * @throws IllegalArgumentException (optional) if the comparator is
+     *         found to violate the {@link Comparator} contract
+     * @throws ConcurrentModificationException if the list was structurally
+     *         modified during the sort
+     * @see Collections#parallelSort(List, Comparator)
+     * @since 12
+     */
+    @SuppressWarnings("unchecked")
+    public void parallelSort(Comparator<? super E> c) {
+        final int expectedModCount = modCount;
+        Arrays.parallelSortList((E[]) elementData, 0, size, c);
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+        modCount++;
+    }
+
     void checkInvariants() {
         // assert size >= 0;
         // assert size == elementData.length || elementData[size] == null;
@@ -39,6 +39,8 @@ import java.util.function.IntToDoubleFunction;
 import java.util.function.IntToLongFunction;
 import java.util.function.IntUnaryOperator;
 import java.util.function.LongBinaryOperator;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
 import java.util.function.UnaryOperator;
 import java.util.stream.DoubleStream;
 import java.util.stream.IntStream;
@@ -1183,6 +1185,24 @@ public class Arrays {
                  MIN_ARRAY_SORT_GRAN : g, cmp).invoke();
     }
 
+    /**
+     * Sorts the specified range of the backing array of a list, as by
+     * {@link #parallelSort(Object[], int, int, Comparator)} if the range
+     * is large enough to be split, and otherwise as by
+     * {@link #sort(Object[], int, int, Comparator)}, so that small lists
+     * are sorted exactly as by {@link List#sort}.  Used by the
+     * {@code parallelSort} methods of {@link ArrayList}, {@link Vector}
+     * and {@link Collections}.
+     */
+    static <T> void parallelSortList(T[] a, int fromIndex, int toIndex,
+                                     Comparator<? super T> c) {
+        if (toIndex - fromIndex <= MIN_ARRAY_SORT_GRAN ||
+            ForkJoinPool.getCommonPoolParallelism() == 1)
+            sort(a, fromIndex, toIndex, c);
+        else
+            parallelSort(a, fromIndex, toIndex, c);
+    }
+
     /*
      * Sorting of complex type arrays.
      */
@@ -1574,6 +1594,792 @@ public class Arrays {
         }
     }
 
+    // Radix sorting
+
+    /**
+     * Sorts the specified array into ascending numerical order.
+     *
+     * @implNote The sorting algorithm is a least-significant-digit radix
+     * sort that distributes the elements by one byte of their value per
+     * pass, skipping bytes that are the same in every element, and so
+     * performs no comparisons.  It requires a working space the size of the
+     * range to be sorted.  Ranges shorter than an implementation-defined
+     * threshold are sorted using the appropriate {@link Arrays#sort(int[])
+     * Arrays.sort} method.
+     *
+     * @param a the array to be sorted
+     *
+     * @since 12
+     */
+    public static void radixSort(int[] a) {
+        RadixSort.sort(a, 0, a.length, false);
+    }
+
+    /**
+     * Sorts the specified range of the array into ascending numerical order.
+     * The range to be sorted extends from the index {@code fromIndex},
+     * inclusive, to the index {@code toIndex}, exclusive. If
+     * {@code fromIndex == toIndex}, the range to be sorted is empty.
+     *
+     * @implNote The sorting algorithm is a least-significant-digit radix
+     * sort that distributes the elements by one byte of their value per
+     * pass, skipping bytes that are the same in every element, and so
+     * performs no comparisons.  It requires a working space the size of the
+     * range to be sorted.  Ranges shorter than an implementation-defined
+     * threshold are sorted using the appropriate {@link Arrays#sort(int[])
+     * Arrays.sort} method.
+     *
+     * @param a the array to be sorted
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     *
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException
+     *     if {@code fromIndex < 0} or {@code toIndex > a.length}
+     *
+     * @since 12
+     */
+    public static void radixSort(int[] a, int fromIndex, int toIndex) {
+        rangeCheck(a.length, fromIndex, toIndex);
+        RadixSort.sort(a, fromIndex, toIndex, false);
+    }
+
+    /**
+     * Sorts the specified array into ascending numerical order.
+     *
+     * @implNote The sorting algorithm is a least-significant-digit radix
+     * sort that distributes the elements by one byte of their value per
+     * pass, skipping bytes that are the same in every element, and so
+     * performs no comparisons.  It requires a working space the size of the
+     * range to be sorted.  Ranges shorter than an implementation-defined
+     * threshold are sorted using the appropriate {@link Arrays#sort(int[])
+     * Arrays.sort} method.
+     *
+     * @param a the array to be sorted
+     *
+     * @since 12
+     */
+    public static void radixSort(long[] a) {
+        RadixSort.sort(a, 0, a.length, false);
+    }
+
+    /**
+     * Sorts the specified range of the array into ascending numerical order.
+     * The range to be sorted extends from the index {@code fromIndex},
+     * inclusive, to the index {@code toIndex}, exclusive. If
+     * {@code fromIndex == toIndex}, the range to be sorted is empty.
+     *
+     * @implNote The sorting algorithm is a least-significant-digit radix
+     * sort that distributes the elements by one byte of their value per
+     * pass, skipping bytes that are the same in every element, and so
+     * performs no comparisons.  It requires a working space the size of the
+     * range to be sorted.  Ranges shorter than an implementation-defined
+     * threshold are sorted using the appropriate {@link Arrays#sort(int[])
+     * Arrays.sort} method.
+     *
+     * @param a the array to be sorted
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     *
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException
+     *     if {@code fromIndex < 0} or {@code toIndex > a.length}
+     *
+     * @since 12
+     */
+    public static void radixSort(long[] a, int fromIndex, int toIndex) {
+        rangeCheck(a.length, fromIndex, toIndex);
+        RadixSort.sort(a, fromIndex, toIndex, false);
+    }
+
+    /**
+     * Sorts the specified array into ascending numerical order.
+     *
+     * <p>The {@code <} relation does not provide a total order on all float
+     * values: {@code -0.0f == 0.0f} is {@code true} and a {@code Float.NaN}
+     * value compares neither less than, greater than, nor equal to any value,
+     * even itself. This method uses the total order imposed by the method
+     * {@link Float#compareTo}: {@code -0.0f} is treated as less than value
+     * {@code 0.0f} and {@code Float.NaN} is considered greater than any
+     * other value and all {@code Float.NaN} values are considered equal.
+     *
+     * @implNote The sorting algorithm is a least-significant-digit radix
+     * sort that distributes the elements by one byte of their value per
+     * pass, skipping bytes that are the same in every element, and so
+     * performs no comparisons.  It requires a working space the size of the
+     * range to be sorted.  Ranges shorter than an implementation-defined
+     * threshold are sorted using the appropriate {@link Arrays#sort(int[])
+     * Arrays.sort} method.
+     *
+     * @param a the array to be sorted
+     *
+     * @since 12
+     */
+    public static void radixSort(float[] a) {
+        RadixSort.sort(a, 0, a.length, false);
+    }
+
+    /**
+     * Sorts the specified range of the array into ascending numerical order.
+     * The range to be sorted extends from the index {@code fromIndex},
+     * inclusive, to the index {@code toIndex}, exclusive. If
+     * {@code fromIndex == toIndex}, the range to be sorted is empty.
+     *
+     * <p>The {@code <} relation does not provide a total order on all float
+     * values: {@code -0.0f == 0.0f} is {@code true} and a {@code Float.NaN}
+     * value compares neither less than, greater than, nor equal to any value,
+     * even itself. This method uses the total order imposed by the method
+     * {@link Float#compareTo}: {@code -0.0f} is treated as less than value
+     * {@code 0.0f} and {@code Float.NaN} is considered greater than any
+     * other value and all {@code Float.NaN} values are considered equal.
+     *
+     * @implNote The sorting algorithm is a least-significant-digit radix
+     * sort that distributes the elements by one byte of their value per
+     * pass, skipping bytes that are the same in every element, and so
+     * performs no comparisons.  It requires a working space the size of the
+     * range to be sorted.  Ranges shorter than an implementation-defined
+     * threshold are sorted using the appropriate {@link Arrays#sort(int[])
+     * Arrays.sort} method.
+     *
+     * @param a the array to be sorted
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     *
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException
+     *     if {@code fromIndex < 0} or {@code toIndex > a.length}
+     *
+     * @since 12
+     */
+    public static void radixSort(float[] a, int fromIndex, int toIndex) {
+        rangeCheck(a.length, fromIndex, toIndex);
+        RadixSort.sort(a, fromIndex, toIndex, false);
+    }
+
+    /**
+     * Sorts the specified array into ascending numerical order.
+     *
+     * <p>The {@code <} relation does not provide a total order on all double
+     * values: {@code -0.0d == 0.0d} is {@code true} and a {@code Double.NaN}
+     * value compares neither less than, greater than, nor equal to any value,
+     * even itself. This method uses the total order imposed by the method
+     * {@link Double#compareTo}: {@code -0.0d} is treated as less than value
+     * {@code 0.0d} and {@code Double.NaN} is considered greater than any
+     * other value and all {@code Double.NaN} values are considered equal.
+     *
+     * @implNote The sorting algorithm is a least-significant-digit radix
+     * sort that distributes the elements by one byte of their value per
+     * pass, skipping bytes that are the same in every element, and so
+     * performs no comparisons.  It requires a working space the size of the
+     * range to be sorted.  Ranges shorter than an implementation-defined
+     * threshold are sorted using the appropriate {@link Arrays#sort(int[])
+     * Arrays.sort} method.
+     *
+     * @param a the array to be sorted
+     *
+     * @since 12
+     */
+    public static void radixSort(double[] a) {
+        RadixSort.sort(a, 0, a.length, false);
+    }
+
+    /**
+     * Sorts the specified range of the array into ascending numerical order.
+     * The range to be sorted extends from the index {@code fromIndex},
+     * inclusive, to the index {@code toIndex}, exclusive. If
+     * {@code fromIndex == toIndex}, the range to be sorted is empty.
+     *
+     * <p>The {@code <} relation does not provide a total order on all double
+     * values: {@code -0.0d == 0.0d} is {@code true} and a {@code Double.NaN}
+     * value compares neither less than, greater than, nor equal to any value,
+     * even itself. This method uses the total order imposed by the method
+     * {@link Double#compareTo}: {@code -0.0d} is treated as less than value
+     * {@code 0.0d} and {@code Double.NaN} is considered greater than any
+     * other value and all {@code Double.NaN} values are considered equal.
+     *
+     * @implNote The sorting algorithm is a least-significant-digit radix
+     * sort that distributes the elements by one byte of their value per
+     * pass, skipping bytes that are the same in every element, and so
+     * performs no comparisons.  It requires a working space the size of the
+     * range to be sorted.  Ranges shorter than an implementation-defined
+     * threshold are sorted using the appropriate {@link Arrays#sort(int[])
+     * Arrays.sort} method.
+     *
+     * @param a the array to be sorted
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     *
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException
+     *     if {@code fromIndex < 0} or {@code toIndex > a.length}
+     *
+     * @since 12
+     */
+    public static void radixSort(double[] a, int fromIndex, int toIndex) {
+        rangeCheck(a.length, fromIndex, toIndex);
+        RadixSort.sort(a, fromIndex, toIndex, false);
+    }
+
+    /**
+     * Sorts the specified array into ascending numerical order.
+     *
+     * @implNote The sorting algorithm is a least-significant-digit radix
+     * sort that distributes the elements by one byte of their value per
+     * pass, skipping bytes that are the same in every element.  Each pass
+     * divides the range into chunks whose digits are counted, and then
+     * scattered, in parallel; the {@link ForkJoinPool#commonPool() ForkJoin
+     * common pool} is used to execute these tasks.  It requires a working
+     * space the size of the range to be sorted.  Ranges shorter than an
+     * implementation-defined threshold are sorted using the appropriate
+     * {@link Arrays#sort(int[]) Arrays.sort} method, and ranges too short
+     * to be divided are sorted sequentially.
+     *
+     * @param a the array to be sorted
+     *
+     * @since 12
+     */
+    public static void parallelRadixSort(int[] a) {
+        RadixSort.sort(a, 0, a.length, true);
+    }
+
+    /**
+     * Sorts the specified range of the array into ascending numerical order.
+     * The range to be sorted extends from the index {@code fromIndex},
+     * inclusive, to the index {@code toIndex}, exclusive. If
+     * {@code fromIndex == toIndex}, the range to be sorted is empty.
+     *
+     * @implNote The sorting algorithm is a least-significant-digit radix
+     * sort that distributes the elements by one byte of their value per
+     * pass, skipping bytes that are the same in every element.  Each pass
+     * divides the range into chunks whose digits are counted, and then
+     * scattered, in parallel; the {@link ForkJoinPool#commonPool() ForkJoin
+     * common pool} is used to execute these tasks.  It requires a working
+     * space the size of the range to be sorted.  Ranges shorter than an
+     * implementation-defined threshold are sorted using the appropriate
+     * {@link Arrays#sort(int[]) Arrays.sort} method, and ranges too short
+     * to be divided are sorted sequentially.
+     *
+     * @param a the array to be sorted
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     *
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException
+     *     if {@code fromIndex < 0} or {@code toIndex > a.length}
+     *
+     * @since 12
+     */
+    public static void parallelRadixSort(int[] a, int fromIndex, int toIndex) {
+        rangeCheck(a.length, fromIndex, toIndex);
+        RadixSort.sort(a, fromIndex, toIndex, true);
+    }
+
+    /**
+     * Sorts the specified array into ascending numerical order.
+     *
+     * @implNote The sorting algorithm is a least-significant-digit radix
+     * sort that distributes the elements by one byte of their value per
+     * pass, skipping bytes that are the same in every element.  Each pass
+     * divides the range into chunks whose digits are counted, and then
+     * scattered, in parallel; the {@link ForkJoinPool#commonPool() ForkJoin
+     * common pool} is used to execute these tasks.  It requires a working
+     * space the size of the range to be sorted.  Ranges shorter than an
+     * implementation-defined threshold are sorted using the appropriate
+     * {@link Arrays#sort(int[]) Arrays.sort} method, and ranges too short
+     * to be divided are sorted sequentially.
+     *
+     * @param a the array to be sorted
+     *
+     * @since 12
+     */
+    public static void parallelRadixSort(long[] a) {
+        RadixSort.sort(a, 0, a.length, true);
+    }
+
+    /**
+     * Sorts the specified range of the array into ascending numerical order.
+     * The range to be sorted extends from the index {@code fromIndex},
+     * inclusive, to the index {@code toIndex}, exclusive. If
+     * {@code fromIndex == toIndex}, the range to be sorted is empty.
+     *
+     * @implNote The sorting algorithm is a least-significant-digit radix
+     * sort that distributes the elements by one byte of their value per
+     * pass, skipping bytes that are the same in every element.  Each pass
+     * divides the range into chunks whose digits are counted, and then
+     * scattered, in parallel; the {@link ForkJoinPool#commonPool() ForkJoin
+     * common pool} is used to execute these tasks.  It requires a working
+     * space the size of the range to be sorted.  Ranges shorter than an
+     * implementation-defined threshold are sorted using the appropriate
+     * {@link Arrays#sort(int[]) Arrays.sort} method, and ranges too short
+     * to be divided are sorted sequentially.
+     *
+     * @param a the array to be sorted
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     *
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException
+     *     if {@code fromIndex < 0} or {@code toIndex > a.length}
+     *
+     * @since 12
+     */
+    public static void parallelRadixSort(long[] a, int fromIndex, int toIndex) {
+        rangeCheck(a.length, fromIndex, toIndex);
+        RadixSort.sort(a, fromIndex, toIndex, true);
+    }
+
+    /**
+     * Sorts the specified array into ascending numerical order.
+     *
+     * <p>The {@code <} relation does not provide a total order on all float
+     * values: {@code -0.0f == 0.0f} is {@code true} and a {@code Float.NaN}
+     * value compares neither less than, greater than, nor equal to any value,
+     * even itself. This method uses the total order imposed by the method
+     * {@link Float#compareTo}: {@code -0.0f} is treated as less than value
+     * {@code 0.0f} and {@code Float.NaN} is considered greater than any
+     * other value and all {@code Float.NaN} values are considered equal.
+     *
+     * @implNote The sorting algorithm is a least-significant-digit radix
+     * sort that distributes the elements by one byte of their value per
+     * pass, skipping bytes that are the same in every element.  Each pass
+     * divides the range into chunks whose digits are counted, and then
+     * scattered, in parallel; the {@link ForkJoinPool#commonPool() ForkJoin
+     * common pool} is used to execute these tasks.  It requires a working
+     * space the size of the range to be sorted.  Ranges shorter than an
+     * implementation-defined threshold are sorted using the appropriate
+     * {@link Arrays#sort(int[]) Arrays.sort} method, and ranges too short
+     * to be divided are sorted sequentially.
+     *
+     * @param a the array to be sorted
+     *
+     * @since 12
+     */
+    public static void parallelRadixSort(float[] a) {
+        RadixSort.sort(a, 0, a.length, true);
+    }
+
+    /**
+     * Sorts the specified range of the array into ascending numerical order.
+     * The range to be sorted extends from the index {@code fromIndex},
+     * inclusive, to the index {@code toIndex}, exclusive. If
+     * {@code fromIndex == toIndex}, the range to be sorted is empty.
+     *
+     * <p>The {@code <} relation does not provide a total order on all float
+     * values: {@code -0.0f == 0.0f} is {@code true} and a {@code Float.NaN}
+     * value compares neither less than, greater than, nor equal to any value,
+     * even itself. This method uses the total order imposed by the method
+     * {@link Float#compareTo}: {@code -0.0f} is treated as less than value
+     * {@code 0.0f} and {@code Float.NaN} is considered greater than any
+     * other value and all {@code Float.NaN} values are considered equal.
+     *
+     * @implNote The sorting algorithm is a least-significant-digit radix
+     * sort that distributes the elements by one byte of their value per
+     * pass, skipping bytes that are the same in every element.  Each pass
+     * divides the range into chunks whose digits are counted, and then
+     * scattered, in parallel; the {@link ForkJoinPool#commonPool() ForkJoin
+     * common pool} is used to execute these tasks.  It requires a working
+     * space the size of the range to be sorted.  Ranges shorter than an
+     * implementation-defined threshold are sorted using the appropriate
+     * {@link Arrays#sort(int[]) Arrays.sort} method, and ranges too short
+     * to be divided are sorted sequentially.
+     *
+     * @param a the array to be sorted
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     *
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException
+     *     if {@code fromIndex < 0} or {@code toIndex > a.length}
+     *
+     * @since 12
+     */
+    public static void parallelRadixSort(float[] a, int fromIndex, int toIndex) {
+        rangeCheck(a.length, fromIndex, toIndex);
+        RadixSort.sort(a, fromIndex, toIndex, true);
+    }
+
+    /**
+     * Sorts the specified array into ascending numerical order.
+     *
+     * <p>The {@code <} relation does not provide a total order on all double
+     * values: {@code -0.0d == 0.0d} is {@code true} and a {@code Double.NaN}
+     * value compares neither less than, greater than, nor equal to any value,
+     * even itself. This method uses the total order imposed by the method
+     * {@link Double#compareTo}: {@code -0.0d} is treated as less than value
+     * {@code 0.0d} and {@code Double.NaN} is considered greater than any
+     * other value and all {@code Double.NaN} values are considered equal.
+     *
+     * @implNote The sorting algorithm is a least-significant-digit radix
+     * sort that distributes the elements by one byte of their value per
+     * pass, skipping bytes that are the same in every element.  Each pass
+     * divides the range into chunks whose digits are counted, and then
+     * scattered, in parallel; the {@link ForkJoinPool#commonPool() ForkJoin
+     * common pool} is used to execute these tasks.  It requires a working
+     * space the size of the range to be sorted.  Ranges shorter than an
+     * implementation-defined threshold are sorted using the appropriate
+     * {@link Arrays#sort(int[]) Arrays.sort} method, and ranges too short
+     * to be divided are sorted sequentially.
+     *
+     * @param a the array to be sorted
+     *
+     * @since 12
+     */
+    public static void parallelRadixSort(double[] a) {
+        RadixSort.sort(a, 0, a.length, true);
+    }
+
+    /**
+     * Sorts the specified range of the array into ascending numerical order.
+     * The range to be sorted extends from the index {@code fromIndex},
+     * inclusive, to the index {@code toIndex}, exclusive. If
+     * {@code fromIndex == toIndex}, the range to be sorted is empty.
+     *
+     * <p>The {@code <} relation does not provide a total order on all double
+     * values: {@code -0.0d == 0.0d} is {@code true} and a {@code Double.NaN}
+     * value compares neither less than, greater than, nor equal to any value,
+     * even itself. This method uses the total order imposed by the method
+     * {@link Double#compareTo}: {@code -0.0d} is treated as less than value
+     * {@code 0.0d} and {@code Double.NaN} is considered greater than any
+     * other value and all {@code Double.NaN} values are considered equal.
+     *
+     * @implNote The sorting algorithm is a least-significant-digit radix
+     * sort that distributes the elements by one byte of their value per
+     * pass, skipping bytes that are the same in every element.  Each pass
+     * divides the range into chunks whose digits are counted, and then
+     * scattered, in parallel; the {@link ForkJoinPool#commonPool() ForkJoin
+     * common pool} is used to execute these tasks.  It requires a working
+     * space the size of the range to be sorted.  Ranges shorter than an
+     * implementation-defined threshold are sorted using the appropriate
+     * {@link Arrays#sort(int[]) Arrays.sort} method, and ranges too short
+     * to be divided are sorted sequentially.
+     *
+     * @param a the array to be sorted
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     *
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException
+     *     if {@code fromIndex < 0} or {@code toIndex > a.length}
+     *
+     * @since 12
+     */
+    public static void parallelRadixSort(double[] a, int fromIndex, int toIndex) {
+        rangeCheck(a.length, fromIndex, toIndex);
+        RadixSort.sort(a, fromIndex, toIndex, true);
+    }
+
+    /**
+     * Sorts the specified array of objects into ascending order of the
+     * {@code int} keys computed by the specified function.
+     *
+     * <p>This sort is guaranteed to be <i>stable</i>:  equal elements will
+     * not be reordered as a result of the sort.  It is equivalent to sorting
+     * with {@code Comparator.comparingInt(keyExtractor)}, except that the
+     * key extractor is applied exactly once to each element in the range.
+     *
+     * @implNote The key of each element is extracted once, into a working
+     * array, and the elements are then arranged by a least-significant-digit
+     * radix sort of the keys, as by {@link #radixSort(int[])}, which
+     * performs no comparisons.  It requires working space for two arrays
+     * of keys and one array of references, each the length of the range
+     * to be sorted.
+     *
+     * @param <T> the class of the objects to be sorted
+     * @param a the array to be sorted
+     * @param keyExtractor the function used to extract the sort key
+     *
+     * @throws NullPointerException if the key extractor is null
+     *
+     * @since 12
+     */
+    public static <T> void sortByIntKey(T[] a, ToIntFunction<? super T> keyExtractor) {
+        sortByIntKey(a, 0, a.length, keyExtractor, false);
+    }
+
+    /**
+     * Sorts the specified range of the array of objects into ascending
+     * order of the {@code int} keys computed by the specified function.
+     * The range to be sorted extends from the index {@code fromIndex},
+     * inclusive, to the index {@code toIndex}, exclusive. If
+     * {@code fromIndex == toIndex}, the range to be sorted is empty.
+     *
+     * <p>This sort is guaranteed to be <i>stable</i>:  equal elements will
+     * not be reordered as a result of the sort.  It is equivalent to sorting
+     * with {@code Comparator.comparingInt(keyExtractor)}, except that the
+     * key extractor is applied exactly once to each element in the range.
+     *
+     * @implNote The key of each element is extracted once, into a working
+     * array, and the elements are then arranged by a least-significant-digit
+     * radix sort of the keys, as by {@link #radixSort(int[])}, which
+     * performs no comparisons.  It requires working space for two arrays
+     * of keys and one array of references, each the length of the range
+     * to be sorted.
+     *
+     * @param <T> the class of the objects to be sorted
+     * @param a the array to be sorted
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     * @param keyExtractor the function used to extract the sort key
+     *
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException
+     *     if {@code fromIndex < 0} or {@code toIndex > a.length}
+     * @throws NullPointerException if the key extractor is null
+     *
+     * @since 12
+     */
+    public static <T> void sortByIntKey(T[] a, int fromIndex, int toIndex,
+            ToIntFunction<? super T> keyExtractor) {
+        rangeCheck(a.length, fromIndex, toIndex);
+        sortByIntKey(a, fromIndex, toIndex, keyExtractor, false);
+    }
+
+    /**
+     * Sorts the specified array of objects into ascending order of the
+     * {@code long} keys computed by the specified function.
+     *
+     * <p>This sort is guaranteed to be <i>stable</i>:  equal elements will
+     * not be reordered as a result of the sort.  It is equivalent to sorting
+     * with {@code Comparator.comparingLong(keyExtractor)}, except that the
+     * key extractor is applied exactly once to each element in the range.
+     *
+     * @implNote The key of each element is extracted once, into a working
+     * array, and the elements are then arranged by a least-significant-digit
+     * radix sort of the keys, as by {@link #radixSort(long[])}, which
+     * performs no comparisons.  It requires working space for two arrays
+     * of keys and one array of references, each the length of the range
+     * to be sorted.
+     *
+     * @param <T> the class of the objects to be sorted
+     * @param a the array to be sorted
+     * @param keyExtractor the function used to extract the sort key
+     *
+     * @throws NullPointerException if the key extractor is null
+     *
+     * @since 12
+     */
+    public static <T> void sortByLongKey(T[] a, ToLongFunction<? super T> keyExtractor) {
+        sortByLongKey(a, 0, a.length, keyExtractor, false);
+    }
+
+    /**
+     * Sorts the specified range of the array of objects into ascending
+     * order of the {@code long} keys computed by the specified function.
+     * The range to be sorted extends from the index {@code fromIndex},
+     * inclusive, to the index {@code toIndex}, exclusive. If
+     * {@code fromIndex == toIndex}, the range to be sorted is empty.
+     *
+     * <p>This sort is guaranteed to be <i>stable</i>:  equal elements will
+     * not be reordered as a result of the sort.  It is equivalent to sorting
+     * with {@code Comparator.comparingLong(keyExtractor)}, except that the
+     * key extractor is applied exactly once to each element in the range.
+     *
+     * @implNote The key of each element is extracted once, into a working
+     * array, and the elements are then arranged by a least-significant-digit
+     * radix sort of the keys, as by {@link #radixSort(long[])}, which
+     * performs no comparisons.  It requires working space for two arrays
+     * of keys and one array of references, each the length of the range
+     * to be sorted.
+     *
+     * @param <T> the class of the objects to be sorted
+     * @param a the array to be sorted
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     * @param keyExtractor the function used to extract the sort key
+     *
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException
+     *     if {@code fromIndex < 0} or {@code toIndex > a.length}
+     * @throws NullPointerException if the key extractor is null
+     *
+     * @since 12
+     */
+    public static <T> void sortByLongKey(T[] a, int fromIndex, int toIndex,
+            ToLongFunction<? super T> keyExtractor) {
+        rangeCheck(a.length, fromIndex, toIndex);
+        sortByLongKey(a, fromIndex, toIndex, keyExtractor, false);
+    }
+
+    /**
+     * Sorts the specified array of objects into ascending order of the
+     * {@code int} keys computed by the specified function.
+     *
+     * <p>This sort is guaranteed to be <i>stable</i>:  equal elements will
+     * not be reordered as a result of the sort.  It is equivalent to sorting
+     * with {@code Comparator.comparingInt(keyExtractor)}, except that the
+     * key extractor is applied exactly once to each element in the range.
+     *
+     * @implNote The key of each element is extracted once, in parallel,
+     * into a working array, and the elements are then arranged by a
+     * least-significant-digit radix sort of the keys, as by
+     * {@link #parallelRadixSort(int[])}.  The {@link
+     * ForkJoinPool#commonPool() ForkJoin common pool} is used to execute any
+     * parallel tasks, so the key extractor may be applied concurrently by
+     * several threads.  It requires working space for two arrays of keys
+     * and one array of references, each the length of the range to be
+     * sorted.
+     *
+     * @param <T> the class of the objects to be sorted
+     * @param a the array to be sorted
+     * @param keyExtractor the function used to extract the sort key
+     *
+     * @throws NullPointerException if the key extractor is null
+     *
+     * @since 12
+     */
+    public static <T> void parallelSortByIntKey(T[] a, ToIntFunction<? super T> keyExtractor) {
+        sortByIntKey(a, 0, a.length, keyExtractor, true);
+    }
+
+    /**
+     * Sorts the specified range of the array of objects into ascending
+     * order of the {@code int} keys computed by the specified function.
+     * The range to be sorted extends from the index {@code fromIndex},
+     * inclusive, to the index {@code toIndex}, exclusive. If
+     * {@code fromIndex == toIndex}, the range to be sorted is empty.
+     *
+     * <p>This sort is guaranteed to be <i>stable</i>:  equal elements will
+     * not be reordered as a result of the sort.  It is equivalent to sorting
+     * with {@code Comparator.comparingInt(keyExtractor)}, except that the
+     * key extractor is applied exactly once to each element in the range.
+     *
+     * @implNote The key of each element is extracted once, in parallel,
+     * into a working array, and the elements are then arranged by a
+     * least-significant-digit radix sort of the keys, as by
+     * {@link #parallelRadixSort(int[])}.  The {@link
+     * ForkJoinPool#commonPool() ForkJoin common pool} is used to execute any
+     * parallel tasks, so the key extractor may be applied concurrently by
+     * several threads.  It requires working space for two arrays of keys
+     * and one array of references, each the length of the range to be
+     * sorted.
+     *
+     * @param <T> the class of the objects to be sorted
+     * @param a the array to be sorted
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     * @param keyExtractor the function used to extract the sort key
+     *
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException
+     *     if {@code fromIndex < 0} or {@code toIndex > a.length}
+     * @throws NullPointerException if the key extractor is null
+     *
+     * @since 12
+     */
+    public static <T> void parallelSortByIntKey(T[] a, int fromIndex, int toIndex,
+            ToIntFunction<? super T> keyExtractor) {
+        rangeCheck(a.length, fromIndex, toIndex);
+        sortByIntKey(a, fromIndex, toIndex, keyExtractor, true);
+    }
+
+    /**
+     * Sorts the specified array of objects into ascending order of the
+     * {@code long} keys computed by the specified function.
+     *
+     * <p>This sort is guaranteed to be <i>stable</i>:  equal elements will
+     * not be reordered as a result of the sort.  It is equivalent to sorting
+     * with {@code Comparator.comparingLong(keyExtractor)}, except that the
+     * key extractor is applied exactly once to each element in the range.
+     *
+     * @implNote The key of each element is extracted once, in parallel,
+     * into a working array, and the elements are then arranged by a
+     * least-significant-digit radix sort of the keys, as by
+     * {@link #parallelRadixSort(long[])}.  The {@link
+     * ForkJoinPool#commonPool() ForkJoin common pool} is used to execute any
+     * parallel tasks, so the key extractor may be applied concurrently by
+     * several threads.  It requires working space for two arrays of keys
+     * and one array of references, each the length of the range to be
+     * sorted.
+     *
+     * @param <T> the class of the objects to be sorted
+     * @param a the array to be sorted
+     * @param keyExtractor the function used to extract the sort key
+     *
+     * @throws NullPointerException if the key extractor is null
+     *
+     * @since 12
+     */
+    public static <T> void parallelSortByLongKey(T[] a, ToLongFunction<? super T> keyExtractor) {
+        sortByLongKey(a, 0, a.length, keyExtractor, true);
+    }
+
+    /**
+     * Sorts the specified range of the array of objects into ascending
+     * order of the {@code long} keys computed by the specified function.
+     * The range to be sorted extends from the index {@code fromIndex},
+     * inclusive, to the index {@code toIndex}, exclusive. If
+     * {@code fromIndex == toIndex}, the range to be sorted is empty.
+     *
+     * <p>This sort is guaranteed to be <i>stable</i>:  equal elements will
+     * not be reordered as a result of the sort.  It is equivalent to sorting
+     * with {@code Comparator.comparingLong(keyExtractor)}, except that the
+     * key extractor is applied exactly once to each element in the range.
+     *
+     * @implNote The key of each element is extracted once, in parallel,
+     * into a working array, and the elements are then arranged by a
+     * least-significant-digit radix sort of the keys, as by
+     * {@link #parallelRadixSort(long[])}.  The {@link
+     * ForkJoinPool#commonPool() ForkJoin common pool} is used to execute any
+     * parallel tasks, so the key extractor may be applied concurrently by
+     * several threads.  It requires working space for two arrays of keys
+     * and one array of references, each the length of the range to be
+     * sorted.
+     *
+     * @param <T> the class of the objects to be sorted
+     * @param a the array to be sorted
+     * @param fromIndex the index of the first element, inclusive, to be sorted
+     * @param toIndex the index of the last element, exclusive, to be sorted
+     * @param keyExtractor the function used to extract the sort key
+     *
+     * @throws IllegalArgumentException if {@code fromIndex > toIndex}
+     * @throws ArrayIndexOutOfBoundsException
+     *     if {@code fromIndex < 0} or {@code toIndex > a.length}
+     * @throws NullPointerException if the key extractor is null
+     *
+     * @since 12
+     */
+    public static <T> void parallelSortByLongKey(T[] a, int fromIndex, int toIndex,
+            ToLongFunction<? super T> keyExtractor) {
+        rangeCheck(a.length, fromIndex, toIndex);
+        sortByLongKey(a, fromIndex, toIndex, keyExtractor, true);
+    }
+
+    // Like public version, but without range checks.
+    private static <T> void sortByIntKey(T[] a, int fromIndex, int toIndex,
+                                        ToIntFunction<? super T> keyExtractor,
+                                        boolean parallel) {
+        Objects.requireNonNull(keyExtractor);
+        int n = toIndex - fromIndex;
+        if (n < 2)
+            return;
+        int[] keys = new int[n];
+        if (parallel && n > MIN_ARRAY_SORT_GRAN)
+            IntStream.range(0, n).parallel().forEach(
+                i -> keys[i] = keyExtractor.applyAsInt(a[fromIndex + i]));
+        else
+            for (int i = 0; i < n; i++)
+                keys[i] = keyExtractor.applyAsInt(a[fromIndex + i]);
+        RadixSort.sort(keys, a, fromIndex, parallel);
+    }
+
+    // Like public version, but without range checks.
+    private static <T> void sortByLongKey(T[] a, int fromIndex, int toIndex,
+                                        ToLongFunction<? super T> keyExtractor,
+                                        boolean parallel) {
+        Objects.requireNonNull(keyExtractor);
+        int n = toIndex - fromIndex;
+        if (n < 2)
+            return;
+        long[] keys = new long[n];
+        if (parallel && n > MIN_ARRAY_SORT_GRAN)
+            IntStream.range(0, n).parallel().forEach(
+                i -> keys[i] = keyExtractor.applyAsLong(a[fromIndex + i]));
+        else
+            for (int i = 0; i < n; i++)
+                keys[i] = keyExtractor.applyAsLong(a[fromIndex + i]);
+        RadixSort.sort(keys, a, fromIndex, parallel);
+    }
+
     // Parallel prefix
 
     /**
@@ -0,0 +1,2160 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util;
+
+import java.io.Serializable;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * A B+tree based {@link NavigableMap} implementation.
+ * The map is sorted according to the {@linkplain Comparable natural
+ * ordering} of its keys, or by a {@link Comparator} provided at map
+ * creation time, depending on which constructor is used.
+ *
+ * <p>This class is an alternative to {@link TreeMap} for large maps that
+ * are dominated by lookups and range scans.  Mappings are held in leaf
+ * nodes of up to 64 keys and values each, stored in parallel arrays, and
+ * the leaves are linked in key order.  A lookup therefore touches a
+ * handful of wide nodes rather than one node per tree level, and a scan
+ * over a {@link #subMap subMap}, {@link #headMap headMap} or
+ * {@link #tailMap tailMap} view walks leaf arrays sequentially instead of
+ * following a pointer per mapping.  Interior nodes hold separator keys
+ * only.  The {@code containsKey}, {@code get}, {@code put} and
+ * {@code remove} operations run in log(n) time.
+ *
+ * <p>A map constructed from a {@link SortedMap}, or populated by
+ * {@link #putAll putAll} of a {@code SortedMap} with the same ordering
+ * while empty, is bulk loaded bottom-up in linear time with fully packed
+ * leaves.  Insertion at the high end of the map, as with monotonically
+ * increasing keys, likewise leaves full nodes behind rather than splitting
+ * them in half.
+ *
+ * <p>The spliterators of the map and of its ascending views split at
+ * interior node boundaries, so that parallel streams over a large range
+ * are partitioned into subtrees of similar size.
+ *
+ * <p>Note that the ordering maintained by this map, like any sorted map, and
+ * whether or not an explicit comparator is provided, must be <em>consistent
+ * with {@code equals}</em> if this sorted map is to correctly implement the
+ * {@code Map} interface.  (See {@code Comparable} or {@code Comparator} for a
+ * precise definition of <em>consistent with equals</em>.)
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * If multiple threads access a map concurrently, and at least one of the
+ * threads modifies the map structurally, it <em>must</em> be synchronized
+ * externally.  (A structural modification is any operation that adds or
+ * deletes one or more mappings; merely changing the value associated
+ * with an existing key is not a structural modification.)
+ *
+ * <p>The iterators returned by the {@code iterator} method of the collections
+ * returned by all of this class's "collection view methods" are
+ * <em>fail-fast</em>, as described for {@link TreeMap}.
+ *
+ * <p>All {@code Map.Entry} pairs returned by the navigation methods of this
+ * class and its views represent snapshots of mappings at the time they were
+ * produced. They do <strong>not</strong> support the {@code Entry.setValue}
+ * method.  Entries returned by entry set iterators do support it.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ *
+ * @see TreeMap
+ * @see NavigableMap
+ * @since 12
+ */
+public class BTreeMap<K,V>
+    extends AbstractMap<K,V>
+    implements NavigableMap<K,V>, Cloneable, java.io.Serializable
+{
+    private static final long serialVersionUID = 4829617733546182103L;
+
+    /*
+     * Implementation overview.
+     *
+     * The tree is a B+tree.  Leaves hold up to LEAF_CAPACITY keys and
+     * values in sorted order, and are doubly linked; the map keeps the
+     * first and last leaf.  A Branch with n children holds n - 1
+     * separator keys: child i holds keys k with
+     * keys[i - 1] <= k < keys[i].  A separator is never updated when the
+     * key it was copied from is removed; it remains a valid bound.
+     *
+     * Except for the root, leaves are never empty and branches have at
+     * least two children.  Nodes are otherwise allowed to be underfull:
+     * a node that drops below half capacity after a removal borrows from
+     * or merges with an adjacent sibling, which is always possible
+     * without overflow, but nodes created by "append" splits (insertion
+     * past the last key of the map, where a half-and-half split would
+     * leave every leaf half empty) start out nearly empty.
+     *
+     * The height of the tree is tracked so that the rare operations that
+     * need the root-to-leaf path (splits and underflows) can record it
+     * in arrays.  Plain lookups, replacing puts, and removals that do not
+     * underflow walk down without recording anything.
+     *
+     * Positions are exchanged internally as Cursor (leaf, index) pairs,
+     * and iterators and spliterators walk from a first to a last
+     * position (inclusive) without comparing keys.  An iterator that
+     * removes through itself re-locates its position by key afterwards,
+     * since removal may have merged or rebalanced leaves.
+     */
+
+    /**
+     * The maximum number of mappings held by a leaf.
+     */
+    static final int LEAF_CAPACITY = 64;
+
+    /**
+     * The maximum number of children of a branch.
+     */
+    static final int BRANCH_CAPACITY = 64;
+
+    /**
+     * The size below which a non-root leaf is rebalanced after removal.
+     */
+    static final int MIN_LEAF = LEAF_CAPACITY / 2;
+
+    /**
+     * The number of children below which a non-root branch is
+     * rebalanced after removal.
+     */
+    static final int MIN_BRANCH = BRANCH_CAPACITY / 2;
+
+    /**
+     * The comparator used to maintain order in this map, or
+     * null if it uses the natural ordering of its keys.
+     *
+     * @serial
+     */
+    private final Comparator<? super K> comparator;
+
+    private transient Node root;
+
+    /** First and last leaves, in key order. */
+    private transient Leaf head, tail;
+
+    /** The number of branch levels above the leaves. */
+    private transient int height;
+
+    /**
+     * The number of entries in the tree
+     */
+    private transient int size = 0;
+
+    /**
+     * The number of structural modifications to the tree.
+     */
+    private transient int modCount = 0;
+
+    /**
+     * Constructs a new, empty map, using the natural ordering of its
+     * keys.  All keys inserted into the map must implement the {@link
+     * Comparable} interface and be mutually comparable.
+     */
+    public BTreeMap() {
+        comparator = null;
+        initEmpty();
+    }
+
+    /**
+     * Constructs a new, empty map, ordered according to the given
+     * comparator.
+     *
+     * @param comparator the comparator that will be used to order this map.
+     *        If {@code null}, the {@linkplain Comparable natural
+     *        ordering} of the keys will be used.
+     */
+    public BTreeMap(Comparator<? super K> comparator) {
+        this.comparator = comparator;
+        initEmpty();
+    }
+
+    /**
+     * Constructs a new map containing the same mappings as the given
+     * map, ordered according to the <em>natural ordering</em> of its keys.
+     * This method runs in n*log(n) time, or in linear time if the given
+     * map is a {@code SortedMap} using natural ordering.
+     *
+     * @param  m the map whose mappings are to be placed in this map
+     * @throws ClassCastException if the keys in m are not {@link Comparable},
+     *         or are not mutually comparable
+     * @throws NullPointerException if the specified map is null
+     */
+    public BTreeMap(Map<? extends K, ? extends V> m) {
+        comparator = null;
+        initEmpty();
+        putAll(m);
+    }
+
+    /**
+     * Constructs a new map containing the same mappings and
+     * using the same ordering as the specified sorted map.  The leaves
+     * are bulk loaded from the sorted entries in linear time.
+     *
+     * @param  m the sorted map whose mappings are to be placed in this map,
+     *         and whose comparator is to be used to sort this map
+     * @throws NullPointerException if the specified map is null
+     */
+    public BTreeMap(SortedMap<K, ? extends V> m) {
+        comparator = m.comparator();
+        try {
+            buildFromSorted(m.size(), m.entrySet().iterator(), null);
+        } catch (java.io.IOException | ClassNotFoundException cannotHappen) {
+        }
+    }
+
+    /* ---------------- Nodes -------------- */
+
+    /**
+     * Base of leaves and branches.  For a leaf, n is the number of
+     * mappings; for a branch, the number of children.
+     */
+    abstract static class Node {
+        int n;
+        final Object[] keys;
+        Node(int keyCapacity) { keys = new Object[keyCapacity]; }
+    }
+
+    static final class Leaf extends Node {
+        final Object[] vals;
+        Leaf prev, next;
+        Leaf() {
+            super(LEAF_CAPACITY);
+            vals = new Object[LEAF_CAPACITY];
+        }
+    }
+
+    static final class Branch extends Node {
+        final Node[] children;
+        Branch() {
+            super(BRANCH_CAPACITY - 1);
+            children = new Node[BRANCH_CAPACITY];
+        }
+    }
+
+    /**
+     * A position in the map: the mapping at leaf.keys[index].
+     * Valid only until the next structural modification.
+     */
+    static final class Cursor {
+        final Leaf leaf;
+        final int index;
+        Cursor(Leaf leaf, int index) {
+            this.leaf = leaf;
+            this.index = index;
+        }
+    }
+
+    private void initEmpty() {
+        Leaf l = new Leaf();
+        root = head = tail = l;
+        height = 0;
+        size = 0;
+    }
+
+    /* ---------------- Search -------------- */
+
+    /**
+     * Binary search of the first n keys of node x, as by
+     * {@link Arrays#binarySearch(Object[], int, int, Object)}.
+     */
+    @SuppressWarnings("unchecked")
+    final int search(Node x, int n, Object key) {
+        Object[] keys = x.keys;
+        int lo = 0, hi = n - 1;
+        Comparator<? super K> cpr = comparator;
+        if (cpr != null) {
+            K k = (K) key;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int c = cpr.compare((K) keys[mid], k);
+                if (c < 0)
+                    lo = mid + 1;
+                else if (c > 0)
+                    hi = mid - 1;
+                else
+                    return mid;
+            }
+        } else {
+            Comparable<? super K> k = (Comparable<? super K>) key;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int c = k.compareTo((K) keys[mid]);
+                if (c > 0)
+                    lo = mid + 1;
+                else if (c < 0)
+                    hi = mid - 1;
+                else
+                    return mid;
+            }
+        }
+        return -(lo + 1);
+    }
+
+    /**
+     * Returns the index of the child of b whose range contains key.
+     */
+    final int childIndex(Branch b, Object key) {
+        int i = search(b, b.n - 1, key);
+        return (i >= 0) ? i + 1 : -(i + 1);
+    }
+
+    /**
+     * Returns the leaf whose range contains key.
+     */
+    final Leaf leafFor(Object key) {
+        if (key == null && comparator == null)
+            throw new NullPointerException();
+        Node x = root;
+        for (int d = height; d > 0; d--) {
+            Branch b = (Branch) x;
+            x = b.children[childIndex(b, key)];
+        }
+        return (Leaf) x;
+    }
+
+    /** Relations for find */
+    static final int LT = 0, LE = 1, EQ = 2, GE = 3, GT = 4;
+
+    /**
+     * Returns the position of the mapping for the greatest key less than
+     * (LT), or at most (LE), or equal to (EQ), or the least key at least
+     * (GE) or greater than (GT) the given key, or null if there is none.
+     */
+    final Cursor find(Object key, int rel) {
+        Leaf l = leafFor(key);
+        int i = search(l, l.n, key);
+        if (i >= 0) {
+            if (rel == LT)
+                i--;
+            else if (rel == GT)
+                i++;
+        } else {
+            if (rel == EQ)
+                return null;
+            i = -(i + 1);
+            if (rel < EQ)
+                i--;
+        }
+        if (i < 0) {
+            if ((l = l.prev) == null)
+                return null;
+            i = l.n - 1;
+        } else if (i >= l.n) {
+            if ((l = l.next) == null)
+                return null;
+            i = 0;
+        }
+        return new Cursor(l, i);
+    }
+
+    final Cursor firstCursor() {
+        return (size == 0) ? null : new Cursor(head, 0);
+    }
+
+    final Cursor lastCursor() {
+        Leaf l = tail;
+        return (size == 0) ? null : new Cursor(l, l.n - 1);
+    }
+
+    /**
+     * Returns the number of mappings from lo to hi inclusive, by
+     * summing leaf sizes.
+     */
+    static int countBetween(Cursor lo, Cursor hi) {
+        if (lo == null || hi == null)
+            return 0;
+        int c = 0;
+        for (Leaf l = lo.leaf; l != hi.leaf; l = l.next)
+            c += l.n;
+        return c - lo.index + hi.index + 1;
+    }
+
+    /* ---------------- Query Operations -------------- */
+
+    /**
+     * Returns the number of key-value mappings in this map.
+     *
+     * @return the number of key-value mappings in this map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the specified
+     * key.
+     *
+     * @param key key whose presence in this map is to be tested
+     * @return {@code true} if this map contains a mapping for the
+     *         specified key
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public boolean containsKey(Object key) {
+        Leaf l = leafFor(key);
+        return search(l, l.n, key) >= 0;
+    }
+
+    /**
+     * Returns {@code true} if this map maps one or more keys to the
+     * specified value.  This operation requires time linear in the map
+     * size, but scans leaf arrays sequentially.
+     *
+     * @param value value whose presence in this map is to be tested
+     * @return {@code true} if a mapping to {@code value} exists;
+     *         {@code false} otherwise
+     */
+    public boolean containsValue(Object value) {
+        for (Leaf l = head; l != null; l = l.next) {
+            Object[] vs = l.vals;
+            for (int i = 0, n = l.n; i < n; i++)
+                if (valEquals(value, vs[i]))
+                    return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped,
+     * or {@code null} if this map contains no mapping for the key.
+     *
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        Leaf l = leafFor(key);
+        int i = search(l, l.n, key);
+        return (i >= 0) ? (V) l.vals[i] : null;
+    }
+
+    public Comparator<? super K> comparator() {
+        return comparator;
+    }
+
+    /**
+     * @throws NoSuchElementException {@inheritDoc}
+     */
+    public K firstKey() {
+        return key(firstCursor());
+    }
+
+    /**
+     * @throws NoSuchElementException {@inheritDoc}
+     */
+    public K lastKey() {
+        return key(lastCursor());
+    }
+
+    /**
+     * Copies all of the mappings from the specified map to this map.
+     * If this map is empty and the specified map is a {@code SortedMap}
+     * with the same ordering, the tree is bulk loaded in linear time.
+     *
+     * @param  map mappings to be stored in this map
+     * @throws ClassCastException if the class of a key or value in
+     *         the specified map prevents it from being stored in this map
+     * @throws NullPointerException if the specified map is null or
+     *         the specified map contains a null key and this map does not
+     *         permit null keys
+     */
+    public void putAll(Map<? extends K, ? extends V> map) {
+        int mapSize = map.size();
+        if (size == 0 && mapSize != 0 && map instanceof SortedMap) {
+            if (Objects.equals(comparator, ((SortedMap<?,?>)map).comparator())) {
+                ++modCount;
+                try {
+                    buildFromSorted(mapSize, map.entrySet().iterator(), null);
+                } catch (java.io.IOException | ClassNotFoundException cannotHappen) {
+                }
+                return;
+            }
+        }
+        super.putAll(map);
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map.
+     * If the map previously contained a mapping for the key, the old
+     * value is replaced.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     *
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}.
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    @SuppressWarnings("unchecked")
+    public V put(K key, V value) {
+        if (size == 0)
+            compare(key, key); // type (and possibly null) check
+        Leaf l = leafFor(key);
+        int i = search(l, l.n, key);
+        if (i >= 0) {
+            V oldValue = (V) l.vals[i];
+            l.vals[i] = value;
+            return oldValue;
+        }
+        i = -(i + 1);
+        if (l.n < LEAF_CAPACITY)
+            insertIntoLeaf(l, i, key, value);
+        else
+            splitAndInsert(l, i, key, value);
+        size++;
+        modCount++;
+        return null;
+    }
+
+    private static void insertIntoLeaf(Leaf l, int i, Object key, Object value) {
+        int n = l.n;
+        System.arraycopy(l.keys, i, l.keys, i + 1, n - i);
+        System.arraycopy(l.vals, i, l.vals, i + 1, n - i);
+        l.keys[i] = key;
+        l.vals[i] = value;
+        l.n = n + 1;
+    }
+
+    /**
+     * Splits full leaf l, inserts the mapping at position i, and adds
+     * the new leaf to the parent, splitting branches upwards as needed.
+     */
+    private void splitAndInsert(Leaf l, int i, Object key, Object value) {
+        boolean append = (i == LEAF_CAPACITY && l.next == null);
+        int keep = append ? LEAF_CAPACITY : LEAF_CAPACITY / 2;
+        int moved = LEAF_CAPACITY - keep;
+        Leaf r = new Leaf();
+        System.arraycopy(l.keys, keep, r.keys, 0, moved);
+        System.arraycopy(l.vals, keep, r.vals, 0, moved);
+        Arrays.fill(l.keys, keep, LEAF_CAPACITY, null);
+        Arrays.fill(l.vals, keep, LEAF_CAPACITY, null);
+        l.n = keep;
+        r.n = moved;
+        Leaf nx = l.next;
+        r.next = nx;
+        r.prev = l;
+        l.next = r;
+        if (nx != null)
+            nx.prev = r;
+        else
+            tail = r;
+        if (i <= keep && !append)
+            insertIntoLeaf(l, i, key, value);
+        else
+            insertIntoLeaf(r, i - keep, key, value);
+        insertChild(key, r.keys[0], r, append);
+    }
+
+    /**
+     * Inserts separator sep and its right node into the parent of the
+     * node that key routes to at the level above right, splitting
+     * branches upwards as needed.
+     */
+    private void insertChild(Object key, Object sep, Node right, boolean append) {
+        int h = height;
+        Branch[] path = new Branch[h];
+        int[] slots = new int[h];
+        Node x = root;
+        for (int d = 0; d < h; d++) {
+            Branch b = (Branch) x;
+            int c = childIndex(b, key);
+            path[d] = b;
+            slots[d] = c;
+            x = b.children[c];
+        }
+        for (int d = h - 1; d >= 0; d--) {
+            Branch b = path[d];
+            int c = slots[d], n = b.n;
+            if (n < BRANCH_CAPACITY) {
+                System.arraycopy(b.keys, c, b.keys, c + 1, n - 1 - c);
+                System.arraycopy(b.children, c + 1, b.children, c + 2, n - 1 - c);
+                b.keys[c] = sep;
+                b.children[c + 1] = right;
+                b.n = n + 1;
+                return;
+            }
+            // Lay out the BRANCH_CAPACITY + 1 children, then split them
+            Object[] ks = new Object[BRANCH_CAPACITY];
+            Node[] cs = new Node[BRANCH_CAPACITY + 1];
+            System.arraycopy(b.keys, 0, ks, 0, c);
+            ks[c] = sep;
+            System.arraycopy(b.keys, c, ks, c + 1, n - 1 - c);
+            System.arraycopy(b.children, 0, cs, 0, c + 1);
+            cs[c + 1] = right;
+            System.arraycopy(b.children, c + 1, cs, c + 2, n - 1 - c);
+            int keep = append ? BRANCH_CAPACITY - 1 : (BRANCH_CAPACITY + 1) / 2;
+            int rn = BRANCH_CAPACITY + 1 - keep;
+            Branch r = new Branch();
+            System.arraycopy(cs, keep, r.children, 0, rn);
+            System.arraycopy(ks, keep, r.keys, 0, rn - 1);
+            r.n = rn;
+            System.arraycopy(cs, 0, b.children, 0, keep);
+            Arrays.fill(b.children, keep, BRANCH_CAPACITY, null);
+            System.arraycopy(ks, 0, b.keys, 0, keep - 1);
+            Arrays.fill(b.keys, keep - 1, BRANCH_CAPACITY - 1, null);
+            b.n = keep;
+            sep = ks[keep - 1];
+            right = r;
+        }
+        Branch nr = new Branch();
+        nr.children[0] = root;
+        nr.children[1] = right;
+        nr.keys[0] = sep;
+        nr.n = 2;
+        root = nr;
+        height = h + 1;
+    }
+
+    /**
+     * Removes the mapping for this key from this map if present.
+     *
+     * @param  key key for which mapping should be removed
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}.
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        Object v = delete(key);
+        return (v == NOT_FOUND) ? null : (V) v;
+    }
+
+    /** Sentinel returned by delete for an absent key */
+    static final Object NOT_FOUND = new Object();
+
+    /**
+     * Removes the mapping for key, returning its value or NOT_FOUND.
+     */
+    final Object delete(Object key) {
+        Leaf l = leafFor(key);
+        int i = search(l, l.n, key);
+        if (i < 0)
+            return NOT_FOUND;
+        Object oldValue = l.vals[i];
+        int h = height;
+        if (l.n > MIN_LEAF || h == 0) {
+            removeFromLeaf(l, i);
+            return oldValue;
+        }
+        // Leaf will underflow; record the path and rebalance upwards
+        Branch[] path = new Branch[h];
+        int[] slots = new int[h];
+        Node x = root;
+        for (int d = 0; d < h; d++) {
+            Branch b = (Branch) x;
+            int c = childIndex(b, key);
+            path[d] = b;
+            slots[d] = c;
+            x = b.children[c];
+        }
+        removeFromLeaf(l, i);
+        for (int d = h - 1; d >= 0; d--) {
+            Branch p = path[d];
+            Node child = p.children[slots[d]];
+            if (child.n >= ((child instanceof Leaf) ? MIN_LEAF : MIN_BRANCH))
+                break;
+            rebalance(p, slots[d]);
+        }
+        if (root.n == 1 && height > 0) {
+            root = ((Branch) root).children[0];
+            height--;
+        }
+        return oldValue;
+    }
+
+    private void removeFromLeaf(Leaf l, int i) {
+        int n = l.n - 1;
+        System.arraycopy(l.keys, i + 1, l.keys, i, n - i);
+        System.arraycopy(l.vals, i + 1, l.vals, i, n - i);
+        l.keys[n] = null;
+        l.vals[n] = null;
+        l.n = n;
+        size--;
+        modCount++;
+    }
+
+    /**
+     * Restores the minimum occupancy of child c of p by borrowing from
+     * or merging with an adjacent sibling.  Merges never overflow since
+     * the child is below, and the sibling at most at, half capacity.
+     */
+    private void rebalance(Branch p, int c) {
+        int s = (c == 0) ? 0 : c - 1;  // separator between left and right
+        boolean fixLeft = (c == s);
+        Node left = p.children[s], right = p.children[s + 1];
+        if (left instanceof Leaf) {
+            Leaf l = (Leaf) left, r = (Leaf) right;
+            if ((fixLeft ? r.n : l.n) > MIN_LEAF) {
+                if (fixLeft) {
+                    l.keys[l.n] = r.keys[0];
+                    l.vals[l.n] = r.vals[0];
+                    l.n++;
+                    int rn = --r.n;
+                    System.arraycopy(r.keys, 1, r.keys, 0, rn);
+                    System.arraycopy(r.vals, 1, r.vals, 0, rn);
+                    r.keys[rn] = null;
+                    r.vals[rn] = null;
+                } else {
+                    int rn = r.n, ln = --l.n;
+                    System.arraycopy(r.keys, 0, r.keys, 1, rn);
+                    System.arraycopy(r.vals, 0, r.vals, 1, rn);
+                    r.keys[0] = l.keys[ln];
+                    r.vals[0] = l.vals[ln];
+                    l.keys[ln] = null;
+                    l.vals[ln] = null;
+                    r.n = rn + 1;
+                }
+                p.keys[s] = r.keys[0];
+                return;
+            }
+            System.arraycopy(r.keys, 0, l.keys, l.n, r.n);
+            System.arraycopy(r.vals, 0, l.vals, l.n, r.n);
+            l.n += r.n;
+            Leaf nx = r.next;
+            l.next = nx;
+            if (nx != null)
+                nx.prev = l;
+            else
+                tail = l;
+        } else {
+            Branch l = (Branch) left, r = (Branch) right;
+            if ((fixLeft ? r.n : l.n) > MIN_BRANCH) {
+                if (fixLeft) {
+                    l.keys[l.n - 1] = p.keys[s];
+                    l.children[l.n] = r.children[0];
+                    l.n++;
+                    p.keys[s] = r.keys[0];
+                    int rn = --r.n;
+                    System.arraycopy(r.keys, 1, r.keys, 0, rn - 1);
+                    System.arraycopy(r.children, 1, r.children, 0, rn);
+                    r.keys[rn - 1] = null;
+                    r.children[rn] = null;
+                } else {
+                    int rn = r.n, ln = --l.n;
+                    System.arraycopy(r.keys, 0, r.keys, 1, rn - 1);
+                    System.arraycopy(r.children, 0, r.children, 1, rn);
+                    r.keys[0] = p.keys[s];
+                    r.children[0] = l.children[ln];
+                    p.keys[s] = l.keys[ln - 1];
+                    l.keys[ln - 1] = null;
+                    l.children[ln] = null;
+                    r.n = rn + 1;
+                }
+                return;
+            }
+            l.keys[l.n - 1] = p.keys[s];
+            System.arraycopy(r.keys, 0, l.keys, l.n, r.n - 1);
+            System.arraycopy(r.children, 0, l.children, l.n, r.n);
+            l.n += r.n;
+        }
+        // Right node was merged into left; drop it from p
+        int pn = p.n;
+        System.arraycopy(p.keys, s + 1, p.keys, s, pn - 2 - s);
+        System.arraycopy(p.children, s + 2, p.children, s + 1, pn - 2 - s);
+        p.keys[pn - 2] = null;
+        p.children[pn - 1] = null;
+        p.n = pn - 1;
+    }
+
+    /**
+     * Removes all of the mappings from this map.
+     * The map will be empty after this call returns.
+     */
+    public void clear() {
+        modCount++;
+        initEmpty();
+    }
+
+    /**
+     * Returns a shallow copy of this {@code BTreeMap} instance. (The keys and
+     * values themselves are not cloned.)
+     *
+     * @return a shallow copy of this map
+     */
+    public Object clone() {
+        BTreeMap<?,?> clone;
+        try {
+            clone = (BTreeMap<?,?>) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError(e);
+        }
+
+        // Put clone into "virgin" state (except for comparator)
+        clone.entrySet = null;
+        clone.navigableKeySet = null;
+        clone.descendingMap = null;
+        clone.modCount = 0;
+
+        // Initialize clone with our mappings
+        try {
+            clone.buildFromSorted(size, entrySet().iterator(), null);
+        } catch (java.io.IOException | ClassNotFoundException cannotHappen) {
+        }
+
+        return clone;
+    }
+
+    // NavigableMap API methods
+
+    public Map.Entry<K,V> firstEntry() {
+        return exportEntry(firstCursor());
+    }
+
+    public Map.Entry<K,V> lastEntry() {
+        return exportEntry(lastCursor());
+    }
+
+    public Map.Entry<K,V> pollFirstEntry() {
+        Cursor c = firstCursor();
+        Map.Entry<K,V> result = exportEntry(c);
+        if (c != null)
+            removeFromPosition(c);
+        return result;
+    }
+
+    public Map.Entry<K,V> pollLastEntry() {
+        Cursor c = lastCursor();
+        Map.Entry<K,V> result = exportEntry(c);
+        if (c != null)
+            removeFromPosition(c);
+        return result;
+    }
+
+    /**
+     * Removes the mapping at c, taking the fast path when the leaf
+     * will not underflow.
+     */
+    final void removeFromPosition(Cursor c) {
+        Leaf l = c.leaf;
+        if (l.n > MIN_LEAF || height == 0)
+            removeFromLeaf(l, c.index);
+        else
+            delete(l.keys[c.index]);
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public Map.Entry<K,V> lowerEntry(K key) {
+        return exportEntry(find(key, LT));
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public K lowerKey(K key) {
+        return keyOrNull(find(key, LT));
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public Map.Entry<K,V> floorEntry(K key) {
+        return exportEntry(find(key, LE));
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public K floorKey(K key) {
+        return keyOrNull(find(key, LE));
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public Map.Entry<K,V> ceilingEntry(K key) {
+        return exportEntry(find(key, GE));
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public K ceilingKey(K key) {
+        return keyOrNull(find(key, GE));
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public Map.Entry<K,V> higherEntry(K key) {
+        return exportEntry(find(key, GT));
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     */
+    public K higherKey(K key) {
+        return keyOrNull(find(key, GT));
+    }
+
+    // Views
+
+    /**
+     * Fields initialized to contain an instance of the entry set view
+     * the first time this view is requested.  Views are stateless, so
+     * there's no reason to create more than one.
+     */
+    private transient EntrySetView<K,V> entrySet;
+    private transient KeySet<K> navigableKeySet;
+    private transient NavigableMap<K,V> descendingMap;
+
+    /**
+     * Returns a {@link Set} view of the keys contained in this map.
+     * The set's iterator returns the keys in ascending order, and its
+     * spliterator splits at interior node boundaries.
+     * The set is backed by the map, so changes to the map are
+     * reflected in the set, and vice-versa.
+     */
+    public Set<K> keySet() {
+        return navigableKeySet();
+    }
+
+    public NavigableSet<K> navigableKeySet() {
+        KeySet<K> nks = navigableKeySet;
+        return (nks != null) ? nks : (navigableKeySet = new KeySet<>(this, null));
+    }
+
+    public NavigableSet<K> descendingKeySet() {
+        return descendingMap().navigableKeySet();
+    }
+
+    /**
+     * Returns a {@link Collection} view of the values contained in this map.
+     * The collection's iterator returns the values in ascending order
+     * of the corresponding keys.
+     * The collection is backed by the map, so changes to the map are
+     * reflected in the collection, and vice-versa.
+     */
+    public Collection<V> values() {
+        Collection<V> vs = values;
+        if (vs == null) {
+            vs = new Values<>(this, null);
+            values = vs;
+        }
+        return vs;
+    }
+
+    /**
+     * Returns a {@link Set} view of the mappings contained in this map.
+     * The set's iterator returns the entries in ascending key order.
+     * The set is backed by the map, so changes to the map are
+     * reflected in the set, and vice-versa.
+     */
+    public Set<Map.Entry<K,V>> entrySet() {
+        EntrySetView<K,V> es = entrySet;
+        return (es != null) ? es : (entrySet = new EntrySetView<>(this, null));
+    }
+
+    public NavigableMap<K, V> descendingMap() {
+        NavigableMap<K, V> km = descendingMap;
+        return (km != null) ? km :
+            (descendingMap = new SubMap<>(this,
+                                          true, null, true,
+                                          true, null, true, true));
+    }
+
+    /**
+     * @throws ClassCastException       {@inheritDoc}
+     * @throws NullPointerException if {@code fromKey} or {@code toKey} is
+     *         null and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public NavigableMap<K,V> subMap(K fromKey, boolean fromInclusive,
+                                    K toKey,   boolean toInclusive) {
+        return new SubMap<>(this,
+                            false, fromKey, fromInclusive,
+                            false, toKey,   toInclusive, false);
+    }
+
+    /**
+     * @throws ClassCastException       {@inheritDoc}
+     * @throws NullPointerException if {@code toKey} is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public NavigableMap<K,V> headMap(K toKey, boolean inclusive) {
+        return new SubMap<>(this,
+                            true,  null,  true,
+                            false, toKey, inclusive, false);
+    }
+
+    /**
+     * @throws ClassCastException       {@inheritDoc}
+     * @throws NullPointerException if {@code fromKey} is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public NavigableMap<K,V> tailMap(K fromKey, boolean inclusive) {
+        return new SubMap<>(this,
+                            false, fromKey, inclusive,
+                            true,  null,    true, false);
+    }
+
+    /**
+     * @throws ClassCastException       {@inheritDoc}
+     * @throws NullPointerException if {@code fromKey} or {@code toKey} is
+     *         null and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public SortedMap<K,V> subMap(K fromKey, K toKey) {
+        return subMap(fromKey, true, toKey, false);
+    }
+
+    /**
+     * @throws ClassCastException       {@inheritDoc}
+     * @throws NullPointerException if {@code toKey} is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public SortedMap<K,V> headMap(K toKey) {
+        return headMap(toKey, false);
+    }
+
+    /**
+     * @throws ClassCastException       {@inheritDoc}
+     * @throws NullPointerException if {@code fromKey} is null
+     *         and this map uses natural ordering, or its comparator
+     *         does not permit null keys
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public SortedMap<K,V> tailMap(K fromKey) {
+        return tailMap(fromKey, true);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        Objects.requireNonNull(action);
+        int expectedModCount = modCount;
+        for (Leaf l = head; l != null; l = l.next) {
+            Object[] ks = l.keys, vs = l.vals;
+            for (int i = 0, n = l.n; i < n; i++) {
+                action.accept((K) ks[i], (V) vs[i]);
+                if (expectedModCount != modCount)
+                    throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+        Objects.requireNonNull(function);
+        int expectedModCount = modCount;
+        for (Leaf l = head; l != null; l = l.next) {
+            Object[] ks = l.keys, vs = l.vals;
+            for (int i = 0, n = l.n; i < n; i++) {
+                vs[i] = function.apply((K) ks[i], (V) vs[i]);
+                if (expectedModCount != modCount)
+                    throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    // View class support
+
+    /** Element kinds of iterators and spliterators */
+    static final int KEYS = 0, VALUES = 1, ENTRIES = 2;
+
+    /**
+     * Returns an iterator of the given kind over the whole map (s ==
+     * null) or view s, in the view's order or its reverse.
+     */
+    final <T> Iterator<T> rangeIterator(SubMap<K,V> s, int kind, boolean reverse) {
+        Cursor lo, hi;
+        boolean descending = reverse;
+        if (s == null) {
+            lo = firstCursor();
+            hi = lastCursor();
+        } else {
+            lo = s.absLowest();
+            hi = s.absHighest();
+            descending ^= s.descending;
+        }
+        return descending
+            ? new RangeIterator<>(hi, lo, true, kind)
+            : new RangeIterator<>(lo, hi, false, kind);
+    }
+
+    /**
+     * Returns a spliterator of the given kind over the whole map (s ==
+     * null) or view s.  Descending views are not split.
+     */
+    final <T> Spliterator<T> rangeSpliterator(SubMap<K,V> s, int kind) {
+        if (s != null && s.descending)
+            return Spliterators.spliteratorUnknownSize(
+                rangeIterator(s, kind, false),
+                (kind == VALUES) ? Spliterator.ORDERED
+                : Spliterator.ORDERED | Spliterator.DISTINCT);
+        return new RangeSpliterator<>(s, kind);
+    }
+
+    @SuppressWarnings("unchecked")
+    final Object element(Leaf l, int i, int kind) {
+        switch (kind) {
+        case KEYS:   return l.keys[i];
+        case VALUES: return l.vals[i];
+        default:     return new LeafEntry(l, i, (K) l.keys[i], (V) l.vals[i]);
+        }
+    }
+
+    static final class Values<K,V> extends AbstractCollection<V> {
+        final BTreeMap<K,V> m;
+        final SubMap<K,V> s;
+        Values(BTreeMap<K,V> m, SubMap<K,V> s) { this.m = m; this.s = s; }
+
+        public Iterator<V> iterator() {
+            return m.rangeIterator(s, VALUES, false);
+        }
+
+        public int size() {
+            return (s == null) ? m.size() : s.size();
+        }
+
+        public boolean isEmpty() {
+            return (s == null) ? m.isEmpty() : s.isEmpty();
+        }
+
+        public boolean contains(Object o) {
+            return (s == null) ? m.containsValue(o) : super.contains(o);
+        }
+
+        public void clear() {
+            if (s == null)
+                m.clear();
+            else
+                super.clear();
+        }
+
+        public Spliterator<V> spliterator() {
+            return m.rangeSpliterator(s, VALUES);
+        }
+    }
+
+    static final class EntrySetView<K,V> extends AbstractSet<Map.Entry<K,V>> {
+        final BTreeMap<K,V> m;
+        final SubMap<K,V> s;
+        EntrySetView(BTreeMap<K,V> m, SubMap<K,V> s) { this.m = m; this.s = s; }
+
+        public Iterator<Map.Entry<K,V>> iterator() {
+            return m.rangeIterator(s, ENTRIES, false);
+        }
+
+        public int size() {
+            return (s == null) ? m.size() : s.size();
+        }
+
+        public boolean isEmpty() {
+            return (s == null) ? m.isEmpty() : s.isEmpty();
+        }
+
+        private Cursor locate(Object o) {
+            if (!(o instanceof Map.Entry))
+                return null;
+            Map.Entry<?,?> entry = (Map.Entry<?,?>) o;
+            Object key = entry.getKey();
+            if (s != null && !s.inRange(key))
+                return null;
+            Cursor c = m.find(key, EQ);
+            return (c != null && valEquals(c.leaf.vals[c.index], entry.getValue()))
+                ? c : null;
+        }
+
+        public boolean contains(Object o) {
+            return locate(o) != null;
+        }
+
+        public boolean remove(Object o) {
+            Cursor c = locate(o);
+            if (c == null)
+                return false;
+            m.removeFromPosition(c);
+            return true;
+        }
+
+        public void clear() {
+            if (s == null)
+                m.clear();
+            else
+                super.clear();
+        }
+
+        public Spliterator<Map.Entry<K,V>> spliterator() {
+            return m.rangeSpliterator(s, ENTRIES);
+        }
+    }
+
+    static final class KeySet<E> extends AbstractSet<E> implements NavigableSet<E> {
+        private final BTreeMap<E,?> bm;
+        private final SubMap<E,?> s;
+        private final NavigableMap<E,?> m;
+        KeySet(BTreeMap<E,?> bm, SubMap<E,?> s) {
+            this.bm = bm;
+            this.s = s;
+            this.m = (s == null) ? bm : s;
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        public Iterator<E> iterator() {
+            return ((BTreeMap) bm).rangeIterator(s, KEYS, false);
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        public Iterator<E> descendingIterator() {
+            return ((BTreeMap) bm).rangeIterator(s, KEYS, true);
+        }
+
+        public int size() { return m.size(); }
+        public boolean isEmpty() { return m.isEmpty(); }
+        public boolean contains(Object o) { return m.containsKey(o); }
+        public void clear() { m.clear(); }
+        public E lower(E e) { return m.lowerKey(e); }
+        public E floor(E e) { return m.floorKey(e); }
+        public E ceiling(E e) { return m.ceilingKey(e); }
+        public E higher(E e) { return m.higherKey(e); }
+        public E first() { return m.firstKey(); }
+        public E last() { return m.lastKey(); }
+        public Comparator<? super E> comparator() { return m.comparator(); }
+        public E pollFirst() {
+            Map.Entry<E,?> e = m.pollFirstEntry();
+            return (e == null) ? null : e.getKey();
+        }
+        public E pollLast() {
+            Map.Entry<E,?> e = m.pollLastEntry();
+            return (e == null) ? null : e.getKey();
+        }
+        public boolean remove(Object o) {
+            if (s != null && !s.inRange(o))
+                return false;
+            return bm.delete(o) != NOT_FOUND;
+        }
+        public NavigableSet<E> subSet(E fromElement, boolean fromInclusive,
+                                      E toElement,   boolean toInclusive) {
+            return m.subMap(fromElement, fromInclusive,
+                            toElement,   toInclusive).navigableKeySet();
+        }
+        public NavigableSet<E> headSet(E toElement, boolean inclusive) {
+            return m.headMap(toElement, inclusive).navigableKeySet();
+        }
+        public NavigableSet<E> tailSet(E fromElement, boolean inclusive) {
+            return m.tailMap(fromElement, inclusive).navigableKeySet();
+        }
+        public SortedSet<E> subSet(E fromElement, E toElement) {
+            return subSet(fromElement, true, toElement, false);
+        }
+        public SortedSet<E> headSet(E toElement) {
+            return headSet(toElement, false);
+        }
+        public SortedSet<E> tailSet(E fromElement) {
+            return tailSet(fromElement, true);
+        }
+        public NavigableSet<E> descendingSet() {
+            return m.descendingMap().navigableKeySet();
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        public Spliterator<E> spliterator() {
+            return ((BTreeMap) bm).rangeSpliterator(s, KEYS);
+        }
+    }
+
+    /**
+     * Iterator over the mappings from a first to a last position,
+     * inclusive, in either direction.
+     */
+    final class RangeIterator<T> implements Iterator<T> {
+        Leaf leaf;          // next position; null when exhausted
+        int index;
+        Leaf fenceLeaf;     // last position
+        int fenceIndex;
+        Leaf lastLeaf;      // position last returned; null if none
+        int lastIndex;
+        final boolean descending;
+        final int kind;
+        int expectedModCount;
+
+        RangeIterator(Cursor first, Cursor last, boolean descending, int kind) {
+            this.descending = descending;
+            this.kind = kind;
+            expectedModCount = modCount;
+            if (first != null && last != null) {
+                leaf = first.leaf;
+                index = first.index;
+                fenceLeaf = last.leaf;
+                fenceIndex = last.index;
+            }
+        }
+
+        public final boolean hasNext() {
+            return leaf != null;
+        }
+
+        @SuppressWarnings("unchecked")
+        public T next() {
+            Leaf l = leaf;
+            int i = index;
+            if (l == null)
+                throw new NoSuchElementException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            lastLeaf = l;
+            lastIndex = i;
+            if (l == fenceLeaf && i == fenceIndex)
+                leaf = null;
+            else if (descending) {
+                if (--i < 0) {
+                    l = l.prev;
+                    i = l.n - 1;
+                }
+                leaf = l;
+                index = i;
+            } else {
+                if (++i >= l.n) {
+                    l = l.next;
+                    i = 0;
+                }
+                leaf = l;
+                index = i;
+            }
+            return (T) element(lastLeaf, lastIndex, kind);
+        }
+
+        public void remove() {
+            Leaf l = lastLeaf;
+            if (l == null)
+                throw new IllegalStateException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            Object key = l.keys[lastIndex];
+            Object fenceKey = (leaf == null) ? null : fenceLeaf.keys[fenceIndex];
+            lastLeaf = null;
+            delete(key);
+            expectedModCount = modCount;
+            if (leaf != null) {
+                // Leaves may have been merged; re-locate by key
+                Cursor nx = find(key, descending ? LT : GT);
+                Cursor f = find(fenceKey, EQ);
+                leaf = nx.leaf;
+                index = nx.index;
+                fenceLeaf = f.leaf;
+                fenceIndex = f.index;
+            }
+        }
+    }
+
+    /**
+     * Spliterator over the mappings of the map or an ascending view, from
+     * a first to a last position inclusive.  Splitting descends from the
+     * root to the highest branch at which the first and last keys route
+     * to different children, and splits there at the middle child, so
+     * that each half covers whole subtrees.  Ranges within one leaf are
+     * split by index.
+     */
+    final class RangeSpliterator<T> implements Spliterator<T> {
+        final SubMap<K,V> view; // null for the whole map
+        final int kind;
+        Leaf leaf;              // current position; null when exhausted
+        int index;
+        Leaf lastLeaf;          // last position
+        int lastIndex;
+        long est;               // size estimate; -1 until bound
+        boolean exact;          // true if est is exact
+        int expectedModCount;
+
+        RangeSpliterator(SubMap<K,V> view, int kind) {
+            this.view = view;
+            this.kind = kind;
+            this.est = -1;
+        }
+
+        RangeSpliterator(RangeSpliterator<T> parent, Leaf leaf, int index,
+                         Leaf lastLeaf, int lastIndex, long est) {
+            this.view = parent.view;
+            this.kind = parent.kind;
+            this.leaf = leaf;
+            this.index = index;
+            this.lastLeaf = lastLeaf;
+            this.lastIndex = lastIndex;
+            this.est = est;
+            this.expectedModCount = parent.expectedModCount;
+        }
+
+        private long getEstimate() { // force initialization
+            if (est < 0) {
+                Cursor lo, hi;
+                expectedModCount = modCount;
+                if (view == null) {
+                    lo = firstCursor();
+                    hi = lastCursor();
+                } else {
+                    lo = view.absLowest();
+                    hi = view.absHighest();
+                }
+                if (lo != null && hi != null) {
+                    leaf = lo.leaf;
+                    index = lo.index;
+                    lastLeaf = hi.leaf;
+                    lastIndex = hi.index;
+                }
+                est = (view == null) ? size : countBetween(lo, hi);
+                exact = true;
+            }
+            return est;
+        }
+
+        public Spliterator<T> trySplit() {
+            long s = getEstimate();
+            Leaf l = leaf;
+            int i = index;
+            if (l == null)
+                return null;
+            if (l == lastLeaf) {
+                int mid = (i + lastIndex + 1) >>> 1;
+                if (mid <= i)
+                    return null;
+                exact = false;
+                index = mid;
+                return new RangeSpliterator<>(this, l, i, l, mid - 1,
+                                              est = s >>> 1);
+            }
+            Object lo = l.keys[i], hi = lastLeaf.keys[lastIndex];
+            Node x = root;
+            for (int d = height; d > 0; d--) {
+                Branch b = (Branch) x;
+                int cs = childIndex(b, lo), ce = childIndex(b, hi);
+                if (cs == ce) {
+                    x = b.children[cs];
+                    continue;
+                }
+                int mid = (cs + ce + 1) >>> 1;
+                Node y = b.children[mid];
+                while (y instanceof Branch)
+                    y = ((Branch) y).children[0];
+                Leaf split = (Leaf) y, before = split.prev;
+                long ps = s * (mid - cs) / (ce - cs + 1);
+                exact = false;
+                leaf = split;
+                index = 0;
+                est = s - ps;
+                return new RangeSpliterator<>(this, l, i, before, before.n - 1, ps);
+            }
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        public void forEachRemaining(Consumer<? super T> action) {
+            if (action == null)
+                throw new NullPointerException();
+            getEstimate();
+            Leaf l = leaf, last = lastLeaf;
+            int i = index, k = kind;
+            if (l != null) {
+                leaf = null;
+                for (;; l = l.next, i = 0) {
+                    int end = (l == last) ? lastIndex + 1 : l.n;
+                    for (; i < end; i++)
+                        action.accept((T) element(l, i, k));
+                    if (l == last)
+                        break;
+                }
+            }
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+
+        @SuppressWarnings("unchecked")
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (action == null)
+                throw new NullPointerException();
+            getEstimate();
+            Leaf l = leaf;
+            int i = index;
+            if (l == null)
+                return false;
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if (l == lastLeaf && i == lastIndex)
+                leaf = null;
+            else if (i + 1 < l.n)
+                index = i + 1;
+            else {
+                leaf = l.next;
+                index = 0;
+            }
+            action.accept((T) element(l, i, kind));
+            return true;
+        }
+
+        public long estimateSize() {
+            return getEstimate();
+        }
+
+        public int characteristics() {
+            int c = (kind == VALUES) ? Spliterator.ORDERED
+                : Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.SORTED;
+            return (est < 0 || exact) ? c | Spliterator.SIZED : c;
+        }
+
+        @SuppressWarnings("unchecked")
+        public Comparator<? super T> getComparator() {
+            if (kind == KEYS)
+                return (Comparator<? super T>) comparator;
+            if (kind == ENTRIES) {
+                if (comparator != null)
+                    return (Comparator<? super T>) (Comparator<Map.Entry<K,V>>)
+                        (e1, e2) -> comparator.compare(e1.getKey(), e2.getKey());
+                return (Comparator<? super T>) (Comparator<?>) Map.Entry.comparingByKey();
+            }
+            throw new IllegalStateException();
+        }
+    }
+
+    /**
+     * Entry returned by entry iterators and spliterators.  setValue
+     * writes through to the map.
+     */
+    final class LeafEntry implements Map.Entry<K,V> {
+        private final Leaf leaf;
+        private final int index;
+        private final K key;
+        private V value;
+
+        LeafEntry(Leaf leaf, int index, K key, V value) {
+            this.leaf = leaf;
+            this.index = index;
+            this.key = key;
+            this.value = value;
+        }
+
+        public K getKey() {
+            return key;
+        }
+
+        public V getValue() {
+            return value;
+        }
+
+        public V setValue(V value) {
+            V oldValue = this.value;
+            this.value = value;
+            if (index < leaf.n && leaf.keys[index] == key)
+                leaf.vals[index] = value;
+            else
+                replace(key, value);
+            return oldValue;
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+
+            return valEquals(key,e.getKey()) && valEquals(value,e.getValue());
+        }
+
+        public int hashCode() {
+            int keyHash = (key==null ? 0 : key.hashCode());
+            int valueHash = (value==null ? 0 : value.hashCode());
+            return keyHash ^ valueHash;
+        }
+
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+
+    // Little utilities
+
+    /**
+     * Compares two keys using the correct comparison method for this map.
+     */
+    @SuppressWarnings("unchecked")
+    final int compare(Object k1, Object k2) {
+        return comparator==null ? ((Comparable<? super K>)k1).compareTo((K)k2)
+            : comparator.compare((K)k1, (K)k2);
+    }
+
+    /**
+     * Test two values for equality.  Differs from o1.equals(o2) only in
+     * that it copes with {@code null} o1 properly.
+     */
+    static final boolean valEquals(Object o1, Object o2) {
+        return (o1==null ? o2==null : o1.equals(o2));
+    }
+
+    /**
+     * Returns a snapshot entry for the mapping at c, or null if c is null.
+     */
+    @SuppressWarnings("unchecked")
+    final Map.Entry<K,V> exportEntry(Cursor c) {
+        return (c == null) ? null :
+            new AbstractMap.SimpleImmutableEntry<>((K) c.leaf.keys[c.index],
+                                                   (V) c.leaf.vals[c.index]);
+    }
+
+    /**
+     * Returns the key at c, or null if c is null.
+     */
+    @SuppressWarnings("unchecked")
+    final K keyOrNull(Cursor c) {
+        return (c == null) ? null : (K) c.leaf.keys[c.index];
+    }
+
+    /**
+     * Returns the key at c.
+     * @throws NoSuchElementException if c is null
+     */
+    @SuppressWarnings("unchecked")
+    final K key(Cursor c) {
+        if (c == null)
+            throw new NoSuchElementException();
+        return (K) c.leaf.keys[c.index];
+    }
+
+    // SubMaps
+
+    /**
+     * View of a key range of a BTreeMap, in ascending or descending
+     * order.  Bounds are held as in TreeMap.NavigableSubMap; positions
+     * are found through the backing map and then checked against the
+     * opposite bound.
+     *
+     * @serial include
+     */
+    static final class SubMap<K,V> extends AbstractMap<K,V>
+        implements NavigableMap<K,V>, java.io.Serializable {
+        private static final long serialVersionUID = -5634157421598309271L;
+
+        /**
+         * The backing map.
+         */
+        final BTreeMap<K,V> m;
+
+        /**
+         * Endpoints are represented as triples (fromStart, lo,
+         * loInclusive) and (toEnd, hi, hiInclusive). If fromStart is
+         * true, then the low (absolute) bound is the start of the
+         * backing map, and the other values are ignored. Otherwise,
+         * if loInclusive is true, lo is an inclusive bound, else lo
+         * is an exclusive bound. Similarly for the upper bound.
+         */
+        final K lo, hi;
+        final boolean fromStart, toEnd;
+        final boolean loInclusive, hiInclusive;
+
+        /**
+         * True if this view presents its range in descending order.
+         */
+        final boolean descending;
+
+        SubMap(BTreeMap<K,V> m,
+               boolean fromStart, K lo, boolean loInclusive,
+               boolean toEnd,     K hi, boolean hiInclusive,
+               boolean descending) {
+            if (!fromStart && !toEnd) {
+                if (m.compare(lo, hi) > 0)
+                    throw new IllegalArgumentException("fromKey > toKey");
+            } else {
+                if (!fromStart) // type check
+                    m.compare(lo, lo);
+                if (!toEnd)
+                    m.compare(hi, hi);
+            }
+
+            this.m = m;
+            this.fromStart = fromStart;
+            this.lo = lo;
+            this.loInclusive = loInclusive;
+            this.toEnd = toEnd;
+            this.hi = hi;
+            this.hiInclusive = hiInclusive;
+            this.descending = descending;
+        }
+
+        // internal utilities
+
+        final boolean tooLow(Object key) {
+            if (!fromStart) {
+                int c = m.compare(key, lo);
+                if (c < 0 || (c == 0 && !loInclusive))
+                    return true;
+            }
+            return false;
+        }
+
+        final boolean tooHigh(Object key) {
+            if (!toEnd) {
+                int c = m.compare(key, hi);
+                if (c > 0 || (c == 0 && !hiInclusive))
+                    return true;
+            }
+            return false;
+        }
+
+        final boolean inRange(Object key) {
+            return !tooLow(key) && !tooHigh(key);
+        }
+
+        final boolean inClosedRange(Object key) {
+            return (fromStart || m.compare(key, lo) >= 0)
+                && (toEnd || m.compare(hi, key) >= 0);
+        }
+
+        final boolean inRange(Object key, boolean inclusive) {
+            return inclusive ? inRange(key) : inClosedRange(key);
+        }
+
+        /*
+         * Absolute versions of relation operations, in ascending
+         * key order regardless of direction.
+         */
+
+        final Cursor absLowest() {
+            Cursor c = (fromStart ?  m.firstCursor() :
+                        m.find(lo, loInclusive ? GE : GT));
+            return (c == null || tooHigh(m.keyOrNull(c))) ? null : c;
+        }
+
+        final Cursor absHighest() {
+            Cursor c = (toEnd ?  m.lastCursor() :
+                        m.find(hi, hiInclusive ? LE : LT));
+            return (c == null || tooLow(m.keyOrNull(c))) ? null : c;
+        }
+
+        final Cursor absCeiling(K key) {
+            if (tooLow(key))
+                return absLowest();
+            Cursor c = m.find(key, GE);
+            return (c == null || tooHigh(m.keyOrNull(c))) ? null : c;
+        }
+
+        final Cursor absHigher(K key) {
+            if (tooLow(key))
+                return absLowest();
+            Cursor c = m.find(key, GT);
+            return (c == null || tooHigh(m.keyOrNull(c))) ? null : c;
+        }
+
+        final Cursor absFloor(K key) {
+            if (tooHigh(key))
+                return absHighest();
+            Cursor c = m.find(key, LE);
+            return (c == null || tooLow(m.keyOrNull(c))) ? null : c;
+        }
+
+        final Cursor absLower(K key) {
+            if (tooHigh(key))
+                return absHighest();
+            Cursor c = m.find(key, LT);
+            return (c == null || tooLow(m.keyOrNull(c))) ? null : c;
+        }
+
+        /* Relation operations in this view's order */
+
+        final Cursor first() {
+            return descending ? absHighest() : absLowest();
+        }
+
+        final Cursor last() {
+            return descending ? absLowest() : absHighest();
+        }
+
+        final Cursor ceiling(K key) {
+            return descending ? absFloor(key) : absCeiling(key);
+        }
+
+        final Cursor higher(K key) {
+            return descending ? absLower(key) : absHigher(key);
+        }
+
+        final Cursor floor(K key) {
+            return descending ? absCeiling(key) : absFloor(key);
+        }
+
+        final Cursor lower(K key) {
+            return descending ? absHigher(key) : absLower(key);
+        }
+
+        // public methods
+
+        public boolean isEmpty() {
+            return (fromStart && toEnd) ? m.isEmpty() : absLowest() == null;
+        }
+
+        public int size() {
+            return (fromStart && toEnd) ? m.size()
+                : countBetween(absLowest(), absHighest());
+        }
+
+        public final boolean containsKey(Object key) {
+            return inRange(key) && m.containsKey(key);
+        }
+
+        public final V put(K key, V value) {
+            if (!inRange(key))
+                throw new IllegalArgumentException("key out of range");
+            return m.put(key, value);
+        }
+
+        public final V get(Object key) {
+            return !inRange(key) ? null :  m.get(key);
+        }
+
+        public final V remove(Object key) {
+            return !inRange(key) ? null : m.remove(key);
+        }
+
+        public final Map.Entry<K,V> ceilingEntry(K key) {
+            return m.exportEntry(ceiling(key));
+        }
+
+        public final K ceilingKey(K key) {
+            return m.keyOrNull(ceiling(key));
+        }
+
+        public final Map.Entry<K,V> higherEntry(K key) {
+            return m.exportEntry(higher(key));
+        }
+
+        public final K higherKey(K key) {
+            return m.keyOrNull(higher(key));
+        }
+
+        public final Map.Entry<K,V> floorEntry(K key) {
+            return m.exportEntry(floor(key));
+        }
+
+        public final K floorKey(K key) {
+            return m.keyOrNull(floor(key));
+        }
+
+        public final Map.Entry<K,V> lowerEntry(K key) {
+            return m.exportEntry(lower(key));
+        }
+
+        public final K lowerKey(K key) {
+            return m.keyOrNull(lower(key));
+        }
+
+        public final K firstKey() {
+            return m.key(first());
+        }
+
+        public final K lastKey() {
+            return m.key(last());
+        }
+
+        public final Map.Entry<K,V> firstEntry() {
+            return m.exportEntry(first());
+        }
+
+        public final Map.Entry<K,V> lastEntry() {
+            return m.exportEntry(last());
+        }
+
+        public final Map.Entry<K,V> pollFirstEntry() {
+            Cursor c = first();
+            Map.Entry<K,V> result = m.exportEntry(c);
+            if (c != null)
+                m.removeFromPosition(c);
+            return result;
+        }
+
+        public final Map.Entry<K,V> pollLastEntry() {
+            Cursor c = last();
+            Map.Entry<K,V> result = m.exportEntry(c);
+            if (c != null)
+                m.removeFromPosition(c);
+            return result;
+        }
+
+        public Comparator<? super K> comparator() {
+            return descending ? Collections.reverseOrder(m.comparator())
+                : m.comparator();
+        }
+
+        // Views
+        transient NavigableMap<K,V> descendingMapView;
+        transient EntrySetView<K,V> entrySetView;
+        transient KeySet<K> navigableKeySetView;
+
+        public final NavigableSet<K> navigableKeySet() {
+            KeySet<K> nksv = navigableKeySetView;
+            return (nksv != null) ? nksv :
+                (navigableKeySetView = new KeySet<>(m, this));
+        }
+
+        public final Set<K> keySet() {
+            return navigableKeySet();
+        }
+
+        public NavigableSet<K> descendingKeySet() {
+            return descendingMap().navigableKeySet();
+        }
+
+        public Collection<V> values() {
+            return new Values<>(m, this);
+        }
+
+        public Set<Map.Entry<K,V>> entrySet() {
+            EntrySetView<K,V> es = entrySetView;
+            return (es != null) ? es : (entrySetView = new EntrySetView<>(m, this));
+        }
+
+        public NavigableMap<K,V> descendingMap() {
+            NavigableMap<K,V> mv = descendingMapView;
+            return (mv != null) ? mv :
+                (descendingMapView =
+                 new SubMap<>(m,
+                              fromStart, lo, loInclusive,
+                              toEnd,     hi, hiInclusive, !descending));
+        }
+
+        public NavigableMap<K,V> subMap(K fromKey, boolean fromInclusive,
+                                        K toKey,   boolean toInclusive) {
+            if (!inRange(fromKey, fromInclusive))
+                throw new IllegalArgumentException("fromKey out of range");
+            if (!inRange(toKey, toInclusive))
+                throw new IllegalArgumentException("toKey out of range");
+            return descending
+                ? new SubMap<>(m,
+                               false, toKey,   toInclusive,
+                               false, fromKey, fromInclusive, true)
+                : new SubMap<>(m,
+                               false, fromKey, fromInclusive,
+                               false, toKey,   toInclusive, false);
+        }
+
+        public NavigableMap<K,V> headMap(K toKey, boolean inclusive) {
+            if (!inRange(toKey, inclusive))
+                throw new IllegalArgumentException("toKey out of range");
+            return descending
+                ? new SubMap<>(m,
+                               false, toKey, inclusive,
+                               toEnd, hi,    hiInclusive, true)
+                : new SubMap<>(m,
+                               fromStart, lo,    loInclusive,
+                               false,     toKey, inclusive, false);
+        }
+
+        public NavigableMap<K,V> tailMap(K fromKey, boolean inclusive) {
+            if (!inRange(fromKey, inclusive))
+                throw new IllegalArgumentException("fromKey out of range");
+            return descending
+                ? new SubMap<>(m,
+                               fromStart, lo,      loInclusive,
+                               false,     fromKey, inclusive, true)
+                : new SubMap<>(m,
+                               false, fromKey, inclusive,
+                               toEnd, hi,      hiInclusive, false);
+        }
+
+        public final SortedMap<K,V> subMap(K fromKey, K toKey) {
+            return subMap(fromKey, true, toKey, false);
+        }
+
+        public final SortedMap<K,V> headMap(K toKey) {
+            return headMap(toKey, false);
+        }
+
+        public final SortedMap<K,V> tailMap(K fromKey) {
+            return tailMap(fromKey, true);
+        }
+    }
+
+    /**
+     * Save the state of the {@code BTreeMap} instance to a stream (i.e.,
+     * serialize it).
+     *
+     * @serialData The <em>size</em> of the BTreeMap (the number of key-value
+     *             mappings) is emitted (int), followed by the key (Object)
+     *             and value (Object) for each key-value mapping represented
+     *             by the BTreeMap. The key-value mappings are emitted in
+     *             key-order (as determined by the BTreeMap's Comparator,
+     *             or by the keys' natural ordering if the BTreeMap has no
+     *             Comparator).
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws java.io.IOException {
+        // Write out the Comparator and any hidden stuff
+        s.defaultWriteObject();
+
+        // Write out size (number of Mappings)
+        s.writeInt(size);
+
+        // Write out keys and values (alternating)
+        for (Leaf l = head; l != null; l = l.next) {
+            for (int i = 0, n = l.n; i < n; i++) {
+                s.writeObject(l.keys[i]);
+                s.writeObject(l.vals[i]);
+            }
+        }
+    }
+
+    /**
+     * Reconstitute the {@code BTreeMap} instance from a stream (i.e.,
+     * deserialize it).
+     */
+    private void readObject(final java.io.ObjectInputStream s)
+        throws java.io.IOException, ClassNotFoundException {
+        // Read in the Comparator and any hidden stuff
+        s.defaultReadObject();
+
+        // Read in size
+        int size = s.readInt();
+        if (size < 0)
+            throw new java.io.InvalidObjectException("Invalid size: " + size);
+
+        buildFromSorted(size, null, s);
+    }
+
+    /**
+     * Linear time tree building algorithm from sorted data.  Reads
+     * mappings from either an iterator of Map.Entry or a stream of
+     * alternating keys and values.  Leaves are filled evenly and as
+     * fully as possible, then each branch level is built over the one
+     * below it, also evenly, which keeps every non-root node at least
+     * half full.
+     *
+     * @param size the number of keys (or key-value pairs) to be read
+     * @param it If non-null, new entries are created from entries
+     *        read from this iterator.
+     * @param str If non-null, new entries are created from keys and
+     *        values read from this stream in serialized form.
+     *        Exactly one of it and str should be non-null.
+     * @throws java.io.IOException propagated from stream reads. This cannot
+     *         occur if str is null.
+     * @throws ClassNotFoundException propagated from readObject.
+     *         This cannot occur if str is null.
+     */
+    private void buildFromSorted(int size, Iterator<?> it,
+                                 java.io.ObjectInputStream str)
+        throws  java.io.IOException, ClassNotFoundException {
+        initEmpty();
+        if (size == 0)
+            return;
+        int len = (size + LEAF_CAPACITY - 1) / LEAF_CAPACITY;
+        Node[] level = new Node[len];
+        Object[] lows = new Object[len];
+        int q = size / len, r = size % len;
+        Leaf prev = null;
+        for (int j = 0; j < len; j++) {
+            Leaf l = new Leaf();
+            int cnt = (j < r) ? q + 1 : q;
+            for (int k = 0; k < cnt; k++) {
+                if (it != null) {
+                    Map.Entry<?,?> entry = (Map.Entry<?,?>) it.next();
+                    l.keys[k] = entry.getKey();
+                    l.vals[k] = entry.getValue();
+                } else {
+                    l.keys[k] = str.readObject();
+                    l.vals[k] = str.readObject();
+                }
+            }
+            l.n = cnt;
+            l.prev = prev;
+            if (prev != null)
+                prev.next = l;
+            else
+                head = l;
+            prev = l;
+            level[j] = l;
+            lows[j] = l.keys[0];
+        }
+        tail = prev;
+        int h = 0;
+        while (len > 1) {
+            int np = (len + BRANCH_CAPACITY - 1) / BRANCH_CAPACITY;
+            Node[] up = new Node[np];
+            Object[] upLows = new Object[np];
+            q = len / np;
+            r = len % np;
+            for (int j = 0, c = 0; j < np; j++) {
+                Branch b = new Branch();
+                int cnt = (j < r) ? q + 1 : q;
+                System.arraycopy(level, c, b.children, 0, cnt);
+                System.arraycopy(lows, c + 1, b.keys, 0, cnt - 1);
+                b.n = cnt;
+                up[j] = b;
+                upLows[j] = lows[c];
+                c += cnt;
+            }
+            level = up;
+            lows = upLows;
+            len = np;
+            h++;
+        }
+        root = level[0];
+        height = h;
+        this.size = size;
+    }
+}
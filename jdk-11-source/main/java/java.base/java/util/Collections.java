@@ -177,6 +177,98 @@ public class Collections {
         list.sort(c);
     }
 
+    /**
+     * Sorts the specified list into ascending order, according to the
+     * {@linkplain Comparable natural ordering} of its elements, using a
+     * parallel sort-merge if the list is large and its kind allows it.
+     * All elements in the list must implement the {@link Comparable}
+     * interface and be <i>mutually comparable</i>.
+     *
+     * <p>This sort is guaranteed to be <i>stable</i>:  equal elements will
+     * not be reordered as a result of the sort.
+     *
+     * <p>The specified list must be modifiable, but need not be resizable.
+     *
+     * @implNote
+     * This implementation is equivalent to
+     * {@code parallelSort(list, null)}.
+     *
+     * @param  <T> the class of the objects in the list
+     * @param  list the list to be sorted.
+     * @throws ClassCastException if the list contains elements that are not
+     *         <i>mutually comparable</i> (for example, strings and integers).
+     * @throws UnsupportedOperationException if the specified list's
+     *         list-iterator does not support the {@code set} operation.
+     * @throws IllegalArgumentException (optional) if the implementation
+     *         detects that the natural ordering of the list elements is
+     *         found to violate the {@link Comparable} contract
+     * @see #parallelSort(List, Comparator)
+     * @since 12
+     */
+    public static <T extends Comparable<? super T>> void parallelSort(List<T> list) {
+        parallelSort(list, null);
+    }
+
+    /**
+     * Sorts the specified list according to the order induced by the
+     * specified comparator, using a parallel sort-merge if the list is
+     * large and its kind allows it.  All elements in the list must be
+     * <i>mutually comparable</i> using the specified comparator.  The
+     * comparator may be invoked concurrently from multiple threads.
+     *
+     * <p>This sort is guaranteed to be <i>stable</i>:  equal elements will
+     * not be reordered as a result of the sort.
+     *
+     * <p>The specified list must be modifiable, but need not be resizable.
+     *
+     * @implNote
+     * This implementation defers to {@link ArrayList#parallelSort} or
+     * {@link Vector#parallelSort}, which sort their backing arrays in
+     * place, if the list is an instance of either class.  A
+     * {@link LinkedList} is dumped into an array, which is sorted as by
+     * {@link Arrays#parallelSort(Object[], int, int, Comparator)}, and
+     * then iterated over, resetting each element from the corresponding
+     * position in the array, as the default {@link List#sort(Comparator)}
+     * does.  Other lists are sorted as by {@link #sort(List, Comparator)},
+     * using their own {@code sort} method, so that, for example,
+     * copy-on-write and synchronized lists are sorted as they define.
+     * Arrays of at most 8192 elements are sorted sequentially.
+     *
+     * @param  <T> the class of the objects in the list
+     * @param  list the list to be sorted.
+     * @param  c the comparator to determine the order of the list.  A
+     *        {@code null} value indicates that the elements' <i>natural
+     *        ordering</i> should be used.
+     * @throws ClassCastException if the list contains elements that are not
+     *         <i>mutually comparable</i> using the specified comparator.
+     * @throws UnsupportedOperationException if the specified list's
+     *         list-iterator does not support the {@code set} operation.
+     * @throws IllegalArgumentException (optional) if the comparator is
+     *         found to violate the {@link Comparator} contract
+     * @see #sort(List, Comparator)
+     * @since 12
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static <T> void parallelSort(List<T> list, Comparator<? super T> c) {
+        if (list instanceof ArrayList)
+            ((ArrayList<T>) list).parallelSort(c);
+        else if (list instanceof Vector)
+            ((Vector<T>) list).parallelSort(c);
+        else if (list.getClass() != LinkedList.class)
+            list.sort(c);
+        else {
+            // LinkedList does not override List.sort, so this sorts it
+            // as that would, but in parallel
+            Object[] a = list.toArray();
+            Arrays.parallelSortList(a, 0, a.length, (Comparator) c);
+            ListIterator<T> i = list.listIterator();
+            for (Object e : a) {
+                i.next();
+                i.set((T) e);
+            }
+        }
+    }
+
 
     /**
      * Searches the specified list for the specified object using the binary
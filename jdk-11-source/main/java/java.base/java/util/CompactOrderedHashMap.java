@@ -0,0 +1,865 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.Serializable;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import jdk.internal.misc.SharedSecrets;
+
+/**
+ * Hash table implementation of the {@code Map} interface with
+ * predictable, insertion-ordered iteration, stored in a compact layout.
+ * Unlike {@link LinkedHashMap}, which allocates a node carrying four
+ * references and a hash for every mapping, this class keeps keys, values
+ * and hash codes in dense arrays, in insertion order, and hashes into a
+ * separate open-addressed table of {@code int} positions in those arrays.
+ * A mapping thus costs roughly three array slots plus one and a half to
+ * three index slots, and iteration is a linear scan of the dense arrays.
+ *
+ * <p>As with {@code LinkedHashMap}, insertion order is not affected if a
+ * key is <i>re-inserted</i> into the map.  This class provides all of the
+ * optional {@code Map} operations, and permits null elements.  It provides
+ * constant-time performance for the basic operations ({@code get},
+ * {@code put} and {@code remove}), assuming the hash function disperses
+ * elements properly; iteration requires time proportional to the number
+ * of mappings inserted since the table was last compacted.
+ *
+ * <p>Removal marks the dense slot of a mapping as deleted without moving
+ * other mappings; deleted slots are reclaimed when the dense arrays fill
+ * up, at which point they are compacted and, if more than half of their
+ * slots are live, grown by half.  The <i>initial capacity</i> is the
+ * number of mappings that can be inserted before this first happens.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * If multiple threads access a compact ordered hash map concurrently, and
+ * at least one of the threads modifies the map structurally, it
+ * <em>must</em> be synchronized externally.  If no object naturally
+ * encapsulates the map, it should be "wrapped" using the
+ * {@link Collections#synchronizedMap Collections.synchronizedMap}
+ * method.
+ *
+ * <p>The iterators returned by the {@code iterator} method of the
+ * collections returned by all of this class's collection view methods are
+ * <em>fail-fast</em>: if the map is structurally modified at any time
+ * after the iterator is created, in any way except through the iterator's
+ * own {@code remove} method, the iterator will throw a {@link
+ * ConcurrentModificationException}.  Note that the fail-fast behavior of
+ * an iterator cannot be guaranteed as it is, generally speaking,
+ * impossible to make any hard guarantees in the presence of unsynchronized
+ * concurrent modification.  Fail-fast iterators throw {@code
+ * ConcurrentModificationException} on a best-effort basis.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ *
+ * @see LinkedHashMap
+ * @see CompactOrderedHashSet
+ * @since 12
+ */
+public class CompactOrderedHashMap<K,V>
+    extends AbstractMap<K,V>
+    implements Map<K,V>, Cloneable, Serializable
+{
+    private static final long serialVersionUID = -6307460716470815632L;
+
+    /*
+     * Implementation notes.
+     *
+     * The layout follows the "compact dict" scheme: entries are
+     * appended to the parallel arrays hashes/keys/vals, and index is a
+     * power-of-two open-addressed table whose slots hold EMPTY, DUMMY
+     * (a removed entry, which must not terminate probing) or one plus
+     * the position of an entry.  Probing uses the perturbed recurrence
+     * i = 5i + 1 + perturb, with perturb initially the full hash and
+     * shifted right each step, so that all hash bits take part and,
+     * once perturb reaches zero, every slot is eventually visited.
+     *
+     * Removed entries leave DELETED in keys and DUMMY in index until
+     * the next rebuild, so positions of live entries never change
+     * between rebuilds; iterators and entries may therefore hold
+     * positions.  The number of non-EMPTY index slots is always the
+     * number of used dense slots, which is at most two thirds of the
+     * index length, so every probe sequence reaches an EMPTY slot.
+     *
+     * When vals is null the map is in key-only mode, used by
+     * CompactOrderedHashSet: every present key maps to PRESENT, and
+     * no value array is allocated.
+     */
+
+    /** Default number of dense slots. */
+    static final int DEFAULT_CAPACITY = 8;
+
+    /** Largest number of dense slots, two thirds of the largest index. */
+    static final int MAXIMUM_CAPACITY = HashMap.MAXIMUM_CAPACITY / 3 * 2;
+
+    /** Index slot values. */
+    static final int EMPTY = 0, DUMMY = -1;
+
+    /** Shift applied to the perturbation in each probe step. */
+    static final int PERTURB_SHIFT = 5;
+
+    /** Marker for removed dense slots. */
+    static final Object DELETED = new Object();
+
+    /** Value of every mapping in key-only mode. */
+    static final Object PRESENT = new Object();
+
+    /** Open-addressed table of dense positions plus one, or null. */
+    transient int[] index;
+
+    /** Hash codes of the keys, in insertion order. */
+    transient int[] hashes;
+
+    /** Keys in insertion order, DELETED for removed mappings. */
+    transient Object[] keys;
+
+    /** Values in insertion order, or null in key-only mode. */
+    transient Object[] vals;
+
+    /** Number of dense slots in use, including deleted ones. */
+    transient int used;
+
+    /** Number of mappings. */
+    transient int size;
+
+    /**
+     * The number of times this map has been structurally modified.
+     */
+    transient int modCount;
+
+    /** Dense capacity to allocate on first insertion. */
+    transient int initialCapacity;
+
+    /** True if no value array is to be allocated. */
+    transient boolean keysOnly;
+
+    /**
+     * Constructs an empty {@code CompactOrderedHashMap} with the default
+     * initial capacity (8).
+     */
+    public CompactOrderedHashMap() {
+        this.initialCapacity = DEFAULT_CAPACITY;
+    }
+
+    /**
+     * Constructs an empty {@code CompactOrderedHashMap} with room for the
+     * specified number of mappings.
+     *
+     * @param  initialCapacity the initial capacity
+     * @throws IllegalArgumentException if the initial capacity is negative
+     */
+    public CompactOrderedHashMap(int initialCapacity) {
+        this(initialCapacity, false);
+    }
+
+    /**
+     * Constructs an empty map, in key-only mode if keysOnly is true.
+     */
+    CompactOrderedHashMap(int initialCapacity, boolean keysOnly) {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal initial capacity: " +
+                                               initialCapacity);
+        this.initialCapacity = Math.min(Math.max(initialCapacity, 1),
+                                        MAXIMUM_CAPACITY);
+        this.keysOnly = keysOnly;
+    }
+
+    /**
+     * Constructs a {@code CompactOrderedHashMap} with the same mappings as
+     * the specified map, in the iteration order of the specified map.
+     *
+     * @param   m the map whose mappings are to be placed in this map
+     * @throws  NullPointerException if the specified map is null
+     */
+    public CompactOrderedHashMap(Map<? extends K, ? extends V> m) {
+        this(Math.max(m.size(), DEFAULT_CAPACITY), false);
+        putAll(m);
+    }
+
+    /* ---------------- Internal -------------- */
+
+    /**
+     * Returns the index length for the given dense capacity.
+     */
+    static int indexLength(int capacity) {
+        return HashMap.tableSizeFor(capacity + (capacity + 1 >> 1));
+    }
+
+    /**
+     * Returns the index slot of the mapping for key, or -1 if none.
+     */
+    final int findSlot(Object key, int h) {
+        int[] tab;
+        if ((tab = index) == null)
+            return -1;
+        int[] hs = hashes;
+        Object[] ks = keys;
+        int mask = tab.length - 1, i = h & mask, perturb = h;
+        for (int ix; (ix = tab[i]) != EMPTY; ) {
+            if (ix > 0) {
+                int e = ix - 1;
+                Object k;
+                if (hs[e] == h &&
+                    ((k = ks[e]) == key || (key != null && key.equals(k))))
+                    return i;
+            }
+            perturb >>>= PERTURB_SHIFT;
+            i = (i * 5 + 1 + perturb) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the dense position of the mapping for key, or -1 if none.
+     */
+    final int findEntry(Object key) {
+        int s = findSlot(key, HashMap.hash(key));
+        return (s < 0) ? -1 : index[s] - 1;
+    }
+
+    /**
+     * Stores dense position e in the first EMPTY slot of the probe
+     * sequence for h.
+     */
+    static void link(int[] tab, int h, int e) {
+        int mask = tab.length - 1, i = h & mask, perturb = h;
+        while (tab[i] != EMPTY) {
+            perturb >>>= PERTURB_SHIFT;
+            i = (i * 5 + 1 + perturb) & mask;
+        }
+        tab[i] = e + 1;
+    }
+
+    @SuppressWarnings("unchecked")
+    final V valueAt(int e) {
+        Object[] vs;
+        return (V) (((vs = vals) == null) ? PRESENT : vs[e]);
+    }
+
+    /**
+     * Compacts the dense arrays into new arrays of the given capacity,
+     * dropping deleted entries, and rebuilds the index.
+     */
+    final void rebuild(int capacity) {
+        int[] oh = hashes, nh = new int[capacity];
+        Object[] ok = keys, nk = new Object[capacity];
+        Object[] ov = vals, nv = keysOnly ? null : new Object[capacity];
+        int[] tab = new int[indexLength(capacity)];
+        int n = 0;
+        for (int i = 0, u = used; i < u; i++) {
+            Object k;
+            if ((k = ok[i]) != DELETED) {
+                int h = oh[i];
+                nh[n] = h;
+                nk[n] = k;
+                if (nv != null)
+                    nv[n] = ov[i];
+                link(tab, h, n++);
+            }
+        }
+        hashes = nh;
+        keys = nk;
+        vals = nv;
+        index = tab;
+        used = n;
+    }
+
+    /**
+     * Makes room for one more dense entry.
+     */
+    private void ensureRoom() {
+        Object[] ks;
+        if ((ks = keys) == null)
+            rebuild(initialCapacity);
+        else if (used == ks.length) {
+            int cap = ks.length;
+            if (size >= (cap >> 1)) {
+                if (cap == MAXIMUM_CAPACITY)
+                    throw new OutOfMemoryError("Required array size too large");
+                cap = (int) Math.min((long) cap + (cap >> 1) + 1,
+                                     MAXIMUM_CAPACITY);
+            }
+            rebuild(cap);
+        }
+    }
+
+    /**
+     * Implements Map.put and related methods.
+     *
+     * @param h hash for key
+     * @param key the key
+     * @param value the value to put
+     * @param onlyIfAbsent if true, don't change existing value
+     * @return previous value, or null if none
+     */
+    final V putVal(int h, K key, V value, boolean onlyIfAbsent) {
+        int s = findSlot(key, h);
+        if (s >= 0) {
+            int e = index[s] - 1;
+            V old = valueAt(e);
+            if (vals != null && (!onlyIfAbsent || old == null))
+                vals[e] = value;
+            return old;
+        }
+        ensureRoom();
+        int e = used++;
+        hashes[e] = h;
+        keys[e] = key;
+        if (vals != null)
+            vals[e] = value;
+        link(index, h, e);
+        ++size;
+        ++modCount;
+        return null;
+    }
+
+    /**
+     * Removes the mapping at index slot s, returning its value.
+     */
+    final V removeSlot(int s) {
+        int e = index[s] - 1;
+        V old = valueAt(e);
+        index[s] = DUMMY;
+        keys[e] = DELETED;
+        if (vals != null)
+            vals[e] = null;
+        --size;
+        ++modCount;
+        return old;
+    }
+
+    /* ---------------- Map methods -------------- */
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(Object key) {
+        return findEntry(key) >= 0;
+    }
+
+    public V get(Object key) {
+        int e;
+        return ((e = findEntry(key)) < 0) ? null : valueAt(e);
+    }
+
+    @Override
+    public V getOrDefault(Object key, V defaultValue) {
+        int e;
+        return ((e = findEntry(key)) < 0) ? defaultValue : valueAt(e);
+    }
+
+    public boolean containsValue(Object value) {
+        Object[] ks = keys;
+        for (int i = 0, u = used; i < u; i++) {
+            if (ks[i] != DELETED && Objects.equals(value, valueAt(i)))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map.
+     * If the map previously contained a mapping for the key, the old
+     * value is replaced, and the mapping keeps its position in the
+     * iteration order.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}.
+     */
+    public V put(K key, V value) {
+        return putVal(HashMap.hash(key), key, value, false);
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        return putVal(HashMap.hash(key), key, value, true);
+    }
+
+    /**
+     * Copies all of the mappings from the specified map to this map, in
+     * the iteration order of the specified map.
+     *
+     * @param m mappings to be stored in this map
+     * @throws NullPointerException if the specified map is null
+     */
+    public void putAll(Map<? extends K, ? extends V> m) {
+        int n = m.size();
+        if (n > 0 && keys != null && used + n > keys.length) {
+            int cap = (int) Math.min((long) size + n, MAXIMUM_CAPACITY);
+            if (cap > keys.length)
+                rebuild(cap);
+        } else if (keys == null && n > initialCapacity)
+            initialCapacity = Math.min(n, MAXIMUM_CAPACITY);
+        for (Map.Entry<? extends K, ? extends V> e : m.entrySet()) {
+            K key = e.getKey();
+            putVal(HashMap.hash(key), key, e.getValue(), false);
+        }
+    }
+
+    public V remove(Object key) {
+        int s = findSlot(key, HashMap.hash(key));
+        return (s < 0) ? null : removeSlot(s);
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        int s = findSlot(key, HashMap.hash(key));
+        if (s >= 0 && Objects.equals(valueAt(index[s] - 1), value)) {
+            removeSlot(s);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        int e = findEntry(key);
+        if (e >= 0 && vals != null && Objects.equals(vals[e], oldValue)) {
+            vals[e] = newValue;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public V replace(K key, V value) {
+        int e = findEntry(key);
+        if (e < 0)
+            return null;
+        V old = valueAt(e);
+        if (vals != null)
+            vals[e] = value;
+        return old;
+    }
+
+    /**
+     * Removes all of the mappings from this map.  The dense capacity is
+     * retained.
+     */
+    public void clear() {
+        modCount++;
+        if (size > 0 || used > 0) {
+            Arrays.fill(index, EMPTY);
+            Arrays.fill(keys, 0, used, null);
+            if (vals != null)
+                Arrays.fill(vals, 0, used, null);
+            size = used = 0;
+        }
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        if (action == null)
+            throw new NullPointerException();
+        Object[] ks = keys;
+        int mc = modCount;
+        for (int i = 0, u = used; i < u && modCount == mc; i++) {
+            @SuppressWarnings("unchecked") K k = (K) ks[i];
+            if (k != DELETED)
+                action.accept(k, valueAt(i));
+        }
+        if (modCount != mc)
+            throw new ConcurrentModificationException();
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+        if (function == null)
+            throw new NullPointerException();
+        Object[] ks = keys;
+        int mc = modCount;
+        for (int i = 0, u = used; i < u && modCount == mc; i++) {
+            @SuppressWarnings("unchecked") K k = (K) ks[i];
+            if (k != DELETED) {
+                V v = function.apply(k, valueAt(i));
+                if (vals != null)
+                    vals[i] = v;
+            }
+        }
+        if (modCount != mc)
+            throw new ConcurrentModificationException();
+    }
+
+    /**
+     * Returns a shallow copy of this {@code CompactOrderedHashMap}
+     * instance: the keys and values themselves are not cloned.  The copy
+     * is compacted.
+     *
+     * @return a shallow copy of this map
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object clone() {
+        CompactOrderedHashMap<K,V> result;
+        try {
+            result = (CompactOrderedHashMap<K,V>) super.clone();
+        } catch (CloneNotSupportedException e) {
+            // this shouldn't happen, since we are Cloneable
+            throw new InternalError(e);
+        }
+        result.keySet = null;
+        result.values = null;
+        result.entrySet = null;
+        result.modCount = 0;
+        if (keys != null)
+            result.rebuild(Math.max(size, DEFAULT_CAPACITY));
+        return result;
+    }
+
+    /* ---------------- Views -------------- */
+
+    transient Set<K> keySet;
+    transient Collection<V> values;
+    transient Set<Map.Entry<K,V>> entrySet;
+
+    /**
+     * Returns a {@link Set} view of the keys contained in this map, in
+     * insertion order.  The set is backed by the map, so changes to the
+     * map are reflected in the set, and vice-versa.  The set supports
+     * element removal but not addition.
+     *
+     * @return a set view of the keys contained in this map
+     */
+    public Set<K> keySet() {
+        Set<K> ks;
+        return ((ks = keySet) == null) ? (keySet = new KeySet()) : ks;
+    }
+
+    /**
+     * Returns a {@link Collection} view of the values contained in this
+     * map, in the insertion order of their keys.  The collection is backed
+     * by the map and supports element removal but not addition.
+     *
+     * @return a view of the values contained in this map
+     */
+    public Collection<V> values() {
+        Collection<V> vs;
+        return ((vs = values) == null) ? (values = new Values()) : vs;
+    }
+
+    /**
+     * Returns a {@link Set} view of the mappings contained in this map,
+     * in insertion order.  The set is backed by the map and supports
+     * element removal but not addition.  Its entries write through to
+     * the map.
+     *
+     * @return a set view of the mappings contained in this map
+     */
+    public Set<Map.Entry<K,V>> entrySet() {
+        Set<Map.Entry<K,V>> es;
+        return ((es = entrySet) == null) ? (entrySet = new EntrySet()) : es;
+    }
+
+    final class KeySet extends AbstractSet<K> {
+        public final int size()                 { return size; }
+        public final void clear()               { CompactOrderedHashMap.this.clear(); }
+        public final Iterator<K> iterator()     { return new KeyIterator(); }
+        public final boolean contains(Object o) { return containsKey(o); }
+        public final boolean remove(Object key) {
+            int s = findSlot(key, HashMap.hash(key));
+            if (s < 0)
+                return false;
+            removeSlot(s);
+            return true;
+        }
+        public final Spliterator<K> spliterator()  {
+            return Spliterators.spliterator(this, Spliterator.SIZED |
+                                            Spliterator.ORDERED |
+                                            Spliterator.DISTINCT);
+        }
+        public final void forEach(Consumer<? super K> action) {
+            if (action == null)
+                throw new NullPointerException();
+            Object[] ks = keys;
+            int mc = modCount;
+            for (int i = 0, u = used; i < u && modCount == mc; i++) {
+                @SuppressWarnings("unchecked") K k = (K) ks[i];
+                if (k != DELETED)
+                    action.accept(k);
+            }
+            if (modCount != mc)
+                throw new ConcurrentModificationException();
+        }
+    }
+
+    final class Values extends AbstractCollection<V> {
+        public final int size()                 { return size; }
+        public final void clear()               { CompactOrderedHashMap.this.clear(); }
+        public final Iterator<V> iterator()     { return new ValueIterator(); }
+        public final boolean contains(Object o) { return containsValue(o); }
+        public final Spliterator<V> spliterator() {
+            return Spliterators.spliterator(this, Spliterator.SIZED |
+                                            Spliterator.ORDERED);
+        }
+        public final void forEach(Consumer<? super V> action) {
+            if (action == null)
+                throw new NullPointerException();
+            Object[] ks = keys;
+            int mc = modCount;
+            for (int i = 0, u = used; i < u && modCount == mc; i++) {
+                if (ks[i] != DELETED)
+                    action.accept(valueAt(i));
+            }
+            if (modCount != mc)
+                throw new ConcurrentModificationException();
+        }
+    }
+
+    final class EntrySet extends AbstractSet<Map.Entry<K,V>> {
+        public final int size()                 { return size; }
+        public final void clear()               { CompactOrderedHashMap.this.clear(); }
+        public final Iterator<Map.Entry<K,V>> iterator() {
+            return new EntryIterator();
+        }
+        public final boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+            int p = findEntry(e.getKey());
+            return p >= 0 && Objects.equals(valueAt(p), e.getValue());
+        }
+        public final boolean remove(Object o) {
+            if (o instanceof Map.Entry) {
+                Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+                return CompactOrderedHashMap.this.remove(e.getKey(),
+                                                         e.getValue());
+            }
+            return false;
+        }
+        public final Spliterator<Map.Entry<K,V>> spliterator() {
+            return Spliterators.spliterator(this, Spliterator.SIZED |
+                                            Spliterator.ORDERED |
+                                            Spliterator.DISTINCT);
+        }
+        public final void forEach(Consumer<? super Map.Entry<K,V>> action) {
+            if (action == null)
+                throw new NullPointerException();
+            Object[] ks = keys;
+            int mc = modCount;
+            for (int i = 0, u = used; i < u && modCount == mc; i++) {
+                @SuppressWarnings("unchecked") K k = (K) ks[i];
+                if (k != DELETED)
+                    action.accept(new Entry(k, i));
+            }
+            if (modCount != mc)
+                throw new ConcurrentModificationException();
+        }
+    }
+
+    /**
+     * A mapping, located by its dense position while that still holds
+     * its key, and otherwise by lookup.  Once the mapping is removed,
+     * the entry retains the last value seen.
+     */
+    final class Entry implements Map.Entry<K,V> {
+        final K key;
+        int pos;
+        V value;
+
+        Entry(K key, int pos) {
+            this.key = key;
+            this.pos = pos;
+            this.value = valueAt(pos);
+        }
+
+        /** Returns the current dense position of the mapping, or -1. */
+        private int position() {
+            int p = pos;
+            Object[] ks = keys;
+            if (ks == null || p < 0 || p >= used || ks[p] != key)
+                pos = p = findEntry(key);
+            return p;
+        }
+
+        public K getKey() {
+            return key;
+        }
+
+        public V getValue() {
+            int p;
+            if ((p = position()) >= 0)
+                value = valueAt(p);
+            return value;
+        }
+
+        public V setValue(V newValue) {
+            V old = getValue();
+            int p;
+            if ((p = position()) >= 0 && vals != null)
+                vals[p] = newValue;
+            value = newValue;
+            return old;
+        }
+
+        public boolean equals(Object o) {
+            if (o == this)
+                return true;
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+            return Objects.equals(key, e.getKey()) &&
+                Objects.equals(getValue(), e.getValue());
+        }
+
+        public int hashCode() {
+            return Objects.hashCode(key) ^ Objects.hashCode(getValue());
+        }
+
+        public String toString() {
+            return key + "=" + getValue();
+        }
+    }
+
+    /* ---------------- Iterators -------------- */
+
+    abstract class DenseIterator {
+        int next;              // next dense position to examine
+        int current = -1;      // position of last returned entry
+        int expectedModCount;  // for fast-fail
+
+        DenseIterator() {
+            expectedModCount = modCount;
+            skipDeleted();
+        }
+
+        private void skipDeleted() {
+            Object[] ks = keys;
+            int i = next, u = used;
+            while (i < u && ks[i] == DELETED)
+                i++;
+            next = i;
+        }
+
+        public final boolean hasNext() {
+            return next < used;
+        }
+
+        final int nextPosition() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            int i = next;
+            if (i >= used)
+                throw new NoSuchElementException();
+            current = i;
+            next = i + 1;
+            skipDeleted();
+            return i;
+        }
+
+        public final void remove() {
+            int e = current;
+            if (e < 0)
+                throw new IllegalStateException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            current = -1;
+            removeSlot(findSlot(keys[e], hashes[e]));
+            expectedModCount = modCount;
+        }
+    }
+
+    final class KeyIterator extends DenseIterator implements Iterator<K> {
+        @SuppressWarnings("unchecked")
+        public final K next() { return (K) keys[nextPosition()]; }
+    }
+
+    final class ValueIterator extends DenseIterator implements Iterator<V> {
+        public final V next() { return valueAt(nextPosition()); }
+    }
+
+    final class EntryIterator extends DenseIterator
+        implements Iterator<Map.Entry<K,V>> {
+        @SuppressWarnings("unchecked")
+        public final Map.Entry<K,V> next() {
+            int e = nextPosition();
+            return new Entry((K) keys[e], e);
+        }
+    }
+
+    /* ---------------- Serialization -------------- */
+
+    /**
+     * Saves this map to a stream (that is, serializes it).
+     *
+     * @param s the stream
+     * @throws IOException if an I/O error occurs
+     * @serialData The size of the map (the number of key-value
+     *             mappings) is emitted (int), followed by the key
+     *             (Object) and value (Object) for each key-value
+     *             mapping, in insertion order.
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws IOException {
+        s.defaultWriteObject();
+        s.writeInt(size);
+        Object[] ks = keys;
+        for (int i = 0, u = used; i < u; i++) {
+            Object k;
+            if ((k = ks[i]) != DELETED) {
+                s.writeObject(k);
+                s.writeObject(valueAt(i));
+            }
+        }
+    }
+
+    /**
+     * Reconstitutes this map from a stream (that is, deserializes it).
+     *
+     * @param s the stream
+     * @throws ClassNotFoundException if the class of a serialized object
+     *         could not be found
+     * @throws IOException if an I/O error occurs
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(java.io.ObjectInputStream s)
+        throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        int mappings = s.readInt();
+        if (mappings < 0)
+            throw new InvalidObjectException("Illegal mappings count: " +
+                                             mappings);
+        int cap = Math.max(Math.min(mappings, MAXIMUM_CAPACITY), 1);
+        SharedSecrets.getJavaObjectInputStreamAccess()
+                     .checkArray(s, Object[].class, cap);
+        initialCapacity = cap;
+        for (int i = 0; i < mappings; i++) {
+            K key = (K) s.readObject();
+            V value = (V) s.readObject();
+            putVal(HashMap.hash(key), key, value, false);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util;
+
+import java.io.InvalidObjectException;
+import java.util.function.Consumer;
+import jdk.internal.misc.SharedSecrets;
+
+/**
+ * Hash table implementation of the {@code Set} interface with
+ * predictable, insertion-ordered iteration, backed by a key-only
+ * {@link CompactOrderedHashMap}.  It is an alternative to
+ * {@link LinkedHashSet} that stores each element's reference and hash
+ * code in dense arrays, with no per-element node, and iterates by a
+ * linear scan of those arrays.  Insertion order is not affected if an
+ * element is <i>re-inserted</i> into the set.
+ *
+ * <p>This class provides all of the optional {@code Set} operations, and
+ * permits the null element.  It provides constant-time performance for
+ * the basic operations ({@code add}, {@code contains} and
+ * {@code remove}), assuming the hash function disperses elements
+ * properly.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * If multiple threads access a compact ordered hash set concurrently, and
+ * at least one of the threads modifies the set, it <em>must</em> be
+ * synchronized externally, or "wrapped" using the
+ * {@link Collections#synchronizedSet Collections.synchronizedSet}
+ * method.
+ *
+ * <p>The iterators returned by this class's {@code iterator} method are
+ * <em>fail-fast</em>: if the set is modified at any time after the
+ * iterator is created, in any way except through the iterator's own
+ * {@code remove} method, the iterator will throw a {@link
+ * ConcurrentModificationException}, on a best-effort basis.
+ *
+ * @param <E> the type of elements maintained by this set
+ *
+ * @see LinkedHashSet
+ * @see CompactOrderedHashMap
+ * @since 12
+ */
+public class CompactOrderedHashSet<E>
+    extends AbstractSet<E>
+    implements Set<E>, Cloneable, java.io.Serializable
+{
+    private static final long serialVersionUID = 3436152740983547216L;
+
+    private transient CompactOrderedHashMap<E,Object> map;
+
+    /**
+     * Constructs a new, empty set with the default initial capacity (8).
+     */
+    public CompactOrderedHashSet() {
+        map = new CompactOrderedHashMap<>(CompactOrderedHashMap.DEFAULT_CAPACITY,
+                                          true);
+    }
+
+    /**
+     * Constructs a new, empty set with room for the specified number of
+     * elements.
+     *
+     * @param      initialCapacity   the initial capacity
+     * @throws     IllegalArgumentException if the initial capacity is
+     *             negative
+     */
+    public CompactOrderedHashSet(int initialCapacity) {
+        map = new CompactOrderedHashMap<>(initialCapacity, true);
+    }
+
+    /**
+     * Constructs a new set containing the elements in the specified
+     * collection, in the iteration order of the collection.
+     *
+     * @param c the collection whose elements are to be placed into this set
+     * @throws NullPointerException if the specified collection is null
+     */
+    public CompactOrderedHashSet(Collection<? extends E> c) {
+        map = new CompactOrderedHashMap<>(
+            Math.max(c.size(), CompactOrderedHashMap.DEFAULT_CAPACITY), true);
+        addAll(c);
+    }
+
+    /**
+     * Returns an iterator over the elements in this set, in insertion
+     * order.
+     *
+     * @return an Iterator over the elements in this set
+     */
+    public Iterator<E> iterator() {
+        return map.keySet().iterator();
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    public boolean isEmpty() {
+        return map.isEmpty();
+    }
+
+    public boolean contains(Object o) {
+        return map.containsKey(o);
+    }
+
+    /**
+     * Adds the specified element to this set if it is not already present.
+     *
+     * @param e element to be added to this set
+     * @return {@code true} if this set did not already contain the specified
+     * element
+     */
+    public boolean add(E e) {
+        return map.putVal(HashMap.hash(e), e, null, false) == null;
+    }
+
+    public boolean remove(Object o) {
+        return map.remove(o) != null;
+    }
+
+    public void clear() {
+        map.clear();
+    }
+
+    public void forEach(Consumer<? super E> action) {
+        map.keySet().forEach(action);
+    }
+
+    /**
+     * Returns a shallow copy of this {@code CompactOrderedHashSet}
+     * instance: the elements themselves are not cloned.
+     *
+     * @return a shallow copy of this set
+     */
+    @SuppressWarnings("unchecked")
+    public Object clone() {
+        try {
+            CompactOrderedHashSet<E> newSet = (CompactOrderedHashSet<E>) super.clone();
+            newSet.map = (CompactOrderedHashMap<E, Object>) map.clone();
+            return newSet;
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError(e);
+        }
+    }
+
+    /**
+     * Save the state of this {@code CompactOrderedHashSet} instance to a
+     * stream (that is, serialize it).
+     *
+     * @serialData The size of the set (the number of elements it contains)
+     *             (int), followed by all of its elements (each an Object)
+     *             in insertion order.
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws java.io.IOException {
+        s.defaultWriteObject();
+        s.writeInt(map.size());
+        for (E e : map.keySet())
+            s.writeObject(e);
+    }
+
+    /**
+     * Reconstitute the {@code CompactOrderedHashSet} instance from a stream
+     * (that is, deserialize it).
+     */
+    private void readObject(java.io.ObjectInputStream s)
+        throws java.io.IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        int size = s.readInt();
+        if (size < 0) {
+            throw new InvalidObjectException("Illegal size: " + size);
+        }
+        int capacity = Math.max(Math.min(size, CompactOrderedHashMap.MAXIMUM_CAPACITY), 1);
+        SharedSecrets.getJavaObjectInputStreamAccess()
+                     .checkArray(s, Object[].class, capacity);
+        map = new CompactOrderedHashMap<>(capacity, true);
+        for (int i = 0; i < size; i++) {
+            @SuppressWarnings("unchecked")
+                E e = (E) s.readObject();
+            add(e);
+        }
+    }
+
+    /**
+     * Creates a <em><a href="Spliterator.html#binding">late-binding</a></em>
+     * and <em>fail-fast</em> {@code Spliterator} over the elements in this set.
+     *
+     * <p>The {@code Spliterator} reports {@link Spliterator#SIZED},
+     * {@link Spliterator#DISTINCT}, and {@code ORDERED}.
+     *
+     * @return a {@code Spliterator} over the elements in this set
+     */
+    public Spliterator<E> spliterator() {
+        return map.keySet().spliterator();
+    }
+}
@@ -0,0 +1,1961 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+import jdk.internal.misc.SharedSecrets;
+
+/**
+ * A compressed set of bits, indexed by nonnegative integers, offering the
+ * query and bulk operations of {@link BitSet}.  Where a {@code BitSet}
+ * always stores one bit for every index up to its highest set bit, this
+ * class divides the indices into chunks of 65536 and stores only the
+ * chunks that contain set bits, each in whichever of three forms is
+ * smallest for its contents: a sorted array of the set bits (up to 4096
+ * of them), a 65536-bit bitmap, or a sorted array of runs of consecutive
+ * set bits.  A set holding a few million bits scattered over the whole
+ * range of {@code int}, or long runs of set bits, therefore occupies a
+ * small fraction of the space of an equivalent {@code BitSet}, while
+ * lookups, iteration and the logical operations work a chunk at a time.
+ * Operations that create large runs, such as {@link #set(int, int)},
+ * choose the run form automatically; {@link #runOptimize} converts
+ * chunks built bit by bit.
+ *
+ * <p>A compressed bit set may be written in a compact binary form with
+ * {@link #writeTo(ByteBuffer)} or {@link #writeTo(WritableByteChannel)},
+ * and that form may be used in place, without decoding, as an
+ * unmodifiable compressed bit set returned by {@link #wrap(ByteBuffer)}
+ * or {@link #map(FileChannel, long, long)}.  Only a small directory of
+ * the chunks is read when the set is opened; the bits of each chunk are
+ * read from the buffer as queries need them, so a set mapped from a file
+ * need not fit in the heap.  Methods that would modify an unmodifiable
+ * set throw {@link UnsupportedOperationException}; {@link #clone} returns
+ * a modifiable copy, so that for example the intersection of two mapped
+ * sets may be computed as {@code a.clone().and(b)}, or its size, without
+ * copying either set, as {@link #andCardinality a.andCardinality(b)}.
+ *
+ * <p>Unless otherwise noted, passing a null parameter to any of the
+ * methods in a {@code CompressedBitSet} will result in a
+ * {@code NullPointerException}.
+ *
+ * <p>A {@code CompressedBitSet} is not safe for multithreaded use without
+ * external synchronization, except that an unmodifiable set may be
+ * queried concurrently by several threads.
+ *
+ * @see BitSet
+ * @since 12
+ */
+public class CompressedBitSet implements Cloneable, java.io.Serializable {
+    /*
+     * Implementation overview.
+     *
+     * An index is split into a 16-bit high part, the key of its chunk,
+     * and a 16-bit low part, its position in the chunk.  The set holds
+     * the keys of its non-empty chunks in a sorted char array, with a
+     * parallel array of containers, each holding the low parts of the
+     * bits set in one chunk.  There are three kinds of container:
+     *
+     * - ArrayContainer: the sorted low parts, at most ARRAY_MAX of them
+     * - BitmapContainer: 1024 words, one bit per low part
+     * - RunContainer: sorted, non-overlapping and non-adjacent runs,
+     *   each stored as its first and last low part
+     *
+     * Each kind is an abstract class implementing the read operations in
+     * terms of an accessor (value(i), word(i), start(i)/end(i)), with a
+     * heap subclass over Java arrays, which also implements updates, and
+     * a mapped subclass over a buffer of the serialized form.  Updates of
+     * single bits keep a container's kind where possible, converting
+     * arrays that outgrow ARRAY_MAX to bitmaps and bitmaps that shrink to
+     * ARRAY_MAX to arrays.  Range operations and logical operations
+     * between containers other than arrays work on a temporary bitmap
+     * and then choose the smallest kind of container for the result
+     * (fromWords).  A container is never empty: operations that empty a
+     * chunk remove its container.
+     *
+     * The serialized form, all little-endian, is:
+     *
+     *   int MAGIC, int count
+     *   count directory entries of ENTRY_BYTES each:
+     *       char key, char type, int cardinality, int length, int offset
+     *   the container data, each starting at its offset (from the start
+     *   of the form) and padded to a multiple of eight bytes:
+     *       ARRAY:  length chars, the sorted low parts
+     *       BITMAP: 1024 longs
+     *       RUN:    length pairs of chars, first and last of each run
+     */
+
+    private static final long serialVersionUID = -2283410727326549062L;
+
+    /** Number of bits of an index that select its position in a chunk. */
+    static final int CHUNK_BITS = 16;
+    /** Number of bits per chunk. */
+    static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    /** Mask selecting the low part of an index. */
+    static final int LOW_MASK = CHUNK_SIZE - 1;
+    /** Largest key of a chunk of nonnegative indices. */
+    static final int MAX_KEY = Integer.MAX_VALUE >>> CHUNK_BITS;
+    /** Number of words of a bitmap container. */
+    static final int WORDS = CHUNK_SIZE >>> 6;
+    /** Size in bytes of a bitmap container. */
+    static final int BITMAP_BYTES = CHUNK_SIZE >>> 3;
+    /** Largest cardinality of an array container. */
+    static final int ARRAY_MAX = BITMAP_BYTES >>> 1;
+
+    /** Container types of the serialized form. */
+    static final int ARRAY = 0, BITMAP = 1, RUN = 2;
+    /** First word of the serialized form, "CBS1". */
+    static final int MAGIC = 0x43425331;
+    /** Sizes of the serialized header and of each directory entry. */
+    static final int HEADER_BYTES = 8, ENTRY_BYTES = 16;
+
+    /** Range operations. */
+    static final int SET = 0, CLEAR = 1, FLIP = 2;
+
+    /** The keys of the non-empty chunks, in ascending order. */
+    private transient char[] keys;
+
+    /** The containers of the non-empty chunks, parallel to keys. */
+    private transient Container[] containers;
+
+    /** The number of non-empty chunks. */
+    private transient int size;
+
+    /** True if this set wraps a serialized form and may not be modified. */
+    private transient boolean readOnly;
+
+    /**
+     * Creates a new, empty compressed bit set.
+     */
+    public CompressedBitSet() {
+        keys = new char[4];
+        containers = new Container[4];
+    }
+
+    private CompressedBitSet(char[] keys, Container[] containers, int size,
+                             boolean readOnly) {
+        this.keys = keys;
+        this.containers = containers;
+        this.size = size;
+        this.readOnly = readOnly;
+    }
+
+    /**
+     * Returns a new compressed bit set containing all the bits set in the
+     * given bit set.
+     *
+     * @param bs a bit set
+     * @return a {@code CompressedBitSet} containing the bits set in
+     *         {@code bs}
+     */
+    public static CompressedBitSet valueOf(BitSet bs) {
+        long[] words = bs.toLongArray();
+        int chunks = (words.length + WORDS - 1) / WORDS;
+        char[] keys = new char[Math.max(chunks, 4)];
+        Container[] cs = new Container[keys.length];
+        int n = 0;
+        for (int k = 0; k < chunks; k++) {
+            int from = k * WORDS;
+            Container c = fromWords(Arrays.copyOfRange(words, from, from + WORDS));
+            if (c != null) {
+                keys[n] = (char)k;
+                cs[n++] = c;
+            }
+        }
+        return new CompressedBitSet(keys, cs, n, false);
+    }
+
+    /**
+     * Returns a new bit set containing all the bits set in this set.
+     *
+     * @return a {@code BitSet} containing the bits set in this set
+     */
+    public BitSet toBitSet() {
+        if (size == 0)
+            return new BitSet();
+        long[] words = new long[(keys[size - 1] + 1) * WORDS];
+        long[] w = new long[WORDS];
+        for (int i = 0; i < size; i++) {
+            Arrays.fill(w, 0L);
+            containers[i].orInto(w);
+            System.arraycopy(w, 0, words, keys[i] * WORDS, WORDS);
+        }
+        return BitSet.valueOf(words);
+    }
+
+    /**
+     * Returns an unmodifiable compressed bit set using, in place, the
+     * serialized form contained in the remaining bytes of the given
+     * buffer, as written by {@link #writeTo(ByteBuffer)}.  The position,
+     * limit and byte order of the buffer are not changed, and its
+     * contents must not be changed while the returned set is in use.
+     *
+     * <p>The structure of the serialized form is checked, but the bits of
+     * each chunk are not read until they are needed.
+     *
+     * @param buffer a buffer whose remaining bytes hold a serialized
+     *        compressed bit set
+     * @return an unmodifiable {@code CompressedBitSet} backed by the buffer
+     * @throws IllegalArgumentException if the remaining bytes of the
+     *         buffer do not hold a well-formed serialized compressed bit
+     *         set
+     */
+    public static CompressedBitSet wrap(ByteBuffer buffer) {
+        ByteBuffer b = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+        int limit = b.limit();
+        if (limit < HEADER_BYTES || b.getInt(0) != MAGIC)
+            throw new IllegalArgumentException("Not a serialized CompressedBitSet");
+        int n = b.getInt(4);
+        if (n < 0 || n > MAX_KEY + 1 ||
+            HEADER_BYTES + (long)n * ENTRY_BYTES > limit)
+            throw new IllegalArgumentException("Illegal chunk count: " + n);
+        char[] keys = new char[Math.max(n, 4)];
+        Container[] cs = new Container[keys.length];
+        int prev = -1;
+        for (int i = 0; i < n; i++) {
+            int e = HEADER_BYTES + i * ENTRY_BYTES;
+            int key = b.getChar(e), type = b.getChar(e + 2);
+            int card = b.getInt(e + 4), len = b.getInt(e + 8), off = b.getInt(e + 12);
+            if (key <= prev || key > MAX_KEY)
+                throw new IllegalArgumentException("Illegal chunk key: " + key);
+            if (card <= 0 || card > CHUNK_SIZE ||
+                (type == ARRAY && (len != card || card > ARRAY_MAX)) ||
+                (type == BITMAP && len != WORDS) ||
+                (type == RUN && (len <= 0 || len > CHUNK_SIZE / 2)) ||
+                type > RUN)
+                throw new IllegalArgumentException("Illegal chunk: " + key);
+            int bytes = dataBytes(type, len);
+            if (off < HEADER_BYTES || (long)off + bytes > limit)
+                throw new IllegalArgumentException("Chunk out of bounds: " + key);
+            ByteBuffer d = b.duplicate().position(off).limit(off + bytes)
+                .slice().order(ByteOrder.LITTLE_ENDIAN);
+            keys[i] = (char)key;
+            cs[i] = (type == ARRAY) ? new MappedArray(d.asCharBuffer(), len) :
+                (type == BITMAP) ? new MappedBitmap(d.asLongBuffer(), card) :
+                new MappedRun(d.asCharBuffer(), len, card);
+            prev = key;
+        }
+        return new CompressedBitSet(keys, cs, n, true);
+    }
+
+    /**
+     * Returns an unmodifiable compressed bit set using the serialized form
+     * held in a region of a file, which is mapped into memory as by
+     * {@link FileChannel#map FileChannel.map} in read-only mode.  The
+     * mapping, and so the returned set, remains valid until it is garbage
+     * collected, even if the channel is closed.
+     *
+     * @param channel a channel open for reading
+     * @param position the position in the file at which the serialized
+     *        form starts
+     * @param size the size of the serialized form, in bytes
+     * @return an unmodifiable {@code CompressedBitSet} backed by the file
+     * @throws IllegalArgumentException if the region of the file does not
+     *         hold a well-formed serialized compressed bit set, or if the
+     *         preconditions on the parameters of {@code FileChannel.map}
+     *         do not hold
+     * @throws IOException if some other I/O error occurs
+     */
+    public static CompressedBitSet map(FileChannel channel, long position,
+                                       long size) throws IOException {
+        return wrap(channel.map(FileChannel.MapMode.READ_ONLY, position, size));
+    }
+
+    /**
+     * Returns the number of bytes of the serialized form of this set.
+     *
+     * @return the number of bytes written by {@link #writeTo(ByteBuffer)}
+     */
+    public int serializedSize() {
+        int bytes = HEADER_BYTES + size * ENTRY_BYTES;
+        for (int i = 0; i < size; i++) {
+            Container c = containers[i];
+            bytes += pad(dataBytes(c.type(), c.length()));
+        }
+        return bytes;
+    }
+
+    /**
+     * Writes the serialized form of this set into the given buffer,
+     * starting at its current position.  The position of the buffer is
+     * advanced by {@link #serializedSize}; its byte order is not changed.
+     *
+     * @param dst the buffer into which to write
+     * @throws BufferOverflowException if there is insufficient space in
+     *         the buffer
+     * @throws java.nio.ReadOnlyBufferException if the buffer is read-only
+     */
+    public void writeTo(ByteBuffer dst) {
+        int bytes = serializedSize();
+        if (dst.remaining() < bytes)
+            throw new BufferOverflowException();
+        ByteOrder order = dst.order();
+        dst.order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            int base = dst.position();
+            dst.putInt(MAGIC).putInt(size);
+            int off = HEADER_BYTES + size * ENTRY_BYTES;
+            for (int i = 0; i < size; i++) {
+                Container c = containers[i];
+                dst.putChar(keys[i]).putChar((char)c.type())
+                    .putInt(c.cardinality()).putInt(c.length()).putInt(off);
+                off += pad(dataBytes(c.type(), c.length()));
+            }
+            for (int i = 0; i < size; i++) {
+                containers[i].writeTo(dst);
+                while (((dst.position() - base) & 7) != 0)
+                    dst.put((byte)0);
+            }
+        } finally {
+            dst.order(order);
+        }
+    }
+
+    /**
+     * Writes the serialized form of this set to the given channel.
+     *
+     * @param channel the channel to which to write
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        ByteBuffer b = ByteBuffer.allocate(serializedSize());
+        writeTo(b);
+        b.flip();
+        while (b.hasRemaining())
+            channel.write(b);
+    }
+
+    /**
+     * Returns {@code true} if this set may not be modified, because it
+     * uses a serialized form in place.
+     *
+     * @return {@code true} if this set is unmodifiable
+     */
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * Returns the value of the bit with the specified index.
+     *
+     * @param  bitIndex   the bit index
+     * @return the value of the bit with the specified index
+     * @throws IndexOutOfBoundsException if the specified index is negative
+     */
+    public boolean get(int bitIndex) {
+        if (bitIndex < 0)
+            throw new IndexOutOfBoundsException("bitIndex < 0: " + bitIndex);
+        int i = findKey(bitIndex >>> CHUNK_BITS);
+        return i >= 0 && containers[i].contains(bitIndex & LOW_MASK);
+    }
+
+    /**
+     * Sets the bit at the specified index to {@code true}.
+     *
+     * @param  bitIndex a bit index
+     * @throws IndexOutOfBoundsException if the specified index is negative
+     * @throws UnsupportedOperationException if this set is unmodifiable
+     */
+    public void set(int bitIndex) {
+        if (bitIndex < 0)
+            throw new IndexOutOfBoundsException("bitIndex < 0: " + bitIndex);
+        checkWritable();
+        int key = bitIndex >>> CHUNK_BITS, i = findKey(key);
+        if (i >= 0)
+            containers[i] = containers[i].add(bitIndex & LOW_MASK);
+        else
+            insertAt(-i - 1, key, new HeapArray(bitIndex & LOW_MASK));
+    }
+
+    /**
+     * Sets the bit at the specified index to the specified value.
+     *
+     * @param  bitIndex a bit index
+     * @param  value a boolean value to set
+     * @throws IndexOutOfBoundsException if the specified index is negative
+     * @throws UnsupportedOperationException if this set is unmodifiable
+     */
+    public void set(int bitIndex, boolean value) {
+        if (value)
+            set(bitIndex);
+        else
+            clear(bitIndex);
+    }
+
+    /**
+     * Sets the bits from the specified {@code fromIndex} (inclusive) to the
+     * specified {@code toIndex} (exclusive) to {@code true}.
+     *
+     * @param  fromIndex index of the first bit to be set
+     * @param  toIndex index after the last bit to be set
+     * @throws IndexOutOfBoundsException if {@code fromIndex} is negative,
+     *         or {@code toIndex} is negative, or {@code fromIndex} is
+     *         larger than {@code toIndex}
+     * @throws UnsupportedOperationException if this set is unmodifiable
+     */
+    public void set(int fromIndex, int toIndex) {
+        rangeOp(fromIndex, toIndex, SET);
+    }
+
+    /**
+     * Sets the bits from the specified {@code fromIndex} (inclusive) to the
+     * specified {@code toIndex} (exclusive) to the specified value.
+     *
+     * @param  fromIndex index of the first bit to be set
+     * @param  toIndex index after the last bit to be set
+     * @param  value value to set the selected bits to
+     * @throws IndexOutOfBoundsException if {@code fromIndex} is negative,
+     *         or {@code toIndex} is negative, or {@code fromIndex} is
+     *         larger than {@code toIndex}
+     * @throws UnsupportedOperationException if this set is unmodifiable
+     */
+    public void set(int fromIndex, int toIndex, boolean value) {
+        rangeOp(fromIndex, toIndex, value ? SET : CLEAR);
+    }
+
+    /**
+     * Sets the bit specified by the index to {@code false}.
+     *
+     * @param  bitIndex the index of the bit to be cleared
+     * @throws IndexOutOfBoundsException if the specified index is negative
+     * @throws UnsupportedOperationException if this set is unmodifiable
+     */
+    public void clear(int bitIndex) {
+        if (bitIndex < 0)
+            throw new IndexOutOfBoundsException("bitIndex < 0: " + bitIndex);
+        checkWritable();
+        int i = findKey(bitIndex >>> CHUNK_BITS);
+        if (i >= 0) {
+            Container c = containers[i].remove(bitIndex & LOW_MASK);
+            if (c.cardinality() == 0)
+                removeAt(i);
+            else
+                containers[i] = c;
+        }
+    }
+
+    /**
+     * Sets the bits from the specified {@code fromIndex} (inclusive) to the
+     * specified {@code toIndex} (exclusive) to {@code false}.
+     *
+     * @param  fromIndex index of the first bit to be cleared
+     * @param  toIndex index after the last bit to be cleared
+     * @throws IndexOutOfBoundsException if {@code fromIndex} is negative,
+     *         or {@code toIndex} is negative, or {@code fromIndex} is
+     *         larger than {@code toIndex}
+     * @throws UnsupportedOperationException if this set is unmodifiable
+     */
+    public void clear(int fromIndex, int toIndex) {
+        rangeOp(fromIndex, toIndex, CLEAR);
+    }
+
+    /**
+     * Sets all of the bits in this set to {@code false}.
+     *
+     * @throws UnsupportedOperationException if this set is unmodifiable
+     */
+    public void clear() {
+        checkWritable();
+        Arrays.fill(containers, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * Sets the bit at the specified index to the complement of its
+     * current value.
+     *
+     * @param  bitIndex the index of the bit to flip
+     * @throws IndexOutOfBoundsException if the specified index is negative
+     * @throws UnsupportedOperationException if this set is unmodifiable
+     */
+    public void flip(int bitIndex) {
+        if (get(bitIndex))
+            clear(bitIndex);
+        else
+            set(bitIndex);
+    }
+
+    /**
+     * Sets each bit from the specified {@code fromIndex} (inclusive) to the
+     * specified {@code toIndex} (exclusive) to the complement of its current
+     * value.
+     *
+     * @param  fromIndex index of the first bit to flip
+     * @param  toIndex index after the last bit to flip
+     * @throws IndexOutOfBoundsException if {@code fromIndex} is negative,
+     *         or {@code toIndex} is negative, or {@code fromIndex} is
+     *         larger than {@code toIndex}
+     * @throws UnsupportedOperationException if this set is unmodifiable
+     */
+    public void flip(int fromIndex, int toIndex) {
+        rangeOp(fromIndex, toIndex, FLIP);
+    }
+
+    /**
+     * Returns the index of the first bit that is set to {@code true}
+     * that occurs on or after the specified starting index. If no such
+     * bit exists then {@code -1} is returned.
+     *
+     * @param  fromIndex the index to start checking from (inclusive)
+     * @return the index of the next set bit, or {@code -1} if there
+     *         is no such bit
+     * @throws IndexOutOfBoundsException if the specified index is negative
+     */
+    public int nextSetBit(int fromIndex) {
+        if (fromIndex < 0)
+            throw new IndexOutOfBoundsException("fromIndex < 0: " + fromIndex);
+        int i = findKey(fromIndex >>> CHUNK_BITS), low = fromIndex & LOW_MASK;
+        if (i < 0) {
+            i = -i - 1;
+            low = 0;
+        }
+        for (; i < size; i++, low = 0) {
+            int v = containers[i].next(low);
+            if (v >= 0)
+                return (keys[i] << CHUNK_BITS) | v;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index of the first bit that is set to {@code false}
+     * that occurs on or after the specified starting index.
+     *
+     * @param  fromIndex the index to start checking from (inclusive)
+     * @return the index of the next clear bit, or {@code -1} if every bit
+     *         from {@code fromIndex} to {@code Integer.MAX_VALUE} is set
+     * @throws IndexOutOfBoundsException if the specified index is negative
+     */
+    public int nextClearBit(int fromIndex) {
+        if (fromIndex < 0)
+            throw new IndexOutOfBoundsException("fromIndex < 0: " + fromIndex);
+        int key = fromIndex >>> CHUNK_BITS, low = fromIndex & LOW_MASK;
+        int i = findKey(key);
+        if (i < 0)
+            return fromIndex;
+        for (;;) {
+            int v = containers[i].nextAbsent(low);
+            if (v < CHUNK_SIZE)
+                return (key << CHUNK_BITS) | v;
+            if (++key > MAX_KEY)
+                return -1;
+            if (++i >= size || keys[i] != key)
+                return key << CHUNK_BITS;
+            low = 0;
+        }
+    }
+
+    /**
+     * Returns the index of the nearest bit that is set to {@code true}
+     * that occurs on or before the specified starting index.
+     * If no such bit exists, or if {@code -1} is given as the
+     * starting index, then {@code -1} is returned.
+     *
+     * @param  fromIndex the index to start checking from (inclusive)
+     * @return the index of the previous set bit, or {@code -1} if there
+     *         is no such bit
+     * @throws IndexOutOfBoundsException if the specified index is less
+     *         than {@code -1}
+     */
+    public int previousSetBit(int fromIndex) {
+        if (fromIndex < 0) {
+            if (fromIndex == -1)
+                return -1;
+            throw new IndexOutOfBoundsException(
+                "fromIndex < -1: " + fromIndex);
+        }
+        int i = findKey(fromIndex >>> CHUNK_BITS), low = fromIndex & LOW_MASK;
+        if (i < 0) {
+            i = -i - 2;
+            low = LOW_MASK;
+        }
+        for (; i >= 0; i--, low = LOW_MASK) {
+            int v = containers[i].prev(low);
+            if (v >= 0)
+                return (keys[i] << CHUNK_BITS) | v;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index of the nearest bit that is set to {@code false}
+     * that occurs on or before the specified starting index.
+     * If no such bit exists, or if {@code -1} is given as the
+     * starting index, then {@code -1} is returned.
+     *
+     * @param  fromIndex the index to start checking from (inclusive)
+     * @return the index of the previous clear bit, or {@code -1} if there
+     *         is no such bit
+     * @throws IndexOutOfBoundsException if the specified index is less
+     *         than {@code -1}
+     */
+    public int previousClearBit(int fromIndex) {
+        if (fromIndex < 0) {
+            if (fromIndex == -1)
+                return -1;
+            throw new IndexOutOfBoundsException(
+                "fromIndex < -1: " + fromIndex);
+        }
+        int key = fromIndex >>> CHUNK_BITS, low = fromIndex & LOW_MASK;
+        int i = findKey(key);
+        if (i < 0)
+            return fromIndex;
+        for (;;) {
+            int v = containers[i].prevAbsent(low);
+            if (v >= 0)
+                return (key << CHUNK_BITS) | v;
+            if (key-- == 0)
+                return -1;
+            if (--i < 0 || keys[i] != key)
+                return (key << CHUNK_BITS) | LOW_MASK;
+            low = LOW_MASK;
+        }
+    }
+
+    /**
+     * Returns the "logical size" of this set: the index of the highest
+     * set bit in the set plus one. Returns zero if the set contains no
+     * set bits.
+     *
+     * @return the logical size of this set
+     */
+    public int length() {
+        int n = size;
+        return (n == 0) ? 0 :
+            (keys[n - 1] << CHUNK_BITS) + containers[n - 1].prev(LOW_MASK) + 1;
+    }
+
+    /**
+     * Returns true if this set contains no bits that are set
+     * to {@code true}.
+     *
+     * @return boolean indicating whether this set is empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the number of bits set to {@code true} in this set.
+     *
+     * @return the number of bits set to {@code true} in this set
+     */
+    public int cardinality() {
+        int sum = 0;
+        for (int i = 0; i < size; i++)
+            sum += containers[i].cardinality();
+        return sum;
+    }
+
+    /**
+     * Returns true if the specified set has any bits set to {@code true}
+     * that are also set to {@code true} in this set.
+     *
+     * @param  set set to intersect with
+     * @return boolean indicating whether this set intersects the
+     *         specified set
+     */
+    public boolean intersects(CompressedBitSet set) {
+        for (int i = 0, j = 0; i < size && j < set.size; ) {
+            int ka = keys[i], kb = set.keys[j];
+            if (ka < kb)
+                i++;
+            else if (ka > kb)
+                j++;
+            else if (andCardinality(containers[i++], set.containers[j++]) > 0)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the number of bits set to {@code true} in both this set and
+     * the specified set, without modifying either set.
+     *
+     * @param  set a compressed bit set
+     * @return the cardinality of the intersection of the two sets
+     */
+    public int andCardinality(CompressedBitSet set) {
+        int sum = 0;
+        for (int i = 0, j = 0; i < size && j < set.size; ) {
+            int ka = keys[i], kb = set.keys[j];
+            if (ka < kb)
+                i++;
+            else if (ka > kb)
+                j++;
+            else
+                sum += andCardinality(containers[i++], set.containers[j++]);
+        }
+        return sum;
+    }
+
+    /**
+     * Performs a logical <b>AND</b> of this target set with the argument
+     * set. This set is modified so that each bit in it has the value
+     * {@code true} if and only if it both initially had the value
+     * {@code true} and the corresponding bit in the set argument also
+     * had the value {@code true}.
+     *
+     * @param set a compressed bit set
+     * @throws UnsupportedOperationException if this set is unmodifiable
+     */
+    public void and(CompressedBitSet set) {
+        checkWritable();
+        if (this == set)
+            return;
+        int n = 0;
+        for (int i = 0, j = 0; i < size && j < set.size; ) {
+            int ka = keys[i], kb = set.keys[j];
+            if (ka < kb)
+                i++;
+            else if (ka > kb)
+                j++;
+            else {
+                Container c = and(containers[i++], set.containers[j++]);
+                if (c != null) {
+                    keys[n] = (char)ka;
+                    containers[n++] = c;
+                }
+            }
+        }
+        Arrays.fill(containers, n, size, null);
+        size = n;
+    }
+
+    /**
+     * Performs a logical <b>OR</b> of this set with the set argument.
+     * This set is modified so that a bit in it has the value {@code true}
+     * if and only if it either already had the value {@code true} or the
+     * corresponding bit in the set argument has the value {@code true}.
+     *
+     * @param set a compressed bit set
+     * @throws UnsupportedOperationException if this set is unmodifiable
+     */
+    public void or(CompressedBitSet set) {
+        checkWritable();
+        if (this == set || set.size == 0)
+            return;
+        merge(set, true);
+    }
+
+    /**
+     * Performs a logical <b>XOR</b> of this set with the set argument.
+     * This set is modified so that a bit in it has the value {@code true}
+     * if and only if one of the following statements holds:
+     * <ul>
+     * <li>The bit initially has the value {@code true}, and the
+     *     corresponding bit in the argument has the value {@code false}.
+     * <li>The bit initially has the value {@code false}, and the
+     *     corresponding bit in the argument has the value {@code true}.
+     * </ul>
+     *
+     * @param  set a compressed bit set
+     * @throws UnsupportedOperationException if this set is unmodifiable
+     */
+    public void xor(CompressedBitSet set) {
+        checkWritable();
+        if (set.size != 0)
+            merge(set, false);
+    }
+
+    /**
+     * Clears all of the bits in this set whose corresponding bit is set
+     * in the specified set.
+     *
+     * @param  set the set with which to mask this set
+     * @throws UnsupportedOperationException if this set is unmodifiable
+     */
+    public void andNot(CompressedBitSet set) {
+        checkWritable();
+        int n = 0, j = 0;
+        for (int i = 0; i < size; i++) {
+            int ka = keys[i];
+            Container c = containers[i];
+            while (j < set.size && set.keys[j] < ka)
+                j++;
+            if (j < set.size && set.keys[j] == ka)
+                c = andNot(c, set.containers[j]);
+            if (c != null) {
+                keys[n] = (char)ka;
+                containers[n++] = c;
+            }
+        }
+        Arrays.fill(containers, n, size, null);
+        size = n;
+    }
+
+    /**
+     * Converts each chunk of this set to whichever of its possible
+     * representations is smallest, in particular to runs of set bits
+     * where those are smaller than a sorted array or bitmap.  Sets built
+     * by setting bits one at a time do not otherwise use runs.
+     *
+     * @return {@code true} if the representation of any chunk changed
+     * @throws UnsupportedOperationException if this set is unmodifiable
+     */
+    public boolean runOptimize() {
+        checkWritable();
+        boolean changed = false;
+        for (int i = 0; i < size; i++) {
+            Container c = containers[i], o = fromWords(c.toWords());
+            if (o.type() != c.type()) {
+                containers[i] = o;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Returns a stream of indices for which this {@code CompressedBitSet}
+     * contains a bit in the set state. The indices are returned
+     * in order, from lowest to highest. The size of the stream
+     * is the number of bits in the set state, equal to the value
+     * returned by the {@link #cardinality()} method.
+     *
+     * <p>The stream binds to this set when the terminal stream operation
+     * commences (specifically, the spliterator for the stream is
+     * <a href="Spliterator.html#binding"><em>late-binding</em></a>).  If the
+     * set is modified during that operation then the result is undefined.
+     *
+     * @return a stream of integers representing set indices
+     */
+    public IntStream stream() {
+        return StreamSupport.intStream(new BitSpliterator(this), false);
+    }
+
+    /**
+     * Returns the hash code value for this set. The hash code depends
+     * only on which bits are set within this {@code CompressedBitSet}, and
+     * not on how they are stored.
+     *
+     * @return the hash code value for this set
+     */
+    public int hashCode() {
+        int h = 1;
+        for (int i = 0; i < size; i++) {
+            Container c = containers[i];
+            int key = keys[i];
+            for (int s = c.next(0); s >= 0; ) {
+                int e = c.nextAbsent(s);
+                h = 31 * h + ((key << CHUNK_BITS) | s);
+                h = 31 * h + e;
+                s = (e < CHUNK_SIZE) ? c.next(e) : -1;
+            }
+        }
+        return h;
+    }
+
+    /**
+     * Compares this object against the specified object.
+     * The result is {@code true} if and only if the argument is
+     * not {@code null} and is a {@code CompressedBitSet} object that has
+     * exactly the same set of bits set to {@code true} as this set.
+     *
+     * @param  obj the object to compare with
+     * @return {@code true} if the objects are the same;
+     *         {@code false} otherwise
+     */
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (!(obj instanceof CompressedBitSet))
+            return false;
+        CompressedBitSet set = (CompressedBitSet) obj;
+        if (size != set.size)
+            return false;
+        for (int i = 0; i < size; i++) {
+            Container a = containers[i], b = set.containers[i];
+            if (keys[i] != set.keys[i] ||
+                a.cardinality() != b.cardinality() ||
+                andCardinality(a, b) != a.cardinality())
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns a modifiable copy of this set, whether or not this set is
+     * modifiable.
+     *
+     * @return a clone of this compressed bit set
+     */
+    public Object clone() {
+        try {
+            CompressedBitSet result = (CompressedBitSet) super.clone();
+            char[] ks = Arrays.copyOf(keys, Math.max(size, 4));
+            Container[] cs = new Container[ks.length];
+            for (int i = 0; i < size; i++)
+                cs[i] = containers[i].copy();
+            result.keys = ks;
+            result.containers = cs;
+            result.readOnly = false;
+            return result;
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError(e);
+        }
+    }
+
+    /**
+     * Returns a string representation of this set. For every index
+     * for which this {@code CompressedBitSet} contains a bit in the set
+     * state, the decimal representation of that index is included in
+     * the result. Such indices are listed in order from lowest to
+     * highest, separated by ",&nbsp;" (a comma and a space) and
+     * surrounded by braces, as by {@link BitSet#toString}.
+     *
+     * @return a string representation of this set
+     */
+    public String toString() {
+        StringBuilder b = new StringBuilder("{");
+        String sep = "";
+        for (int i = 0; i < size; i++) {
+            Container c = containers[i];
+            int base = keys[i] << CHUNK_BITS;
+            for (int v = c.next(0); v >= 0;
+                 v = (v < LOW_MASK) ? c.next(v + 1) : -1) {
+                b.append(sep).append(base | v);
+                sep = ", ";
+            }
+        }
+        return b.append('}').toString();
+    }
+
+    /**
+     * Saves the state of the {@code CompressedBitSet} instance to a stream.
+     *
+     * @serialData The number of bytes of the serialized form described by
+     *             {@link #writeTo(ByteBuffer)} (int), followed by those
+     *             bytes.
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws IOException {
+        s.defaultWriteObject();
+        ByteBuffer b = ByteBuffer.allocate(serializedSize());
+        writeTo(b);
+        s.writeInt(b.capacity());
+        s.write(b.array());
+    }
+
+    /**
+     * Reconstitutes the {@code CompressedBitSet} instance from a stream,
+     * as a modifiable set.
+     */
+    private void readObject(java.io.ObjectInputStream s)
+        throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        int len = s.readInt();
+        if (len < HEADER_BYTES)
+            throw new InvalidObjectException("Illegal length: " + len);
+        SharedSecrets.getJavaObjectInputStreamAccess()
+                     .checkArray(s, byte[].class, len);
+        byte[] bytes = new byte[len];
+        s.readFully(bytes);
+        CompressedBitSet set;
+        try {
+            set = wrap(ByteBuffer.wrap(bytes));
+        } catch (IllegalArgumentException e) {
+            throw (InvalidObjectException)
+                new InvalidObjectException(e.getMessage()).initCause(e);
+        }
+        CompressedBitSet copy = (CompressedBitSet) set.clone();
+        keys = copy.keys;
+        containers = copy.containers;
+        size = copy.size;
+    }
+
+    /* ---------------- Chunk directory -------------- */
+
+    private static void checkRange(int fromIndex, int toIndex) {
+        if (fromIndex < 0)
+            throw new IndexOutOfBoundsException("fromIndex < 0: " + fromIndex);
+        if (toIndex < 0)
+            throw new IndexOutOfBoundsException("toIndex < 0: " + toIndex);
+        if (fromIndex > toIndex)
+            throw new IndexOutOfBoundsException("fromIndex: " + fromIndex +
+                                                " > toIndex: " + toIndex);
+    }
+
+    private void checkWritable() {
+        if (readOnly)
+            throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Returns the index of the chunk with the given key if present, else
+     * (-(insertion point) - 1).
+     */
+    private int findKey(int key) {
+        char[] ks = keys;
+        int lo = 0, hi = size - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1, k = ks[mid];
+            if (k < key)
+                lo = mid + 1;
+            else if (k > key)
+                hi = mid - 1;
+            else
+                return mid;
+        }
+        return -(lo + 1);
+    }
+
+    private void insertAt(int i, int key, Container c) {
+        int n = size;
+        if (n == keys.length) {
+            keys = Arrays.copyOf(keys, n << 1);
+            containers = Arrays.copyOf(containers, n << 1);
+        }
+        System.arraycopy(keys, i, keys, i + 1, n - i);
+        System.arraycopy(containers, i, containers, i + 1, n - i);
+        keys[i] = (char)key;
+        containers[i] = c;
+        size = n + 1;
+    }
+
+    private void removeAt(int i) {
+        int n = size - 1;
+        System.arraycopy(keys, i + 1, keys, i, n - i);
+        System.arraycopy(containers, i + 1, containers, i, n - i);
+        containers[n] = null;
+        size = n;
+    }
+
+    /**
+     * Sets, clears or flips the bits of a range, a chunk at a time.
+     */
+    private void rangeOp(int fromIndex, int toIndex, int op) {
+        checkRange(fromIndex, toIndex);
+        checkWritable();
+        if (fromIndex == toIndex)
+            return;
+        int first = fromIndex >>> CHUNK_BITS, last = (toIndex - 1) >>> CHUNK_BITS;
+        int lo = fromIndex & LOW_MASK, hi = ((toIndex - 1) & LOW_MASK) + 1;
+        if (first == last) {
+            int i = findKey(first);
+            Container c = rangeOp(i >= 0 ? containers[i] : null, lo, hi, op);
+            if (i < 0) {
+                if (c != null)
+                    insertAt(-i - 1, first, c);
+            } else if (c == null)
+                removeAt(i);
+            else
+                containers[i] = c;
+            return;
+        }
+        // Rebuild the directory, replacing the chunks in [first, last]
+        int start = findKey(first), end = findKey(last + 1);
+        if (start < 0)
+            start = -start - 1;
+        if (end < 0)
+            end = -end - 1;
+        int tail = size - end;
+        int cap = start + tail + ((op == CLEAR) ? end - start : last - first + 1);
+        char[] nk = new char[Math.max(cap, 4)];
+        Container[] nc = new Container[nk.length];
+        System.arraycopy(keys, 0, nk, 0, start);
+        System.arraycopy(containers, 0, nc, 0, start);
+        int n = start;
+        for (int k = first, j = start; k <= last; k++) {
+            Container c = (j < end && keys[j] == k) ? containers[j++] : null;
+            if (c == null && op == CLEAR)
+                continue;
+            c = rangeOp(c, (k == first) ? lo : 0, (k == last) ? hi : CHUNK_SIZE, op);
+            if (c != null) {
+                nk[n] = (char)k;
+                nc[n++] = c;
+            }
+        }
+        System.arraycopy(keys, end, nk, n, tail);
+        System.arraycopy(containers, end, nc, n, tail);
+        keys = nk;
+        containers = nc;
+        size = n + tail;
+    }
+
+    /**
+     * Replaces the directory by the OR (if union is true) or XOR of this
+     * set and the given set.
+     */
+    private void merge(CompressedBitSet set, boolean union) {
+        int m = set.size;
+        char[] nk = new char[size + m];
+        Container[] nc = new Container[nk.length];
+        int n = 0, i = 0, j = 0;
+        while (i < size || j < m) {
+            int ka = (i < size) ? keys[i] : Integer.MAX_VALUE;
+            int kb = (j < m) ? set.keys[j] : Integer.MAX_VALUE;
+            Container c;
+            if (ka < kb)
+                c = containers[i++];
+            else if (ka > kb) {
+                c = set.containers[j++].copy();
+                ka = kb;
+            } else if (union)
+                c = or(containers[i++], set.containers[j++]);
+            else
+                c = xor(containers[i++], set.containers[j++]);
+            if (c != null) {
+                nk[n] = (char)ka;
+                nc[n++] = c;
+            }
+        }
+        keys = nk;
+        containers = nc;
+        size = n;
+    }
+
+    /* ---------------- Container operations -------------- */
+
+    /** Returns the number of bytes of the data of a container. */
+    static int dataBytes(int type, int length) {
+        return (type == ARRAY) ? length << 1 :
+            (type == BITMAP) ? BITMAP_BYTES : length << 2;
+    }
+
+    /** Rounds up to a multiple of eight bytes. */
+    static int pad(int bytes) {
+        return (bytes + 7) & ~7;
+    }
+
+    /** Sets the bits from lo (inclusive) to hi (exclusive) in w. */
+    static void setRange(long[] w, int lo, int hi) {
+        applyRange(w, lo, hi, SET);
+    }
+
+    static void applyRange(long[] w, int lo, int hi, int op) {
+        int first = lo >>> 6, last = (hi - 1) >>> 6;
+        for (int u = first; u <= last; u++) {
+            long m = -1L;
+            if (u == first)
+                m &= -1L << lo;
+            if (u == last)
+                m &= -1L >>> -hi;
+            if (op == SET)
+                w[u] |= m;
+            else if (op == CLEAR)
+                w[u] &= ~m;
+            else
+                w[u] ^= m;
+        }
+    }
+
+    /**
+     * Returns the smallest container holding the bits of w, or null if
+     * none are set.  The array may become that of a bitmap container.
+     */
+    static Container fromWords(long[] w) {
+        int card = 0, runs = 0;
+        long carry = 0L;
+        for (int u = 0; u < WORDS; u++) {
+            long x = w[u];
+            card += Long.bitCount(x);
+            runs += Long.bitCount(x & ~((x << 1) | carry));
+            carry = x >>> 63;
+        }
+        if (card == 0)
+            return null;
+        if (runs << 2 < Math.min(card << 1, BITMAP_BYTES))
+            return HeapRun.fromWords(w, runs, card);
+        if (card <= ARRAY_MAX)
+            return HeapArray.fromWords(w, card);
+        return new HeapBitmap(w, card);
+    }
+
+    /**
+     * Returns the result of a range operation on the bits from lo
+     * (inclusive) to hi (exclusive) of a possibly null container.
+     */
+    static Container rangeOp(Container c, int lo, int hi, int op) {
+        boolean all = (lo == 0 && hi == CHUNK_SIZE);
+        if (c == null)
+            return (op == CLEAR) ? null : HeapRun.of(lo, hi - 1);
+        if (all && op == SET)
+            return HeapRun.of(0, LOW_MASK);
+        if (all && op == CLEAR)
+            return null;
+        long[] w = c.toWords();
+        applyRange(w, lo, hi, op);
+        return fromWords(w);
+    }
+
+    /**
+     * Returns the values of an array container that are (if keep is
+     * true) or are not present in another container, or null if none.
+     */
+    static Container filter(ArrayContainer a, Container b, boolean keep) {
+        int n = a.n, r = 0;
+        char[] out = new char[n];
+        if (b instanceof ArrayContainer) {
+            ArrayContainer c = (ArrayContainer) b;
+            for (int i = 0, j = 0, m = c.n; i < n; i++) {
+                int v = a.value(i);
+                while (j < m && c.value(j) < v)
+                    j++;
+                if ((j < m && c.value(j) == v) == keep)
+                    out[r++] = (char)v;
+            }
+        } else {
+            for (int i = 0; i < n; i++) {
+                int v = a.value(i);
+                if (b.contains(v) == keep)
+                    out[r++] = (char)v;
+            }
+        }
+        return (r == 0) ? null : new HeapArray(out, r);
+    }
+
+    /**
+     * Merges two array containers whose cardinalities sum to at most
+     * ARRAY_MAX, keeping common values if union is true and dropping
+     * them otherwise; returns null if the result is empty.
+     */
+    static Container mergeArrays(ArrayContainer a, ArrayContainer b,
+                                 boolean union) {
+        int n = a.n, m = b.n, r = 0, i = 0, j = 0;
+        char[] out = new char[n + m];
+        while (i < n && j < m) {
+            int x = a.value(i), y = b.value(j);
+            if (x < y) {
+                out[r++] = (char)x;
+                i++;
+            } else if (x > y) {
+                out[r++] = (char)y;
+                j++;
+            } else {
+                if (union)
+                    out[r++] = (char)x;
+                i++;
+                j++;
+            }
+        }
+        for (; i < n; i++)
+            out[r++] = (char)a.value(i);
+        for (; j < m; j++)
+            out[r++] = (char)b.value(j);
+        return (r == 0) ? null : new HeapArray(out, r);
+    }
+
+    static Container and(Container a, Container b) {
+        if (a instanceof ArrayContainer)
+            return filter((ArrayContainer) a, b, true);
+        if (b instanceof ArrayContainer)
+            return filter((ArrayContainer) b, a, true);
+        long[] w = a.toWords(), x = b.toWords();
+        for (int u = 0; u < WORDS; u++)
+            w[u] &= x[u];
+        return fromWords(w);
+    }
+
+    static Container or(Container a, Container b) {
+        if (a.cardinality() == CHUNK_SIZE || b.cardinality() == CHUNK_SIZE)
+            return HeapRun.of(0, LOW_MASK);
+        if (a instanceof ArrayContainer && b instanceof ArrayContainer &&
+            a.cardinality() + b.cardinality() <= ARRAY_MAX)
+            return mergeArrays((ArrayContainer) a, (ArrayContainer) b, true);
+        long[] w = a.toWords();
+        b.orInto(w);
+        return fromWords(w);
+    }
+
+    static Container xor(Container a, Container b) {
+        if (a instanceof ArrayContainer && b instanceof ArrayContainer &&
+            a.cardinality() + b.cardinality() <= ARRAY_MAX)
+            return mergeArrays((ArrayContainer) a, (ArrayContainer) b, false);
+        long[] w = a.toWords(), x = b.toWords();
+        for (int u = 0; u < WORDS; u++)
+            w[u] ^= x[u];
+        return fromWords(w);
+    }
+
+    static Container andNot(Container a, Container b) {
+        if (a instanceof ArrayContainer)
+            return filter((ArrayContainer) a, b, false);
+        long[] w = a.toWords();
+        if (b instanceof ArrayContainer) {
+            ArrayContainer c = (ArrayContainer) b;
+            for (int i = 0; i < c.n; i++) {
+                int v = c.value(i);
+                w[v >>> 6] &= ~(1L << v);
+            }
+        } else {
+            long[] x = b.toWords();
+            for (int u = 0; u < WORDS; u++)
+                w[u] &= ~x[u];
+        }
+        return fromWords(w);
+    }
+
+    static int andCardinality(Container a, Container b) {
+        if (b instanceof ArrayContainer) {
+            Container t = a; a = b; b = t;
+        }
+        if (a instanceof ArrayContainer) {
+            ArrayContainer c = (ArrayContainer) a;
+            int n = c.n, r = 0;
+            if (b instanceof ArrayContainer) {
+                ArrayContainer d = (ArrayContainer) b;
+                for (int i = 0, j = 0, m = d.n; i < n && j < m; ) {
+                    int x = c.value(i), y = d.value(j);
+                    if (x < y)
+                        i++;
+                    else if (x > y)
+                        j++;
+                    else {
+                        r++;
+                        i++;
+                        j++;
+                    }
+                }
+            } else {
+                for (int i = 0; i < n; i++)
+                    if (b.contains(c.value(i)))
+                        r++;
+            }
+            return r;
+        }
+        int r = 0;
+        if (a instanceof BitmapContainer && b instanceof BitmapContainer) {
+            BitmapContainer c = (BitmapContainer) a, d = (BitmapContainer) b;
+            for (int u = 0; u < WORDS; u++)
+                r += Long.bitCount(c.word(u) & d.word(u));
+        } else {
+            long[] w = a.toWords(), x = b.toWords();
+            for (int u = 0; u < WORDS; u++)
+                r += Long.bitCount(w[u] & x[u]);
+        }
+        return r;
+    }
+
+    /* ---------------- Containers -------------- */
+
+    /**
+     * The set bits of one chunk, by their positions in the chunk.  Never
+     * empty.  Only heap containers support add and remove, which may
+     * return a container of a different kind.
+     */
+    abstract static class Container {
+        abstract int cardinality();
+        abstract boolean contains(int v);
+        /** Returns the least member >= v, or -1 if none. */
+        abstract int next(int v);
+        /** Returns the greatest member <= v, or -1 if none. */
+        abstract int prev(int v);
+        /** Returns the least non-member >= v, or CHUNK_SIZE if none. */
+        abstract int nextAbsent(int v);
+        /** Returns the greatest non-member <= v, or -1 if none. */
+        abstract int prevAbsent(int v);
+        /** Sets the bits of the members in w. */
+        abstract void orInto(long[] w);
+        /** Returns the serialized type. */
+        abstract int type();
+        /** Returns the serialized length: values, words or runs. */
+        abstract int length();
+        /** Writes the serialized data, in the buffer's (little-endian) order. */
+        abstract void writeTo(ByteBuffer b);
+        /** Returns a modifiable heap copy. */
+        abstract Container copy();
+
+        Container add(int v) {
+            throw new UnsupportedOperationException();
+        }
+
+        Container remove(int v) {
+            throw new UnsupportedOperationException();
+        }
+
+        final long[] toWords() {
+            long[] w = new long[WORDS];
+            orInto(w);
+            return w;
+        }
+    }
+
+    abstract static class ArrayContainer extends Container {
+        int n;
+
+        abstract int value(int i);
+
+        final int indexOf(int v) {
+            int lo = 0, hi = n - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1, x = value(mid);
+                if (x < v)
+                    lo = mid + 1;
+                else if (x > v)
+                    hi = mid - 1;
+                else
+                    return mid;
+            }
+            return -(lo + 1);
+        }
+
+        final int cardinality() { return n; }
+        final boolean contains(int v) { return indexOf(v) >= 0; }
+
+        final int next(int v) {
+            int i = indexOf(v);
+            if (i < 0)
+                i = -i - 1;
+            return (i < n) ? value(i) : -1;
+        }
+
+        final int prev(int v) {
+            int i = indexOf(v);
+            if (i < 0)
+                i = -i - 2;
+            return (i >= 0) ? value(i) : -1;
+        }
+
+        final int nextAbsent(int v) {
+            int i = indexOf(v);
+            if (i >= 0) {
+                do {
+                    v++;
+                } while (++i < n && value(i) == v);
+            }
+            return v;
+        }
+
+        final int prevAbsent(int v) {
+            int i = indexOf(v);
+            if (i >= 0) {
+                do {
+                    v--;
+                } while (--i >= 0 && value(i) == v);
+            }
+            return v;
+        }
+
+        final void orInto(long[] w) {
+            for (int i = 0; i < n; i++) {
+                int v = value(i);
+                w[v >>> 6] |= 1L << v;
+            }
+        }
+
+        final int type() { return ARRAY; }
+        final int length() { return n; }
+
+        final void writeTo(ByteBuffer b) {
+            for (int i = 0; i < n; i++)
+                b.putChar((char)value(i));
+        }
+
+        final Container copy() {
+            char[] a = new char[Math.max(n, 4)];
+            for (int i = 0; i < n; i++)
+                a[i] = (char)value(i);
+            return new HeapArray(a, n);
+        }
+    }
+
+    static final class HeapArray extends ArrayContainer {
+        char[] a;
+
+        HeapArray(char[] a, int n) {
+            this.a = a;
+            this.n = n;
+        }
+
+        HeapArray(int v) {
+            a = new char[4];
+            a[0] = (char)v;
+            n = 1;
+        }
+
+        static HeapArray fromWords(long[] w, int card) {
+            char[] a = new char[card];
+            int r = 0;
+            for (int u = 0; u < WORDS; u++) {
+                for (long x = w[u]; x != 0L; x &= x - 1)
+                    a[r++] = (char)((u << 6) + Long.numberOfTrailingZeros(x));
+            }
+            return new HeapArray(a, card);
+        }
+
+        int value(int i) { return a[i]; }
+
+        Container add(int v) {
+            int i = indexOf(v);
+            if (i >= 0)
+                return this;
+            if (n == ARRAY_MAX) {
+                long[] w = toWords();
+                w[v >>> 6] |= 1L << v;
+                return new HeapBitmap(w, n + 1);
+            }
+            i = -i - 1;
+            if (n == a.length)
+                a = Arrays.copyOf(a, Math.min(n + (n >> 1) + 1, ARRAY_MAX));
+            System.arraycopy(a, i, a, i + 1, n - i);
+            a[i] = (char)v;
+            n++;
+            return this;
+        }
+
+        Container remove(int v) {
+            int i = indexOf(v);
+            if (i >= 0) {
+                System.arraycopy(a, i + 1, a, i, n - i - 1);
+                n--;
+            }
+            return this;
+        }
+    }
+
+    static final class MappedArray extends ArrayContainer {
+        final CharBuffer b;
+
+        MappedArray(CharBuffer b, int n) {
+            this.b = b;
+            this.n = n;
+        }
+
+        int value(int i) { return b.get(i); }
+    }
+
+    abstract static class BitmapContainer extends Container {
+        int card;
+
+        abstract long word(int u);
+
+        final int cardinality() { return card; }
+
+        final boolean contains(int v) {
+            return (word(v >>> 6) & (1L << v)) != 0L;
+        }
+
+        final int next(int v) {
+            int u = v >>> 6;
+            long x = word(u) & (-1L << v);
+            while (x == 0L) {
+                if (++u == WORDS)
+                    return -1;
+                x = word(u);
+            }
+            return (u << 6) + Long.numberOfTrailingZeros(x);
+        }
+
+        final int prev(int v) {
+            int u = v >>> 6;
+            long x = word(u) & (-1L >>> ~v);
+            while (x == 0L) {
+                if (u-- == 0)
+                    return -1;
+                x = word(u);
+            }
+            return (u << 6) + 63 - Long.numberOfLeadingZeros(x);
+        }
+
+        final int nextAbsent(int v) {
+            int u = v >>> 6;
+            long x = ~word(u) & (-1L << v);
+            while (x == 0L) {
+                if (++u == WORDS)
+                    return CHUNK_SIZE;
+                x = ~word(u);
+            }
+            return (u << 6) + Long.numberOfTrailingZeros(x);
+        }
+
+        final int prevAbsent(int v) {
+            int u = v >>> 6;
+            long x = ~word(u) & (-1L >>> ~v);
+            while (x == 0L) {
+                if (u-- == 0)
+                    return -1;
+                x = ~word(u);
+            }
+            return (u << 6) + 63 - Long.numberOfLeadingZeros(x);
+        }
+
+        final void orInto(long[] w) {
+            for (int u = 0; u < WORDS; u++)
+                w[u] |= word(u);
+        }
+
+        final int type() { return BITMAP; }
+        final int length() { return WORDS; }
+
+        final void writeTo(ByteBuffer b) {
+            for (int u = 0; u < WORDS; u++)
+                b.putLong(word(u));
+        }
+
+        final Container copy() {
+            return new HeapBitmap(toWords(), card);
+        }
+    }
+
+    static final class HeapBitmap extends BitmapContainer {
+        final long[] w;
+
+        HeapBitmap(long[] w, int card) {
+            this.w = w;
+            this.card = card;
+        }
+
+        long word(int u) { return w[u]; }
+
+        Container add(int v) {
+            int u = v >>> 6;
+            long m = 1L << v;
+            if ((w[u] & m) == 0L) {
+                w[u] |= m;
+                card++;
+            }
+            return this;
+        }
+
+        Container remove(int v) {
+            int u = v >>> 6;
+            long m = 1L << v;
+            if ((w[u] & m) != 0L) {
+                w[u] &= ~m;
+                if (--card <= ARRAY_MAX)
+                    return HeapArray.fromWords(w, card);
+            }
+            return this;
+        }
+    }
+
+    static final class MappedBitmap extends BitmapContainer {
+        final LongBuffer b;
+
+        MappedBitmap(LongBuffer b, int card) {
+            this.b = b;
+            this.card = card;
+        }
+
+        long word(int u) { return b.get(u); }
+    }
+
+    abstract static class RunContainer extends Container {
+        int runs, card;
+
+        /** Returns the first member of run i. */
+        abstract int start(int i);
+        /** Returns the last member of run i. */
+        abstract int end(int i);
+
+        /** Returns the index of the last run starting at or before v, or -1. */
+        final int runIndex(int v) {
+            int lo = 0, hi = runs - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (start(mid) <= v)
+                    lo = mid + 1;
+                else
+                    hi = mid - 1;
+            }
+            return hi;
+        }
+
+        final int cardinality() { return card; }
+
+        final boolean contains(int v) {
+            int i = runIndex(v);
+            return i >= 0 && v <= end(i);
+        }
+
+        final int next(int v) {
+            int i = runIndex(v);
+            if (i >= 0 && v <= end(i))
+                return v;
+            return (++i < runs) ? start(i) : -1;
+        }
+
+        final int prev(int v) {
+            int i = runIndex(v);
+            return (i < 0) ? -1 : Math.min(v, end(i));
+        }
+
+        final int nextAbsent(int v) {
+            int i = runIndex(v);
+            return (i >= 0 && v <= end(i)) ? end(i) + 1 : v;
+        }
+
+        final int prevAbsent(int v) {
+            int i = runIndex(v);
+            return (i >= 0 && v <= end(i)) ? start(i) - 1 : v;
+        }
+
+        final void orInto(long[] w) {
+            for (int i = 0; i < runs; i++)
+                setRange(w, start(i), end(i) + 1);
+        }
+
+        final int type() { return RUN; }
+        final int length() { return runs; }
+
+        final void writeTo(ByteBuffer b) {
+            for (int i = 0; i < runs; i++)
+                b.putChar((char)start(i)).putChar((char)end(i));
+        }
+
+        final Container copy() {
+            char[] r = new char[Math.max(runs, 2) << 1];
+            for (int i = 0; i < runs; i++) {
+                r[i << 1] = (char)start(i);
+                r[(i << 1) + 1] = (char)end(i);
+            }
+            return new HeapRun(r, runs, card);
+        }
+    }
+
+    static final class HeapRun extends RunContainer {
+        /** Pairs of first and last members of each run. */
+        char[] r;
+
+        HeapRun(char[] r, int runs, int card) {
+            this.r = r;
+            this.runs = runs;
+            this.card = card;
+        }
+
+        static HeapRun of(int start, int end) {
+            char[] r = new char[4];
+            r[0] = (char)start;
+            r[1] = (char)end;
+            return new HeapRun(r, 1, end - start + 1);
+        }
+
+        static HeapRun fromWords(long[] w, int runs, int card) {
+            char[] r = new char[runs << 1];
+            int n = 0, u = 0;
+            long x = w[0];
+            for (;;) {
+                while (x == 0L) {
+                    if (++u == WORDS)
+                        return new HeapRun(r, runs, card);
+                    x = w[u];
+                }
+                r[n++] = (char)((u << 6) + Long.numberOfTrailingZeros(x));
+                x |= x - 1;             // fill in below the run
+                while (x == -1L) {
+                    if (++u == WORDS) {
+                        r[n] = (char)LOW_MASK;
+                        return new HeapRun(r, runs, card);
+                    }
+                    x = w[u];
+                }
+                r[n++] = (char)((u << 6) + Long.numberOfTrailingZeros(~x) - 1);
+                x &= x + 1;             // clear the run
+            }
+        }
+
+        int start(int i) { return r[i << 1]; }
+        int end(int i) { return r[(i << 1) + 1]; }
+
+        /** Inserts a run before run i. */
+        private void insertRun(int i, int start, int end) {
+            int n = runs << 1;
+            if (n + 2 > r.length)
+                r = Arrays.copyOf(r, n + (n >> 1) + 2);
+            System.arraycopy(r, i << 1, r, (i << 1) + 2, n - (i << 1));
+            r[i << 1] = (char)start;
+            r[(i << 1) + 1] = (char)end;
+            runs++;
+        }
+
+        /** Deletes run i. */
+        private void deleteRun(int i) {
+            System.arraycopy(r, (i << 1) + 2, r, i << 1, (runs - i - 1) << 1);
+            runs--;
+        }
+
+        Container add(int v) {
+            int i = runIndex(v);
+            if (i >= 0 && v <= end(i))
+                return this;
+            boolean left = i >= 0 && end(i) + 1 == v;
+            boolean right = i + 1 < runs && start(i + 1) == v + 1;
+            card++;
+            if (left && right) {
+                r[(i << 1) + 1] = r[(i << 1) + 3];
+                deleteRun(i + 1);
+            } else if (left)
+                r[(i << 1) + 1] = (char)v;
+            else if (right)
+                r[(i << 1) + 2] = (char)v;
+            else {
+                insertRun(i + 1, v, v);
+                if (runs << 2 > BITMAP_BYTES)
+                    return CompressedBitSet.fromWords(toWords());
+            }
+            return this;
+        }
+
+        Container remove(int v) {
+            int i = runIndex(v);
+            if (i < 0 || v > end(i))
+                return this;
+            int s = start(i), e = end(i);
+            card--;
+            if (s == e)
+                deleteRun(i);
+            else if (v == s)
+                r[i << 1] = (char)(v + 1);
+            else if (v == e)
+                r[(i << 1) + 1] = (char)(v - 1);
+            else {
+                r[(i << 1) + 1] = (char)(v - 1);
+                insertRun(i + 1, v + 1, e);
+                if (runs << 2 > BITMAP_BYTES)
+                    return CompressedBitSet.fromWords(toWords());
+            }
+            return this;
+        }
+    }
+
+    static final class MappedRun extends RunContainer {
+        final CharBuffer b;
+
+        MappedRun(CharBuffer b, int runs, int card) {
+            this.b = b;
+            this.runs = runs;
+            this.card = card;
+        }
+
+        int start(int i) { return b.get(i << 1); }
+        int end(int i) { return b.get((i << 1) + 1); }
+    }
+
+    /* ---------------- Spliterator -------------- */
+
+    /**
+     * Spliterator over the set bits, splitting at chunk boundaries.
+     */
+    static final class BitSpliterator implements Spliterator.OfInt {
+        final CompressedBitSet set;
+        char[] keys;            // bound on first use
+        Container[] cs;
+        int index;              // current chunk index
+        int fence;              // one past last chunk index, or -1 until bound
+        int low;                // next position to examine in current chunk
+        long est;               // exact number of remaining bits, once bound
+
+        BitSpliterator(CompressedBitSet set) {
+            this.set = set;
+            this.fence = -1;
+        }
+
+        BitSpliterator(CompressedBitSet set, char[] keys, Container[] cs,
+                       int index, int fence, int low, long est) {
+            this.set = set;
+            this.keys = keys;
+            this.cs = cs;
+            this.index = index;
+            this.fence = fence;
+            this.low = low;
+            this.est = est;
+        }
+
+        private int getFence() {
+            int hi;
+            if ((hi = fence) < 0) {
+                CompressedBitSet s = set;
+                keys = s.keys;
+                cs = s.containers;
+                est = s.cardinality();
+                hi = fence = s.size;
+            }
+            return hi;
+        }
+
+        public OfInt trySplit() {
+            int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
+            if (mid <= lo)
+                return null;
+            long n = 0L;
+            for (int i = mid; i < hi; i++)
+                n += cs[i].cardinality();
+            BitSpliterator prefix =
+                new BitSpliterator(set, keys, cs, lo, mid, low, est - n);
+            index = mid;
+            low = 0;
+            est = n;
+            return prefix;
+        }
+
+        public boolean tryAdvance(IntConsumer action) {
+            Objects.requireNonNull(action);
+            int hi = getFence();
+            for (int i = index; i < hi; i++, low = 0) {
+                int v;
+                if (low < CHUNK_SIZE && (v = cs[i].next(low)) >= 0) {
+                    index = i;
+                    low = v + 1;
+                    est--;
+                    action.accept((keys[i] << CHUNK_BITS) | v);
+                    return true;
+                }
+            }
+            index = hi;
+            return false;
+        }
+
+        public void forEachRemaining(IntConsumer action) {
+            Objects.requireNonNull(action);
+            int hi = getFence(), i = index, lo = low;
+            index = hi;
+            low = 0;
+            est = 0L;
+            for (; i < hi; i++, lo = 0) {
+                Container c = cs[i];
+                int base = keys[i] << CHUNK_BITS;
+                for (int v; lo < CHUNK_SIZE && (v = c.next(lo)) >= 0; lo = v + 1)
+                    action.accept(base | v);
+            }
+        }
+
+        public long estimateSize() {
+            getFence();
+            return est;
+        }
+
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.DISTINCT |
+                Spliterator.SORTED | Spliterator.NONNULL |
+                Spliterator.SIZED | Spliterator.SUBSIZED;
+        }
+
+        public Comparator<? super Integer> getComparator() {
+            return null;
+        }
+    }
+}
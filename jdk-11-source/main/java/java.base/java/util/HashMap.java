@@ -228,6 +228,27 @@ public class HashMap<K,V> extends AbstractMap<K,V>
      *
      * The concurrent-programming-like SSA-based coding style helps
      * avoid aliasing errors amid all of the twisty pointer operations.
+     *
+     * Most maps are small, for which a table and a Node per mapping
+     * are wasteful.  So a map of exactly class HashMap whose initial
+     * capacity is at most the default starts out in "flat" mode: the
+     * mappings are held in array field flat as alternating keys and
+     * values, in no particular order, and searched linearly using
+     * equals (without hashing), much as in ImmutableCollections.MapN.
+     * The array starts with room for FLAT_INITIAL_CAPACITY mappings
+     * and doubles up to FLAT_CAPACITY; adding a mapping beyond that
+     * converts to a table (method inflate).  Only insertions convert:
+     * read paths, including spliterators, which traverse the flat
+     * array in place, never change the layout, so that unmodified
+     * maps may be read concurrently.  A map never returns to flat mode.
+     * Subclasses (including LinkedHashMap, which relies on nodes) and
+     * maps created with a larger capacity never use flat mode.
+     *
+     * Conversion does not count as a modification, and leaves the
+     * flat array unchanged, so that iterators over it remain usable:
+     * they hold on to the array and their own count of its mappings.
+     * Removal in flat mode shifts later mappings down so that
+     * iterators can continue from the same position.
      */
 
     /**
@@ -272,6 +293,17 @@ public class HashMap<K,V> extends AbstractMap<K,V>
      */
     static final int MIN_TREEIFY_CAPACITY = 64;
 
+    /**
+     * The largest number of mappings held in flat mode.  Must be a
+     * power of two multiple of FLAT_INITIAL_CAPACITY.
+     */
+    static final int FLAT_CAPACITY = 8;
+
+    /**
+     * The number of mappings the flat array is first allocated for.
+     */
+    static final int FLAT_INITIAL_CAPACITY = 2;
+
     /**
      * Basic hash bin node, used for most entries.  (See below for
      * TreeNode subclass, and in LinkedHashMap for its Entry subclass.)
@@ -390,6 +422,12 @@ public class HashMap<K,V> extends AbstractMap<K,V>
      */
     transient Node<K,V>[] table;
 
+    /**
+     * Alternating keys and values of the mappings while in flat mode,
+     * in which case table is null; otherwise null.
+     */
+    transient Object[] flat;
+
     /**
      * Holds cached entrySet(). Note that AbstractMap fields are used
      * for keySet() and values().
@@ -501,6 +539,12 @@ public class HashMap<K,V> extends AbstractMap<K,V>
                          (int)ft : MAXIMUM_CAPACITY);
                 if (t > threshold)
                     threshold = tableSizeFor(t);
+                if (size + s > FLAT_CAPACITY) { // too large for flat mode
+                    if (flat != null)
+                        inflate();
+                    else
+                        resize();
+                }
             }
             else if (s > threshold)
                 resize();
@@ -547,8 +591,11 @@ public class HashMap<K,V> extends AbstractMap<K,V>
      *
      * @see #put(Object, Object)
      */
+    @SuppressWarnings("unchecked")
     public V get(Object key) {
-        Node<K,V> e;
+        Node<K,V> e; Object[] f; int i;
+        if ((f = flat) != null)
+            return ((i = flatIndex(f, key)) < 0) ? null : (V)f[i + 1];
         return (e = getNode(hash(key), key)) == null ? null : e.value;
     }
 
@@ -579,6 +626,47 @@ public class HashMap<K,V> extends AbstractMap<K,V>
         return null;
     }
 
+    /**
+     * Returns the index in flat array f of the key equal to the given
+     * one, or -1 if none.
+     */
+    final int flatIndex(Object[] f, Object key) {
+        for (int i = 0, n = size << 1; i < n; i += 2) {
+            Object k = f[i];
+            if (k == key || (key != null && key.equals(k)))
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns true if a map with neither table nor flat array may
+     * start out in flat mode.
+     */
+    final boolean flatEligible() {
+        return getClass() == HashMap.class &&
+            threshold <= DEFAULT_INITIAL_CAPACITY;
+    }
+
+    /**
+     * Moves the mappings of a flat map into a newly allocated table,
+     * sized from the initial capacity held in threshold.  This is not
+     * counted as a modification, and the flat array is left unchanged.
+     */
+    @SuppressWarnings("unchecked")
+    final void inflate() {
+        Object[] f = flat;
+        int n = size << 1, mc = modCount;
+        flat = null;
+        size = 0;
+        resize();
+        for (int i = 0; i < n; i += 2) {
+            K key = (K)f[i];
+            putVal(hash(key), key, (V)f[i + 1], false, false);
+        }
+        modCount = mc;
+    }
+
     /**
      * Returns {@code true} if this map contains a mapping for the
      * specified key.
@@ -588,6 +676,9 @@ public class HashMap<K,V> extends AbstractMap<K,V>
      * key.
      */
     public boolean containsKey(Object key) {
+        Object[] f;
+        if ((f = flat) != null)
+            return flatIndex(f, key) >= 0;
         return getNode(hash(key), key) != null;
     }
 
@@ -619,7 +710,27 @@ public class HashMap<K,V> extends AbstractMap<K,V>
      */
     final V putVal(int hash, K key, V value, boolean onlyIfAbsent,
                    boolean evict) {
-        Node<K,V>[] tab; Node<K,V> p; int n, i;
+        Node<K,V>[] tab; Node<K,V> p; int n, i; Object[] f;
+        if ((f = flat) == null && table == null && flatEligible())
+            flat = f = new Object[FLAT_INITIAL_CAPACITY << 1];
+        if (f != null) {
+            if ((i = flatIndex(f, key)) >= 0) {
+                @SuppressWarnings("unchecked") V oldValue = (V)f[i + 1];
+                if (!onlyIfAbsent || oldValue == null)
+                    f[i + 1] = value;
+                return oldValue;
+            }
+            if ((n = size << 1) == f.length && size < FLAT_CAPACITY)
+                flat = f = Arrays.copyOf(f, n << 1);
+            if (n < f.length) {
+                f[n] = key;
+                f[n + 1] = value;
+                ++modCount;
+                ++size;
+                return null;
+            }
+            inflate();
+        }
         if ((tab = table) == null || (n = tab.length) == 0)
             n = (tab = resize()).length;
         if ((p = tab[i = (n - 1) & hash]) == null)
@@ -805,10 +916,26 @@ public class HashMap<K,V> extends AbstractMap<K,V>
      * @param movable if false do not move other nodes while removing
      * @return the node, or null if none
      */
+    @SuppressWarnings("unchecked")
     final Node<K,V> removeNode(int hash, Object key, Object value,
                                boolean matchValue, boolean movable) {
-        Node<K,V>[] tab; Node<K,V> p; int n, index;
-        if ((tab = table) != null && (n = tab.length) > 0 &&
+        Node<K,V>[] tab; Node<K,V> p; int n, index; Object[] f;
+        if ((f = flat) != null) { // return a detached node
+            Object v;
+            if ((index = flatIndex(f, key)) >= 0 &&
+                (!matchValue || (v = f[index + 1]) == value ||
+                 (value != null && value.equals(v)))) {
+                Node<K,V> node = new Node<>(hash, (K)f[index],
+                                            (V)f[index + 1], null);
+                n = (size - 1) << 1;
+                System.arraycopy(f, index + 2, f, index, n - index);
+                f[n] = f[n + 1] = null;
+                ++modCount;
+                --size;
+                return node;
+            }
+        }
+        else if ((tab = table) != null && (n = tab.length) > 0 &&
             (p = tab[index = (n - 1) & hash]) != null) {
             Node<K,V> node = null, e; K k; V v;
             if (p.hash == hash &&
@@ -851,9 +978,13 @@ public class HashMap<K,V> extends AbstractMap<K,V>
      * The map will be empty after this call returns.
      */
     public void clear() {
-        Node<K,V>[] tab;
+        Node<K,V>[] tab; Object[] f;
         modCount++;
-        if ((tab = table) != null && size > 0) {
+        if ((f = flat) != null) {
+            Arrays.fill(f, 0, size << 1, null);
+            size = 0;
+        }
+        else if ((tab = table) != null && size > 0) {
             size = 0;
             for (int i = 0; i < tab.length; ++i)
                 tab[i] = null;
@@ -869,8 +1000,15 @@ public class HashMap<K,V> extends AbstractMap<K,V>
      *         specified value
      */
     public boolean containsValue(Object value) {
-        Node<K,V>[] tab; V v;
-        if ((tab = table) != null && size > 0) {
+        Node<K,V>[] tab; V v; Object[] f;
+        if ((f = flat) != null) {
+            for (int i = 1, n = size << 1; i < n; i += 2) {
+                Object fv = f[i];
+                if (fv == value || (value != null && value.equals(fv)))
+                    return true;
+            }
+        }
+        else if ((tab = table) != null && size > 0) {
             for (Node<K,V> e : tab) {
                 for (; e != null; e = e.next) {
                     if ((v = e.value) == value ||
@@ -917,11 +1055,19 @@ public class HashMap<K,V> extends AbstractMap<K,V>
         public final Spliterator<K> spliterator() {
             return new KeySpliterator<>(HashMap.this, 0, -1, 0, 0);
         }
+        @SuppressWarnings("unchecked")
         public final void forEach(Consumer<? super K> action) {
-            Node<K,V>[] tab;
+            Node<K,V>[] tab; Object[] f;
             if (action == null)
                 throw new NullPointerException();
-            if (size > 0 && (tab = table) != null) {
+            if ((f = flat) != null) {
+                int mc = modCount;
+                for (int i = 0, n = size << 1; i < n && modCount == mc; i += 2)
+                    action.accept((K)f[i]);
+                if (modCount != mc)
+                    throw new ConcurrentModificationException();
+            }
+            else if (size > 0 && (tab = table) != null) {
                 int mc = modCount;
                 for (Node<K,V> e : tab) {
                     for (; e != null; e = e.next)
@@ -965,11 +1111,19 @@ public class HashMap<K,V> extends AbstractMap<K,V>
         public final Spliterator<V> spliterator() {
             return new ValueSpliterator<>(HashMap.this, 0, -1, 0, 0);
         }
+        @SuppressWarnings("unchecked")
         public final void forEach(Consumer<? super V> action) {
-            Node<K,V>[] tab;
+            Node<K,V>[] tab; Object[] f;
             if (action == null)
                 throw new NullPointerException();
-            if (size > 0 && (tab = table) != null) {
+            if ((f = flat) != null) {
+                int mc = modCount;
+                for (int i = 0, n = size << 1; i < n && modCount == mc; i += 2)
+                    action.accept((V)f[i + 1]);
+                if (modCount != mc)
+                    throw new ConcurrentModificationException();
+            }
+            else if (size > 0 && (tab = table) != null) {
                 int mc = modCount;
                 for (Node<K,V> e : tab) {
                     for (; e != null; e = e.next)
@@ -1013,6 +1167,10 @@ public class HashMap<K,V> extends AbstractMap<K,V>
                 return false;
             Map.Entry<?,?> e = (Map.Entry<?,?>) o;
             Object key = e.getKey();
+            Object[] f; int i;
+            if ((f = flat) != null)
+                return (i = flatIndex(f, key)) >= 0 &&
+                    Objects.equals(f[i + 1], e.getValue());
             Node<K,V> candidate = getNode(hash(key), key);
             return candidate != null && candidate.equals(e);
         }
@@ -1028,11 +1186,19 @@ public class HashMap<K,V> extends AbstractMap<K,V>
         public final Spliterator<Map.Entry<K,V>> spliterator() {
             return new EntrySpliterator<>(HashMap.this, 0, -1, 0, 0);
         }
+        @SuppressWarnings("unchecked")
         public final void forEach(Consumer<? super Map.Entry<K,V>> action) {
-            Node<K,V>[] tab;
+            Node<K,V>[] tab; Object[] f;
             if (action == null)
                 throw new NullPointerException();
-            if (size > 0 && (tab = table) != null) {
+            if ((f = flat) != null) {
+                int mc = modCount;
+                for (int i = 0, n = size << 1; i < n && modCount == mc; i += 2)
+                    action.accept(new FlatEntry((K)f[i], (V)f[i + 1]));
+                if (modCount != mc)
+                    throw new ConcurrentModificationException();
+            }
+            else if (size > 0 && (tab = table) != null) {
                 int mc = modCount;
                 for (Node<K,V> e : tab) {
                     for (; e != null; e = e.next)
@@ -1047,8 +1213,11 @@ public class HashMap<K,V> extends AbstractMap<K,V>
     // Overrides of JDK8 Map extension methods
 
     @Override
+    @SuppressWarnings("unchecked")
     public V getOrDefault(Object key, V defaultValue) {
-        Node<K,V> e;
+        Node<K,V> e; Object[] f; int i;
+        if ((f = flat) != null)
+            return ((i = flatIndex(f, key)) < 0) ? defaultValue : (V)f[i + 1];
         return (e = getNode(hash(key), key)) == null ? defaultValue : e.value;
     }
 
@@ -1064,7 +1233,15 @@ public class HashMap<K,V> extends AbstractMap<K,V>
 
     @Override
     public boolean replace(K key, V oldValue, V newValue) {
-        Node<K,V> e; V v;
+        Node<K,V> e; V v; Object[] f; int i;
+        if ((f = flat) != null) {
+            if ((i = flatIndex(f, key)) >= 0 &&
+                Objects.equals(f[i + 1], oldValue)) {
+                f[i + 1] = newValue;
+                return true;
+            }
+            return false;
+        }
         if ((e = getNode(hash(key), key)) != null &&
             ((v = e.value) == oldValue || (v != null && v.equals(oldValue)))) {
             e.value = newValue;
@@ -1076,7 +1253,14 @@ public class HashMap<K,V> extends AbstractMap<K,V>
 
     @Override
     public V replace(K key, V value) {
-        Node<K,V> e;
+        Node<K,V> e; Object[] f; int i;
+        if ((f = flat) != null) {
+            if ((i = flatIndex(f, key)) < 0)
+                return null;
+            @SuppressWarnings("unchecked") V oldValue = (V)f[i + 1];
+            f[i + 1] = value;
+            return oldValue;
+        }
         if ((e = getNode(hash(key), key)) != null) {
             V oldValue = e.value;
             e.value = value;
@@ -1101,6 +1285,24 @@ public class HashMap<K,V> extends AbstractMap<K,V>
                              Function<? super K, ? extends V> mappingFunction) {
         if (mappingFunction == null)
             throw new NullPointerException();
+        Object[] f;
+        if ((f = flat) != null) {
+            int j = flatIndex(f, key);
+            @SuppressWarnings("unchecked")
+            V oldValue = (j < 0) ? null : (V)f[j + 1];
+            if (oldValue != null)
+                return oldValue;
+            int mc = modCount;
+            V v = mappingFunction.apply(key);
+            if (mc != modCount) { throw new ConcurrentModificationException(); }
+            if (v == null)
+                return null;
+            else if (j >= 0)
+                f[j + 1] = v;
+            else
+                putVal(hash(key), key, v, false, true);
+            return v;
+        }
         int hash = hash(key);
         Node<K,V>[] tab; Node<K,V> first; int n, i;
         int binCount = 0;
@@ -1167,6 +1369,23 @@ public class HashMap<K,V> extends AbstractMap<K,V>
                               BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
         if (remappingFunction == null)
             throw new NullPointerException();
+        Object[] f;
+        if ((f = flat) != null) {
+            int j = flatIndex(f, key);
+            @SuppressWarnings("unchecked")
+            V oldValue = (j < 0) ? null : (V)f[j + 1];
+            if (oldValue != null) {
+                int mc = modCount;
+                V v = remappingFunction.apply(key, oldValue);
+                if (mc != modCount) { throw new ConcurrentModificationException(); }
+                if (v != null) {
+                    f[j + 1] = v;
+                    return v;
+                }
+                removeNode(hash(key), key, null, false, true);
+            }
+            return null;
+        }
         Node<K,V> e; V oldValue;
         int hash = hash(key);
         if ((e = getNode(hash, key)) != null &&
@@ -1200,6 +1419,24 @@ public class HashMap<K,V> extends AbstractMap<K,V>
                      BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
         if (remappingFunction == null)
             throw new NullPointerException();
+        Object[] f;
+        if ((f = flat) != null) {
+            int j = flatIndex(f, key);
+            @SuppressWarnings("unchecked")
+            V oldValue = (j < 0) ? null : (V)f[j + 1];
+            int mc = modCount;
+            V v = remappingFunction.apply(key, oldValue);
+            if (mc != modCount) { throw new ConcurrentModificationException(); }
+            if (j >= 0) {
+                if (v != null)
+                    f[j + 1] = v;
+                else
+                    removeNode(hash(key), key, null, false, true);
+            }
+            else if (v != null)
+                putVal(hash(key), key, v, false, true);
+            return v;
+        }
         int hash = hash(key);
         Node<K,V>[] tab; Node<K,V> first; int n, i;
         int binCount = 0;
@@ -1267,6 +1504,30 @@ public class HashMap<K,V> extends AbstractMap<K,V>
             throw new NullPointerException();
         if (remappingFunction == null)
             throw new NullPointerException();
+        Object[] f;
+        if ((f = flat) != null) {
+            int j = flatIndex(f, key);
+            if (j < 0) {
+                putVal(hash(key), key, value, false, true);
+                return value;
+            }
+            @SuppressWarnings("unchecked") V oldValue = (V)f[j + 1];
+            V v;
+            if (oldValue != null) {
+                int mc = modCount;
+                v = remappingFunction.apply(oldValue, value);
+                if (mc != modCount) {
+                    throw new ConcurrentModificationException();
+                }
+            } else {
+                v = value;
+            }
+            if (v != null)
+                f[j + 1] = v;
+            else
+                removeNode(hash(key), key, null, false, true);
+            return v;
+        }
         int hash = hash(key);
         Node<K,V>[] tab; Node<K,V> first; int n, i;
         int binCount = 0;
@@ -1325,11 +1586,19 @@ public class HashMap<K,V> extends AbstractMap<K,V>
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public void forEach(BiConsumer<? super K, ? super V> action) {
-        Node<K,V>[] tab;
+        Node<K,V>[] tab; Object[] f;
         if (action == null)
             throw new NullPointerException();
-        if (size > 0 && (tab = table) != null) {
+        if ((f = flat) != null) {
+            int mc = modCount;
+            for (int i = 0, n = size << 1; i < n && modCount == mc; i += 2)
+                action.accept((K)f[i], (V)f[i + 1]);
+            if (modCount != mc)
+                throw new ConcurrentModificationException();
+        }
+        else if (size > 0 && (tab = table) != null) {
             int mc = modCount;
             for (Node<K,V> e : tab) {
                 for (; e != null; e = e.next)
@@ -1341,11 +1610,19 @@ public class HashMap<K,V> extends AbstractMap<K,V>
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
-        Node<K,V>[] tab;
+        Node<K,V>[] tab; Object[] f;
         if (function == null)
             throw new NullPointerException();
-        if (size > 0 && (tab = table) != null) {
+        if ((f = flat) != null) {
+            int mc = modCount;
+            for (int i = 0, n = size << 1; i < n && modCount == mc; i += 2)
+                f[i + 1] = function.apply((K)f[i], (V)f[i + 1]);
+            if (modCount != mc)
+                throw new ConcurrentModificationException();
+        }
+        else if (size > 0 && (tab = table) != null) {
             int mc = modCount;
             for (Node<K,V> e : tab) {
                 for (; e != null; e = e.next) {
@@ -1470,20 +1747,39 @@ public class HashMap<K,V> extends AbstractMap<K,V>
         Node<K,V> next;        // next entry to return
         Node<K,V> current;     // current entry
         int expectedModCount;  // for fast-fail
-        int index;             // current slot
+        int index;             // current slot, or next flat mapping
+        Object[] flatTab;      // flat array traversed, if any
+        int flatCount;         // number of mappings in flatTab
+        int flatCurrent;       // key index of current flat mapping
 
         HashIterator() {
             expectedModCount = modCount;
             Node<K,V>[] t = table;
             current = next = null;
             index = 0;
-            if (t != null && size > 0) { // advance to first entry
+            flatCurrent = -1;
+            if ((flatTab = flat) != null)
+                flatCount = size;
+            else if (t != null && size > 0) { // advance to first entry
                 do {} while (index < t.length && (next = t[index++]) == null);
             }
         }
 
         public final boolean hasNext() {
-            return next != null;
+            return next != null || index < flatCount;
+        }
+
+        /**
+         * Returns the index in flatTab of the next key.
+         */
+        final int nextFlat() {
+            int i = index;
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if (i >= flatCount)
+                throw new NoSuchElementException();
+            index = i + 1;
+            return flatCurrent = i << 1;
         }
 
         final Node<K,V> nextNode() {
@@ -1500,6 +1796,23 @@ public class HashMap<K,V> extends AbstractMap<K,V>
         }
 
         public final void remove() {
+            Object[] f;
+            if ((f = flatTab) != null) {
+                int j = flatCurrent;
+                if (j < 0)
+                    throw new IllegalStateException();
+                if (modCount != expectedModCount)
+                    throw new ConcurrentModificationException();
+                flatCurrent = -1;
+                Object key = f[j];
+                removeNode(hash(key), key, null, false, false);
+                if (f == flat) { // later mappings were shifted down
+                    --index;
+                    --flatCount;
+                }
+                expectedModCount = modCount;
+                return;
+            }
             Node<K,V> p = current;
             if (p == null)
                 throw new IllegalStateException();
@@ -1513,17 +1826,81 @@ public class HashMap<K,V> extends AbstractMap<K,V>
 
     final class KeyIterator extends HashIterator
         implements Iterator<K> {
-        public final K next() { return nextNode().key; }
+        @SuppressWarnings("unchecked")
+        public final K next() {
+            Object[] f;
+            return ((f = flatTab) != null) ? (K)f[nextFlat()] : nextNode().key;
+        }
     }
 
     final class ValueIterator extends HashIterator
         implements Iterator<V> {
-        public final V next() { return nextNode().value; }
+        @SuppressWarnings("unchecked")
+        public final V next() {
+            Object[] f;
+            return ((f = flatTab) != null) ? (V)f[nextFlat() + 1] :
+                nextNode().value;
+        }
     }
 
     final class EntryIterator extends HashIterator
         implements Iterator<Map.Entry<K,V>> {
-        public final Map.Entry<K,V> next() { return nextNode(); }
+        @SuppressWarnings("unchecked")
+        public final Map.Entry<K,V> next() {
+            Object[] f; int i;
+            if ((f = flatTab) == null)
+                return nextNode();
+            i = nextFlat();
+            return new FlatEntry((K)f[i], (V)f[i + 1]);
+        }
+    }
+
+    /**
+     * Entry returned when traversing a flat map.  Unlike a Node, it
+     * holds a copy of the mapping, so setValue also writes through to
+     * the map, in whichever mode, if the key is still present.
+     */
+    final class FlatEntry implements Map.Entry<K,V> {
+        final K key;
+        V value;
+
+        FlatEntry(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        public final K getKey()        { return key; }
+        public final V getValue()      { return value; }
+        public final String toString() { return key + "=" + value; }
+
+        public final int hashCode() {
+            return Objects.hashCode(key) ^ Objects.hashCode(value);
+        }
+
+        public final V setValue(V newValue) {
+            V oldValue = value;
+            Object[] f; int i; Node<K,V> e;
+            value = newValue;
+            if ((f = flat) != null) {
+                if ((i = flatIndex(f, key)) >= 0)
+                    f[i + 1] = newValue;
+            }
+            else if ((e = getNode(hash(key), key)) != null)
+                e.value = newValue;
+            return oldValue;
+        }
+
+        public final boolean equals(Object o) {
+            if (o == this)
+                return true;
+            if (o instanceof Map.Entry) {
+                Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+                if (Objects.equals(key, e.getKey()) &&
+                    Objects.equals(value, e.getValue()))
+                    return true;
+            }
+            return false;
+        }
     }
 
     /* ------------------------------------------------------------ */
@@ -1536,6 +1913,7 @@ public class HashMap<K,V> extends AbstractMap<K,V>
         int fence;                  // one past last index
         int est;                    // size estimate
         int expectedModCount;       // for comodification checks
+        Object[] flatTab;           // flat array traversed, if any
 
         HashMapSpliterator(HashMap<K,V> m, int origin,
                            int fence, int est,
@@ -1547,18 +1925,35 @@ public class HashMap<K,V> extends AbstractMap<K,V>
             this.expectedModCount = expectedModCount;
         }
 
-        final int getFence() { // initialize fence and size on first use
+        /*
+         * Initializes fence and size on first use.  If the map is then
+         * in flat mode, the flat array is traversed in place, and index
+         * and fence count mappings rather than table slots.
+         */
+        final int getFence() {
             int hi;
             if ((hi = fence) < 0) {
                 HashMap<K,V> m = map;
+                Node<K,V>[] tab = m.table;
                 est = m.size;
                 expectedModCount = m.modCount;
-                Node<K,V>[] tab = m.table;
-                hi = fence = (tab == null) ? 0 : tab.length;
+                if ((flatTab = m.flat) != null)
+                    hi = fence = est;
+                else
+                    hi = fence = (tab == null) ? 0 : tab.length;
             }
             return hi;
         }
 
+        /**
+         * Returns the given prefix spliterator after binding it to the
+         * same flat array, if any, as this one.
+         */
+        final <S extends HashMapSpliterator<K,V>> S prefix(S s) {
+            s.flatTab = flatTab;
+            return s;
+        }
+
         public final long estimateSize() {
             getFence(); // force init
             return (long) est;
@@ -1576,22 +1971,32 @@ public class HashMap<K,V> extends AbstractMap<K,V>
         public KeySpliterator<K,V> trySplit() {
             int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
             return (lo >= mid || current != null) ? null :
-                new KeySpliterator<>(map, lo, index = mid, est >>>= 1,
-                                        expectedModCount);
+                prefix(new KeySpliterator<>(map, lo, index = mid, est >>>= 1,
+                                               expectedModCount));
         }
 
+        @SuppressWarnings("unchecked")
         public void forEachRemaining(Consumer<? super K> action) {
             int i, hi, mc;
             if (action == null)
                 throw new NullPointerException();
             HashMap<K,V> m = map;
-            Node<K,V>[] tab = m.table;
-            if ((hi = fence) < 0) {
-                mc = expectedModCount = m.modCount;
-                hi = fence = (tab == null) ? 0 : tab.length;
+            Object[] f;
+            hi = getFence();
+            mc = expectedModCount;
+            if ((f = flatTab) != null) {
+                if ((i = index) >= 0 && i < hi) {
+                    index = hi;
+                    do {
+                        int j = i << 1;
+                        action.accept((K)f[j]);
+                    } while (++i < hi);
+                    if (m.modCount != mc)
+                        throw new ConcurrentModificationException();
+                }
+                return;
             }
-            else
-                mc = expectedModCount;
+            Node<K,V>[] tab = m.table;
             if (tab != null && tab.length >= hi &&
                 (i = index) >= 0 && (i < (index = hi) || current != null)) {
                 Node<K,V> p = current;
@@ -1609,12 +2014,25 @@ public class HashMap<K,V> extends AbstractMap<K,V>
             }
         }
 
+        @SuppressWarnings("unchecked")
         public boolean tryAdvance(Consumer<? super K> action) {
-            int hi;
+            int hi, i; Object[] f;
             if (action == null)
                 throw new NullPointerException();
+            hi = getFence();
+            if ((f = flatTab) != null) {
+                if ((i = index) >= 0 && i < hi) {
+                    int j = i << 1;
+                    index = i + 1;
+                    action.accept((K)f[j]);
+                    if (map.modCount != expectedModCount)
+                        throw new ConcurrentModificationException();
+                    return true;
+                }
+                return false;
+            }
             Node<K,V>[] tab = map.table;
-            if (tab != null && tab.length >= (hi = getFence()) && index >= 0) {
+            if (tab != null && tab.length >= hi && index >= 0) {
                 while (current != null || index < hi) {
                     if (current == null)
                         current = tab[index++];
@@ -1648,22 +2066,32 @@ public class HashMap<K,V> extends AbstractMap<K,V>
         public ValueSpliterator<K,V> trySplit() {
             int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
             return (lo >= mid || current != null) ? null :
-                new ValueSpliterator<>(map, lo, index = mid, est >>>= 1,
-                                          expectedModCount);
+                prefix(new ValueSpliterator<>(map, lo, index = mid, est >>>= 1,
+                                                 expectedModCount));
         }
 
+        @SuppressWarnings("unchecked")
         public void forEachRemaining(Consumer<? super V> action) {
             int i, hi, mc;
             if (action == null)
                 throw new NullPointerException();
             HashMap<K,V> m = map;
-            Node<K,V>[] tab = m.table;
-            if ((hi = fence) < 0) {
-                mc = expectedModCount = m.modCount;
-                hi = fence = (tab == null) ? 0 : tab.length;
+            Object[] f;
+            hi = getFence();
+            mc = expectedModCount;
+            if ((f = flatTab) != null) {
+                if ((i = index) >= 0 && i < hi) {
+                    index = hi;
+                    do {
+                        int j = i << 1;
+                        action.accept((V)f[j + 1]);
+                    } while (++i < hi);
+                    if (m.modCount != mc)
+                        throw new ConcurrentModificationException();
+                }
+                return;
             }
-            else
-                mc = expectedModCount;
+            Node<K,V>[] tab = m.table;
             if (tab != null && tab.length >= hi &&
                 (i = index) >= 0 && (i < (index = hi) || current != null)) {
                 Node<K,V> p = current;
@@ -1681,12 +2109,25 @@ public class HashMap<K,V> extends AbstractMap<K,V>
             }
         }
 
+        @SuppressWarnings("unchecked")
         public boolean tryAdvance(Consumer<? super V> action) {
-            int hi;
+            int hi, i; Object[] f;
             if (action == null)
                 throw new NullPointerException();
+            hi = getFence();
+            if ((f = flatTab) != null) {
+                if ((i = index) >= 0 && i < hi) {
+                    int j = i << 1;
+                    index = i + 1;
+                    action.accept((V)f[j + 1]);
+                    if (map.modCount != expectedModCount)
+                        throw new ConcurrentModificationException();
+                    return true;
+                }
+                return false;
+            }
             Node<K,V>[] tab = map.table;
-            if (tab != null && tab.length >= (hi = getFence()) && index >= 0) {
+            if (tab != null && tab.length >= hi && index >= 0) {
                 while (current != null || index < hi) {
                     if (current == null)
                         current = tab[index++];
@@ -1719,22 +2160,32 @@ public class HashMap<K,V> extends AbstractMap<K,V>
         public EntrySpliterator<K,V> trySplit() {
             int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
             return (lo >= mid || current != null) ? null :
-                new EntrySpliterator<>(map, lo, index = mid, est >>>= 1,
-                                          expectedModCount);
+                prefix(new EntrySpliterator<>(map, lo, index = mid, est >>>= 1,
+                                                 expectedModCount));
         }
 
+        @SuppressWarnings("unchecked")
         public void forEachRemaining(Consumer<? super Map.Entry<K,V>> action) {
             int i, hi, mc;
             if (action == null)
                 throw new NullPointerException();
             HashMap<K,V> m = map;
-            Node<K,V>[] tab = m.table;
-            if ((hi = fence) < 0) {
-                mc = expectedModCount = m.modCount;
-                hi = fence = (tab == null) ? 0 : tab.length;
+            Object[] f;
+            hi = getFence();
+            mc = expectedModCount;
+            if ((f = flatTab) != null) {
+                if ((i = index) >= 0 && i < hi) {
+                    index = hi;
+                    do {
+                        int j = i << 1;
+                        action.accept(m.new FlatEntry((K)f[j], (V)f[j + 1]));
+                    } while (++i < hi);
+                    if (m.modCount != mc)
+                        throw new ConcurrentModificationException();
+                }
+                return;
             }
-            else
-                mc = expectedModCount;
+            Node<K,V>[] tab = m.table;
             if (tab != null && tab.length >= hi &&
                 (i = index) >= 0 && (i < (index = hi) || current != null)) {
                 Node<K,V> p = current;
@@ -1752,12 +2203,25 @@ public class HashMap<K,V> extends AbstractMap<K,V>
             }
         }
 
+        @SuppressWarnings("unchecked")
         public boolean tryAdvance(Consumer<? super Map.Entry<K,V>> action) {
-            int hi;
+            int hi, i; Object[] f;
             if (action == null)
                 throw new NullPointerException();
+            hi = getFence();
+            if ((f = flatTab) != null) {
+                if ((i = index) >= 0 && i < hi) {
+                    int j = i << 1;
+                    index = i + 1;
+                    action.accept(map.new FlatEntry((K)f[j], (V)f[j + 1]));
+                    if (map.modCount != expectedModCount)
+                        throw new ConcurrentModificationException();
+                    return true;
+                }
+                return false;
+            }
             Node<K,V>[] tab = map.table;
-            if (tab != null && tab.length >= (hi = getFence()) && index >= 0) {
+            if (tab != null && tab.length >= hi && index >= 0) {
                 while (current != null || index < hi) {
                     if (current == null)
                         current = tab[index++];
@@ -1817,6 +2281,7 @@ public class HashMap<K,V> extends AbstractMap<K,V>
      */
     void reinitialize() {
         table = null;
+        flat = null;
         entrySet = null;
         keySet = null;
         values = null;
@@ -1832,8 +2297,12 @@ public class HashMap<K,V> extends AbstractMap<K,V>
 
     // Called only from writeObject, to ensure compatible ordering.
     void internalWriteEntries(java.io.ObjectOutputStream s) throws IOException {
-        Node<K,V>[] tab;
-        if (size > 0 && (tab = table) != null) {
+        Node<K,V>[] tab; Object[] f;
+        if ((f = flat) != null) {
+            for (int i = 0, n = size << 1; i < n; ++i)
+                s.writeObject(f[i]);
+        }
+        else if (size > 0 && (tab = table) != null) {
             for (Node<K,V> e : tab) {
                 for (; e != null; e = e.next) {
                     s.writeObject(e.key);
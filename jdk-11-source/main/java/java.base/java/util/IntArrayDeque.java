@@ -0,0 +1,641 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util;
+
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+import jdk.internal.util.ArraysSupport;
+
+/**
+ * Resizable-array double-ended queue of {@code int} values.  This class
+ * is the primitive counterpart of {@link ArrayDeque}{@code <Integer>}:
+ * elements are stored unboxed in a circular {@code int[]} buffer, so
+ * neither insertion nor removal allocates.
+ *
+ * <p>Most operations run in amortized constant time.  Exceptions include
+ * {@link #contains} and the bulk operations, all of which run in linear
+ * time.
+ *
+ * <p>Since any {@code int} is a legal element, the {@code poll} and
+ * {@code peek} methods of {@code ArrayDeque} have no counterpart here;
+ * use {@link #isEmpty} followed by the corresponding {@code remove} or
+ * {@code get} method, which throw {@link NoSuchElementException} if the
+ * deque is empty.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * The iterators and spliterators returned by this class are
+ * <i>fail-fast</i> on a best-effort basis.
+ *
+ * @see ArrayDeque
+ * @see IntArrayList
+ * @since 12
+ */
+public class IntArrayDeque implements Cloneable, java.io.Serializable {
+    private static final long serialVersionUID = -1428733491820731205L;
+
+    /*
+     * The layout follows ArrayDeque: elements live in elements[head]
+     * through elements[tail - 1], circularly, and at least one slot is
+     * always free, so that head == tail means empty.  Unlike ArrayDeque
+     * there is no null sentinel to detect interference, so a modCount
+     * is kept instead, and the deque grows before an insertion that
+     * would fill the last free slot rather than after it.
+     */
+
+    /**
+     * The array in which the elements of the deque are stored.
+     */
+    transient int[] elements;
+
+    /**
+     * The index of the element at the head of the deque.
+     */
+    transient int head;
+
+    /**
+     * The index at which the next element would be added to the tail
+     * of the deque (via addLast(E), add(E), or push(E));
+     */
+    transient int tail;
+
+    /**
+     * The number of times this deque has been structurally modified.
+     */
+    transient int modCount;
+
+    /**
+     * Increases the capacity of this deque by at least the given amount.
+     *
+     * @param needed the required minimum extra capacity; must be positive
+     */
+    private void grow(int needed) {
+        final int oldCapacity = elements.length;
+        // Double capacity if small; else grow by 50%
+        int newCapacity = ArraysSupport.newLength(oldCapacity, needed,
+                (oldCapacity < 64) ? (oldCapacity + 2) : (oldCapacity >> 1));
+        final int[] es = elements = Arrays.copyOf(elements, newCapacity);
+        if (tail < head) {
+            // wrap around; slide first leg forward to end of array
+            int newSpace = newCapacity - oldCapacity;
+            System.arraycopy(es, head,
+                             es, head + newSpace,
+                             oldCapacity - head);
+            head += newSpace;
+        }
+    }
+
+    /**
+     * Constructs an empty array deque with an initial capacity
+     * sufficient to hold 16 elements.
+     */
+    public IntArrayDeque() {
+        elements = new int[16 + 1];
+    }
+
+    /**
+     * Constructs an empty array deque with an initial capacity
+     * sufficient to hold the specified number of elements.
+     *
+     * @param numElements lower bound on initial capacity of the deque
+     */
+    public IntArrayDeque(int numElements) {
+        elements =
+            new int[(numElements < 1) ? 1 :
+                    (numElements >= ArraysSupport.MAX_ARRAY_LENGTH)
+                    ? ArraysSupport.MAX_ARRAY_LENGTH :
+                    numElements + 1];
+    }
+
+    /**
+     * Constructs a deque containing the elements of the specified array,
+     * in order.  The first element of the array becomes the first element,
+     * or <i>front</i> of the deque.
+     *
+     * @param a the array whose elements are to be placed into the deque
+     * @throws NullPointerException if the specified array is null
+     */
+    public IntArrayDeque(int[] a) {
+        this(a.length);
+        System.arraycopy(a, 0, elements, 0, a.length);
+        tail = a.length;
+    }
+
+    /**
+     * Circularly increments i, mod modulus.
+     * Precondition and postcondition: 0 <= i < modulus.
+     */
+    static final int inc(int i, int modulus) {
+        if (++i >= modulus) i = 0;
+        return i;
+    }
+
+    /**
+     * Circularly decrements i, mod modulus.
+     * Precondition and postcondition: 0 <= i < modulus.
+     */
+    static final int dec(int i, int modulus) {
+        if (--i < 0) i = modulus - 1;
+        return i;
+    }
+
+    /**
+     * Circularly adds the given distance to index i, mod modulus.
+     * Precondition: 0 <= i < modulus, 0 <= distance <= modulus.
+     * @return index 0 <= i < modulus
+     */
+    static final int inc(int i, int distance, int modulus) {
+        if ((i += distance) - modulus >= 0) i -= modulus;
+        return i;
+    }
+
+    /**
+     * Subtracts j from i, mod modulus.
+     * Index i must be logically ahead of index j.
+     * Precondition: 0 <= i < modulus, 0 <= j < modulus.
+     * @return the "circular distance" from j to i; corner case i == j
+     * is disambiguated to "empty", returning 0.
+     */
+    static final int sub(int i, int j, int modulus) {
+        if ((i -= j) < 0) i += modulus;
+        return i;
+    }
+
+    /**
+     * Inserts the specified element at the front of this deque.
+     *
+     * @param e the element to add
+     */
+    public void addFirst(int e) {
+        modCount++;
+        if (dec(head, elements.length) == tail)
+            grow(1);
+        final int[] es = elements;
+        es[head = dec(head, es.length)] = e;
+    }
+
+    /**
+     * Inserts the specified element at the end of this deque.
+     *
+     * @param e the element to add
+     */
+    public void addLast(int e) {
+        modCount++;
+        if (inc(tail, elements.length) == head)
+            grow(1);
+        final int[] es = elements;
+        es[tail] = e;
+        tail = inc(tail, es.length);
+    }
+
+    /**
+     * Adds all of the elements in the specified array at the end of this
+     * deque, as if by calling {@link #addLast} on each one, in order.
+     *
+     * @param a the elements to be inserted into this deque
+     * @return {@code true} if this deque changed as a result of the call
+     * @throws NullPointerException if the specified array is null
+     */
+    public boolean addAll(int[] a) {
+        final int s, needed;
+        if ((needed = (s = size()) + a.length + 1 - elements.length) > 0)
+            grow(needed);
+        modCount++;
+        final int[] es = elements;
+        int t = tail, n = a.length, first = Math.min(n, es.length - t);
+        System.arraycopy(a, 0, es, t, first);
+        System.arraycopy(a, first, es, 0, n - first);
+        tail = inc(t, n, es.length);
+        return n > 0;
+    }
+
+    /**
+     * Retrieves and removes the first element of this deque.
+     *
+     * @return the head of this deque
+     * @throws NoSuchElementException if this deque is empty
+     */
+    public int removeFirst() {
+        final int h;
+        if ((h = head) == tail)
+            throw new NoSuchElementException();
+        modCount++;
+        final int[] es = elements;
+        head = inc(h, es.length);
+        return es[h];
+    }
+
+    /**
+     * Retrieves and removes the last element of this deque.
+     *
+     * @return the tail of this deque
+     * @throws NoSuchElementException if this deque is empty
+     */
+    public int removeLast() {
+        if (head == tail)
+            throw new NoSuchElementException();
+        modCount++;
+        final int[] es = elements;
+        return es[tail = dec(tail, es.length)];
+    }
+
+    /**
+     * Retrieves, but does not remove, the first element of this deque.
+     *
+     * @return the head of this deque
+     * @throws NoSuchElementException if this deque is empty
+     */
+    public int getFirst() {
+        if (head == tail)
+            throw new NoSuchElementException();
+        return elements[head];
+    }
+
+    /**
+     * Retrieves, but does not remove, the last element of this deque.
+     *
+     * @return the tail of this deque
+     * @throws NoSuchElementException if this deque is empty
+     */
+    public int getLast() {
+        if (head == tail)
+            throw new NoSuchElementException();
+        final int[] es = elements;
+        return es[dec(tail, es.length)];
+    }
+
+    // *** Stack methods ***
+
+    /**
+     * Pushes an element onto the stack represented by this deque.  In other
+     * words, inserts the element at the front of this deque.
+     *
+     * <p>This method is equivalent to {@link #addFirst}.
+     *
+     * @param e the element to push
+     */
+    public void push(int e) {
+        addFirst(e);
+    }
+
+    /**
+     * Pops an element from the stack represented by this deque.  In other
+     * words, removes and returns the first element of this deque.
+     *
+     * <p>This method is equivalent to {@link #removeFirst()}.
+     *
+     * @return the element at the front of this deque (which is the top
+     *         of the stack represented by this deque)
+     * @throws NoSuchElementException if this deque is empty
+     */
+    public int pop() {
+        return removeFirst();
+    }
+
+    // *** Collection Methods ***
+
+    /**
+     * Returns the number of elements in this deque.
+     *
+     * @return the number of elements in this deque
+     */
+    public int size() {
+        return sub(tail, head, elements.length);
+    }
+
+    /**
+     * Returns {@code true} if this deque contains no elements.
+     *
+     * @return {@code true} if this deque contains no elements
+     */
+    public boolean isEmpty() {
+        return head == tail;
+    }
+
+    /**
+     * Returns {@code true} if this deque contains the specified element.
+     *
+     * @param e element whose presence in this deque is to be tested
+     * @return {@code true} if this deque contains the specified element
+     */
+    public boolean contains(int e) {
+        final int[] es = elements;
+        for (int i = head, end = tail, to = (i <= end) ? end : es.length;
+             ; i = 0, to = end) {
+            for (; i < to; i++)
+                if (es[i] == e)
+                    return true;
+            if (to == end) break;
+        }
+        return false;
+    }
+
+    /**
+     * Removes all of the elements from this deque.
+     * The deque will be empty after this call returns.
+     */
+    public void clear() {
+        modCount++;
+        head = tail = 0;
+    }
+
+    /**
+     * Returns an array containing all of the elements in this deque
+     * in proper sequence (from first to last element).
+     *
+     * @return an array containing all of the elements in this deque
+     */
+    public int[] toArray() {
+        final int[] es = elements;
+        final int h = head, t = tail;
+        if (h <= t)
+            return Arrays.copyOfRange(es, h, t);
+        final int first = es.length - h;
+        int[] a = new int[first + t];
+        System.arraycopy(es, h, a, 0, first);
+        System.arraycopy(es, 0, a, first, t);
+        return a;
+    }
+
+    /**
+     * Performs the given action for each element of this deque, from
+     * first to last.
+     *
+     * @param action the action to be performed for each element
+     * @throws NullPointerException if the specified action is null
+     */
+    public void forEach(IntConsumer action) {
+        Objects.requireNonNull(action);
+        final int expectedModCount = modCount;
+        final int[] es = elements;
+        for (int i = head, end = tail, to = (i <= end) ? end : es.length;
+             ; i = 0, to = end) {
+            for (; i < to; i++)
+                action.accept(es[i]);
+            if (to == end) break;
+        }
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+    }
+
+    /**
+     * Returns an iterator over the elements in this deque, from first
+     * (head) to last (tail).
+     *
+     * @return an iterator over the elements in this deque
+     */
+    public PrimitiveIterator.OfInt iterator() {
+        return new DeqIterator();
+    }
+
+    private class DeqIterator implements PrimitiveIterator.OfInt {
+        /** Index of element to be returned by subsequent call to next. */
+        int cursor = head;
+
+        /** Number of elements yet to be returned. */
+        int remaining = size();
+
+        int expectedModCount = modCount;
+
+        DeqIterator() {}
+
+        public final boolean hasNext() {
+            return remaining > 0;
+        }
+
+        public int nextInt() {
+            if (remaining <= 0)
+                throw new NoSuchElementException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            final int[] es = elements;
+            int e = es[cursor];
+            cursor = inc(cursor, es.length);
+            remaining--;
+            return e;
+        }
+
+        public void forEachRemaining(IntConsumer action) {
+            Objects.requireNonNull(action);
+            int r;
+            if ((r = remaining) <= 0)
+                return;
+            remaining = 0;
+            final int[] es = elements;
+            for (int i = cursor, end = inc(i, r, es.length),
+                     to = (i < end) ? end : es.length;
+                 ; i = 0, to = end) {
+                for (; i < to; i++)
+                    action.accept(es[i]);
+                if (to == end) break;
+            }
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+    }
+
+    /**
+     * Creates a <em><a href="Spliterator.html#binding">late-binding</a></em>
+     * and <em>fail-fast</em> {@link Spliterator.OfInt} over the elements in
+     * this deque.
+     *
+     * <p>The {@code Spliterator} reports {@link Spliterator#SIZED},
+     * {@link Spliterator#SUBSIZED} and {@link Spliterator#ORDERED}.
+     *
+     * @return a {@code Spliterator.OfInt} over the elements in this deque
+     */
+    public Spliterator.OfInt spliterator() {
+        return new DeqSpliterator();
+    }
+
+    /**
+     * Returns a sequential {@code IntStream} with this deque as its source.
+     *
+     * @return a sequential {@code IntStream} over the elements in this deque
+     */
+    public IntStream stream() {
+        return StreamSupport.intStream(spliterator(), false);
+    }
+
+    final class DeqSpliterator implements Spliterator.OfInt {
+        private int fence;      // -1 until first use
+        private int cursor;     // current index, modified on traverse/split
+        private int expectedModCount; // initialized when fence set
+
+        /** Constructs late-binding spliterator over all elements. */
+        DeqSpliterator() {
+            this.fence = -1;
+        }
+
+        /** Constructs spliterator over the given range. */
+        DeqSpliterator(int origin, int fence, int expectedModCount) {
+            // assert 0 <= origin && origin < elements.length;
+            // assert 0 <= fence && fence < elements.length;
+            this.cursor = origin;
+            this.fence = fence;
+            this.expectedModCount = expectedModCount;
+        }
+
+        /** Ensures late-binding initialization; then returns fence. */
+        private int getFence() { // force initialization
+            int t;
+            if ((t = fence) < 0) {
+                expectedModCount = modCount;
+                t = fence = tail;
+                cursor = head;
+            }
+            return t;
+        }
+
+        public DeqSpliterator trySplit() {
+            final int[] es = elements;
+            final int i, n;
+            return ((n = sub(getFence(), i = cursor, es.length) >> 1) <= 0)
+                ? null
+                : new DeqSpliterator(i, cursor = inc(i, n, es.length),
+                                     expectedModCount);
+        }
+
+        public void forEachRemaining(IntConsumer action) {
+            if (action == null)
+                throw new NullPointerException();
+            final int end = getFence(), cursor = this.cursor;
+            final int[] es = elements;
+            if (cursor != end) {
+                this.cursor = end;
+                if (cursor >= es.length || end >= es.length)
+                    throw new ConcurrentModificationException();
+                for (int i = cursor, to = (i <= end) ? end : es.length;
+                     ; i = 0, to = end) {
+                    for (; i < to; i++)
+                        action.accept(es[i]);
+                    if (to == end) break;
+                }
+            }
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+
+        public boolean tryAdvance(IntConsumer action) {
+            Objects.requireNonNull(action);
+            final int[] es = elements;
+            final int i;
+            if ((i = cursor) == getFence())
+                return false;
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            int e = es[i];
+            cursor = inc(i, es.length);
+            action.accept(e);
+            return true;
+        }
+
+        public long estimateSize() {
+            return sub(getFence(), cursor, elements.length);
+        }
+
+        public int characteristics() {
+            return Spliterator.ORDERED
+                | Spliterator.SIZED
+                | Spliterator.SUBSIZED;
+        }
+    }
+
+    /**
+     * Returns a copy of this deque.
+     *
+     * @return a copy of this deque
+     */
+    public IntArrayDeque clone() {
+        try {
+            IntArrayDeque result = (IntArrayDeque) super.clone();
+            result.elements = Arrays.copyOf(elements, elements.length);
+            result.modCount = 0;
+            return result;
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError();
+        }
+    }
+
+    /**
+     * Returns a string representation of this deque, in the format of
+     * {@link AbstractCollection#toString}.
+     *
+     * @return a string representation of this deque
+     */
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+
+    /**
+     * Saves this deque to a stream (that is, serializes it).
+     *
+     * @param s the stream
+     * @throws java.io.IOException if an I/O error occurs
+     * @serialData The current size ({@code int}) of the deque,
+     * followed by all of its elements (each an {@code int}) in
+     * first-to-last order.
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+            throws java.io.IOException {
+        s.defaultWriteObject();
+
+        // Write out size
+        s.writeInt(size());
+
+        // Write out elements in order.
+        final int[] es = elements;
+        for (int i = head, end = tail, to = (i <= end) ? end : es.length;
+             ; i = 0, to = end) {
+            for (; i < to; i++)
+                s.writeInt(es[i]);
+            if (to == end) break;
+        }
+    }
+
+    /**
+     * Reconstitutes this deque from a stream (that is, deserializes it).
+     * @param s the stream
+     * @throws ClassNotFoundException if the class of a serialized object
+     *         could not be found
+     * @throws java.io.IOException if an I/O error occurs
+     */
+    private void readObject(java.io.ObjectInputStream s)
+            throws java.io.IOException, ClassNotFoundException {
+        s.defaultReadObject();
+
+        // Read in size and allocate array
+        int size = s.readInt();
+        if (size < 0)
+            throw new java.io.InvalidObjectException("Invalid size: " + size);
+        elements = new int[size + 1];
+        this.tail = size;
+
+        // Read in all elements in the proper order.
+        for (int i = 0; i < size; i++)
+            elements[i] = s.readInt();
+    }
+}
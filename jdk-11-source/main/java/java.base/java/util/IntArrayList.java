@@ -0,0 +1,816 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util;
+
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+import jdk.internal.util.ArraysSupport;
+
+/**
+ * Resizable-array list of {@code int} values.  This class is the
+ * primitive counterpart of {@link ArrayList}{@code <Integer>}: elements
+ * are stored unboxed in an {@code int[]}, so each element occupies four
+ * bytes and no {@code Integer} is allocated on insertion, retrieval or
+ * iteration.
+ *
+ * <p>The class deliberately does not implement {@link List}, whose
+ * {@code remove(int)} and {@code forEach} overloads would be ambiguous
+ * with their primitive counterparts.  Iteration is provided by a
+ * {@link PrimitiveIterator.OfInt}, and bulk traversal by a
+ * {@link Spliterator.OfInt} that splits by halving the index range, so
+ * that {@link #stream()}{@code .parallel()} decomposes as evenly as an
+ * {@code int[]} passed to {@link Arrays#stream(int[])}.
+ *
+ * <p>The {@code size}, {@code isEmpty}, {@code get}, {@code set} and
+ * {@code iterator} operations run in constant time.  The {@code add}
+ * operation runs in <i>amortized constant time</i>.  Capacity grows by
+ * half of its current value, as for {@code ArrayList}.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * The iterators and spliterators returned by this class are
+ * <i>fail-fast</i> on a best-effort basis, as described for
+ * {@code ArrayList}.
+ *
+ * @see ArrayList
+ * @see LongArrayList
+ * @see IntArrayDeque
+ * @since 12
+ */
+public class IntArrayList implements RandomAccess, Cloneable, java.io.Serializable {
+    private static final long serialVersionUID = 3165206937480183925L;
+
+    /**
+     * Default initial capacity.
+     */
+    private static final int DEFAULT_CAPACITY = 10;
+
+    /**
+     * Shared empty array instance used for empty instances.
+     */
+    private static final int[] EMPTY_ELEMENTDATA = {};
+
+    /**
+     * Shared empty array instance used for default sized empty instances.
+     * We distinguish this from EMPTY_ELEMENTDATA to know how much to
+     * inflate when first element is added.
+     */
+    private static final int[] DEFAULTCAPACITY_EMPTY_ELEMENTDATA = {};
+
+    /**
+     * The array buffer into which the elements of the list are stored.
+     */
+    transient int[] elementData; // non-private to simplify nested class access
+
+    /**
+     * The size of the list (the number of elements it contains).
+     *
+     * @serial
+     */
+    private int size;
+
+    /**
+     * The number of times this list has been structurally modified.
+     */
+    protected transient int modCount = 0;
+
+    /**
+     * Constructs an empty list with the specified initial capacity.
+     *
+     * @param  initialCapacity  the initial capacity of the list
+     * @throws IllegalArgumentException if the specified initial capacity
+     *         is negative
+     */
+    public IntArrayList(int initialCapacity) {
+        if (initialCapacity > 0) {
+            this.elementData = new int[initialCapacity];
+        } else if (initialCapacity == 0) {
+            this.elementData = EMPTY_ELEMENTDATA;
+        } else {
+            throw new IllegalArgumentException("Illegal Capacity: "+
+                                               initialCapacity);
+        }
+    }
+
+    /**
+     * Constructs an empty list with an initial capacity of ten.
+     */
+    public IntArrayList() {
+        this.elementData = DEFAULTCAPACITY_EMPTY_ELEMENTDATA;
+    }
+
+    /**
+     * Constructs a list containing the elements of the specified array,
+     * in order.
+     *
+     * @param a the array whose elements are to be placed into this list
+     * @throws NullPointerException if the specified array is null
+     */
+    public IntArrayList(int[] a) {
+        if ((size = a.length) != 0) {
+            elementData = a.clone();
+        } else {
+            elementData = EMPTY_ELEMENTDATA;
+        }
+    }
+
+    /**
+     * Trims the capacity of this list to be the list's current size.
+     */
+    public void trimToSize() {
+        modCount++;
+        if (size < elementData.length) {
+            elementData = (size == 0)
+              ? EMPTY_ELEMENTDATA
+              : Arrays.copyOf(elementData, size);
+        }
+    }
+
+    /**
+     * Increases the capacity of this list, if necessary, to ensure
+     * that it can hold at least the number of elements specified by
+     * the minimum capacity argument.
+     *
+     * @param minCapacity the desired minimum capacity
+     */
+    public void ensureCapacity(int minCapacity) {
+        if (minCapacity > elementData.length
+            && !(elementData == DEFAULTCAPACITY_EMPTY_ELEMENTDATA
+                 && minCapacity <= DEFAULT_CAPACITY)) {
+            modCount++;
+            grow(minCapacity);
+        }
+    }
+
+    /**
+     * Increases the capacity to ensure that it can hold at least the
+     * number of elements specified by the minimum capacity argument.
+     *
+     * @param minCapacity the desired minimum capacity
+     * @throws OutOfMemoryError if minCapacity is less than zero
+     */
+    private int[] grow(int minCapacity) {
+        int oldCapacity = elementData.length;
+        if (oldCapacity > 0 || elementData != DEFAULTCAPACITY_EMPTY_ELEMENTDATA) {
+            int newCapacity = ArraysSupport.newLength(oldCapacity,
+                    minCapacity - oldCapacity, /* minimum growth */
+                    oldCapacity >> 1           /* preferred growth */);
+            return elementData = Arrays.copyOf(elementData, newCapacity);
+        } else {
+            return elementData = new int[Math.max(DEFAULT_CAPACITY, minCapacity)];
+        }
+    }
+
+    private int[] grow() {
+        return grow(size + 1);
+    }
+
+    /**
+     * Returns the number of elements in this list.
+     *
+     * @return the number of elements in this list
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns {@code true} if this list contains no elements.
+     *
+     * @return {@code true} if this list contains no elements
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns {@code true} if this list contains the specified element.
+     *
+     * @param e element whose presence in this list is to be tested
+     * @return {@code true} if this list contains the specified element
+     */
+    public boolean contains(int e) {
+        return indexOf(e) >= 0;
+    }
+
+    /**
+     * Returns the index of the first occurrence of the specified element
+     * in this list, or -1 if this list does not contain the element.
+     *
+     * @param e element to search for
+     * @return the index of the first occurrence, or -1
+     */
+    public int indexOf(int e) {
+        int[] es = elementData;
+        for (int i = 0, end = size; i < end; i++) {
+            if (es[i] == e)
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index of the last occurrence of the specified element
+     * in this list, or -1 if this list does not contain the element.
+     *
+     * @param e element to search for
+     * @return the index of the last occurrence, or -1
+     */
+    public int lastIndexOf(int e) {
+        int[] es = elementData;
+        for (int i = size - 1; i >= 0; i--) {
+            if (es[i] == e)
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns a shallow copy of this {@code IntArrayList} instance.
+     *
+     * @return a clone of this {@code IntArrayList} instance
+     */
+    public Object clone() {
+        try {
+            IntArrayList v = (IntArrayList) super.clone();
+            v.elementData = Arrays.copyOf(elementData, size);
+            v.modCount = 0;
+            return v;
+        } catch (CloneNotSupportedException e) {
+            // this shouldn't happen, since we are Cloneable
+            throw new InternalError(e);
+        }
+    }
+
+    /**
+     * Returns an array containing all of the elements in this list
+     * in proper sequence (from first to last element).
+     *
+     * @return an array containing all of the elements in this list
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(elementData, size);
+    }
+
+    /**
+     * Returns the element at the specified position in this list.
+     *
+     * @param  index index of the element to return
+     * @return the element at the specified position in this list
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public int get(int index) {
+        Objects.checkIndex(index, size);
+        return elementData[index];
+    }
+
+    /**
+     * Replaces the element at the specified position in this list with
+     * the specified element.
+     *
+     * @param index index of the element to replace
+     * @param element element to be stored at the specified position
+     * @return the element previously at the specified position
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public int set(int index, int element) {
+        Objects.checkIndex(index, size);
+        int oldValue = elementData[index];
+        elementData[index] = element;
+        return oldValue;
+    }
+
+    /**
+     * Appends the specified element to the end of this list.
+     *
+     * @param e element to be appended to this list
+     */
+    public void add(int e) {
+        modCount++;
+        int[] es = elementData;
+        int s = size;
+        if (s == es.length)
+            es = grow();
+        es[s] = e;
+        size = s + 1;
+    }
+
+    /**
+     * Inserts the specified element at the specified position in this
+     * list. Shifts the element currently at that position (if any) and
+     * any subsequent elements to the right (adds one to their indices).
+     *
+     * @param index index at which the specified element is to be inserted
+     * @param element element to be inserted
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public void add(int index, int element) {
+        rangeCheckForAdd(index);
+        modCount++;
+        final int s;
+        int[] es;
+        if ((s = size) == (es = this.elementData).length)
+            es = grow();
+        System.arraycopy(es, index, es, index + 1, s - index);
+        es[index] = element;
+        size = s + 1;
+    }
+
+    /**
+     * Removes the element at the specified position in this list.
+     * Shifts any subsequent elements to the left (subtracts one from their
+     * indices).
+     *
+     * @param index the index of the element to be removed
+     * @return the element that was removed from the list
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public int removeAt(int index) {
+        Objects.checkIndex(index, size);
+        final int[] es = elementData;
+        int oldValue = es[index];
+        fastRemove(es, index);
+        return oldValue;
+    }
+
+    /**
+     * Removes the first occurrence of the specified element from this
+     * list, if it is present.
+     *
+     * @param e element to be removed from this list, if present
+     * @return {@code true} if this list contained the specified element
+     */
+    public boolean removeElement(int e) {
+        int i = indexOf(e);
+        if (i < 0)
+            return false;
+        fastRemove(elementData, i);
+        return true;
+    }
+
+    private void fastRemove(int[] es, int i) {
+        modCount++;
+        final int newSize;
+        if ((newSize = size - 1) > i)
+            System.arraycopy(es, i + 1, es, i, newSize - i);
+        size = newSize;
+    }
+
+    /**
+     * Removes all of the elements from this list.  The list will
+     * be empty after this call returns.
+     */
+    public void clear() {
+        modCount++;
+        size = 0;
+    }
+
+    /**
+     * Appends all of the elements in the specified array to the end of
+     * this list, in order.
+     *
+     * @param a array containing elements to be added to this list
+     * @return {@code true} if this list changed as a result of the call
+     * @throws NullPointerException if the specified array is null
+     */
+    public boolean addAll(int[] a) {
+        return addAll(a, 0, a.length);
+    }
+
+    /**
+     * Appends all of the elements in the specified list to the end of
+     * this list, in order.
+     *
+     * @param c list containing elements to be added to this list
+     * @return {@code true} if this list changed as a result of the call
+     * @throws NullPointerException if the specified list is null
+     */
+    public boolean addAll(IntArrayList c) {
+        return addAll(c.elementData, 0, c.size);
+    }
+
+    private boolean addAll(int[] a, int from, int numNew) {
+        modCount++;
+        if (numNew == 0)
+            return false;
+        int[] elementData;
+        final int s;
+        if (numNew > (elementData = this.elementData).length - (s = size))
+            elementData = grow(s + numNew);
+        System.arraycopy(a, from, elementData, s, numNew);
+        size = s + numNew;
+        return true;
+    }
+
+    /**
+     * Appends all of the elements of the given stream to the end of this
+     * list, in encounter order.
+     *
+     * @param stream the stream whose elements are to be added
+     * @throws NullPointerException if the specified stream is null
+     */
+    public void addAll(IntStream stream) {
+        stream.forEachOrdered(this::add);
+    }
+
+    /**
+     * Removes all of the elements of this list that satisfy the given
+     * predicate.
+     *
+     * @param filter a predicate which returns {@code true} for elements to be
+     *        removed
+     * @return {@code true} if any elements were removed
+     * @throws NullPointerException if the specified filter is null
+     */
+    public boolean removeIf(IntPredicate filter) {
+        Objects.requireNonNull(filter);
+        final int expectedModCount = modCount;
+        final int[] es = elementData;
+        final int end = size;
+        int w = 0;
+        for (int r = 0; r < end; r++) {
+            int e = es[r];
+            if (!filter.test(e))
+                es[w++] = e;
+        }
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+        if (w == end)
+            return false;
+        modCount++;
+        size = w;
+        return true;
+    }
+
+    /**
+     * Replaces each element of this list with the result of applying the
+     * operator to that element.
+     *
+     * @param operator the operator to apply to each element
+     * @throws NullPointerException if the specified operator is null
+     */
+    public void replaceAll(IntUnaryOperator operator) {
+        Objects.requireNonNull(operator);
+        final int expectedModCount = modCount;
+        final int[] es = elementData;
+        for (int i = 0, end = size; modCount == expectedModCount && i < end; i++)
+            es[i] = operator.applyAsInt(es[i]);
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+    }
+
+    /**
+     * Sorts this list into ascending numerical order.
+     */
+    public void sort() {
+        Arrays.sort(elementData, 0, size);
+        modCount++;
+    }
+
+    /**
+     * Performs the given action for each element of this list, in order.
+     *
+     * @param action the action to be performed for each element
+     * @throws NullPointerException if the specified action is null
+     */
+    public void forEach(IntConsumer action) {
+        Objects.requireNonNull(action);
+        final int expectedModCount = modCount;
+        final int[] es = elementData;
+        final int size = this.size;
+        for (int i = 0; modCount == expectedModCount && i < size; i++)
+            action.accept(es[i]);
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+    }
+
+    /**
+     * Returns a sequential {@code IntStream} with this list as its source.
+     *
+     * @return a sequential {@code IntStream} over the elements in this list
+     */
+    public IntStream stream() {
+        return StreamSupport.intStream(spliterator(), false);
+    }
+
+    private void rangeCheckForAdd(int index) {
+        if (index > size || index < 0)
+            throw new IndexOutOfBoundsException("Index: "+index+", Size: "+size);
+    }
+
+    /**
+     * Compares the specified object with this list for equality.  Returns
+     * {@code true} if the object is also an {@code IntArrayList} holding
+     * the same elements in the same order.
+     *
+     * @param o the object to be compared for equality with this list
+     * @return {@code true} if the specified object is equal to this list
+     */
+    public boolean equals(Object o) {
+        if (o == this)
+            return true;
+        if (!(o instanceof IntArrayList))
+            return false;
+        IntArrayList other = (IntArrayList) o;
+        final int expectedModCount = modCount;
+        boolean equal = Arrays.equals(elementData, 0, size,
+                                      other.elementData, 0, other.size);
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+        return equal;
+    }
+
+    /**
+     * Returns the hash code value for this list, computed as
+     * {@link List#hashCode} would be for the boxed elements.
+     *
+     * @return the hash code value for this list
+     */
+    public int hashCode() {
+        int hash = 1;
+        final int[] es = elementData;
+        for (int i = 0, end = size; i < end; i++)
+            hash = 31 * hash + Integer.hashCode(es[i]);
+        return hash;
+    }
+
+    /**
+     * Returns a string representation of this list, in the format of
+     * {@link AbstractCollection#toString}.
+     *
+     * @return a string representation of this list
+     */
+    public String toString() {
+        if (size == 0)
+            return "[]";
+        StringBuilder sb = new StringBuilder();
+        sb.append('[');
+        final int[] es = elementData;
+        for (int i = 0, end = size; ; ) {
+            sb.append(es[i]);
+            if (++i == end)
+                return sb.append(']').toString();
+            sb.append(',').append(' ');
+        }
+    }
+
+    /**
+     * Saves the state of the {@code IntArrayList} instance to a stream
+     * (that is, serializes it).
+     *
+     * @param s the stream
+     * @throws java.io.IOException if an I/O error occurs
+     * @serialData The length of the array backing the {@code IntArrayList}
+     *             instance is emitted (int), followed by all of its elements
+     *             (each an {@code int}) in the proper order.
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws java.io.IOException {
+        // Write out element count, and any hidden stuff
+        int expectedModCount = modCount;
+        s.defaultWriteObject();
+
+        // Write out size as capacity for behavioral compatibility with clone()
+        s.writeInt(size);
+
+        // Write out all elements in the proper order.
+        for (int i=0; i<size; i++) {
+            s.writeInt(elementData[i]);
+        }
+
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    /**
+     * Reconstitutes the {@code IntArrayList} instance from a stream (that is,
+     * deserializes it).
+     *
+     * @param s the stream
+     * @throws ClassNotFoundException if the class of a serialized object
+     *         could not be found
+     * @throws java.io.IOException if an I/O error occurs
+     */
+    private void readObject(java.io.ObjectInputStream s)
+        throws java.io.IOException, ClassNotFoundException {
+
+        // Read in size, and any hidden stuff
+        s.defaultReadObject();
+
+        // Read in capacity
+        s.readInt(); // ignored
+
+        if (size > 0) {
+            int[] elements = new int[size];
+
+            // Read in all elements in the proper order.
+            for (int i = 0; i < size; i++) {
+                elements[i] = s.readInt();
+            }
+
+            elementData = elements;
+        } else if (size == 0) {
+            elementData = EMPTY_ELEMENTDATA;
+        } else {
+            throw new java.io.InvalidObjectException("Invalid size: " + size);
+        }
+    }
+
+    /**
+     * Returns an iterator over the elements in this list in proper sequence.
+     *
+     * <p>The returned iterator is <a href="ArrayList.html#fail-fast"><i>fail-fast</i></a>.
+     *
+     * @return an iterator over the elements in this list in proper sequence
+     */
+    public PrimitiveIterator.OfInt iterator() {
+        return new Itr();
+    }
+
+    /**
+     * An optimized version of ArrayList.Itr
+     */
+    private class Itr implements PrimitiveIterator.OfInt {
+        int cursor;       // index of next element to return
+        int lastRet = -1; // index of last element returned; -1 if no such
+        int expectedModCount = modCount;
+
+        // prevent creating a synthetic constructor
+        Itr() {}
+
+        public boolean hasNext() {
+            return cursor != size;
+        }
+
+        public int nextInt() {
+            checkForComodification();
+            int i = cursor;
+            if (i >= size)
+                throw new NoSuchElementException();
+            int[] elementData = IntArrayList.this.elementData;
+            if (i >= elementData.length)
+                throw new ConcurrentModificationException();
+            cursor = i + 1;
+            return elementData[lastRet = i];
+        }
+
+        public void remove() {
+            if (lastRet < 0)
+                throw new IllegalStateException();
+            checkForComodification();
+
+            try {
+                IntArrayList.this.removeAt(lastRet);
+                cursor = lastRet;
+                lastRet = -1;
+                expectedModCount = modCount;
+            } catch (IndexOutOfBoundsException ex) {
+                throw new ConcurrentModificationException();
+            }
+        }
+
+        @Override
+        public void forEachRemaining(IntConsumer action) {
+            Objects.requireNonNull(action);
+            final int size = IntArrayList.this.size;
+            int i = cursor;
+            if (i < size) {
+                final int[] es = elementData;
+                if (i >= es.length)
+                    throw new ConcurrentModificationException();
+                for (; i < size && modCount == expectedModCount; i++)
+                    action.accept(es[i]);
+                // update once at end to reduce heap write traffic
+                cursor = i;
+                lastRet = i - 1;
+                checkForComodification();
+            }
+        }
+
+        final void checkForComodification() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+    }
+
+    /**
+     * Creates a <em><a href="Spliterator.html#binding">late-binding</a></em>
+     * and <em>fail-fast</em> {@link Spliterator.OfInt} over the elements in
+     * this list.
+     *
+     * <p>The {@code Spliterator} reports {@link Spliterator#SIZED},
+     * {@link Spliterator#SUBSIZED}, and {@link Spliterator#ORDERED}, and
+     * splits its range exactly in half, as the spliterator of an array does.
+     *
+     * @return a {@code Spliterator.OfInt} over the elements in this list
+     */
+    public Spliterator.OfInt spliterator() {
+        return new IntListSpliterator(0, -1, 0);
+    }
+
+    /** Index-based split-by-two, lazily initialized Spliterator */
+    final class IntListSpliterator implements Spliterator.OfInt {
+
+        /*
+         * As with ArrayList.ArrayListSpliterator, fence and
+         * expectedModCount are bound lazily, and forEachRemaining
+         * checks for interference only once, after traversal.
+         */
+
+        private int index; // current index, modified on advance/split
+        private int fence; // -1 until used; then one past last index
+        private int expectedModCount; // initialized when fence set
+
+        /** Creates new spliterator covering the given range. */
+        IntListSpliterator(int origin, int fence, int expectedModCount) {
+            this.index = origin;
+            this.fence = fence;
+            this.expectedModCount = expectedModCount;
+        }
+
+        private int getFence() { // initialize fence to size on first use
+            int hi;
+            if ((hi = fence) < 0) {
+                expectedModCount = modCount;
+                hi = fence = size;
+            }
+            return hi;
+        }
+
+        public IntListSpliterator trySplit() {
+            int hi = getFence(), lo = index, mid = (lo + hi) >>> 1;
+            return (lo >= mid) ? null : // divide range in half unless too small
+                new IntListSpliterator(lo, index = mid, expectedModCount);
+        }
+
+        public boolean tryAdvance(IntConsumer action) {
+            if (action == null)
+                throw new NullPointerException();
+            int hi = getFence(), i = index;
+            if (i < hi) {
+                index = i + 1;
+                action.accept(elementData[i]);
+                if (modCount != expectedModCount)
+                    throw new ConcurrentModificationException();
+                return true;
+            }
+            return false;
+        }
+
+        public void forEachRemaining(IntConsumer action) {
+            int i, hi, mc; // hoist accesses and checks from loop
+            int[] a;
+            if (action == null)
+                throw new NullPointerException();
+            if ((a = elementData) != null) {
+                if ((hi = fence) < 0) {
+                    mc = modCount;
+                    hi = size;
+                }
+                else
+                    mc = expectedModCount;
+                if ((i = index) >= 0 && (index = hi) <= a.length) {
+                    for (; i < hi; ++i)
+                        action.accept(a[i]);
+                    if (modCount == mc)
+                        return;
+                }
+            }
+            throw new ConcurrentModificationException();
+        }
+
+        public long estimateSize() {
+            return getFence() - index;
+        }
+
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED;
+        }
+    }
+}
@@ -0,0 +1,929 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.Serializable;
+import java.util.function.BiConsumer;
+
+/**
+ * Hash table based implementation of the {@code Map} interface for
+ * {@code int} keys.  Unlike {@link HashMap}, keys are held unboxed in an
+ * {@code int[]} and no per-entry node is allocated: the table uses
+ * <i>open addressing</i> with linear probing, in the same spirit as
+ * {@link IdentityHashMap}.  The primitive accessors ({@link #get(int)},
+ * {@link #put(int, Object)}, {@link #remove(int)} and
+ * {@link #containsKey(int)}) never box.
+ *
+ * <p>The {@code Map<Integer,V>} methods and collection views are provided
+ * for interoperability.  The views are created lazily on first use, and
+ * their iterators box each key they return.  This class permits
+ * {@code null} values; keys are primitive and so never {@code null}, and
+ * the {@code Map} methods treat a {@code null} or non-{@code Integer} key
+ * as absent.
+ *
+ * <p>This class has two tuning parameters, <i>initial capacity</i> and
+ * <i>load factor</i>, with the same meaning as for {@code HashMap}.  The
+ * default load factor (.5) is lower than {@code HashMap}'s because linear
+ * probe sequences lengthen quickly as the table fills.  Removal uses
+ * backward-shift deletion, so the table never accumulates tombstones.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * If multiple threads access the map concurrently, and at least one of
+ * the threads modifies the map structurally, it <i>must</i> be
+ * synchronized externally.
+ *
+ * <p>The iterators returned by all of this class's "collection view
+ * methods" are <i>fail-fast</i>: if the map is structurally modified at
+ * any time after the iterator is created, in any way except through the
+ * iterator's own {@code remove} method, the iterator will throw a
+ * {@link ConcurrentModificationException}.  Fail-fast iterators throw
+ * {@code ConcurrentModificationException} on a best-effort basis.
+ *
+ * <p>This class is a member of the
+ * <a href="{@docRoot}/java.base/java/util/package-summary.html#CollectionsFramework">
+ * Java Collections Framework</a>.
+ *
+ * @param <V> the type of mapped values
+ *
+ * @see     HashMap
+ * @see     IdentityHashMap
+ * @see     LongObjectHashMap
+ * @see     IntIntHashMap
+ * @since   12
+ */
+public class IntObjectHashMap<V> extends AbstractMap<Integer,V>
+    implements Map<Integer,V>, Cloneable, Serializable {
+
+    private static final long serialVersionUID = 4293167312208740315L;
+
+    /*
+     * Implementation notes.
+     *
+     * The table consists of two parallel arrays, keys and vals, each
+     * of length capacity + 1.  Slots [0, capacity) form the probe
+     * table, in which a key of 0 marks an empty slot.  The extra slot
+     * at index capacity holds the mapping for key 0, if present
+     * (hasZeroKey), so that the empty marker needs no side table.
+     *
+     * Iteration runs from the highest slot downwards.  Removing the
+     * entry just returned may shift entries from higher (already
+     * visited) slots into the hole, which is harmless, but an entry
+     * from a low slot can wrap around into a visited high slot.  Such
+     * entries are recorded by the iterator and returned after the
+     * table scan finishes.
+     */
+
+    /**
+     * The default initial capacity - MUST be a power of two.
+     */
+    static final int DEFAULT_INITIAL_CAPACITY = 16;
+
+    /**
+     * The maximum capacity, used if a higher value is implicitly specified
+     * by either of the constructors with arguments.
+     * MUST be a power of two <= 1<<30.
+     */
+    static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    /**
+     * The load factor used when none specified in constructor.
+     */
+    static final float DEFAULT_LOAD_FACTOR = 0.5f;
+
+    /**
+     * Spreads the bits of a key.  Consecutive ids are common, so the key
+     * is first scrambled by the golden-ratio multiplier, and then, as in
+     * {@link HashMap#hash}, higher bits are XORed downward because the
+     * table index only uses the low bits.
+     */
+    static final int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Returns a power of two size for the given target capacity.
+     */
+    static final int tableSizeFor(int cap) {
+        int n = -1 >>> Integer.numberOfLeadingZeros(cap - 1);
+        return (n < 1) ? 2 : (n >= MAXIMUM_CAPACITY) ? MAXIMUM_CAPACITY : n + 1;
+    }
+
+    /* ---------------- Fields -------------- */
+
+    /**
+     * The keys; slot {@code keys.length - 1} is reserved for key 0.
+     */
+    transient int[] keys;
+
+    /**
+     * The values, parallel to keys.
+     */
+    transient Object[] vals;
+
+    /**
+     * Whether a mapping for key 0 is present.
+     */
+    transient boolean hasZeroKey;
+
+    /**
+     * The number of key-value mappings contained in this map.
+     */
+    transient int size;
+
+    /**
+     * The number of times this map has been structurally modified.
+     */
+    transient int modCount;
+
+    /**
+     * The size at which the table is next resized.
+     */
+    transient int threshold;
+
+    /**
+     * The load factor for the hash table.
+     *
+     * @serial
+     */
+    final float loadFactor;
+
+    /**
+     * Holds cached entrySet().  Note that AbstractMap fields are used
+     * for keySet() and values().
+     */
+    transient Set<Map.Entry<Integer,V>> entrySet;
+
+    /* ---------------- Public operations -------------- */
+
+    /**
+     * Constructs an empty {@code IntObjectHashMap} with the specified initial
+     * capacity and load factor.
+     *
+     * @param  initialCapacity the initial capacity
+     * @param  loadFactor      the load factor, strictly between 0 and 1
+     * @throws IllegalArgumentException if the initial capacity is negative
+     *         or the load factor is not in range
+     */
+    public IntObjectHashMap(int initialCapacity, float loadFactor) {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal initial capacity: " +
+                                               initialCapacity);
+        if (!(loadFactor > 0.0f && loadFactor < 1.0f))
+            throw new IllegalArgumentException("Illegal load factor: " +
+                                               loadFactor);
+        this.loadFactor = loadFactor;
+        allocate(tableSizeFor(initialCapacity));
+    }
+
+    /**
+     * Constructs an empty {@code IntObjectHashMap} with the specified initial
+     * capacity and the default load factor (0.5).
+     *
+     * @param  initialCapacity the initial capacity.
+     * @throws IllegalArgumentException if the initial capacity is negative.
+     */
+    public IntObjectHashMap(int initialCapacity) {
+        this(initialCapacity, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs an empty {@code IntObjectHashMap} with the default initial
+     * capacity (16) and the default load factor (0.5).
+     */
+    public IntObjectHashMap() {
+        this(DEFAULT_INITIAL_CAPACITY, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs a new {@code IntObjectHashMap} with the same mappings as the
+     * specified {@code Map}.
+     *
+     * @param   m the map whose mappings are to be placed in this map
+     * @throws  NullPointerException if the specified map is null or
+     *          contains a {@code null} key
+     */
+    public IntObjectHashMap(Map<? extends Integer, ? extends V> m) {
+        this.loadFactor = DEFAULT_LOAD_FACTOR;
+        allocate(capacityFor(m.size()));
+        putAll(m);
+    }
+
+    /**
+     * Returns the table capacity needed to hold the given number of
+     * mappings without resizing.
+     */
+    private int capacityFor(int n) {
+        float ft = ((float)n / loadFactor) + 1.0F;
+        return tableSizeFor((ft < (float)MAXIMUM_CAPACITY) ?
+                            Math.max((int)ft, DEFAULT_INITIAL_CAPACITY) :
+                            MAXIMUM_CAPACITY);
+    }
+
+    /**
+     * Installs empty tables of the given power of two capacity.  The
+     * threshold always leaves at least one empty slot, so that probe
+     * loops terminate.
+     */
+    private void allocate(int cap) {
+        keys = new int[cap + 1];
+        vals = new Object[cap + 1];
+        threshold = Math.min((int)(cap * loadFactor), cap - 1);
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map.
+     *
+     * @return the number of key-value mappings in this map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns {@code true} if this map contains no key-value mappings.
+     *
+     * @return {@code true} if this map contains no key-value mappings
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the slot holding the given key, or -1 if absent.
+     */
+    final int slotOf(int key) {
+        int[] ks = keys;
+        if (key == 0)
+            return hasZeroKey ? ks.length - 1 : -1;
+        int mask = ks.length - 2, k;
+        for (int i = hash(key) & mask; (k = ks[i]) != 0; i = (i + 1) & mask) {
+            if (k == key)
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped,
+     * or {@code null} if this map contains no mapping for the key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @return the value to which the specified key is mapped, or
+     *         {@code null} if this map contains no mapping for the key
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int i = slotOf(key);
+        return (i < 0) ? null : (V)vals[i];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public V get(Object key) {
+        return (key instanceof Integer) ? get(((Integer)key).intValue()) : null;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * {@code defaultValue} if this map contains no mapping for the key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @param defaultValue the default mapping of the key
+     * @return the value to which the specified key is mapped, or
+     *         {@code defaultValue} if this map contains no mapping for the key
+     */
+    @SuppressWarnings("unchecked")
+    public V getOrDefault(int key, V defaultValue) {
+        int i = slotOf(key);
+        return (i < 0) ? defaultValue : (V)vals[i];
+    }
+
+    @Override
+    public V getOrDefault(Object key, V defaultValue) {
+        return (key instanceof Integer) ?
+            getOrDefault(((Integer)key).intValue(), defaultValue) :
+            defaultValue;
+    }
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the
+     * specified key.
+     *
+     * @param   key   The key whose presence in this map is to be tested
+     * @return {@code true} if this map contains a mapping for the specified
+     * key.
+     */
+    public boolean containsKey(int key) {
+        return slotOf(key) >= 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean containsKey(Object key) {
+        return (key instanceof Integer) && slotOf((Integer)key) >= 0;
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map.
+     * If the map previously contained a mapping for the key, the old
+     * value is replaced.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}.
+     *         (A {@code null} return can also indicate that the map
+     *         previously associated {@code null} with {@code key}.)
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        int[] ks = keys;
+        int i;
+        if (key == 0) {
+            i = ks.length - 1;
+            if (hasZeroKey) {
+                V oldValue = (V)vals[i];
+                vals[i] = value;
+                return oldValue;
+            }
+            hasZeroKey = true;
+        } else {
+            int mask = ks.length - 2, k;
+            for (i = hash(key) & mask; (k = ks[i]) != 0; i = (i + 1) & mask) {
+                if (k == key) {
+                    V oldValue = (V)vals[i];
+                    vals[i] = value;
+                    return oldValue;
+                }
+            }
+            if (size >= threshold) {
+                resize();
+                ks = keys;
+                mask = ks.length - 2;
+                for (i = hash(key) & mask; ks[i] != 0; i = (i + 1) & mask)
+                    ;
+            }
+            ks[i] = key;
+        }
+        vals[i] = value;
+        ++modCount;
+        ++size;
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the specified key is null
+     */
+    public V put(Integer key, V value) {
+        return put(key.intValue(), value);
+    }
+
+    /**
+     * Copies all of the mappings from the specified map to this map.
+     *
+     * @param m mappings to be stored in this map
+     * @throws NullPointerException if the specified map is null or
+     *         contains a {@code null} key
+     */
+    public void putAll(Map<? extends Integer, ? extends V> m) {
+        int s = m.size();
+        if (s > threshold - size && keys.length - 1 < MAXIMUM_CAPACITY) {
+            int cap = capacityFor(s + size);
+            if (cap > keys.length - 1)
+                rehash(cap);
+        }
+        if (m instanceof IntObjectHashMap) {
+            @SuppressWarnings("unchecked")
+            IntObjectHashMap<? extends V> o = (IntObjectHashMap<? extends V>)m;
+            int[] oks = o.keys;
+            Object[] ovs = o.vals;
+            int zero = oks.length - 1;
+            if (o.hasZeroKey)
+                put(0, o.get(0));
+            for (int i = 0; i < zero; i++) {
+                int k = oks[i];
+                if (k != 0) {
+                    @SuppressWarnings("unchecked") V v = (V)ovs[i];
+                    put(k, v);
+                }
+            }
+        } else {
+            for (Map.Entry<? extends Integer, ? extends V> e : m.entrySet())
+                put(e.getKey().intValue(), e.getValue());
+        }
+    }
+
+    /**
+     * Doubles the table capacity.
+     *
+     * @throws IllegalStateException if the table is already at its
+     *         maximum capacity
+     */
+    final void resize() {
+        int oldCap = keys.length - 1;
+        if (oldCap >= MAXIMUM_CAPACITY)
+            throw new IllegalStateException("Capacity exhausted.");
+        rehash(oldCap << 1);
+    }
+
+    /**
+     * Moves all mappings into new tables of the given capacity.
+     */
+    final void rehash(int newCap) {
+        int[] oldKeys = keys;
+        Object[] oldVals = vals;
+        int oldZero = oldKeys.length - 1;
+        allocate(newCap);
+        int[] ks = keys;
+        Object[] vs = vals;
+        int mask = newCap - 1;
+        vs[newCap] = oldVals[oldZero];
+        for (int j = 0; j < oldZero; j++) {
+            int k = oldKeys[j];
+            if (k != 0) {
+                int i = hash(k) & mask;
+                while (ks[i] != 0)
+                    i = (i + 1) & mask;
+                ks[i] = k;
+                vs[i] = oldVals[j];
+            }
+        }
+    }
+
+    /**
+     * Removes the mapping for the specified key from this map if present.
+     *
+     * @param  key key whose mapping is to be removed from the map
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}.
+     *         (A {@code null} return can also indicate that the map
+     *         previously associated {@code null} with {@code key}.)
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int i = slotOf(key);
+        if (i < 0)
+            return null;
+        V oldValue = (V)vals[i];
+        removeAt(i, null);
+        return oldValue;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public V remove(Object key) {
+        return (key instanceof Integer) ? remove(((Integer)key).intValue()) : null;
+    }
+
+    /**
+     * Removes the mapping in slot i, closing the gap by shifting back
+     * any entries of the following probe run that may legally occupy
+     * it.  Entries wrapping from the start of the table into a slot
+     * already visited by the given iterator (if any) are reported to it.
+     */
+    final void removeAt(int i, HashIterator<?> it) {
+        int[] ks = keys;
+        Object[] vs = vals;
+        ++modCount;
+        --size;
+        int zero = ks.length - 1;
+        if (i == zero) {
+            hasZeroKey = false;
+            vs[zero] = null;
+            return;
+        }
+        int mask = zero - 1, hole = i;
+        for (int j = (hole + 1) & mask, k; (k = ks[j]) != 0; j = (j + 1) & mask) {
+            int h = hash(k) & mask;
+            if ((hole <= j) ? (hole >= h || h > j) : (hole >= h && h > j)) {
+                if (it != null && j < hole)
+                    it.wrapped(k, vs[j]);
+                ks[hole] = k;
+                vs[hole] = vs[j];
+                hole = j;
+            }
+        }
+        ks[hole] = 0;
+        vs[hole] = null;
+    }
+
+    /**
+     * Removes all of the mappings from this map.
+     * The map will be empty after this call returns.
+     */
+    public void clear() {
+        if (size > 0) {
+            ++modCount;
+            size = 0;
+            hasZeroKey = false;
+            Arrays.fill(keys, 0);
+            Arrays.fill(vals, null);
+        }
+    }
+
+    /**
+     * Returns {@code true} if this map maps one or more keys to the
+     * specified value.
+     *
+     * @param value value whose presence in this map is to be tested
+     * @return {@code true} if this map maps one or more keys to the
+     *         specified value
+     */
+    public boolean containsValue(Object value) {
+        int[] ks = keys;
+        Object[] vs = vals;
+        int zero = ks.length - 1;
+        if (hasZeroKey && Objects.equals(value, vs[zero]))
+            return true;
+        for (int i = 0; i < zero; i++) {
+            if (ks[i] != 0 && Objects.equals(value, vs[i]))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns a {@link Set} view of the keys contained in this map.
+     * The set is backed by the map, so changes to the map are
+     * reflected in the set, and vice-versa.  The set supports element
+     * removal, but not the {@code add} or {@code addAll} operations.
+     *
+     * @return a set view of the keys contained in this map
+     */
+    public Set<Integer> keySet() {
+        Set<Integer> ks = keySet;
+        if (ks == null) {
+            ks = new KeySet();
+            keySet = ks;
+        }
+        return ks;
+    }
+
+    final class KeySet extends AbstractSet<Integer> {
+        public final int size()                 { return size; }
+        public final void clear()               { IntObjectHashMap.this.clear(); }
+        public final Iterator<Integer> iterator() { return new KeyIterator(); }
+        public final boolean contains(Object o) { return containsKey(o); }
+        public final boolean remove(Object o) {
+            int i;
+            if (o instanceof Integer && (i = slotOf((Integer)o)) >= 0) {
+                removeAt(i, null);
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Returns a {@link Collection} view of the values contained in this map.
+     * The collection is backed by the map, so changes to the map are
+     * reflected in the collection, and vice-versa.  The collection
+     * supports element removal, but not the {@code add} or
+     * {@code addAll} operations.
+     *
+     * @return a view of the values contained in this map
+     */
+    public Collection<V> values() {
+        Collection<V> vs = values;
+        if (vs == null) {
+            vs = new Values();
+            values = vs;
+        }
+        return vs;
+    }
+
+    final class Values extends AbstractCollection<V> {
+        public final int size()                 { return size; }
+        public final void clear()               { IntObjectHashMap.this.clear(); }
+        public final Iterator<V> iterator()     { return new ValueIterator(); }
+        public final boolean contains(Object o) { return containsValue(o); }
+    }
+
+    /**
+     * Returns a {@link Set} view of the mappings contained in this map.
+     * The set is backed by the map, so changes to the map are
+     * reflected in the set, and vice-versa.  The set supports element
+     * removal, but not the {@code add} or {@code addAll} operations.
+     * Each entry is materialized as it is returned by the iterator.
+     *
+     * @return a set view of the mappings contained in this map
+     */
+    public Set<Map.Entry<Integer,V>> entrySet() {
+        Set<Map.Entry<Integer,V>> es;
+        return (es = entrySet) == null ? (entrySet = new EntrySet()) : es;
+    }
+
+    final class EntrySet extends AbstractSet<Map.Entry<Integer,V>> {
+        public final int size()                 { return size; }
+        public final void clear()               { IntObjectHashMap.this.clear(); }
+        public final Iterator<Map.Entry<Integer,V>> iterator() {
+            return new EntryIterator();
+        }
+        public final boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+            Object key = e.getKey();
+            int i;
+            return key instanceof Integer && (i = slotOf((Integer)key)) >= 0 &&
+                Objects.equals(vals[i], e.getValue());
+        }
+        public final boolean remove(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+            Object key = e.getKey();
+            int i;
+            if (key instanceof Integer && (i = slotOf((Integer)key)) >= 0 &&
+                Objects.equals(vals[i], e.getValue())) {
+                removeAt(i, null);
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Performs the given action for each entry in this map, without
+     * boxing keys into an intermediate entry set.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super Integer, ? super V> action) {
+        if (action == null)
+            throw new NullPointerException();
+        int[] ks = keys;
+        Object[] vs = vals;
+        int zero = ks.length - 1;
+        int mc = modCount;
+        if (hasZeroKey)
+            action.accept(0, (V)vs[zero]);
+        for (int i = 0; i < zero && modCount == mc; i++) {
+            int k = ks[i];
+            if (k != 0)
+                action.accept(k, (V)vs[i]);
+        }
+        if (modCount != mc)
+            throw new ConcurrentModificationException();
+    }
+
+    /**
+     * Returns a shallow copy of this {@code IntObjectHashMap} instance: the
+     * values themselves are not cloned.
+     *
+     * @return a shallow copy of this map
+     */
+    @Override
+    public Object clone() {
+        IntObjectHashMap<?> result;
+        try {
+            result = (IntObjectHashMap<?>)super.clone();
+        } catch (CloneNotSupportedException e) {
+            // this shouldn't happen, since we are Cloneable
+            throw new InternalError(e);
+        }
+        result.keys = keys.clone();
+        result.vals = vals.clone();
+        result.entrySet = null;
+        return result;
+    }
+
+    /* ------------------------------------------------------------ */
+    // iterators
+
+    abstract class HashIterator<T> implements Iterator<T> {
+        int pos;                // current slot; scanning is descending
+        boolean zeroPending;    // true if key 0 is yet to be returned
+        int lastSlot = -1;      // slot of last returned, -2 if wrapped
+        int lastKey;            // key of last returned
+        int remaining;          // number of entries not yet returned
+        int expectedModCount;   // for fast-fail
+        int[] wrappedKeys;      // entries moved behind the scan by removal
+        Object[] wrappedVals;
+        int wrappedCount;
+
+        HashIterator() {
+            expectedModCount = modCount;
+            remaining = size;
+            zeroPending = hasZeroKey;
+            pos = keys.length - 2;
+        }
+
+        public final boolean hasNext() {
+            return remaining > 0;
+        }
+
+        /**
+         * Advances to the next entry, returning its slot, or -2 if it
+         * is the last entry of wrappedKeys.
+         */
+        final int nextSlot() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if (remaining <= 0)
+                throw new NoSuchElementException();
+            --remaining;
+            int[] ks = keys;
+            if (zeroPending) {
+                zeroPending = false;
+                lastKey = 0;
+                return lastSlot = ks.length - 1;
+            }
+            for (; pos >= 0; --pos) {
+                int k;
+                if ((k = ks[pos]) != 0) {
+                    lastKey = k;
+                    return lastSlot = pos--;
+                }
+            }
+            lastKey = wrappedKeys[--wrappedCount];
+            return lastSlot = -2;
+        }
+
+        final Object lastValue() {
+            return (lastSlot >= 0) ? vals[lastSlot] : wrappedVals[wrappedCount];
+        }
+
+        final void wrapped(int k, Object v) {
+            if (wrappedKeys == null) {
+                wrappedKeys = new int[2];
+                wrappedVals = new Object[2];
+            } else if (wrappedCount == wrappedKeys.length) {
+                wrappedKeys = Arrays.copyOf(wrappedKeys, wrappedCount << 1);
+                wrappedVals = Arrays.copyOf(wrappedVals, wrappedCount << 1);
+            }
+            wrappedKeys[wrappedCount] = k;
+            wrappedVals[wrappedCount++] = v;
+        }
+
+        public final void remove() {
+            int i = lastSlot;
+            if (i == -1)
+                throw new IllegalStateException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            lastSlot = -1;
+            if (i >= 0)
+                removeAt(i, this);
+            else {
+                wrappedVals[wrappedCount] = null;
+                removeAt(slotOf(lastKey), null);
+            }
+            expectedModCount = modCount;
+        }
+    }
+
+    final class KeyIterator extends HashIterator<Integer> {
+        public final Integer next() {
+            nextSlot();
+            return lastKey;
+        }
+    }
+
+    final class ValueIterator extends HashIterator<V> {
+        @SuppressWarnings("unchecked")
+        public final V next() {
+            nextSlot();
+            return (V)lastValue();
+        }
+    }
+
+    final class EntryIterator extends HashIterator<Map.Entry<Integer,V>> {
+        @SuppressWarnings("unchecked")
+        public final Map.Entry<Integer,V> next() {
+            nextSlot();
+            return new IntEntry(lastKey, (V)lastValue());
+        }
+    }
+
+    /**
+     * A snapshot of a mapping, returned by the entry set iterator.
+     * {@code setValue} writes through to the map.
+     */
+    final class IntEntry implements Map.Entry<Integer,V> {
+        final int key;
+        V value;
+
+        IntEntry(int key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        public final Integer getKey()      { return key; }
+        public final V getValue()          { return value; }
+        public final String toString()     { return key + "=" + value; }
+
+        public final int hashCode() {
+            return Integer.hashCode(key) ^ Objects.hashCode(value);
+        }
+
+        public final V setValue(V newValue) {
+            int i = slotOf(key);
+            if (i < 0)
+                throw new IllegalStateException("Entry was removed");
+            V oldValue = value;
+            vals[i] = value = newValue;
+            return oldValue;
+        }
+
+        public final boolean equals(Object o) {
+            if (o == this)
+                return true;
+            if (o instanceof Map.Entry) {
+                Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+                return Objects.equals(key, e.getKey()) &&
+                    Objects.equals(value, e.getValue());
+            }
+            return false;
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    // serialization
+
+    /**
+     * Saves this map to a stream (that is, serializes it).
+     *
+     * @param s the stream
+     * @throws IOException if an I/O error occurs
+     * @serialData The <i>size</i> of the map (the number of key-value
+     *             mappings) is emitted (int), followed by the key (int)
+     *             and value (Object) for each key-value mapping.  The
+     *             key-value mappings are emitted in no particular order.
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws IOException {
+        s.defaultWriteObject();
+        s.writeInt(size);
+        int[] ks = keys;
+        Object[] vs = vals;
+        int zero = ks.length - 1;
+        if (hasZeroKey) {
+            s.writeInt(0);
+            s.writeObject(vs[zero]);
+        }
+        for (int i = 0; i < zero; i++) {
+            if (ks[i] != 0) {
+                s.writeInt(ks[i]);
+                s.writeObject(vs[i]);
+            }
+        }
+    }
+
+    /**
+     * Reconstitutes this map from a stream (that is, deserializes it).
+     *
+     * @param s the stream
+     * @throws ClassNotFoundException if the class of a serialized object
+     *         could not be found
+     * @throws IOException if an I/O error occurs
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(java.io.ObjectInputStream s)
+        throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        if (!(loadFactor > 0.0f && loadFactor < 1.0f))
+            throw new InvalidObjectException("Illegal load factor: " +
+                                             loadFactor);
+        int mappings = s.readInt();
+        if (mappings < 0)
+            throw new InvalidObjectException("Illegal mappings count: " +
+                                             mappings);
+        allocate(capacityFor(mappings));
+        for (int i = 0; i < mappings; i++) {
+            int key = s.readInt();
+            put(key, (V)s.readObject());
+        }
+    }
+}
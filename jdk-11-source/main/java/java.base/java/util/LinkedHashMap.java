@@ -522,7 +522,7 @@ public class LinkedHashMap<K,V>
      * operations.  It does not support the {@code add} or {@code addAll}
      * operations.
      * Its {@link Spliterator} typically provides faster sequential
-     * performance but much poorer parallel performance than that of
+     * performance but poorer parallel performance than that of
      * {@code HashMap}.
      *
      * @return a set view of the keys contained in this map
@@ -547,9 +547,7 @@ public class LinkedHashMap<K,V>
             return removeNode(hash(key), key, null, false, true) != null;
         }
         public final Spliterator<K> spliterator()  {
-            return Spliterators.spliterator(this, Spliterator.SIZED |
-                                            Spliterator.ORDERED |
-                                            Spliterator.DISTINCT);
+            return new LinkedKeySpliterator(-1, 0);
         }
         public final void forEach(Consumer<? super K> action) {
             if (action == null)
@@ -575,7 +573,7 @@ public class LinkedHashMap<K,V>
      * {@code retainAll} and {@code clear} operations.  It does not
      * support the {@code add} or {@code addAll} operations.
      * Its {@link Spliterator} typically provides faster sequential
-     * performance but much poorer parallel performance than that of
+     * performance but poorer parallel performance than that of
      * {@code HashMap}.
      *
      * @return a view of the values contained in this map
@@ -597,8 +595,7 @@ public class LinkedHashMap<K,V>
         }
         public final boolean contains(Object o) { return containsValue(o); }
         public final Spliterator<V> spliterator() {
-            return Spliterators.spliterator(this, Spliterator.SIZED |
-                                            Spliterator.ORDERED);
+            return new LinkedValueSpliterator(-1, 0);
         }
         public final void forEach(Consumer<? super V> action) {
             if (action == null)
@@ -625,7 +622,7 @@ public class LinkedHashMap<K,V>
      * {@code clear} operations.  It does not support the
      * {@code add} or {@code addAll} operations.
      * Its {@link Spliterator} typically provides faster sequential
-     * performance but much poorer parallel performance than that of
+     * performance but poorer parallel performance than that of
      * {@code HashMap}.
      *
      * @return a set view of the mappings contained in this map
@@ -659,9 +656,7 @@ public class LinkedHashMap<K,V>
             return false;
         }
         public final Spliterator<Map.Entry<K,V>> spliterator() {
-            return Spliterators.spliterator(this, Spliterator.SIZED |
-                                            Spliterator.ORDERED |
-                                            Spliterator.DISTINCT);
+            return new LinkedEntrySpliterator(-1, 0);
         }
         public final void forEach(Consumer<? super Map.Entry<K,V>> action) {
             if (action == null)
@@ -751,5 +746,172 @@ public class LinkedHashMap<K,V>
         public final Map.Entry<K,V> next() { return nextNode(); }
     }
 
+    // Spliterators
+
+    /**
+     * Base of the spliterators of the views, in the style of
+     * LinkedList.LLSpliterator: the spliterator covers a range of est
+     * entries starting at current, and trySplit returns a spliterator
+     * covering the first half of the range, found through an index of
+     * entries built on the first split.
+     */
+    abstract class LinkedHashSpliterator<T> implements Spliterator<T> {
+        LinkedHashMap.Entry<K,V> current; // null until initialized
+        int est;                          // size estimate; -1 until first needed
+        int expectedModCount;             // initialized when est set
+        Object[] index;                   // every step'th entry; null until first split
+        int step;                         // distance between indexed entries
+        int pos;                          // position of current relative to index[0]
+
+        LinkedHashSpliterator(int est, int expectedModCount) {
+            this.est = est;
+            this.expectedModCount = expectedModCount;
+        }
+
+        final int getEst() {
+            int s; // force initialization
+            if ((s = est) < 0) {
+                expectedModCount = modCount;
+                current = head;
+                s = est = size;
+            }
+            return s;
+        }
+
+        /** Returns the element of the view for the given entry. */
+        abstract T element(LinkedHashMap.Entry<K,V> e);
+
+        /** Returns a new spliterator of the same kind, covering est entries. */
+        abstract LinkedHashSpliterator<T> newSpliterator(int est,
+                                                         int expectedModCount);
+
+        public final long estimateSize() {
+            return (long) getEst();
+        }
+
+        @SuppressWarnings("unchecked")
+        public final Spliterator<T> trySplit() {
+            LinkedHashMap.Entry<K,V> h, p;
+            int s = getEst();
+            if (s > 1 && (h = current) != null) {
+                Object[] ix; int d;
+                if ((ix = index) == null) {
+                    d = step = (s >>> 10) + 1;  // at most 1024 index entries
+                    ix = index = new Object[(s - 1) / d + 1];
+                    pos = 0;
+                    p = h;
+                    for (int i = 0, j = 0; j < s && p != null; p = p.after) {
+                        if (j++ % d == 0)
+                            ix[i++] = p;
+                    }
+                }
+                else
+                    d = step;
+                int b = pos + (s >>> 1), c = b / d;
+                if (c * d <= pos)
+                    ++c;
+                if (c * d < pos + s) {
+                    b = c * d;
+                    p = (LinkedHashMap.Entry<K,V>) ix[c];
+                }
+                else {
+                    p = h;
+                    for (int j = pos; j < b && p != null; ++j)
+                        p = p.after;
+                }
+                if (p != null) {
+                    int j = b - pos;
+                    LinkedHashSpliterator<T> prefix =
+                        newSpliterator(j, expectedModCount);
+                    prefix.current = h;
+                    prefix.index = ix;
+                    prefix.step = d;
+                    prefix.pos = pos;
+                    current = p;
+                    est = s - j;
+                    pos = b;
+                    return prefix;
+                }
+            }
+            return null;
+        }
+
+        public final void forEachRemaining(Consumer<? super T> action) {
+            LinkedHashMap.Entry<K,V> p; int n;
+            if (action == null)
+                throw new NullPointerException();
+            if ((n = getEst()) > 0 && (p = current) != null) {
+                current = null;
+                est = 0;
+                do {
+                    LinkedHashMap.Entry<K,V> e = p;
+                    p = p.after;
+                    action.accept(element(e));
+                } while (p != null && --n > 0);
+            }
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+
+        public final boolean tryAdvance(Consumer<? super T> action) {
+            LinkedHashMap.Entry<K,V> p;
+            if (action == null)
+                throw new NullPointerException();
+            if (getEst() > 0 && (p = current) != null) {
+                --est;
+                ++pos;
+                current = p.after;
+                action.accept(element(p));
+                if (modCount != expectedModCount)
+                    throw new ConcurrentModificationException();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    final class LinkedKeySpliterator extends LinkedHashSpliterator<K> {
+        LinkedKeySpliterator(int est, int expectedModCount) {
+            super(est, expectedModCount);
+        }
+        final K element(LinkedHashMap.Entry<K,V> e) { return e.key; }
+        final LinkedKeySpliterator newSpliterator(int est, int expectedModCount) {
+            return new LinkedKeySpliterator(est, expectedModCount);
+        }
+        public int characteristics() {
+            return Spliterator.SIZED | Spliterator.SUBSIZED |
+                Spliterator.ORDERED | Spliterator.DISTINCT;
+        }
+    }
+
+    final class LinkedValueSpliterator extends LinkedHashSpliterator<V> {
+        LinkedValueSpliterator(int est, int expectedModCount) {
+            super(est, expectedModCount);
+        }
+        final V element(LinkedHashMap.Entry<K,V> e) { return e.value; }
+        final LinkedValueSpliterator newSpliterator(int est, int expectedModCount) {
+            return new LinkedValueSpliterator(est, expectedModCount);
+        }
+        public int characteristics() {
+            return Spliterator.SIZED | Spliterator.SUBSIZED |
+                Spliterator.ORDERED;
+        }
+    }
+
+    final class LinkedEntrySpliterator
+        extends LinkedHashSpliterator<Map.Entry<K,V>> {
+        LinkedEntrySpliterator(int est, int expectedModCount) {
+            super(est, expectedModCount);
+        }
+        final Map.Entry<K,V> element(LinkedHashMap.Entry<K,V> e) { return e; }
+        final LinkedEntrySpliterator newSpliterator(int est, int expectedModCount) {
+            return new LinkedEntrySpliterator(est, expectedModCount);
+        }
+        public int characteristics() {
+            return Spliterator.SIZED | Spliterator.SUBSIZED |
+                Spliterator.ORDERED | Spliterator.DISTINCT;
+        }
+    }
+
 
 }
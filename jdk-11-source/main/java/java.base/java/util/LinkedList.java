@@ -1164,7 +1164,10 @@ public class LinkedList<E>
      *
      * @implNote
      * The {@code Spliterator} additionally reports {@link Spliterator#SUBSIZED}
-     * and implements {@code trySplit} to permit limited parallelism..
+     * and implements {@code trySplit} to split the remaining elements into
+     * halves, so that parallel computations over large lists are balanced,
+     * although locating each split point takes time proportional to the
+     * size of the half.
      *
      * @return a {@code Spliterator} over the elements in this list
      * @since 1.8
@@ -1174,15 +1177,23 @@ public class LinkedList<E>
         return new LLSpliterator<>(this, -1, 0);
     }
 
-    /** A customized variant of Spliterators.IteratorSpliterator */
+    /**
+     * A customized variant of Spliterators.IteratorSpliterator that
+     * splits by node ranges: since the size is known, trySplit walks
+     * to the middle of the remaining nodes and returns a spliterator
+     * bounded to cover the first half, without copying elements.
+     * Both halves may be split again in the same way, so splits are
+     * balanced, and only the pointer chasing needed to find the
+     * middle of each range is done sequentially.
+     */
     static final class LLSpliterator<E> implements Spliterator<E> {
-        static final int BATCH_UNIT = 1 << 10;  // batch array size increment
-        static final int MAX_BATCH = 1 << 25;  // max batch array size;
         final LinkedList<E> list; // null OK unless traversed
         Node<E> current;      // current node; null until initialized
         int est;              // size estimate; -1 until first needed
         int expectedModCount; // initialized when est set
-        int batch;            // batch size for splits
+        Object[] index;       // every step'th node; null until first split
+        int step;             // distance between indexed nodes
+        int pos;              // position of current relative to index[0]
 
         LLSpliterator(LinkedList<E> list, int est, int expectedModCount) {
             this.list = list;
@@ -1207,22 +1218,56 @@ public class LinkedList<E>
 
         public long estimateSize() { return (long) getEst(); }
 
+        /**
+         * Splits at the indexed node nearest the middle of the range,
+         * building the index in a single pass over the range on the
+         * first split, so that later splits need not walk the list.
+         * A range lying within one step of the index is split by
+         * walking to its middle.
+         */
+        @SuppressWarnings("unchecked")
         public Spliterator<E> trySplit() {
-            Node<E> p;
+            Node<E> h, p;
             int s = getEst();
-            if (s > 1 && (p = current) != null) {
-                int n = batch + BATCH_UNIT;
-                if (n > s)
-                    n = s;
-                if (n > MAX_BATCH)
-                    n = MAX_BATCH;
-                Object[] a = new Object[n];
-                int j = 0;
-                do { a[j++] = p.item; } while ((p = p.next) != null && j < n);
-                current = p;
-                batch = j;
-                est = s - j;
-                return Spliterators.spliterator(a, 0, j, Spliterator.ORDERED);
+            if (s > 1 && (h = current) != null) {
+                Object[] ix; int d;
+                if ((ix = index) == null) {
+                    d = step = (s >>> 10) + 1;  // at most 1024 index entries
+                    ix = index = new Object[(s - 1) / d + 1];
+                    pos = 0;
+                    p = h;
+                    for (int i = 0, j = 0; j < s && p != null; p = p.next) {
+                        if (j++ % d == 0)
+                            ix[i++] = p;
+                    }
+                }
+                else
+                    d = step;
+                int b = pos + (s >>> 1), c = b / d;
+                if (c * d <= pos)
+                    ++c;
+                if (c * d < pos + s) {
+                    b = c * d;
+                    p = (Node<E>) ix[c];
+                }
+                else {
+                    p = h;
+                    for (int j = pos; j < b && p != null; ++j)
+                        p = p.next;
+                }
+                if (p != null) {
+                    int j = b - pos;
+                    LLSpliterator<E> prefix =
+                        new LLSpliterator<>(list, j, expectedModCount);
+                    prefix.current = h;
+                    prefix.index = ix;
+                    prefix.step = d;
+                    prefix.pos = pos;
+                    current = p;
+                    est = s - j;
+                    pos = b;
+                    return prefix;
+                }
             }
             return null;
         }
@@ -1248,6 +1293,7 @@ public class LinkedList<E>
             if (action == null) throw new NullPointerException();
             if (getEst() > 0 && (p = current) != null) {
                 --est;
+                ++pos;
                 E e = p.item;
                 current = p.next;
                 action.accept(e);
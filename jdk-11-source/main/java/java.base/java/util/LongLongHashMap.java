@@ -0,0 +1,888 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.Serializable;
+import java.util.function.BiConsumer;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * Hash table based implementation of the {@code Map} interface mapping
+ * {@code long} keys to {@code long} values.  Keys and values are held
+ * unboxed in parallel {@code long[]} arrays using <i>open addressing</i>
+ * with linear probing; see {@link LongObjectHashMap} for the table layout
+ * and tuning parameters, which are the same.
+ *
+ * <p>The primitive accessors ({@link #getOrDefault(long, long)},
+ * {@link #put(long, long)}, {@link #remove(long)},
+ * {@link #merge(long, long, LongBinaryOperator)} and
+ * {@link #containsKey(long)}) never box.  Since a {@code long} result
+ * cannot be {@code null}, the primitive {@code put} and {@code remove}
+ * return {@code 0} when there was no previous mapping; use
+ * {@code containsKey} to distinguish an absent key from a key mapped to
+ * {@code 0}.  The {@code Map<Long,Long>} methods and the lazily
+ * created collection views keep their usual {@code null}-returning
+ * contracts.  This class does not permit {@code null} keys or values.
+ *
+ * <p><strong>Note that this implementation is not synchronized.</strong>
+ * If multiple threads access the map concurrently, and at least one of
+ * the threads modifies the map structurally, it <i>must</i> be
+ * synchronized externally.
+ *
+ * <p>The iterators returned by all of this class's "collection view
+ * methods" are <i>fail-fast</i>: if the map is structurally modified at
+ * any time after the iterator is created, in any way except through the
+ * iterator's own {@code remove} method, the iterator will throw a
+ * {@link ConcurrentModificationException}.  Fail-fast iterators throw
+ * {@code ConcurrentModificationException} on a best-effort basis.
+ *
+ * <p>This class is a member of the
+ * <a href="{@docRoot}/java.base/java/util/package-summary.html#CollectionsFramework">
+ * Java Collections Framework</a>.
+ *
+ * @see     LongObjectHashMap
+ * @see     IntIntHashMap
+ * @since   12
+ */
+public class LongLongHashMap extends AbstractMap<Long,Long>
+    implements Map<Long,Long>, Cloneable, Serializable {
+
+    private static final long serialVersionUID = 8841624180561293650L;
+
+    /*
+     * The table layout, hashing, backward-shift removal and iteration
+     * protocol are those of LongObjectHashMap; only the value array
+     * differs.
+     */
+
+    /* ---------------- Fields -------------- */
+
+    /**
+     * The keys; slot {@code keys.length - 1} is reserved for key 0.
+     */
+    transient long[] keys;
+
+    /**
+     * The values, parallel to keys.
+     */
+    transient long[] vals;
+
+    /**
+     * Whether a mapping for key 0 is present.
+     */
+    transient boolean hasZeroKey;
+
+    /**
+     * The number of key-value mappings contained in this map.
+     */
+    transient int size;
+
+    /**
+     * The number of times this map has been structurally modified.
+     */
+    transient int modCount;
+
+    /**
+     * The size at which the table is next resized.
+     */
+    transient int threshold;
+
+    /**
+     * The load factor for the hash table.
+     *
+     * @serial
+     */
+    final float loadFactor;
+
+    /**
+     * Holds cached entrySet().  Note that AbstractMap fields are used
+     * for keySet() and values().
+     */
+    transient Set<Map.Entry<Long,Long>> entrySet;
+
+    /* ---------------- Public operations -------------- */
+
+    /**
+     * Constructs an empty {@code LongLongHashMap} with the specified initial
+     * capacity and load factor.
+     *
+     * @param  initialCapacity the initial capacity
+     * @param  loadFactor      the load factor, strictly between 0 and 1
+     * @throws IllegalArgumentException if the initial capacity is negative
+     *         or the load factor is not in range
+     */
+    public LongLongHashMap(int initialCapacity, float loadFactor) {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Illegal initial capacity: " +
+                                               initialCapacity);
+        if (!(loadFactor > 0.0f && loadFactor < 1.0f))
+            throw new IllegalArgumentException("Illegal load factor: " +
+                                               loadFactor);
+        this.loadFactor = loadFactor;
+        allocate(IntObjectHashMap.tableSizeFor(initialCapacity));
+    }
+
+    /**
+     * Constructs an empty {@code LongLongHashMap} with the specified initial
+     * capacity and the default load factor (0.5).
+     *
+     * @param  initialCapacity the initial capacity.
+     * @throws IllegalArgumentException if the initial capacity is negative.
+     */
+    public LongLongHashMap(int initialCapacity) {
+        this(initialCapacity, IntObjectHashMap.DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs an empty {@code LongLongHashMap} with the default initial
+     * capacity (16) and the default load factor (0.5).
+     */
+    public LongLongHashMap() {
+        this(IntObjectHashMap.DEFAULT_INITIAL_CAPACITY,
+             IntObjectHashMap.DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs a new {@code LongLongHashMap} with the same mappings as the
+     * specified {@code Map}.
+     *
+     * @param   m the map whose mappings are to be placed in this map
+     * @throws  NullPointerException if the specified map is null or
+     *          contains a {@code null} key or value
+     */
+    public LongLongHashMap(Map<? extends Long, ? extends Long> m) {
+        this.loadFactor = IntObjectHashMap.DEFAULT_LOAD_FACTOR;
+        allocate(capacityFor(m.size()));
+        putAll(m);
+    }
+
+    /**
+     * Returns the table capacity needed to hold the given number of
+     * mappings without resizing.
+     */
+    private int capacityFor(int n) {
+        float ft = ((float)n / loadFactor) + 1.0F;
+        return IntObjectHashMap.tableSizeFor(
+            (ft < (float)IntObjectHashMap.MAXIMUM_CAPACITY) ?
+            Math.max((int)ft, IntObjectHashMap.DEFAULT_INITIAL_CAPACITY) :
+            IntObjectHashMap.MAXIMUM_CAPACITY);
+    }
+
+    /**
+     * Installs empty tables of the given power of two capacity.
+     */
+    private void allocate(int cap) {
+        keys = new long[cap + 1];
+        vals = new long[cap + 1];
+        threshold = Math.min((int)(cap * loadFactor), cap - 1);
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map.
+     *
+     * @return the number of key-value mappings in this map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns {@code true} if this map contains no key-value mappings.
+     *
+     * @return {@code true} if this map contains no key-value mappings
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the slot holding the given key, or -1 if absent.
+     */
+    final int slotOf(long key) {
+        long[] ks = keys;
+        if (key == 0)
+            return hasZeroKey ? ks.length - 1 : -1;
+        int mask = ks.length - 2;
+        long k;
+        for (int i = LongObjectHashMap.hash(key) & mask; (k = ks[i]) != 0;
+             i = (i + 1) & mask) {
+            if (k == key)
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped, or
+     * {@code defaultValue} if this map contains no mapping for the key.
+     *
+     * @param key the key whose associated value is to be returned
+     * @param defaultValue the default mapping of the key
+     * @return the value to which the specified key is mapped, or
+     *         {@code defaultValue} if this map contains no mapping for the key
+     */
+    public long getOrDefault(long key, long defaultValue) {
+        int i = slotOf(key);
+        return (i < 0) ? defaultValue : vals[i];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Long get(Object key) {
+        int i;
+        return (key instanceof Long && (i = slotOf((Long)key)) >= 0) ?
+            vals[i] : null;
+    }
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the
+     * specified key.
+     *
+     * @param   key   The key whose presence in this map is to be tested
+     * @return {@code true} if this map contains a mapping for the specified
+     * key.
+     */
+    public boolean containsKey(long key) {
+        return slotOf(key) >= 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean containsKey(Object key) {
+        return (key instanceof Long) && slotOf((Long)key) >= 0;
+    }
+
+    /**
+     * Returns the slot for the given key, inserting it with value 0 if
+     * absent.  On insertion, {@code modCount} and {@code size} are
+     * updated, and the table is resized if needed.
+     */
+    private int insertionSlot(long key) {
+        long[] ks = keys;
+        int i;
+        if (key == 0) {
+            i = ks.length - 1;
+            if (hasZeroKey)
+                return i;
+            hasZeroKey = true;
+        } else {
+            int mask = ks.length - 2;
+            long k;
+            for (i = LongObjectHashMap.hash(key) & mask; (k = ks[i]) != 0;
+                 i = (i + 1) & mask) {
+                if (k == key)
+                    return i;
+            }
+            if (size >= threshold) {
+                resize();
+                ks = keys;
+                mask = ks.length - 2;
+                for (i = LongObjectHashMap.hash(key) & mask; ks[i] != 0;
+                     i = (i + 1) & mask)
+                    ;
+            }
+            ks[i] = key;
+        }
+        vals[i] = 0L;
+        ++modCount;
+        ++size;
+        return ~i;
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map.
+     * If the map previously contained a mapping for the key, the old
+     * value is replaced.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with {@code key}, or
+     *         {@code 0L} if there was no mapping for {@code key}
+     */
+    public long put(long key, long value) {
+        int i = insertionSlot(key);
+        if (i < 0)
+            i = ~i;
+        long oldValue = vals[i];
+        vals[i] = value;
+        return oldValue;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the specified key or value is null
+     */
+    public Long put(Long key, Long value) {
+        long v = value;
+        int i = insertionSlot(key);
+        if (i < 0) {
+            vals[~i] = v;
+            return null;
+        }
+        long oldValue = vals[i];
+        vals[i] = v;
+        return oldValue;
+    }
+
+    /**
+     * If the specified key is not already associated with a value,
+     * associates it with the given value.  Otherwise, replaces the
+     * associated value with the results of the given remapping function.
+     * This method is typically used to maintain counts, as in
+     * {@code map.merge(key, 1L, Long::sum)}.
+     *
+     * @param key key with which the resulting value is to be associated
+     * @param value the value to be merged with the existing value
+     *        associated with the key or, if no existing value is
+     *        associated with the key, to be associated with the key
+     * @param remappingFunction the function to recompute a value if present
+     * @return the new value associated with the specified key
+     * @throws NullPointerException if the remapping function is null
+     */
+    public long merge(long key, long value, LongBinaryOperator remappingFunction) {
+        if (remappingFunction == null)
+            throw new NullPointerException();
+        int i = insertionSlot(key);
+        if (i < 0)
+            return vals[~i] = value;
+        int mc = modCount;
+        long v = remappingFunction.applyAsLong(vals[i], value);
+        if (mc != modCount)
+            throw new ConcurrentModificationException();
+        return vals[i] = v;
+    }
+
+    /**
+     * Copies all of the mappings from the specified map to this map.
+     *
+     * @param m mappings to be stored in this map
+     * @throws NullPointerException if the specified map is null or
+     *         contains a {@code null} key or value
+     */
+    public void putAll(Map<? extends Long, ? extends Long> m) {
+        int s = m.size();
+        if (s > threshold - size &&
+            keys.length - 1 < IntObjectHashMap.MAXIMUM_CAPACITY) {
+            int cap = capacityFor(s + size);
+            if (cap > keys.length - 1)
+                rehash(cap);
+        }
+        if (m instanceof LongLongHashMap) {
+            LongLongHashMap o = (LongLongHashMap)m;
+            long[] oks = o.keys, ovs = o.vals;
+            int zero = oks.length - 1;
+            if (o.hasZeroKey)
+                put(0, ovs[zero]);
+            for (int i = 0; i < zero; i++) {
+                long k = oks[i];
+                if (k != 0)
+                    put(k, ovs[i]);
+            }
+        } else {
+            for (Map.Entry<? extends Long, ? extends Long> e : m.entrySet())
+                put(e.getKey().longValue(), e.getValue().longValue());
+        }
+    }
+
+    /**
+     * Doubles the table capacity.
+     *
+     * @throws IllegalStateException if the table is already at its
+     *         maximum capacity
+     */
+    final void resize() {
+        int oldCap = keys.length - 1;
+        if (oldCap >= IntObjectHashMap.MAXIMUM_CAPACITY)
+            throw new IllegalStateException("Capacity exhausted.");
+        rehash(oldCap << 1);
+    }
+
+    /**
+     * Moves all mappings into new tables of the given capacity.
+     */
+    final void rehash(int newCap) {
+        long[] oldKeys = keys, oldVals = vals;
+        int oldZero = oldKeys.length - 1;
+        allocate(newCap);
+        long[] ks = keys, vs = vals;
+        int mask = newCap - 1;
+        vs[newCap] = oldVals[oldZero];
+        for (int j = 0; j < oldZero; j++) {
+            long k = oldKeys[j];
+            if (k != 0) {
+                int i = LongObjectHashMap.hash(k) & mask;
+                while (ks[i] != 0)
+                    i = (i + 1) & mask;
+                ks[i] = k;
+                vs[i] = oldVals[j];
+            }
+        }
+    }
+
+    /**
+     * Removes the mapping for the specified key from this map if present.
+     *
+     * @param  key key whose mapping is to be removed from the map
+     * @return the previous value associated with {@code key}, or
+     *         {@code 0L} if there was no mapping for {@code key}
+     */
+    public long remove(long key) {
+        int i = slotOf(key);
+        if (i < 0)
+            return 0L;
+        long oldValue = vals[i];
+        removeAt(i, null);
+        return oldValue;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Long remove(Object key) {
+        int i;
+        if (key instanceof Long && (i = slotOf((Long)key)) >= 0) {
+            long oldValue = vals[i];
+            removeAt(i, null);
+            return oldValue;
+        }
+        return null;
+    }
+
+    /**
+     * Removes the mapping in slot i by backward-shift deletion,
+     * reporting wrapped entries to the given iterator, if any.
+     */
+    final void removeAt(int i, HashIterator<?> it) {
+        long[] ks = keys, vs = vals;
+        ++modCount;
+        --size;
+        int zero = ks.length - 1;
+        if (i == zero) {
+            hasZeroKey = false;
+            vs[zero] = 0L;
+            return;
+        }
+        int mask = zero - 1, hole = i;
+        long k;
+        for (int j = (hole + 1) & mask; (k = ks[j]) != 0; j = (j + 1) & mask) {
+            int h = LongObjectHashMap.hash(k) & mask;
+            if ((hole <= j) ? (hole >= h || h > j) : (hole >= h && h > j)) {
+                if (it != null && j < hole)
+                    it.wrapped(k, vs[j]);
+                ks[hole] = k;
+                vs[hole] = vs[j];
+                hole = j;
+            }
+        }
+        ks[hole] = 0;
+        vs[hole] = 0L;
+    }
+
+    /**
+     * Removes all of the mappings from this map.
+     * The map will be empty after this call returns.
+     */
+    public void clear() {
+        if (size > 0) {
+            ++modCount;
+            size = 0;
+            hasZeroKey = false;
+            Arrays.fill(keys, 0L);
+            Arrays.fill(vals, 0L);
+        }
+    }
+
+    /**
+     * Returns {@code true} if this map maps one or more keys to the
+     * specified value.
+     *
+     * @param value value whose presence in this map is to be tested
+     * @return {@code true} if this map maps one or more keys to the
+     *         specified value
+     */
+    public boolean containsValue(long value) {
+        long[] ks = keys, vs = vals;
+        int zero = ks.length - 1;
+        if (hasZeroKey && vs[zero] == value)
+            return true;
+        for (int i = 0; i < zero; i++) {
+            if (ks[i] != 0 && vs[i] == value)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean containsValue(Object value) {
+        return (value instanceof Long) && containsValue(((Long)value).longValue());
+    }
+
+    /**
+     * Returns a {@link Set} view of the keys contained in this map.
+     * The set is backed by the map, so changes to the map are
+     * reflected in the set, and vice-versa.  The set supports element
+     * removal, but not the {@code add} or {@code addAll} operations.
+     *
+     * @return a set view of the keys contained in this map
+     */
+    public Set<Long> keySet() {
+        Set<Long> ks = keySet;
+        if (ks == null) {
+            ks = new KeySet();
+            keySet = ks;
+        }
+        return ks;
+    }
+
+    final class KeySet extends AbstractSet<Long> {
+        public final int size()                 { return size; }
+        public final void clear()               { LongLongHashMap.this.clear(); }
+        public final Iterator<Long> iterator() { return new KeyIterator(); }
+        public final boolean contains(Object o) { return containsKey(o); }
+        public final boolean remove(Object o) {
+            int i;
+            if (o instanceof Long && (i = slotOf((Long)o)) >= 0) {
+                removeAt(i, null);
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Returns a {@link Collection} view of the values contained in this map.
+     * The collection is backed by the map, so changes to the map are
+     * reflected in the collection, and vice-versa.  The collection
+     * supports element removal, but not the {@code add} or
+     * {@code addAll} operations.
+     *
+     * @return a view of the values contained in this map
+     */
+    public Collection<Long> values() {
+        Collection<Long> vs = values;
+        if (vs == null) {
+            vs = new Values();
+            values = vs;
+        }
+        return vs;
+    }
+
+    final class Values extends AbstractCollection<Long> {
+        public final int size()                 { return size; }
+        public final void clear()               { LongLongHashMap.this.clear(); }
+        public final Iterator<Long> iterator() { return new ValueIterator(); }
+        public final boolean contains(Object o) { return containsValue(o); }
+    }
+
+    /**
+     * Returns a {@link Set} view of the mappings contained in this map.
+     * The set is backed by the map, so changes to the map are
+     * reflected in the set, and vice-versa.  The set supports element
+     * removal, but not the {@code add} or {@code addAll} operations.
+     * Each entry is materialized as it is returned by the iterator.
+     *
+     * @return a set view of the mappings contained in this map
+     */
+    public Set<Map.Entry<Long,Long>> entrySet() {
+        Set<Map.Entry<Long,Long>> es;
+        return (es = entrySet) == null ? (entrySet = new EntrySet()) : es;
+    }
+
+    final class EntrySet extends AbstractSet<Map.Entry<Long,Long>> {
+        public final int size()                 { return size; }
+        public final void clear()               { LongLongHashMap.this.clear(); }
+        public final Iterator<Map.Entry<Long,Long>> iterator() {
+            return new EntryIterator();
+        }
+        public final boolean contains(Object o) {
+            return slotOfEntry(o) >= 0;
+        }
+        public final boolean remove(Object o) {
+            int i = slotOfEntry(o);
+            if (i >= 0) {
+                removeAt(i, null);
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Returns the slot of a mapping equal to the given entry, or -1.
+     */
+    final int slotOfEntry(Object o) {
+        if (o instanceof Map.Entry) {
+            Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+            Object key = e.getKey(), value = e.getValue();
+            int i;
+            if (key instanceof Long && value instanceof Long &&
+                (i = slotOf((Long)key)) >= 0 && vals[i] == (Long)value)
+                return i;
+        }
+        return -1;
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super Long, ? super Long> action) {
+        if (action == null)
+            throw new NullPointerException();
+        long[] ks = keys, vs = vals;
+        int zero = ks.length - 1;
+        int mc = modCount;
+        if (hasZeroKey)
+            action.accept(0L, vs[zero]);
+        for (int i = 0; i < zero && modCount == mc; i++) {
+            long k = ks[i];
+            if (k != 0)
+                action.accept(k, vs[i]);
+        }
+        if (modCount != mc)
+            throw new ConcurrentModificationException();
+    }
+
+    /**
+     * Returns a copy of this {@code LongLongHashMap} instance.
+     *
+     * @return a copy of this map
+     */
+    @Override
+    public Object clone() {
+        LongLongHashMap result;
+        try {
+            result = (LongLongHashMap)super.clone();
+        } catch (CloneNotSupportedException e) {
+            // this shouldn't happen, since we are Cloneable
+            throw new InternalError(e);
+        }
+        result.keys = keys.clone();
+        result.vals = vals.clone();
+        result.entrySet = null;
+        return result;
+    }
+
+    /* ------------------------------------------------------------ */
+    // iterators
+
+    abstract class HashIterator<T> implements Iterator<T> {
+        int pos;                // current slot; scanning is descending
+        boolean zeroPending;    // true if key 0 is yet to be returned
+        int lastSlot = -1;      // slot of last returned, -2 if wrapped
+        long lastKey;           // key of last returned
+        int remaining;          // number of entries not yet returned
+        int expectedModCount;   // for fast-fail
+        long[] wrappedKeys;     // entries moved behind the scan by removal
+        long[] wrappedVals;
+        int wrappedCount;
+
+        HashIterator() {
+            expectedModCount = modCount;
+            remaining = size;
+            zeroPending = hasZeroKey;
+            pos = keys.length - 2;
+        }
+
+        public final boolean hasNext() {
+            return remaining > 0;
+        }
+
+        final int nextSlot() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if (remaining <= 0)
+                throw new NoSuchElementException();
+            --remaining;
+            long[] ks = keys;
+            if (zeroPending) {
+                zeroPending = false;
+                lastKey = 0;
+                return lastSlot = ks.length - 1;
+            }
+            for (; pos >= 0; --pos) {
+                long k;
+                if ((k = ks[pos]) != 0) {
+                    lastKey = k;
+                    return lastSlot = pos--;
+                }
+            }
+            lastKey = wrappedKeys[--wrappedCount];
+            return lastSlot = -2;
+        }
+
+        final long lastValue() {
+            return (lastSlot >= 0) ? vals[lastSlot] : wrappedVals[wrappedCount];
+        }
+
+        final void wrapped(long k, long v) {
+            if (wrappedKeys == null) {
+                wrappedKeys = new long[2];
+                wrappedVals = new long[2];
+            } else if (wrappedCount == wrappedKeys.length) {
+                wrappedKeys = Arrays.copyOf(wrappedKeys, wrappedCount << 1);
+                wrappedVals = Arrays.copyOf(wrappedVals, wrappedCount << 1);
+            }
+            wrappedKeys[wrappedCount] = k;
+            wrappedVals[wrappedCount++] = v;
+        }
+
+        public final void remove() {
+            int i = lastSlot;
+            if (i == -1)
+                throw new IllegalStateException();
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            lastSlot = -1;
+            removeAt((i >= 0) ? i : slotOf(lastKey), (i >= 0) ? this : null);
+            expectedModCount = modCount;
+        }
+    }
+
+    final class KeyIterator extends HashIterator<Long> {
+        public final Long next() {
+            nextSlot();
+            return lastKey;
+        }
+    }
+
+    final class ValueIterator extends HashIterator<Long> {
+        public final Long next() {
+            nextSlot();
+            return lastValue();
+        }
+    }
+
+    final class EntryIterator extends HashIterator<Map.Entry<Long,Long>> {
+        public final Map.Entry<Long,Long> next() {
+            nextSlot();
+            return new LongEntry(lastKey, lastValue());
+        }
+    }
+
+    /**
+     * A snapshot of a mapping, returned by the entry set iterator.
+     * {@code setValue} writes through to the map.
+     */
+    final class LongEntry implements Map.Entry<Long,Long> {
+        final long key;
+        long value;
+
+        LongEntry(long key, long value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        public final Long getKey()      { return key; }
+        public final Long getValue()    { return value; }
+        public final String toString()     { return key + "=" + value; }
+        public final int hashCode() {
+            return Long.hashCode(key) ^ Long.hashCode(value);
+        }
+
+        public final Long setValue(Long newValue) {
+            long v = newValue;
+            int i = slotOf(key);
+            if (i < 0)
+                throw new IllegalStateException("Entry was removed");
+            long oldValue = value;
+            vals[i] = value = v;
+            return oldValue;
+        }
+
+        public final boolean equals(Object o) {
+            if (o == this)
+                return true;
+            if (o instanceof Map.Entry) {
+                Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+                Object k = e.getKey(), v = e.getValue();
+                return k instanceof Long && (Long)k == key &&
+                    v instanceof Long && (Long)v == value;
+            }
+            return false;
+        }
+    }
+
+    /* ------------------------------------------------------------ */
+    // serialization
+
+    /**
+     * Saves this map to a stream (that is, serializes it).
+     *
+     * @param s the stream
+     * @throws IOException if an I/O error occurs
+     * @serialData The <i>size</i> of the map (the number of key-value
+     *             mappings) is emitted (int), followed by the key (long)
+     *             and value (long) for each key-value mapping.  The
+     *             key-value mappings are emitted in no particular order.
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws IOException {
+        s.defaultWriteObject();
+        s.writeInt(size);
+        long[] ks = keys, vs = vals;
+        int zero = ks.length - 1;
+        if (hasZeroKey) {
+            s.writeLong(0L);
+            s.writeLong(vs[zero]);
+        }
+        for (int i = 0; i < zero; i++) {
+            if (ks[i] != 0) {
+                s.writeLong(ks[i]);
+                s.writeLong(vs[i]);
+            }
+        }
+    }
+
+    /**
+     * Reconstitutes this map from a stream (that is, deserializes it).
+     *
+     * @param s the stream
+     * @throws ClassNotFoundException if the class of a serialized object
+     *         could not be found
+     * @throws IOException if an I/O error occurs
+     */
+    private void readObject(java.io.ObjectInputStream s)
+        throws IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        if (!(loadFactor > 0.0f && loadFactor < 1.0f))
+            throw new InvalidObjectException("Illegal load factor: " +
+                                             loadFactor);
+        int mappings = s.readInt();
+        if (mappings < 0)
+            throw new InvalidObjectException("Illegal mappings count: " +
+                                             mappings);
+        allocate(capacityFor(mappings));
+        for (int i = 0; i < mappings; i++) {
+            long key = s.readLong();
+            put(key, s.readLong());
+        }
+    }
+}
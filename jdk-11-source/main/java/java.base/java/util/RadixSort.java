@@ -0,0 +1,515 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * This class implements least-significant-digit radix sorts of int and
+ * long keys, eight bits per pass, optionally permuting an array of
+ * objects along with the keys, and optionally running each pass in
+ * parallel in the {@link ForkJoinPool#commonPool() common pool}.
+ *
+ * Each pass counts the occurrences of each digit value, converts the
+ * counts to starting offsets and scatters the keys into a buffer, so
+ * that the sort is stable and performs no comparisons.  Passes in which
+ * all keys share the same digit are skipped, so keys spanning a small
+ * range cost fewer passes.  In parallel, the range is divided into
+ * chunks, each of which is counted and scattered by one task, with
+ * offsets assigned so that chunks keep their relative order.
+ *
+ * Float and double values are sorted by converting them to int or long
+ * keys whose signed order is the order of {@link Float#compare} and
+ * {@link Double#compare}, after moving NaNs to the end of the range as
+ * DualPivotQuicksort does.
+ *
+ * All exposed methods are package-private, designed to be invoked
+ * from public methods (in class Arrays) after performing any
+ * necessary array bounds checks.
+ *
+ * @since 12
+ */
+final class RadixSort {
+
+    /**
+     * Prevents instantiation.
+     */
+    private RadixSort() {}
+
+    /*
+     * Tuning parameters.
+     */
+
+    /**
+     * If the length of a primitive array to be sorted is less than this
+     * constant, DualPivotQuicksort is used in preference to radix sort.
+     */
+    private static final int RADIX_SORT_THRESHOLD = 1 << 10;
+
+    /**
+     * If the length of a keyed object array to be sorted is less than
+     * this constant, insertion sort of the extracted keys is used.
+     */
+    private static final int INSERTION_SORT_THRESHOLD = 32;
+
+    /**
+     * The minimum number of keys per chunk of a parallel pass.  Ranges
+     * shorter than twice this are sorted sequentially.
+     */
+    private static final int MIN_CHUNK_LENGTH = 1 << 13;
+
+    /** Number of bits per digit, and digit values. */
+    private static final int DIGIT_BITS = 8, RADIX = 1 << DIGIT_BITS;
+
+    /*
+     * Primitive arrays.
+     */
+
+    /**
+     * Sorts the specified range of the array.
+     *
+     * @param a the array to be sorted
+     * @param lo the index of the first element, inclusive, to be sorted
+     * @param hi the index of the last element, exclusive, to be sorted
+     * @param parallel whether passes may run in parallel
+     */
+    static void sort(int[] a, int lo, int hi, boolean parallel) {
+        if (hi - lo < RADIX_SORT_THRESHOLD)
+            DualPivotQuicksort.sort(a, lo, hi - 1, null, 0, 0);
+        else
+            new IntSorter(a, null, lo, hi, 0, parallel).sort();
+    }
+
+    /**
+     * Sorts the specified range of the array.
+     *
+     * @param a the array to be sorted
+     * @param lo the index of the first element, inclusive, to be sorted
+     * @param hi the index of the last element, exclusive, to be sorted
+     * @param parallel whether passes may run in parallel
+     */
+    static void sort(long[] a, int lo, int hi, boolean parallel) {
+        if (hi - lo < RADIX_SORT_THRESHOLD)
+            DualPivotQuicksort.sort(a, lo, hi - 1, null, 0, 0);
+        else
+            new LongSorter(a, null, lo, hi, 0, parallel).sort();
+    }
+
+    /**
+     * Sorts the specified range of the array.
+     *
+     * @param a the array to be sorted
+     * @param lo the index of the first element, inclusive, to be sorted
+     * @param hi the index of the last element, exclusive, to be sorted
+     * @param parallel whether passes may run in parallel
+     */
+    static void sort(float[] a, int lo, int hi, boolean parallel) {
+        if (hi - lo < RADIX_SORT_THRESHOLD) {
+            DualPivotQuicksort.sort(a, lo, hi - 1, null, 0, 0);
+            return;
+        }
+        /*
+         * Phase 1: Move NaNs to the end of the array.
+         */
+        int right = hi - 1;
+        while (lo <= right && Float.isNaN(a[right])) {
+            --right;
+        }
+        for (int k = right; --k >= lo; ) {
+            float ak = a[k];
+            if (ak != ak) { // a[k] is NaN
+                a[k] = a[right];
+                a[right] = ak;
+                --right;
+            }
+        }
+        /*
+         * Phase 2: Sort everything except NaNs by order-preserving keys.
+         */
+        int n = right + 1 - lo;
+        int[] keys = new int[n];
+        for (int i = 0; i < n; i++) {
+            int bits = Float.floatToRawIntBits(a[lo + i]);
+            keys[i] = bits ^ ((bits >> 31) & 0x7fffffff);
+        }
+        new IntSorter(keys, null, 0, n, 0, parallel).sort();
+        for (int i = 0; i < n; i++) {
+            int k = keys[i];
+            a[lo + i] = Float.intBitsToFloat(k ^ ((k >> 31) & 0x7fffffff));
+        }
+    }
+
+    /**
+     * Sorts the specified range of the array.
+     *
+     * @param a the array to be sorted
+     * @param lo the index of the first element, inclusive, to be sorted
+     * @param hi the index of the last element, exclusive, to be sorted
+     * @param parallel whether passes may run in parallel
+     */
+    static void sort(double[] a, int lo, int hi, boolean parallel) {
+        if (hi - lo < RADIX_SORT_THRESHOLD) {
+            DualPivotQuicksort.sort(a, lo, hi - 1, null, 0, 0);
+            return;
+        }
+        /*
+         * Phase 1: Move NaNs to the end of the array.
+         */
+        int right = hi - 1;
+        while (lo <= right && Double.isNaN(a[right])) {
+            --right;
+        }
+        for (int k = right; --k >= lo; ) {
+            double ak = a[k];
+            if (ak != ak) { // a[k] is NaN
+                a[k] = a[right];
+                a[right] = ak;
+                --right;
+            }
+        }
+        /*
+         * Phase 2: Sort everything except NaNs by order-preserving keys.
+         */
+        int n = right + 1 - lo;
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++) {
+            long bits = Double.doubleToRawLongBits(a[lo + i]);
+            keys[i] = bits ^ ((bits >> 63) & 0x7fffffffffffffffL);
+        }
+        new LongSorter(keys, null, 0, n, 0, parallel).sort();
+        for (int i = 0; i < n; i++) {
+            long k = keys[i];
+            a[lo + i] = Double.longBitsToDouble(k ^ ((k >> 63) & 0x7fffffffffffffffL));
+        }
+    }
+
+    /*
+     * Keyed object arrays.
+     */
+
+    /**
+     * Sorts a range of values by the corresponding elements of keys,
+     * stably.  The range starts at index vlo of values and has the
+     * length of keys, so that the values are sorted in place.
+     *
+     * @param keys the keys, sorted in place
+     * @param values the values, permuted along with the keys
+     * @param vlo the index in values of the first element to be sorted
+     * @param parallel whether passes may run in parallel
+     */
+    static void sort(int[] keys, Object[] values, int vlo,
+                     boolean parallel) {
+        int n = keys.length;
+        if (n < INSERTION_SORT_THRESHOLD) {
+            for (int i = 1; i < n; i++) {
+                int k = keys[i];
+                Object v = values[vlo + i];
+                int j = i - 1;
+                for (; j >= 0 && keys[j] > k; --j) {
+                    keys[j + 1] = keys[j];
+                    values[vlo + j + 1] = values[vlo + j];
+                }
+                keys[j + 1] = k;
+                values[vlo + j + 1] = v;
+            }
+        } else
+            new IntSorter(keys, values, 0, n, vlo, parallel).sort();
+    }
+
+    /**
+     * Sorts a range of values by the corresponding elements of keys,
+     * stably.  The range starts at index vlo of values and has the
+     * length of keys, so that the values are sorted in place.
+     *
+     * @param keys the keys, sorted in place
+     * @param values the values, permuted along with the keys
+     * @param vlo the index in values of the first element to be sorted
+     * @param parallel whether passes may run in parallel
+     */
+    static void sort(long[] keys, Object[] values, int vlo,
+                     boolean parallel) {
+        int n = keys.length;
+        if (n < INSERTION_SORT_THRESHOLD) {
+            for (int i = 1; i < n; i++) {
+                long k = keys[i];
+                Object v = values[vlo + i];
+                int j = i - 1;
+                for (; j >= 0 && keys[j] > k; --j) {
+                    keys[j + 1] = keys[j];
+                    values[vlo + j + 1] = values[vlo + j];
+                }
+                keys[j + 1] = k;
+                values[vlo + j + 1] = v;
+            }
+        } else
+            new LongSorter(keys, values, 0, n, vlo, parallel).sort();
+    }
+
+    /**
+     * Returns the number of chunks into which to divide n keys for a
+     * parallel pass, or 1 for a sequential sort.
+     */
+    static int chunkCount(int n, boolean parallel) {
+        int p;
+        if (!parallel || (p = ForkJoinPool.getCommonPoolParallelism()) == 1)
+            return 1;
+        return Math.max(1, Math.min(p << 2, n / MIN_CHUNK_LENGTH));
+    }
+
+    /**
+     * A sorter whose passes consist of one operation per chunk.
+     */
+    abstract static class Sorter {
+        static final int COUNT = 0, SCATTER = 1;
+
+        /** Number of keys and of chunks */
+        final int n, chunks;
+        /** Per-chunk digit counts, then offsets */
+        final int[][] counts;
+        /** Operation of the current phase */
+        int mode;
+
+        Sorter(int n, boolean parallel) {
+            this.n = n;
+            this.chunks = chunkCount(n, parallel);
+            this.counts = new int[chunks][RADIX];
+        }
+
+        /** Counts or scatters the keys of the given chunk. */
+        abstract void run(int chunk, int from, int to);
+
+        /** Performs the current operation on all chunks. */
+        final void runAll() {
+            if (chunks == 1)
+                run(0, 0, n);
+            else
+                new ChunkTask(this, 0, chunks).invoke();
+        }
+
+        /**
+         * Counts digits, returning false if all keys have the same
+         * digit, else converting counts to offsets and returning true.
+         */
+        final boolean countPass() {
+            mode = COUNT;
+            runAll();
+            int[][] cs = counts;
+            int fd = firstDigit(), same = 0;
+            for (int[] c : cs)
+                same += c[fd];
+            if (same == n)
+                return false;
+            int offset = 0;
+            for (int d = 0; d < RADIX; d++) {
+                for (int[] c : cs) {
+                    int t = c[d];
+                    c[d] = offset;
+                    offset += t;
+                }
+            }
+            return true;
+        }
+
+        /** Returns the digit of the first key in the current pass. */
+        abstract int firstDigit();
+    }
+
+    /**
+     * Action performing the current operation of a sorter on a range of
+     * chunks.
+     */
+    static final class ChunkTask extends RecursiveAction {
+        private static final long serialVersionUID = 5217324160473207549L;
+        final Sorter sorter;
+        final int lo, hi;
+
+        ChunkTask(Sorter sorter, int lo, int hi) {
+            this.sorter = sorter;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        protected void compute() {
+            int l = lo, h = hi;
+            if (h - l > 1) {
+                int mid = (l + h) >>> 1;
+                invokeAll(new ChunkTask(sorter, l, mid),
+                          new ChunkTask(sorter, mid, h));
+            } else {
+                Sorter s = sorter;
+                long n = s.n, c = s.chunks;
+                s.run(l, (int)(l * n / c), (int)((l + 1) * n / c));
+            }
+        }
+    }
+
+    /**
+     * Sorter of a range of ints, with optional values.
+     */
+    static final class IntSorter extends Sorter {
+        int[] src, dst;
+        Object[] vsrc, vdst;
+        int srcOff, dstOff, vsrcOff, vdstOff;
+        int shift, flip;
+
+        IntSorter(int[] a, Object[] v, int lo, int hi, int vlo, boolean parallel) {
+            super(hi - lo, parallel);
+            src = a;
+            vsrc = v;
+            srcOff = lo;
+            vsrcOff = vlo;
+            dst = new int[n];
+            vdst = (v == null) ? null : new Object[n];
+        }
+
+        int firstDigit() {
+            return ((src[srcOff] >>> shift) & (RADIX - 1)) ^ flip;
+        }
+
+        void run(int chunk, int from, int to) {
+            int[] c = counts[chunk], s = src, t = dst;
+            Object[] vs = vsrc, vt = vdst;
+            int sh = shift, fl = flip, so = srcOff, to0 = dstOff;
+            int vso = vsrcOff - so, vto = vdstOff - to0;
+            if (mode == COUNT) {
+                Arrays.fill(c, 0);
+                for (int i = so + from, e = so + to; i < e; i++)
+                    c[((s[i] >>> sh) & (RADIX - 1)) ^ fl]++;
+            } else if (vs == null) {
+                for (int i = so + from, e = so + to; i < e; i++) {
+                    int k = s[i];
+                    t[to0 + c[((k >>> sh) & (RADIX - 1)) ^ fl]++] = k;
+                }
+            } else {
+                for (int i = so + from, e = so + to; i < e; i++) {
+                    int k = s[i], j = to0 + c[((k >>> sh) & (RADIX - 1)) ^ fl]++;
+                    t[j] = k;
+                    vt[vto + j] = vs[vso + i];
+                }
+            }
+        }
+
+        void sort() {
+            final int[] a = src;
+            final Object[] v = vsrc;
+            final int lo = srcOff, vlo = vsrcOff;
+            if (n < 2)
+                return;
+            for (int sh = 0; sh < Integer.SIZE; sh += DIGIT_BITS) {
+                shift = sh;
+                flip = (sh + DIGIT_BITS == Integer.SIZE) ? RADIX >>> 1 : 0;
+                if (countPass()) {
+                    mode = SCATTER;
+                    runAll();
+                    int[] ts = src; src = dst; dst = ts;
+                    Object[] tv = vsrc; vsrc = vdst; vdst = tv;
+                    int to = srcOff; srcOff = dstOff; dstOff = to;
+                    to = vsrcOff; vsrcOff = vdstOff; vdstOff = to;
+                }
+            }
+            if (src != a) {
+                System.arraycopy(src, 0, a, lo, n);
+                if (v != null)
+                    System.arraycopy(vsrc, 0, v, vlo, n);
+            }
+        }
+    }
+
+    /**
+     * Sorter of a range of longs, with optional values.
+     */
+    static final class LongSorter extends Sorter {
+        long[] src, dst;
+        Object[] vsrc, vdst;
+        int srcOff, dstOff, vsrcOff, vdstOff;
+        int shift, flip;
+
+        LongSorter(long[] a, Object[] v, int lo, int hi, int vlo, boolean parallel) {
+            super(hi - lo, parallel);
+            src = a;
+            vsrc = v;
+            srcOff = lo;
+            vsrcOff = vlo;
+            dst = new long[n];
+            vdst = (v == null) ? null : new Object[n];
+        }
+
+        int firstDigit() {
+            return ((int)(src[srcOff] >>> shift) & (RADIX - 1)) ^ flip;
+        }
+
+        void run(int chunk, int from, int to) {
+            int[] c = counts[chunk];
+            long[] s = src, t = dst;
+            Object[] vs = vsrc, vt = vdst;
+            int sh = shift, fl = flip, so = srcOff, to0 = dstOff;
+            int vso = vsrcOff - so, vto = vdstOff - to0;
+            if (mode == COUNT) {
+                Arrays.fill(c, 0);
+                for (int i = so + from, e = so + to; i < e; i++)
+                    c[((int)(s[i] >>> sh) & (RADIX - 1)) ^ fl]++;
+            } else if (vs == null) {
+                for (int i = so + from, e = so + to; i < e; i++) {
+                    long k = s[i];
+                    t[to0 + c[((int)(k >>> sh) & (RADIX - 1)) ^ fl]++] = k;
+                }
+            } else {
+                for (int i = so + from, e = so + to; i < e; i++) {
+                    long k = s[i];
+                    int j = to0 + c[((int)(k >>> sh) & (RADIX - 1)) ^ fl]++;
+                    t[j] = k;
+                    vt[vto + j] = vs[vso + i];
+                }
+            }
+        }
+
+        void sort() {
+            final long[] a = src;
+            final Object[] v = vsrc;
+            final int lo = srcOff, vlo = vsrcOff;
+            if (n < 2)
+                return;
+            for (int sh = 0; sh < Long.SIZE; sh += DIGIT_BITS) {
+                shift = sh;
+                flip = (sh + DIGIT_BITS == Long.SIZE) ? RADIX >>> 1 : 0;
+                if (countPass()) {
+                    mode = SCATTER;
+                    runAll();
+                    long[] ts = src; src = dst; dst = ts;
+                    Object[] tv = vsrc; vsrc = vdst; vdst = tv;
+                    int to = srcOff; srcOff = dstOff; dstOff = to;
+                    to = vsrcOff; vsrcOff = vdstOff; vdstOff = to;
+                }
+            }
+            if (src != a) {
+                System.arraycopy(src, 0, a, lo, n);
+                if (v != null)
+                    System.arraycopy(vsrc, 0, v, vlo, n);
+            }
+        }
+    }
+}
@@ -1254,7 +1254,7 @@ public final class Spliterators {
      * @since 1.8
      */
     public abstract static class AbstractSpliterator<T> implements Spliterator<T> {
-        static final int BATCH_UNIT = 1 << 10;  // batch array size increment
+        static final int BATCH_UNIT = 1 << 10;  // initial batch array size
         static final int MAX_BATCH = 1 << 25;  // max batch array size;
         private final int characteristics;
         private long est;             // size estimate
@@ -1294,26 +1294,15 @@ public final class Spliterators {
         @Override
         public Spliterator<T> trySplit() {
             /*
-             * Split into arrays of arithmetically increasing batch
-             * sizes.  This will only improve parallel performance if
-             * per-element Consumer actions are more costly than
-             * transferring them into an array.  The use of an
-             * arithmetic progression in split sizes provides overhead
-             * vs parallelism bounds that do not particularly favor or
-             * penalize cases of lightweight vs heavyweight element
-             * operations, across combinations of #elements vs #cores,
-             * whether or not either are known.  We generate
-             * O(sqrt(#elements)) splits, allowing O(sqrt(#cores))
-             * potential speedup.
+             * Split into arrays of geometrically increasing batch
+             * sizes (see nextBatchSize).  This will only improve
+             * parallel performance if per-element Consumer actions are
+             * more costly than transferring them into an array.
              */
             HoldingConsumer<T> holder = new HoldingConsumer<>();
             long s = est;
             if (s > 1 && tryAdvance(holder)) {
-                int n = batch + BATCH_UNIT;
-                if (n > s)
-                    n = (int) s;
-                if (n > MAX_BATCH)
-                    n = MAX_BATCH;
+                int n = nextBatchSize(batch, s);
                 Object[] a = new Object[n];
                 int j = 0;
                 do { a[j] = holder.value; } while (++j < n && tryAdvance(holder));
@@ -1377,8 +1366,6 @@ public final class Spliterators {
      * @since 1.8
      */
     public abstract static class AbstractIntSpliterator implements Spliterator.OfInt {
-        static final int MAX_BATCH = AbstractSpliterator.MAX_BATCH;
-        static final int BATCH_UNIT = AbstractSpliterator.BATCH_UNIT;
         private final int characteristics;
         private long est;             // size estimate
         private int batch;            // batch size for splits
@@ -1419,11 +1406,7 @@ public final class Spliterators {
             HoldingIntConsumer holder = new HoldingIntConsumer();
             long s = est;
             if (s > 1 && tryAdvance(holder)) {
-                int n = batch + BATCH_UNIT;
-                if (n > s)
-                    n = (int) s;
-                if (n > MAX_BATCH)
-                    n = MAX_BATCH;
+                int n = nextBatchSize(batch, s);
                 int[] a = new int[n];
                 int j = 0;
                 do { a[j] = holder.value; } while (++j < n && tryAdvance(holder));
@@ -1487,8 +1470,6 @@ public final class Spliterators {
      * @since 1.8
      */
     public abstract static class AbstractLongSpliterator implements Spliterator.OfLong {
-        static final int MAX_BATCH = AbstractSpliterator.MAX_BATCH;
-        static final int BATCH_UNIT = AbstractSpliterator.BATCH_UNIT;
         private final int characteristics;
         private long est;             // size estimate
         private int batch;            // batch size for splits
@@ -1529,11 +1510,7 @@ public final class Spliterators {
             HoldingLongConsumer holder = new HoldingLongConsumer();
             long s = est;
             if (s > 1 && tryAdvance(holder)) {
-                int n = batch + BATCH_UNIT;
-                if (n > s)
-                    n = (int) s;
-                if (n > MAX_BATCH)
-                    n = MAX_BATCH;
+                int n = nextBatchSize(batch, s);
                 long[] a = new long[n];
                 int j = 0;
                 do { a[j] = holder.value; } while (++j < n && tryAdvance(holder));
@@ -1597,8 +1574,6 @@ public final class Spliterators {
      * @since 1.8
      */
     public abstract static class AbstractDoubleSpliterator implements Spliterator.OfDouble {
-        static final int MAX_BATCH = AbstractSpliterator.MAX_BATCH;
-        static final int BATCH_UNIT = AbstractSpliterator.BATCH_UNIT;
         private final int characteristics;
         private long est;             // size estimate
         private int batch;            // batch size for splits
@@ -1639,11 +1614,7 @@ public final class Spliterators {
             HoldingDoubleConsumer holder = new HoldingDoubleConsumer();
             long s = est;
             if (s > 1 && tryAdvance(holder)) {
-                int n = batch + BATCH_UNIT;
-                if (n > s)
-                    n = (int) s;
-                if (n > MAX_BATCH)
-                    n = MAX_BATCH;
+                int n = nextBatchSize(batch, s);
                 double[] a = new double[n];
                 int j = 0;
                 do { a[j] = holder.value; } while (++j < n && tryAdvance(holder));
@@ -1683,14 +1654,43 @@ public final class Spliterators {
 
     // Iterator-based Spliterators
 
+    /**
+     * Returns the number of elements to transfer into an array on the
+     * next split of an iterator-based spliterator, given the size of
+     * the previous batch (zero if none) and the estimated number of
+     * remaining elements (Long.MAX_VALUE if unknown).
+     *
+     * Batch sizes start at BATCH_UNIT and double on each split, up to
+     * MAX_BATCH.  Compared to an arithmetic progression, which
+     * generates O(sqrt(#elements)) splits allowing only
+     * O(sqrt(#cores)) potential speedup, this generates
+     * O(log(#elements)) splits whose array-based halves split evenly,
+     * so large sources scale with the number of cores, while small
+     * ones are still split in batches of BATCH_UNIT.  When the size
+     * is known, a batch takes at most half of the remaining elements
+     * (unless fewer than BATCH_UNIT remain), so that splits stay
+     * balanced and the remainder still has work for other threads.
+     */
+    static int nextBatchSize(int batch, long est) {
+        int n = (batch <= 0) ? AbstractSpliterator.BATCH_UNIT
+            : (batch >= AbstractSpliterator.MAX_BATCH >>> 1)
+            ? AbstractSpliterator.MAX_BATCH
+            : batch << 1;
+        if (est != Long.MAX_VALUE) {
+            long h = Math.max(est >>> 1,
+                              Math.min(est, AbstractSpliterator.BATCH_UNIT));
+            if (n > h)
+                n = (int) h;
+        }
+        return n;
+    }
+
     /**
      * A Spliterator using a given Iterator for element
      * operations. The spliterator implements {@code trySplit} to
      * permit limited parallelism.
      */
     static class IteratorSpliterator<T> implements Spliterator<T> {
-        static final int BATCH_UNIT = 1 << 10;  // batch array size increment
-        static final int MAX_BATCH = 1 << 25;  // max batch array size;
         private final Collection<? extends T> collection; // null OK
         private Iterator<? extends T> it;
         private final int characteristics;
@@ -1753,17 +1753,10 @@ public final class Spliterators {
         @Override
         public Spliterator<T> trySplit() {
             /*
-             * Split into arrays of arithmetically increasing batch
-             * sizes.  This will only improve parallel performance if
-             * per-element Consumer actions are more costly than
-             * transferring them into an array.  The use of an
-             * arithmetic progression in split sizes provides overhead
-             * vs parallelism bounds that do not particularly favor or
-             * penalize cases of lightweight vs heavyweight element
-             * operations, across combinations of #elements vs #cores,
-             * whether or not either are known.  We generate
-             * O(sqrt(#elements)) splits, allowing O(sqrt(#cores))
-             * potential speedup.
+             * Split into arrays of geometrically increasing batch
+             * sizes (see nextBatchSize).  This will only improve
+             * parallel performance if per-element Consumer actions are
+             * more costly than transferring them into an array.
              */
             Iterator<? extends T> i;
             long s;
@@ -1774,11 +1767,7 @@ public final class Spliterators {
             else
                 s = est;
             if (s > 1 && i.hasNext()) {
-                int n = batch + BATCH_UNIT;
-                if (n > s)
-                    n = (int) s;
-                if (n > MAX_BATCH)
-                    n = MAX_BATCH;
+                int n = nextBatchSize(batch, s);
                 Object[] a = new Object[n];
                 int j = 0;
                 do { a[j] = i.next(); } while (++j < n && i.hasNext());
@@ -1841,8 +1830,6 @@ public final class Spliterators {
      * permit limited parallelism.
      */
     static final class IntIteratorSpliterator implements Spliterator.OfInt {
-        static final int BATCH_UNIT = IteratorSpliterator.BATCH_UNIT;
-        static final int MAX_BATCH = IteratorSpliterator.MAX_BATCH;
         private PrimitiveIterator.OfInt it;
         private final int characteristics;
         private long est;             // size estimate
@@ -1886,11 +1873,7 @@ public final class Spliterators {
             PrimitiveIterator.OfInt i = it;
             long s = est;
             if (s > 1 && i.hasNext()) {
-                int n = batch + BATCH_UNIT;
-                if (n > s)
-                    n = (int) s;
-                if (n > MAX_BATCH)
-                    n = MAX_BATCH;
+                int n = nextBatchSize(batch, s);
                 int[] a = new int[n];
                 int j = 0;
                 do { a[j] = i.nextInt(); } while (++j < n && i.hasNext());
@@ -1935,8 +1918,6 @@ public final class Spliterators {
     }
 
     static final class LongIteratorSpliterator implements Spliterator.OfLong {
-        static final int BATCH_UNIT = IteratorSpliterator.BATCH_UNIT;
-        static final int MAX_BATCH = IteratorSpliterator.MAX_BATCH;
         private PrimitiveIterator.OfLong it;
         private final int characteristics;
         private long est;             // size estimate
@@ -1980,11 +1961,7 @@ public final class Spliterators {
             PrimitiveIterator.OfLong i = it;
             long s = est;
             if (s > 1 && i.hasNext()) {
-                int n = batch + BATCH_UNIT;
-                if (n > s)
-                    n = (int) s;
-                if (n > MAX_BATCH)
-                    n = MAX_BATCH;
+                int n = nextBatchSize(batch, s);
                 long[] a = new long[n];
                 int j = 0;
                 do { a[j] = i.nextLong(); } while (++j < n && i.hasNext());
@@ -2029,8 +2006,6 @@ public final class Spliterators {
     }
 
     static final class DoubleIteratorSpliterator implements Spliterator.OfDouble {
-        static final int BATCH_UNIT = IteratorSpliterator.BATCH_UNIT;
-        static final int MAX_BATCH = IteratorSpliterator.MAX_BATCH;
         private PrimitiveIterator.OfDouble it;
         private final int characteristics;
         private long est;             // size estimate
@@ -2074,11 +2049,7 @@ public final class Spliterators {
             PrimitiveIterator.OfDouble i = it;
             long s = est;
             if (s > 1 && i.hasNext()) {
-                int n = batch + BATCH_UNIT;
-                if (n > s)
-                    n = (int) s;
-                if (n > MAX_BATCH)
-                    n = MAX_BATCH;
+                int n = nextBatchSize(batch, s);
                 double[] a = new double[n];
                 int j = 0;
                 do { a[j] = i.nextDouble(); } while (++j < n && i.hasNext());
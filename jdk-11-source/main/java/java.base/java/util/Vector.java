@@ -1415,6 +1415,42 @@ public class Vector<E>
         modCount++;
     }
 
+    /**
+     * Sorts this vector according to the order induced by the specified
+     * {@link Comparator}, using a parallel sort-merge of the backing
+     * array if the vector is large.  The elements are sorted in place in
+     * the backing array, with a temporary workspace no larger than the
+     * vector.  The vector's lock is held for the duration of the sort;
+     * the comparator may be invoked concurrently from other threads,
+     * which do not hold it.
+     *
+     * <p>This sort is guaranteed to be <i>stable</i>.
+     *
+     * @implNote Vectors with at most 8192 elements, or in the absence
+     * of parallelism in the {@link java.util.concurrent.ForkJoinPool#commonPool()
+     * common pool}, are sorted as by {@link #sort(Comparator)}.  Larger
+     * vectors are sorted by the algorithm of
+     * {@link Arrays#parallelSort(Object[], int, int, Comparator)}.
+     *
+     * @param c the {@code Comparator} used to compare vector elements.
+     *          A {@code null} value indicates that the elements'
+     *          {@linkplain Comparable natural ordering} should be used
+     * @throws ClassCastException if the vector contains elements that are
+     *         not <i>mutually comparable</i> using the specified comparator
+     * @throws IllegalArgumentException (optional) if the comparator is
+     *         found to violate the {@link Comparator} contract
+     * @see Collections#parallelSort(List, Comparator)
+     * @since 12
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized void parallelSort(Comparator<? super E> c) {
+        final int expectedModCount = modCount;
+        Arrays.parallelSortList((E[]) elementData, 0, elementCount, c);
+        if (modCount != expectedModCount)
+            throw new ConcurrentModificationException();
+        modCount++;
+    }
+
     /**
      * Creates a <em><a href="Spliterator.html#binding">late-binding</a></em>
      * and <em>fail-fast</em> {@link Spliterator} over the elements in this
@@ -686,6 +686,40 @@ public class ArrayBlockingQueue<E> extends AbstractQueue<E>
         }
     }
 
+    /**
+     * Inserts as many elements of the given collection at the tail of
+     * this queue as there is room for, acquiring the lock once for the
+     * whole batch.  The collection is copied, and checked for null
+     * elements, before the lock is acquired; if it contains a null
+     * element, no element is inserted.
+     *
+     * @throws NullPointerException {@inheritDoc}
+     * @throws IllegalArgumentException {@inheritDoc}
+     * @since 12
+     */
+    public int offerAll(Collection<? extends E> c) {
+        final Object[] es = Helpers.batchArray(this, c);
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            final Object[] items = this.items;
+            final int n = Math.min(es.length, items.length - count);
+            int i = putIndex;
+            for (int j = 0; j < n; j++) {
+                items[i] = es[j];
+                if (++i == items.length) i = 0;
+            }
+            putIndex = i;
+            count += n;
+            // takers do not pass signals on, so wake one per element
+            for (int j = 0; j < n && lock.hasWaiters(notEmpty); j++)
+                notEmpty.signal();
+            return n;
+        } finally {
+            lock.unlock();
+        }
+    }
+
     /**
      * @throws UnsupportedOperationException {@inheritDoc}
      * @throws ClassCastException            {@inheritDoc}
@@ -372,4 +372,47 @@ public interface BlockingQueue<E> extends Queue<E> {
      *         it from being added to the specified collection
      */
     int drainTo(Collection<? super E> c, int maxElements);
+
+    /**
+     * Inserts as many elements of the given collection into this queue
+     * as is possible immediately without violating capacity
+     * restrictions, in the order they are returned by the collection's
+     * iterator, stopping at the first element that cannot be inserted
+     * for lack of space.  Implementations may insert the whole batch
+     * under a single acquisition of their locks, rather than acquiring
+     * them once per element as with repeated calls to
+     * {@link #offer(Object) offer}.  Attempts to offer a queue
+     * to itself result in {@code IllegalArgumentException}. Further,
+     * the behavior of this operation is undefined if the specified
+     * collection is modified while the operation is in progress.
+     *
+     * @implSpec
+     * The default implementation invokes {@code offer} on each element
+     * of the collection in turn, until {@code offer} returns
+     * {@code false}.
+     *
+     * @param c the elements to insert
+     * @return the number of elements inserted
+     * @throws ClassCastException if the class of an element of the
+     *         specified collection prevents it from being added to this
+     *         queue
+     * @throws NullPointerException if the specified collection is null,
+     *         or if an element encountered before insertion stops is null;
+     *         elements preceding a null element may have been inserted
+     * @throws IllegalArgumentException if the specified collection is this
+     *         queue, or some property of an element of the specified
+     *         collection prevents it from being added to this queue
+     * @since 12
+     */
+    default int offerAll(Collection<? extends E> c) {
+        if (c == this)
+            throw new IllegalArgumentException();
+        int n = 0;
+        for (E e : c) {
+            if (!offer(e))
+                break;
+            ++n;
+        }
+        return n;
+    }
 }
@@ -0,0 +1,2100 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.io.Serializable;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A scalable concurrent {@link ConcurrentNavigableMap} implementation
+ * that stores mappings in sorted chunks of up to 32 entries, indexed by
+ * a {@link ConcurrentSkipListMap} from each chunk's lowest bound.
+ * The map is sorted according to the {@linkplain Comparable natural
+ * ordering} of its keys, or by a {@link Comparator} provided at map
+ * creation time, depending on which constructor is used.
+ *
+ * <p>Compared with {@code ConcurrentSkipListMap}, which allocates a
+ * node and, on average, a third of an index node per mapping, this class
+ * allocates index structure per chunk only, and keeps the keys and values
+ * of neighboring mappings in contiguous arrays.  Each chunk is guarded
+ * by a {@link StampedLock}: lookups read the chunk under an optimistic
+ * stamp and fall back to a read lock only if a writer intervened, while
+ * updates take the chunk's write lock, so that writers contending on
+ * nearby keys queue on the lock rather than repeatedly failing and
+ * retrying compare-and-set operations.  The {@code containsKey},
+ * {@code get}, {@code put} and {@code remove} operations and their
+ * variants run in expected average <i>log(n)</i> time.
+ *
+ * <p>Iterators and spliterators are
+ * <a href="package-summary.html#Weakly"><i>weakly consistent</i></a>.
+ * Iterators copy one chunk at a time and then resume from the last key
+ * copied, so that mappings moved between chunks by concurrent splits and
+ * merges are neither skipped nor repeated.
+ *
+ * <p>Ascending key ordered views and their iterators are faster than
+ * descending ones.
+ *
+ * <p>All {@code Map.Entry} pairs returned by methods in this class
+ * and its views represent snapshots of mappings at the time they were
+ * produced. They do <em>not</em> support the {@code Entry.setValue}
+ * method.
+ *
+ * <p>Beware that bulk operations {@code putAll}, {@code equals},
+ * {@code toArray}, {@code containsValue}, and {@code clear} are
+ * <em>not</em> guaranteed to be performed atomically, and that
+ * {@code size} is maintained by a {@link LongAdder} and so may not
+ * reflect in-progress updates.
+ *
+ * <p>Like most other concurrent collections, this class does
+ * <em>not</em> permit the use of {@code null} keys or values.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ * @see ConcurrentSkipListMap
+ * @since 12
+ */
+public class ConcurrentChunkedSkipListMap<K,V> extends AbstractMap<K,V>
+    implements ConcurrentNavigableMap<K,V>, Cloneable, Serializable {
+
+    private static final long serialVersionUID = 2250813475360972581L;
+
+    /*
+     * Overview:
+     *
+     * Mappings live in Chunks, each holding up to CHUNK_CAPACITY
+     * sorted keys and values in fixed arrays.  Chunks form a singly
+     * linked list in key order starting from the head chunk, which
+     * is never removed.  Every other chunk has an immutable lowKey;
+     * a chunk c holds the keys k with c.lowKey <= k < c.next.lowKey
+     * (the head from minus infinity).  The index maps lowKey to
+     * chunk for all chunks except the head, so the chunk responsible
+     * for a key is (at quiescence) index.floorEntry(key), or the head.
+     *
+     * Each chunk's fields (n, next, dead, and array contents) are
+     * written only under its write lock.  Concurrency control is
+     * B-link-tree style: a thread that finds a chunk through a stale
+     * index entry checks, under a validated optimistic read or a lock,
+     * that the key is still below next.lowKey, and if not moves
+     * right.  Chunks that have been merged away are marked dead and
+     * cause a fresh index lookup.
+     *
+     * A full chunk is split under its write lock: the upper half
+     * moves to a new chunk (or, for insertion past the end of the
+     * map, only the new key does), which is linked in as next and
+     * then added to the index before the lock is released.  When a
+     * removal leaves a chunk less than a quarter full, and it and its
+     * successor fit in half a chunk (or it is empty), the successor
+     * is merged into it.  Locks are only ever held on a chunk and its
+     * successor, acquired left to right, so there is no deadlock.
+     *
+     * Optimistic reads may observe arrays mid-update.  Every slot
+     * below n holds some real key unless an update is in progress, in
+     * which case a null key (from a shift or a clear) may be seen;
+     * search reports RETRY for those, and validation then fails in
+     * any case.  Arrays are never replaced, so indices stay in
+     * bounds.
+     *
+     * Navigation operations (findNear) read one chunk at a time in
+     * the same way, moving to successor chunks for higher keys and,
+     * via index.lowerEntry, to predecessors for lower ones.
+     * Iterators buffer the qualifying entries of one chunk and then
+     * resume by key, which provides weak consistency across splits
+     * and merges without tracking them.
+     */
+
+    /** Maximum number of mappings per chunk. */
+    static final int CHUNK_CAPACITY = 32;
+
+    /** Occupancy below which a removal tries to merge the successor. */
+    static final int MERGE_THRESHOLD = CHUNK_CAPACITY / 4;
+
+    /** Chunk occupancy used by bulk loading. */
+    static final int LOAD = CHUNK_CAPACITY * 3 / 4;
+
+    /** Sentinel returned by search for an inconsistent optimistic read. */
+    static final int RETRY = Integer.MIN_VALUE;
+
+    /**
+     * A run of mappings.  All mutable fields are guarded by lock.
+     */
+    static final class Chunk {
+        final StampedLock lock = new StampedLock();
+        final Object lowKey;            // null for the head chunk
+        final Object[] keys = new Object[CHUNK_CAPACITY];
+        final Object[] vals = new Object[CHUNK_CAPACITY];
+        int n;
+        Chunk next;
+        boolean dead;
+        Chunk(Object lowKey) { this.lowKey = lowKey; }
+    }
+
+    /**
+     * The comparator used to maintain order in this map, or null if
+     * using natural ordering.  (Non-private to simplify access in
+     * nested classes.)
+     * @serial
+     */
+    @SuppressWarnings("serial") // Conditionally serializable
+    final Comparator<? super K> comparator;
+
+    /** Index from lowKey to chunk, for all chunks but the head. */
+    private transient ConcurrentSkipListMap<K,Chunk> index;
+
+    /** The first chunk. */
+    private transient Chunk head;
+
+    /** Element count */
+    private transient LongAdder count;
+
+    /** Lazily initialized key set */
+    private transient KeySet<K,V> keySet;
+    /** Lazily initialized values collection */
+    private transient Values<K,V> values;
+    /** Lazily initialized entry set */
+    private transient EntrySet<K,V> entrySet;
+    /** Lazily initialized descending map */
+    private transient SubMap<K,V> descendingMap;
+
+    /**
+     * Compares using comparator or natural ordering if null.
+     * Called only by methods that have performed required type checks.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static int cpr(Comparator c, Object x, Object y) {
+        return (c != null) ? c.compare(x, y) : ((Comparable)x).compareTo(y);
+    }
+
+    /**
+     * Binary search of the first n keys, as by
+     * {@link java.util.Arrays#binarySearch(Object[], int, int, Object)},
+     * or RETRY if a null key is encountered.
+     */
+    static int search(Comparator<?> cmp, Object[] ks, int n, Object key) {
+        int lo = 0, hi = n - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            Object k = ks[mid];
+            if (k == null)
+                return RETRY;
+            int c = cpr(cmp, k, key);
+            if (c < 0)
+                lo = mid + 1;
+            else if (c > 0)
+                hi = mid - 1;
+            else
+                return mid;
+        }
+        return -(lo + 1);
+    }
+
+    private void initialize() {
+        index = new ConcurrentSkipListMap<K,Chunk>(comparator);
+        head = new Chunk(null);
+        count = new LongAdder();
+        keySet = null;
+        values = null;
+        entrySet = null;
+        descendingMap = null;
+    }
+
+    /**
+     * Returns the chunk whose lowKey is the greatest at most key,
+     * according to the index.
+     */
+    @SuppressWarnings("unchecked")
+    final Chunk chunkFor(Object key) {
+        Map.Entry<K,Chunk> e = index.floorEntry((K) key);
+        return (e == null) ? head : e.getValue();
+    }
+
+    /**
+     * Returns the chunk whose lowKey is the greatest less than key,
+     * according to the index.
+     */
+    @SuppressWarnings("unchecked")
+    final Chunk lowerChunk(Object key) {
+        Map.Entry<K,Chunk> e = index.lowerEntry((K) key);
+        return (e == null) ? head : e.getValue();
+    }
+
+    /**
+     * Returns the last chunk according to the index.
+     */
+    final Chunk lastChunk() {
+        Map.Entry<K,Chunk> e = index.lastEntry();
+        return (e == null) ? head : e.getValue();
+    }
+
+    /**
+     * Returns the live, write-locked chunk responsible for key.
+     */
+    private Chunk lockChunkFor(Object key) {
+        Comparator<? super K> cmp = comparator;
+        Chunk c = chunkFor(key);
+        for (;;) {
+            StampedLock lock = c.lock;
+            lock.writeLock();
+            Chunk nx = null;
+            boolean owned = false;
+            try {
+                if (!c.dead &&
+                    ((nx = c.next) == null || cpr(cmp, key, nx.lowKey) < 0))
+                    owned = true;
+            } finally {
+                if (!owned)
+                    lock.tryUnlockWrite();
+            }
+            if (owned)
+                return c;
+            c = (nx == null) ? chunkFor(key) : nx;
+        }
+    }
+
+    /* ---------------- Reading -------------- */
+
+    /**
+     * Gets value for key.
+     *
+     * @param key the key
+     * @return the value, or null if absent
+     */
+    @SuppressWarnings("unchecked")
+    private V doGet(Object key) {
+        if (key == null)
+            throw new NullPointerException();
+        Comparator<? super K> cmp = comparator;
+        Chunk c = chunkFor(key);
+        for (;;) {
+            StampedLock lock = c.lock;
+            long stamp = lock.tryOptimisticRead();
+            boolean locked = false, dead;
+            Chunk nx;
+            Object v;
+            try {
+                for (;;) {
+                    dead = c.dead;
+                    nx = c.next;
+                    int i = search(cmp, c.keys, c.n, key);
+                    v = (i >= 0) ? c.vals[i] : null;
+                    if (locked || lock.validate(stamp))
+                        break;
+                    stamp = lock.readLock();
+                    locked = true;
+                }
+            } finally {
+                if (locked)
+                    lock.unlockRead(stamp);
+            }
+            if (dead)
+                c = chunkFor(key);
+            else if (nx != null && cpr(cmp, key, nx.lowKey) >= 0)
+                c = nx;
+            else
+                return (V) v;
+        }
+    }
+
+    /** Relations for findNear */
+    static final int LT = 0, LE = 1, EQ = 2, GE = 3, GT = 4;
+
+    /**
+     * Returns a snapshot of the mapping for the greatest key less than
+     * (LT) or at most (LE), equal to (EQ), or the least key at least
+     * (GE) or greater than (GT) the given key, or null if none.  A null
+     * key with GE or LE finds the first or last mapping respectively.
+     */
+    @SuppressWarnings("unchecked")
+    final AbstractMap.SimpleImmutableEntry<K,V> findNear(Object key, int rel) {
+        Comparator<? super K> cmp = comparator;
+        boolean up = (rel > EQ);
+        Chunk c = (key != null) ? chunkFor(key) : up ? head : lastChunk();
+        for (;;) {
+            StampedLock lock = c.lock;
+            long stamp = lock.tryOptimisticRead();
+            boolean locked = false, dead;
+            Chunk nx;
+            Object k, v;
+            try {
+                for (;;) {
+                    dead = c.dead;
+                    nx = c.next;
+                    int n = c.n, idx;
+                    k = v = null;
+                    if (key == null)
+                        idx = up ? 0 : n - 1;
+                    else {
+                        int i = search(cmp, c.keys, n, key);
+                        if (i == RETRY)
+                            idx = -1;
+                        else if (i >= 0)
+                            idx = (rel == LT) ? i - 1 : (rel == GT) ? i + 1 : i;
+                        else {
+                            i = -(i + 1);
+                            idx = (rel == EQ) ? -1 : up ? i : i - 1;
+                        }
+                    }
+                    if (idx >= 0 && idx < n) {
+                        k = c.keys[idx];
+                        v = c.vals[idx];
+                    }
+                    if (locked || lock.validate(stamp))
+                        break;
+                    stamp = lock.readLock();
+                    locked = true;
+                }
+            } finally {
+                if (locked)
+                    lock.unlockRead(stamp);
+            }
+            if (dead) {
+                c = (key != null) ? chunkFor(key) : up ? head : lastChunk();
+                continue;
+            }
+            if (nx != null) {
+                int d;
+                if ((key == null) ? !up :
+                    (d = cpr(cmp, key, nx.lowKey)) > 0 || (d == 0 && rel != LT)) {
+                    c = nx;          // range moved right
+                    continue;
+                }
+            }
+            if (k != null)
+                return new AbstractMap.SimpleImmutableEntry<K,V>((K)k, (V)v);
+            if (rel == EQ)
+                return null;
+            if (up) {                // all keys of successors are greater
+                if ((c = nx) == null)
+                    return null;
+            } else {                 // all keys of predecessors are less
+                if (c.lowKey == null)
+                    return null;
+                key = c.lowKey;
+                rel = LT;
+                c = lowerChunk(key);
+            }
+        }
+    }
+
+    /* ---------------- Writing -------------- */
+
+    /**
+     * Inserts into locked chunk c at position i, splitting if full.
+     */
+    @SuppressWarnings("unchecked")
+    private void insert(Chunk c, int i, Object key, Object value) {
+        int n = c.n;
+        if (n < CHUNK_CAPACITY) {
+            insertAt(c, i, key, value);
+            return;
+        }
+        boolean append = (i == n && c.next == null);
+        int keep = append ? n : n >>> 1;
+        Chunk r = new Chunk(append ? key : c.keys[keep]);
+        int moved = n - keep;
+        System.arraycopy(c.keys, keep, r.keys, 0, moved);
+        System.arraycopy(c.vals, keep, r.vals, 0, moved);
+        r.n = moved;
+        for (int j = keep; j < n; j++)
+            c.keys[j] = c.vals[j] = null;
+        c.n = keep;
+        if (append || i > keep)
+            insertAt(r, i - keep, key, value);
+        else
+            insertAt(c, i, key, value);
+        r.next = c.next;
+        c.next = r;
+        index.put((K) r.lowKey, r);
+    }
+
+    private static void insertAt(Chunk c, int i, Object key, Object value) {
+        int n = c.n;
+        System.arraycopy(c.keys, i, c.keys, i + 1, n - i);
+        System.arraycopy(c.vals, i, c.vals, i + 1, n - i);
+        c.keys[i] = key;
+        c.vals[i] = value;
+        c.n = n + 1;
+    }
+
+    private static void removeAt(Chunk c, int i) {
+        int n = c.n - 1;
+        System.arraycopy(c.keys, i + 1, c.keys, i, n - i);
+        System.arraycopy(c.vals, i + 1, c.vals, i, n - i);
+        c.keys[n] = c.vals[n] = null;
+        c.n = n;
+    }
+
+    /**
+     * Merges the successor of locked chunk c into c if both fit in
+     * half a chunk, or if c is empty.
+     */
+    private void tryMergeNext(Chunk c) {
+        Chunk nx = c.next;
+        StampedLock lock = nx.lock;
+        lock.writeLock();
+        try {
+            int n = c.n, m = nx.n;
+            if (n == 0 || n + m <= CHUNK_CAPACITY / 2) {
+                System.arraycopy(nx.keys, 0, c.keys, n, m);
+                System.arraycopy(nx.vals, 0, c.vals, n, m);
+                c.n = n + m;
+                nx.dead = true;
+                c.next = nx.next;
+                index.remove(nx.lowKey, nx);
+            }
+        } finally {
+            lock.tryUnlockWrite();
+        }
+    }
+
+    /**
+     * Main insertion method.  Adds element if not present, or
+     * replaces value if present and onlyIfAbsent is false.
+     *
+     * @param key the key
+     * @param value the value that must be associated with key
+     * @param onlyIfAbsent if should not insert if already present
+     * @return the old value, or null if newly inserted
+     */
+    @SuppressWarnings("unchecked")
+    private V doPut(K key, V value, boolean onlyIfAbsent) {
+        if (key == null || value == null)
+            throw new NullPointerException();
+        Chunk c = lockChunkFor(key);
+        try {
+            int i = search(comparator, c.keys, c.n, key);
+            if (i >= 0) {
+                V old = (V) c.vals[i];
+                if (!onlyIfAbsent)
+                    c.vals[i] = value;
+                return old;
+            }
+            insert(c, -(i + 1), key, value);
+        } finally {
+            c.lock.tryUnlockWrite();
+        }
+        count.increment();
+        return null;
+    }
+
+    /**
+     * Main deletion method.  Removes the mapping for key if present
+     * and, if value is non-null, mapped to a value equal to it.
+     *
+     * @param key the key
+     * @param value if non-null, the value that must be
+     * associated with key
+     * @return the removed value, or null if not found
+     */
+    @SuppressWarnings("unchecked")
+    final V doRemove(Object key, Object value) {
+        if (key == null)
+            throw new NullPointerException();
+        Chunk c = lockChunkFor(key);
+        V old;
+        try {
+            int i = search(comparator, c.keys, c.n, key);
+            if (i < 0)
+                return null;
+            old = (V) c.vals[i];
+            if (value != null && !value.equals(old))
+                return null;
+            removeAt(c, i);
+            if (c.n < MERGE_THRESHOLD && c.next != null)
+                tryMergeNext(c);
+        } finally {
+            c.lock.tryUnlockWrite();
+        }
+        count.decrement();
+        return old;
+    }
+
+    /**
+     * Replaces the value for key if present and, if expected is
+     * non-null, currently mapped to a value equal to it.
+     *
+     * @return the previous value, or null if not replaced
+     */
+    @SuppressWarnings("unchecked")
+    private V doReplace(K key, Object expected, V value) {
+        if (key == null || value == null)
+            throw new NullPointerException();
+        Chunk c = lockChunkFor(key);
+        try {
+            int i = search(comparator, c.keys, c.n, key);
+            if (i < 0)
+                return null;
+            V old = (V) c.vals[i];
+            if (expected != null && !expected.equals(old))
+                return null;
+            c.vals[i] = value;
+            return old;
+        } finally {
+            c.lock.tryUnlockWrite();
+        }
+    }
+
+    /* ---------------- Constructors -------------- */
+
+    /**
+     * Constructs a new, empty map, sorted according to the
+     * {@linkplain Comparable natural ordering} of the keys.
+     */
+    public ConcurrentChunkedSkipListMap() {
+        this.comparator = null;
+        initialize();
+    }
+
+    /**
+     * Constructs a new, empty map, sorted according to the specified
+     * comparator.
+     *
+     * @param comparator the comparator that will be used to order this map.
+     *        If {@code null}, the {@linkplain Comparable natural
+     *        ordering} of the keys will be used.
+     */
+    public ConcurrentChunkedSkipListMap(Comparator<? super K> comparator) {
+        this.comparator = comparator;
+        initialize();
+    }
+
+    /**
+     * Constructs a new map containing the same mappings as the given map,
+     * sorted according to the {@linkplain Comparable natural ordering} of
+     * the keys.
+     *
+     * @param  m the map whose mappings are to be placed in this map
+     * @throws ClassCastException if the keys in {@code m} are not
+     *         {@link Comparable}, or are not mutually comparable
+     * @throws NullPointerException if the specified map or any of its keys
+     *         or values are null
+     */
+    public ConcurrentChunkedSkipListMap(Map<? extends K, ? extends V> m) {
+        this.comparator = null;
+        initialize();
+        putAll(m);
+    }
+
+    /**
+     * Constructs a new map containing the same mappings and using the
+     * same ordering as the specified sorted map.  Chunks are filled to
+     * three quarters of capacity in linear time.
+     *
+     * @param m the sorted map whose mappings are to be placed in this
+     *        map, and whose comparator is to be used to sort this map
+     * @throws NullPointerException if the specified sorted map or any of
+     *         its keys or values are null
+     */
+    public ConcurrentChunkedSkipListMap(SortedMap<K, ? extends V> m) {
+        this.comparator = m.comparator();
+        initialize();
+        Chunk tail = head;
+        for (Map.Entry<? extends K, ? extends V> e : m.entrySet())
+            tail = append(tail, e.getKey(), e.getValue());
+    }
+
+    /**
+     * Appends a mapping with a key greater than all present during
+     * single-threaded construction, returning the new last chunk.
+     */
+    private Chunk append(Chunk tail, K k, V v) {
+        if (k == null || v == null)
+            throw new NullPointerException();
+        if (tail.n == LOAD) {
+            Chunk c = new Chunk(k);
+            tail.next = c;
+            index.put(k, c);
+            tail = c;
+        }
+        tail.keys[tail.n] = k;
+        tail.vals[tail.n++] = v;
+        count.increment();
+        return tail;
+    }
+
+    /**
+     * Returns a shallow copy of this {@code ConcurrentChunkedSkipListMap}
+     * instance. (The keys and values themselves are not cloned.)
+     *
+     * @return a shallow copy of this map
+     */
+    @SuppressWarnings("unchecked")
+    public ConcurrentChunkedSkipListMap<K,V> clone() {
+        try {
+            ConcurrentChunkedSkipListMap<K,V> clone =
+                (ConcurrentChunkedSkipListMap<K,V>) super.clone();
+            clone.initialize();
+            Chunk tail = clone.head;
+            for (Iterator<Map.Entry<K,V>> it = rangeIterator(null, ENTRIES, false);
+                 it.hasNext(); ) {
+                Map.Entry<K,V> e = it.next();
+                tail = clone.append(tail, e.getKey(), e.getValue());
+            }
+            return clone;
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError();
+        }
+    }
+
+    /* ---------------- Serialization -------------- */
+
+    /**
+     * Saves this map to a stream (that is, serializes it).
+     *
+     * @param s the stream
+     * @throws java.io.IOException if an I/O error occurs
+     * @serialData The key (Object) and value (Object) for each
+     * key-value mapping represented by the map, followed by
+     * {@code null}. The key-value mappings are emitted in key-order
+     * (as determined by the Comparator, or by the keys' natural
+     * ordering if no Comparator).
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws java.io.IOException {
+        // Write out the Comparator and any hidden stuff
+        s.defaultWriteObject();
+
+        // Write out keys and values (alternating)
+        for (Iterator<Map.Entry<K,V>> it = rangeIterator(null, ENTRIES, false);
+             it.hasNext(); ) {
+            Map.Entry<K,V> e = it.next();
+            s.writeObject(e.getKey());
+            s.writeObject(e.getValue());
+        }
+        s.writeObject(null);
+    }
+
+    /**
+     * Reconstitutes this map from a stream (that is, deserializes it).
+     * @param s the stream
+     * @throws ClassNotFoundException if the class of a serialized object
+     *         could not be found
+     * @throws java.io.IOException if an I/O error occurs
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(final java.io.ObjectInputStream s)
+        throws java.io.IOException, ClassNotFoundException {
+        // Read in the Comparator and any hidden stuff
+        s.defaultReadObject();
+        initialize();
+        Comparator<? super K> cmp = comparator;
+        Chunk tail = head;
+        K prevKey = null;
+        for (;;) {
+            K k = (K)s.readObject();
+            if (k == null)
+                break;
+            V v = (V)s.readObject();
+            if (prevKey != null && cpr(cmp, prevKey, k) >= 0)
+                throw new IllegalStateException("out of order");
+            prevKey = k;
+            tail = append(tail, k, v);
+        }
+    }
+
+    /* ------ Map API methods ------ */
+
+    /**
+     * Returns {@code true} if this map contains a mapping for the specified
+     * key.
+     *
+     * @param key key whose presence in this map is to be tested
+     * @return {@code true} if this map contains a mapping for the specified key
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     */
+    public boolean containsKey(Object key) {
+        return doGet(key) != null;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped,
+     * or {@code null} if this map contains no mapping for the key.
+     *
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     */
+    public V get(Object key) {
+        return doGet(key);
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped,
+     * or the given defaultValue if this map contains no mapping for the key.
+     *
+     * @param key the key
+     * @param defaultValue the value to return if this map contains
+     * no mapping for the given key
+     * @return the mapping for the key, if present; else the defaultValue
+     * @throws NullPointerException if the specified key is null
+     */
+    public V getOrDefault(Object key, V defaultValue) {
+        V v;
+        return (v = doGet(key)) == null ? defaultValue : v;
+    }
+
+    /**
+     * Associates the specified value with the specified key in this map.
+     * If the map previously contained a mapping for the key, the old
+     * value is replaced.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with the specified key, or
+     *         {@code null} if there was no mapping for the key
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key or value is null
+     */
+    public V put(K key, V value) {
+        return doPut(key, value, false);
+    }
+
+    /**
+     * Removes the mapping for the specified key from this map if present.
+     *
+     * @param  key key for which mapping should be removed
+     * @return the previous value associated with the specified key, or
+     *         {@code null} if there was no mapping for the key
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     */
+    public V remove(Object key) {
+        return doRemove(key, null);
+    }
+
+    /**
+     * Returns {@code true} if this map maps one or more keys to the
+     * specified value.  This operation requires time linear in the
+     * map size.
+     *
+     * @param value value whose presence in this map is to be tested
+     * @return {@code true} if a mapping to {@code value} exists;
+     *         {@code false} otherwise
+     * @throws NullPointerException if the specified value is null
+     */
+    public boolean containsValue(Object value) {
+        if (value == null)
+            throw new NullPointerException();
+        for (Iterator<V> it = rangeIterator(null, VALUES, false); it.hasNext(); )
+            if (value.equals(it.next()))
+                return true;
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The count is maintained in a {@link LongAdder}, so this method
+     * does not traverse the map, but may not reflect concurrent updates.
+     */
+    public int size() {
+        long c = count.sum();
+        return ((c >= Integer.MAX_VALUE) ? Integer.MAX_VALUE :
+                (c < 0L) ? 0 : (int)c);
+    }
+
+    /**
+     * Returns {@code true} if this map contains no key-value mappings.
+     * @return {@code true} if this map contains no key-value mappings
+     */
+    public boolean isEmpty() {
+        return findNear(null, GE) == null;
+    }
+
+    /**
+     * Removes all of the mappings from this map.
+     */
+    public void clear() {
+        Chunk h = head;
+        h.lock.writeLock();
+        try {
+            count.add(-h.n);
+            for (int i = 0; i < h.n; i++)
+                h.keys[i] = h.vals[i] = null;
+            h.n = 0;
+            for (Chunk nx; (nx = h.next) != null; ) {
+                StampedLock lock = nx.lock;
+                lock.writeLock();
+                try {
+                    count.add(-nx.n);
+                    nx.dead = true;
+                    h.next = nx.next;
+                    index.remove(nx.lowKey, nx);
+                } finally {
+                    lock.tryUnlockWrite();
+                }
+            }
+        } finally {
+            h.lock.tryUnlockWrite();
+        }
+    }
+
+    /* ------ ConcurrentMap API methods ------ */
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return the previous value associated with the specified key,
+     *         or {@code null} if there was no mapping for the key
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key or value is null
+     */
+    public V putIfAbsent(K key, V value) {
+        return doPut(key, value, true);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key is null
+     */
+    public boolean remove(Object key, Object value) {
+        if (key == null)
+            throw new NullPointerException();
+        return value != null && doRemove(key, value) != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if any of the arguments are null
+     */
+    public boolean replace(K key, V oldValue, V newValue) {
+        if (oldValue == null)
+            throw new NullPointerException();
+        return doReplace(key, oldValue, newValue) != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return the previous value associated with the specified key,
+     *         or {@code null} if there was no mapping for the key
+     * @throws ClassCastException if the specified key cannot be compared
+     *         with the keys currently in the map
+     * @throws NullPointerException if the specified key or value is null
+     */
+    public V replace(K key, V value) {
+        return doReplace(key, null, value);
+    }
+
+    /* ------ SortedMap API methods ------ */
+
+    public Comparator<? super K> comparator() {
+        return comparator;
+    }
+
+    /**
+     * @throws NoSuchElementException {@inheritDoc}
+     */
+    public K firstKey() {
+        Map.Entry<K,V> e = findNear(null, GE);
+        if (e == null)
+            throw new NoSuchElementException();
+        return e.getKey();
+    }
+
+    /**
+     * @throws NoSuchElementException {@inheritDoc}
+     */
+    public K lastKey() {
+        Map.Entry<K,V> e = findNear(null, LE);
+        if (e == null)
+            throw new NoSuchElementException();
+        return e.getKey();
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if {@code fromKey} or {@code toKey} is null
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public ConcurrentNavigableMap<K,V> subMap(K fromKey,
+                                              boolean fromInclusive,
+                                              K toKey,
+                                              boolean toInclusive) {
+        if (fromKey == null || toKey == null)
+            throw new NullPointerException();
+        return new SubMap<K,V>
+            (this, fromKey, fromInclusive, toKey, toInclusive, false);
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if {@code toKey} is null
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public ConcurrentNavigableMap<K,V> headMap(K toKey,
+                                               boolean inclusive) {
+        if (toKey == null)
+            throw new NullPointerException();
+        return new SubMap<K,V>
+            (this, null, false, toKey, inclusive, false);
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if {@code fromKey} is null
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public ConcurrentNavigableMap<K,V> tailMap(K fromKey,
+                                               boolean inclusive) {
+        if (fromKey == null)
+            throw new NullPointerException();
+        return new SubMap<K,V>
+            (this, fromKey, inclusive, null, false, false);
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if {@code fromKey} or {@code toKey} is null
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public ConcurrentNavigableMap<K,V> subMap(K fromKey, K toKey) {
+        return subMap(fromKey, true, toKey, false);
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if {@code toKey} is null
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public ConcurrentNavigableMap<K,V> headMap(K toKey) {
+        return headMap(toKey, false);
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if {@code fromKey} is null
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public ConcurrentNavigableMap<K,V> tailMap(K fromKey) {
+        return tailMap(fromKey, true);
+    }
+
+    /* ---------------- Relational operations -------------- */
+
+    /**
+     * Returns a key-value mapping associated with the greatest key
+     * strictly less than the given key, or {@code null} if there is
+     * no such key. The returned entry does <em>not</em> support the
+     * {@code Entry.setValue} method.
+     *
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     */
+    public Map.Entry<K,V> lowerEntry(K key) {
+        return findNear(requireKey(key), LT);
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     */
+    public K lowerKey(K key) {
+        return keyOrNull(findNear(requireKey(key), LT));
+    }
+
+    /**
+     * Returns a key-value mapping associated with the greatest key
+     * less than or equal to the given key, or {@code null} if there
+     * is no such key. The returned entry does <em>not</em> support
+     * the {@code Entry.setValue} method.
+     *
+     * @param key the key
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     */
+    public Map.Entry<K,V> floorEntry(K key) {
+        return findNear(requireKey(key), LE);
+    }
+
+    /**
+     * @param key the key
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     */
+    public K floorKey(K key) {
+        return keyOrNull(findNear(requireKey(key), LE));
+    }
+
+    /**
+     * Returns a key-value mapping associated with the least key
+     * greater than or equal to the given key, or {@code null} if
+     * there is no such entry. The returned entry does <em>not</em>
+     * support the {@code Entry.setValue} method.
+     *
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     */
+    public Map.Entry<K,V> ceilingEntry(K key) {
+        return findNear(requireKey(key), GE);
+    }
+
+    /**
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     */
+    public K ceilingKey(K key) {
+        return keyOrNull(findNear(requireKey(key), GE));
+    }
+
+    /**
+     * Returns a key-value mapping associated with the least key
+     * strictly greater than the given key, or {@code null} if there
+     * is no such key. The returned entry does <em>not</em> support
+     * the {@code Entry.setValue} method.
+     *
+     * @param key the key
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     */
+    public Map.Entry<K,V> higherEntry(K key) {
+        return findNear(requireKey(key), GT);
+    }
+
+    /**
+     * @param key the key
+     * @throws ClassCastException {@inheritDoc}
+     * @throws NullPointerException if the specified key is null
+     */
+    public K higherKey(K key) {
+        return keyOrNull(findNear(requireKey(key), GT));
+    }
+
+    /**
+     * Returns a key-value mapping associated with the least
+     * key in this map, or {@code null} if the map is empty.
+     * The returned entry does <em>not</em> support
+     * the {@code Entry.setValue} method.
+     */
+    public Map.Entry<K,V> firstEntry() {
+        return findNear(null, GE);
+    }
+
+    /**
+     * Returns a key-value mapping associated with the greatest
+     * key in this map, or {@code null} if the map is empty.
+     * The returned entry does <em>not</em> support
+     * the {@code Entry.setValue} method.
+     */
+    public Map.Entry<K,V> lastEntry() {
+        return findNear(null, LE);
+    }
+
+    /**
+     * Removes and returns a key-value mapping associated with
+     * the least key in this map, or {@code null} if the map is empty.
+     * The returned entry does <em>not</em> support
+     * the {@code Entry.setValue} method.
+     */
+    public Map.Entry<K,V> pollFirstEntry() {
+        return pollNear(null, GE);
+    }
+
+    /**
+     * Removes and returns a key-value mapping associated with
+     * the greatest key in this map, or {@code null} if the map is empty.
+     * The returned entry does <em>not</em> support
+     * the {@code Entry.setValue} method.
+     */
+    public Map.Entry<K,V> pollLastEntry() {
+        return pollNear(null, LE);
+    }
+
+    /**
+     * Removes and returns the mapping found by findNear(key, rel),
+     * retrying if it is concurrently removed or replaced.
+     */
+    final Map.Entry<K,V> pollNear(Object key, int rel) {
+        for (Map.Entry<K,V> e; (e = findNear(key, rel)) != null; ) {
+            if (doRemove(e.getKey(), e.getValue()) != null)
+                return e;
+        }
+        return null;
+    }
+
+    private static Object requireKey(Object key) {
+        if (key == null)
+            throw new NullPointerException();
+        return key;
+    }
+
+    static <K> K keyOrNull(Map.Entry<K,?> e) {
+        return (e == null) ? null : e.getKey();
+    }
+
+    /* ---------------- Views -------------- */
+
+    /**
+     * Returns a {@link NavigableSet} view of the keys contained in this map.
+     *
+     * <p>The set's iterator returns the keys in ascending order.
+     * The set's spliterator additionally reports {@link Spliterator#CONCURRENT},
+     * {@link Spliterator#NONNULL}, {@link Spliterator#SORTED} and
+     * {@link Spliterator#ORDERED}, with an encounter order that is ascending
+     * key order, and splits at chunk boundaries.
+     *
+     * <p>The view's iterators and spliterators are
+     * <a href="package-summary.html#Weakly"><i>weakly consistent</i></a>.
+     *
+     * @return a navigable set view of the keys in this map
+     */
+    public NavigableSet<K> keySet() {
+        KeySet<K,V> ks;
+        if ((ks = keySet) != null) return ks;
+        return keySet = new KeySet<>(this, null);
+    }
+
+    public NavigableSet<K> navigableKeySet() {
+        return keySet();
+    }
+
+    /**
+     * Returns a {@link Collection} view of the values contained in this map.
+     * The collection's iterator returns the values in ascending order
+     * of the corresponding keys.
+     *
+     * <p>The view's iterators and spliterators are
+     * <a href="package-summary.html#Weakly"><i>weakly consistent</i></a>.
+     */
+    public Collection<V> values() {
+        Values<K,V> vs;
+        if ((vs = values) != null) return vs;
+        return values = new Values<>(this, null);
+    }
+
+    /**
+     * Returns a {@link Set} view of the mappings contained in this map.
+     * The set's iterator returns the entries in ascending key order.
+     * The {@code Map.Entry} elements traversed by the {@code iterator}
+     * or {@code spliterator} do <em>not</em> support the {@code setValue}
+     * operation.
+     *
+     * <p>The view's iterators and spliterators are
+     * <a href="package-summary.html#Weakly"><i>weakly consistent</i></a>.
+     *
+     * @return a set view of the mappings contained in this map,
+     *         sorted in ascending key order
+     */
+    public Set<Map.Entry<K,V>> entrySet() {
+        EntrySet<K,V> es;
+        if ((es = entrySet) != null) return es;
+        return entrySet = new EntrySet<K,V>(this, null);
+    }
+
+    public ConcurrentNavigableMap<K,V> descendingMap() {
+        ConcurrentNavigableMap<K,V> dm;
+        if ((dm = descendingMap) != null) return dm;
+        return descendingMap =
+            new SubMap<K,V>(this, null, false, null, false, true);
+    }
+
+    public NavigableSet<K> descendingKeySet() {
+        return descendingMap().navigableKeySet();
+    }
+
+    /** Element kinds of iterators and spliterators */
+    static final int KEYS = 0, VALUES = 1, ENTRIES = 2;
+
+    /**
+     * Returns an iterator of the given kind over the whole map (s ==
+     * null) or view s, in the view's order or its reverse.
+     */
+    final <T> Iterator<T> rangeIterator(SubMap<K,V> s, int kind,
+                                        boolean reverse) {
+        if (s == null)
+            return new Iter<T>(null, false, null, false, reverse, kind);
+        return new Iter<T>(s.lo, s.loInclusive, s.hi, s.hiInclusive,
+                           s.isDescending ^ reverse, kind);
+    }
+
+    /**
+     * Returns a spliterator of the given kind over the whole map (s ==
+     * null) or view s.  Descending views are not split.
+     */
+    final <T> Spliterator<T> rangeSpliterator(SubMap<K,V> s, int kind) {
+        int chars = Spliterator.CONCURRENT | Spliterator.ORDERED |
+            Spliterator.NONNULL;
+        if (s == null)
+            return new ChunkSpliterator<T>(null, false, null, false, kind);
+        if (s.isDescending)
+            return Spliterators.spliteratorUnknownSize(
+                rangeIterator(s, kind, false),
+                (kind == VALUES) ? chars : chars | Spliterator.DISTINCT);
+        return new ChunkSpliterator<T>(s.lo, s.loInclusive,
+                                       s.hi, s.hiInclusive, kind);
+    }
+
+    /**
+     * Weakly consistent iterator over a key range.  Entries of one
+     * chunk at a time are copied into a buffer under the chunk's read
+     * lock; the next refill resumes strictly after (or, descending,
+     * before) the last key buffered.  Bounds are null if absent.
+     */
+    final class Iter<T> implements Iterator<T> {
+        final Object lo, hi;
+        final boolean loInclusive, hiInclusive;
+        final boolean descending;
+        final int kind;
+        final Object[] bk = new Object[CHUNK_CAPACITY];
+        final Object[] bv = new Object[CHUNK_CAPACITY];
+        int pos, len;
+        /** Refill position: resume after (before) this key, if non-null */
+        Object from;
+        boolean fromInclusive;
+        boolean exhausted;
+        Object nextKey, nextValue;
+        Object lastReturned;
+
+        Iter(Object lo, boolean loInclusive, Object hi, boolean hiInclusive,
+             boolean descending, int kind) {
+            this.lo = lo;
+            this.loInclusive = loInclusive;
+            this.hi = hi;
+            this.hiInclusive = hiInclusive;
+            this.descending = descending;
+            this.kind = kind;
+            if (descending) {
+                from = hi;
+                fromInclusive = hiInclusive;
+            } else {
+                from = lo;
+                fromInclusive = loInclusive;
+            }
+            advance();
+        }
+
+        public final boolean hasNext() {
+            return nextKey != null;
+        }
+
+        @SuppressWarnings("unchecked")
+        public T next() {
+            Object k, v;
+            if ((k = nextKey) == null)
+                throw new NoSuchElementException();
+            v = nextValue;
+            lastReturned = k;
+            advance();
+            switch (kind) {
+            case KEYS:   return (T) k;
+            case VALUES: return (T) v;
+            default:     return (T) new AbstractMap.SimpleImmutableEntry<>(k, v);
+            }
+        }
+
+        public final void remove() {
+            Object k;
+            if ((k = lastReturned) == null)
+                throw new IllegalStateException();
+            doRemove(k, null);
+            lastReturned = null;
+        }
+
+        final void advance() {
+            Comparator<? super K> cmp = comparator;
+            for (;;) {
+                if (pos < len) {
+                    Object k = bk[pos], v = bv[pos];
+                    bk[pos] = bv[pos] = null;
+                    pos++;
+                    int c;
+                    if (descending ?
+                        lo != null && ((c = cpr(cmp, k, lo)) < 0 || (c == 0 && !loInclusive)) :
+                        hi != null && ((c = cpr(cmp, k, hi)) > 0 || (c == 0 && !hiInclusive))) {
+                        exhausted = true;
+                        pos = len = 0;
+                        break;
+                    }
+                    nextKey = k;
+                    nextValue = v;
+                    return;
+                }
+                if (exhausted)
+                    break;
+                if (descending)
+                    refillDescending();
+                else
+                    refillAscending();
+            }
+            nextKey = nextValue = null;
+        }
+
+        private void refillAscending() {
+            Comparator<? super K> cmp = comparator;
+            Object f = from;
+            boolean incl = fromInclusive;
+            Chunk c = (f == null) ? head : chunkFor(f);
+            for (;;) {
+                StampedLock lock = c.lock;
+                long stamp = lock.readLock();
+                boolean dead, right = false;
+                Chunk nx;
+                int cnt = 0;
+                try {
+                    dead = c.dead;
+                    nx = c.next;
+                    if (!dead) {
+                        if (f != null && nx != null && cpr(cmp, f, nx.lowKey) >= 0)
+                            right = true;
+                        else {
+                            int n = c.n, i = 0;
+                            if (f != null) {
+                                i = search(cmp, c.keys, n, f);
+                                i = (i >= 0) ? (incl ? i : i + 1) : -(i + 1);
+                            }
+                            cnt = n - i;
+                            System.arraycopy(c.keys, i, bk, 0, cnt);
+                            System.arraycopy(c.vals, i, bv, 0, cnt);
+                        }
+                    }
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+                if (dead)
+                    c = (f == null) ? head : chunkFor(f);
+                else if (right)
+                    c = nx;
+                else if (cnt > 0) {
+                    pos = 0;
+                    len = cnt;
+                    from = bk[cnt - 1];
+                    fromInclusive = false;
+                    exhausted = (nx == null);
+                    return;
+                } else if (nx == null) {
+                    exhausted = true;
+                    return;
+                } else
+                    c = nx;
+            }
+        }
+
+        private void refillDescending() {
+            Comparator<? super K> cmp = comparator;
+            Object t = from;
+            boolean incl = fromInclusive;
+            Chunk c = (t == null) ? lastChunk() : chunkFor(t);
+            for (;;) {
+                StampedLock lock = c.lock;
+                long stamp = lock.readLock();
+                boolean dead, right = false;
+                Chunk nx;
+                int cnt = 0, d;
+                try {
+                    dead = c.dead;
+                    nx = c.next;
+                    if (!dead) {
+                        if (nx != null &&
+                            (t == null || (d = cpr(cmp, nx.lowKey, t)) < 0 ||
+                             (d == 0 && incl)))
+                            right = true;
+                        else {
+                            int n = c.n, end = n;
+                            if (t != null) {
+                                int i = search(cmp, c.keys, n, t);
+                                end = (i >= 0) ? (incl ? i + 1 : i) : -(i + 1);
+                            }
+                            for (int j = 0; j < end; j++) {
+                                bk[j] = c.keys[end - 1 - j];
+                                bv[j] = c.vals[end - 1 - j];
+                            }
+                            cnt = end;
+                        }
+                    }
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+                if (dead)
+                    c = (t == null) ? lastChunk() : chunkFor(t);
+                else if (right)
+                    c = nx;
+                else if (cnt > 0) {
+                    pos = 0;
+                    len = cnt;
+                    from = bk[cnt - 1];
+                    fromInclusive = false;
+                    exhausted = (c.lowKey == null);
+                    return;
+                } else if (c.lowKey == null) {
+                    exhausted = true;
+                    return;
+                } else {
+                    t = c.lowKey;
+                    incl = false;
+                    c = lowerChunk(t);
+                }
+            }
+        }
+    }
+
+    /**
+     * Spliterator over a key range.  On first split, the lowKeys of the
+     * chunks strictly inside the range are collected from the index;
+     * splits then divide that array, so that each part covers whole
+     * chunks.  Traversal uses an ascending Iter over the part's range.
+     */
+    final class ChunkSpliterator<T> implements Spliterator<T> {
+        Object lo, hi;              // bounds; null if absent
+        boolean loInclusive, hiInclusive;
+        final int kind;
+        Object[] bounds;            // chunk lowKeys inside the range
+        int boundsLo, boundsHi;     // usable split points
+        long est;
+        Iter<T> it;                 // non-null once traversal starts
+
+        ChunkSpliterator(Object lo, boolean loInclusive,
+                         Object hi, boolean hiInclusive, int kind) {
+            this.lo = lo;
+            this.loInclusive = loInclusive;
+            this.hi = hi;
+            this.hiInclusive = hiInclusive;
+            this.kind = kind;
+            this.est = count.sum();
+        }
+
+        @SuppressWarnings("unchecked")
+        public Spliterator<T> trySplit() {
+            if (it != null)
+                return null;
+            Object[] bs;
+            if ((bs = bounds) == null) {
+                Comparator<? super K> cmp = comparator;
+                NavigableSet<K> ks = index.keySet();
+                if (lo != null && hi != null) {
+                    if (cpr(cmp, lo, hi) >= 0)
+                        return null;
+                    ks = ks.subSet((K) lo, false, (K) hi, false);
+                } else if (lo != null)
+                    ks = ks.tailSet((K) lo, false);
+                else if (hi != null)
+                    ks = ks.headSet((K) hi, false);
+                bounds = bs = ks.toArray();
+                boundsLo = 0;
+                boundsHi = bs.length;
+            }
+            int blo = boundsLo, bhi = boundsHi;
+            if (blo >= bhi)
+                return null;
+            int mid = (blo + bhi) >>> 1;
+            Object split = bs[mid];
+            ChunkSpliterator<T> prefix =
+                new ChunkSpliterator<T>(lo, loInclusive, split, false, kind);
+            prefix.bounds = bs;
+            prefix.boundsLo = blo;
+            prefix.boundsHi = mid;
+            prefix.est = est >>>= 1;
+            lo = split;
+            loInclusive = true;
+            boundsLo = mid + 1;
+            return prefix;
+        }
+
+        public void forEachRemaining(Consumer<? super T> action) {
+            if (action == null) throw new NullPointerException();
+            Iter<T> i = iter();
+            while (i.hasNext())
+                action.accept(i.next());
+        }
+
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (action == null) throw new NullPointerException();
+            Iter<T> i = iter();
+            if (!i.hasNext())
+                return false;
+            action.accept(i.next());
+            return true;
+        }
+
+        private Iter<T> iter() {
+            Iter<T> i;
+            if ((i = it) == null)
+                it = i = new Iter<T>(lo, loInclusive, hi, hiInclusive,
+                                     false, kind);
+            return i;
+        }
+
+        public long estimateSize() {
+            return est;
+        }
+
+        public int characteristics() {
+            return (kind == VALUES)
+                ? Spliterator.CONCURRENT | Spliterator.ORDERED |
+                  Spliterator.NONNULL
+                : Spliterator.DISTINCT | Spliterator.SORTED |
+                  Spliterator.ORDERED | Spliterator.CONCURRENT |
+                  Spliterator.NONNULL;
+        }
+
+        @SuppressWarnings("unchecked")
+        public Comparator<? super T> getComparator() {
+            if (kind == KEYS)
+                return (Comparator<? super T>) comparator;
+            if (kind == ENTRIES) {
+                Comparator<? super K> cmp = comparator;
+                if (cmp != null)
+                    return (Comparator<? super T>) (Comparator<Map.Entry<K,V>>)
+                        (e1, e2) -> cmp.compare(e1.getKey(), e2.getKey());
+                return (Comparator<? super T>) (Comparator<?>) Map.Entry.comparingByKey();
+            }
+            throw new IllegalStateException();
+        }
+    }
+
+    static final class KeySet<K,V>
+            extends AbstractSet<K> implements NavigableSet<K> {
+        final ConcurrentChunkedSkipListMap<K,V> m;
+        final SubMap<K,V> s;
+        final ConcurrentNavigableMap<K,V> nm;
+        KeySet(ConcurrentChunkedSkipListMap<K,V> m, SubMap<K,V> s) {
+            this.m = m;
+            this.s = s;
+            this.nm = (s == null) ? m : s;
+        }
+        public int size() { return nm.size(); }
+        public boolean isEmpty() { return nm.isEmpty(); }
+        public boolean contains(Object o) { return nm.containsKey(o); }
+        public boolean remove(Object o) { return nm.remove(o) != null; }
+        public void clear() { nm.clear(); }
+        public K lower(K e) { return nm.lowerKey(e); }
+        public K floor(K e) { return nm.floorKey(e); }
+        public K ceiling(K e) { return nm.ceilingKey(e); }
+        public K higher(K e) { return nm.higherKey(e); }
+        public Comparator<? super K> comparator() { return nm.comparator(); }
+        public K first() { return nm.firstKey(); }
+        public K last() { return nm.lastKey(); }
+        public K pollFirst() { return keyOrNull(nm.pollFirstEntry()); }
+        public K pollLast() { return keyOrNull(nm.pollLastEntry()); }
+        public Iterator<K> iterator() {
+            return m.rangeIterator(s, KEYS, false);
+        }
+        public Iterator<K> descendingIterator() {
+            return m.rangeIterator(s, KEYS, true);
+        }
+        public NavigableSet<K> subSet(K fromElement,
+                                      boolean fromInclusive,
+                                      K toElement,
+                                      boolean toInclusive) {
+            return nm.subMap(fromElement, fromInclusive,
+                             toElement,   toInclusive).navigableKeySet();
+        }
+        public NavigableSet<K> headSet(K toElement, boolean inclusive) {
+            return nm.headMap(toElement, inclusive).navigableKeySet();
+        }
+        public NavigableSet<K> tailSet(K fromElement, boolean inclusive) {
+            return nm.tailMap(fromElement, inclusive).navigableKeySet();
+        }
+        public NavigableSet<K> subSet(K fromElement, K toElement) {
+            return subSet(fromElement, true, toElement, false);
+        }
+        public NavigableSet<K> headSet(K toElement) {
+            return headSet(toElement, false);
+        }
+        public NavigableSet<K> tailSet(K fromElement) {
+            return tailSet(fromElement, true);
+        }
+        public NavigableSet<K> descendingSet() {
+            return nm.descendingMap().navigableKeySet();
+        }
+        public Spliterator<K> spliterator() {
+            return m.rangeSpliterator(s, KEYS);
+        }
+    }
+
+    static final class Values<K,V> extends AbstractCollection<V> {
+        final ConcurrentChunkedSkipListMap<K,V> m;
+        final SubMap<K,V> s;
+        Values(ConcurrentChunkedSkipListMap<K,V> m, SubMap<K,V> s) {
+            this.m = m;
+            this.s = s;
+        }
+        public Iterator<V> iterator() {
+            return m.rangeIterator(s, VALUES, false);
+        }
+        public int size() { return (s == null) ? m.size() : s.size(); }
+        public boolean isEmpty() { return (s == null) ? m.isEmpty() : s.isEmpty(); }
+        public boolean contains(Object o) {
+            return (s == null) ? m.containsValue(o) : s.containsValue(o);
+        }
+        public void clear() {
+            if (s == null)
+                m.clear();
+            else
+                s.clear();
+        }
+        public Spliterator<V> spliterator() {
+            return m.rangeSpliterator(s, VALUES);
+        }
+    }
+
+    static final class EntrySet<K,V> extends AbstractSet<Map.Entry<K,V>> {
+        final ConcurrentChunkedSkipListMap<K,V> m;
+        final SubMap<K,V> s;
+        EntrySet(ConcurrentChunkedSkipListMap<K,V> m, SubMap<K,V> s) {
+            this.m = m;
+            this.s = s;
+        }
+        public Iterator<Map.Entry<K,V>> iterator() {
+            return m.rangeIterator(s, ENTRIES, false);
+        }
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+            Object k = e.getKey();
+            if (k == null || (s != null && !s.inBounds(k)))
+                return false;
+            V v = m.get(k);
+            return v != null && v.equals(e.getValue());
+        }
+        public boolean remove(Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?,?> e = (Map.Entry<?,?>)o;
+            Object k = e.getKey();
+            if (k == null || (s != null && !s.inBounds(k)))
+                return false;
+            return m.remove(k, e.getValue());
+        }
+        public boolean isEmpty() { return (s == null) ? m.isEmpty() : s.isEmpty(); }
+        public int size() { return (s == null) ? m.size() : s.size(); }
+        public void clear() {
+            if (s == null)
+                m.clear();
+            else
+                s.clear();
+        }
+        public Spliterator<Map.Entry<K,V>> spliterator() {
+            return m.rangeSpliterator(s, ENTRIES);
+        }
+    }
+
+    /**
+     * Submaps returned by {@link ConcurrentChunkedSkipListMap} submap
+     * operations represent a subrange of mappings of their underlying
+     * maps, in ascending or descending order.  Bounds are null if
+     * absent, as in ConcurrentSkipListMap.SubMap.
+     */
+    static final class SubMap<K,V> extends AbstractMap<K,V>
+        implements ConcurrentNavigableMap<K,V>, Serializable {
+        private static final long serialVersionUID = -4301437651904711374L;
+
+        /** Underlying map */
+        final ConcurrentChunkedSkipListMap<K,V> m;
+        /** lower bound key, or null if from start */
+        @SuppressWarnings("serial") // Conditionally serializable
+        final K lo;
+        /** upper bound key, or null if to end */
+        @SuppressWarnings("serial") // Conditionally serializable
+        final K hi;
+        /** inclusion flag for lo */
+        final boolean loInclusive;
+        /** inclusion flag for hi */
+        final boolean hiInclusive;
+        /** direction */
+        final boolean isDescending;
+
+        // Lazily initialized view holders
+        private transient KeySet<K,V> keySetView;
+        private transient Values<K,V> valuesView;
+        private transient EntrySet<K,V> entrySetView;
+
+        /**
+         * Creates a new submap, initializing all fields.
+         */
+        SubMap(ConcurrentChunkedSkipListMap<K,V> map,
+               K fromKey, boolean fromInclusive,
+               K toKey, boolean toInclusive,
+               boolean isDescending) {
+            Comparator<? super K> cmp = map.comparator;
+            if (fromKey != null && toKey != null &&
+                cpr(cmp, fromKey, toKey) > 0)
+                throw new IllegalArgumentException("inconsistent range");
+            this.m = map;
+            this.lo = fromKey;
+            this.hi = toKey;
+            this.loInclusive = fromInclusive;
+            this.hiInclusive = toInclusive;
+            this.isDescending = isDescending;
+        }
+
+        /* ----------------  Utilities -------------- */
+
+        boolean tooLow(Object key, Comparator<? super K> cmp) {
+            int c;
+            return (lo != null && ((c = cpr(cmp, key, lo)) < 0 ||
+                                   (c == 0 && !loInclusive)));
+        }
+
+        boolean tooHigh(Object key, Comparator<? super K> cmp) {
+            int c;
+            return (hi != null && ((c = cpr(cmp, key, hi)) > 0 ||
+                                   (c == 0 && !hiInclusive)));
+        }
+
+        boolean inBounds(Object key) {
+            Comparator<? super K> cmp = m.comparator;
+            return !tooLow(key, cmp) && !tooHigh(key, cmp);
+        }
+
+        void checkKeyBounds(K key, Comparator<? super K> cmp) {
+            if (key == null)
+                throw new NullPointerException();
+            if (!inBounds(key))
+                throw new IllegalArgumentException("key out of range");
+        }
+
+        /*
+         * Absolute versions of relation operations, in ascending key
+         * order regardless of direction.
+         */
+
+        Map.Entry<K,V> absLowest() {
+            Map.Entry<K,V> e = (lo == null) ? m.findNear(null, GE)
+                : m.findNear(lo, loInclusive ? GE : GT);
+            return (e == null || tooHigh(e.getKey(), m.comparator)) ? null : e;
+        }
+
+        Map.Entry<K,V> absHighest() {
+            Map.Entry<K,V> e = (hi == null) ? m.findNear(null, LE)
+                : m.findNear(hi, hiInclusive ? LE : LT);
+            return (e == null || tooLow(e.getKey(), m.comparator)) ? null : e;
+        }
+
+        /**
+         * Returns the entry in absolute relation rel to key, limited to
+         * the bounds.
+         */
+        Map.Entry<K,V> absNear(K key, int rel) {
+            Comparator<? super K> cmp = m.comparator;
+            if (rel > EQ ? tooLow(key, cmp) : tooHigh(key, cmp))
+                return (rel > EQ) ? absLowest() : absHighest();
+            Map.Entry<K,V> e = m.findNear(key, rel);
+            if (e == null ||
+                (rel > EQ ? tooHigh(e.getKey(), cmp) : tooLow(e.getKey(), cmp)))
+                return null;
+            return e;
+        }
+
+        /** Converts a relation in view order to absolute order. */
+        int rel(int rel) {
+            return isDescending ? GT - rel : rel;
+        }
+
+        /* ----------------  Map API methods -------------- */
+
+        public boolean containsKey(Object key) {
+            if (key == null) throw new NullPointerException();
+            return inBounds(key) && m.containsKey(key);
+        }
+
+        public V get(Object key) {
+            if (key == null) throw new NullPointerException();
+            return (!inBounds(key)) ? null : m.get(key);
+        }
+
+        public V put(K key, V value) {
+            checkKeyBounds(key, m.comparator);
+            return m.put(key, value);
+        }
+
+        public V remove(Object key) {
+            return (!inBounds(key)) ? null : m.remove(key);
+        }
+
+        public int size() {
+            long count = 0;
+            for (Iterator<K> it = m.rangeIterator(this, KEYS, false);
+                 it.hasNext(); it.next())
+                ++count;
+            return count >= Integer.MAX_VALUE ? Integer.MAX_VALUE : (int)count;
+        }
+
+        public boolean isEmpty() {
+            return absLowest() == null;
+        }
+
+        public boolean containsValue(Object value) {
+            if (value == null)
+                throw new NullPointerException();
+            for (Iterator<V> it = m.rangeIterator(this, VALUES, false);
+                 it.hasNext(); )
+                if (value.equals(it.next()))
+                    return true;
+            return false;
+        }
+
+        public void clear() {
+            for (Iterator<K> it = m.rangeIterator(this, KEYS, false);
+                 it.hasNext(); ) {
+                it.next();
+                it.remove();
+            }
+        }
+
+        /* ----------------  ConcurrentMap API methods -------------- */
+
+        public V putIfAbsent(K key, V value) {
+            checkKeyBounds(key, m.comparator);
+            return m.putIfAbsent(key, value);
+        }
+
+        public boolean remove(Object key, Object value) {
+            return inBounds(key) && m.remove(key, value);
+        }
+
+        public boolean replace(K key, V oldValue, V newValue) {
+            checkKeyBounds(key, m.comparator);
+            return m.replace(key, oldValue, newValue);
+        }
+
+        public V replace(K key, V value) {
+            checkKeyBounds(key, m.comparator);
+            return m.replace(key, value);
+        }
+
+        /* ----------------  SortedMap API methods -------------- */
+
+        public Comparator<? super K> comparator() {
+            Comparator<? super K> cmp = m.comparator();
+            if (isDescending)
+                return Collections.reverseOrder(cmp);
+            else
+                return cmp;
+        }
+
+        /**
+         * Utility to create submaps, where given bounds override
+         * unbounded(null) ones and/or are checked against bounded ones.
+         */
+        SubMap<K,V> newSubMap(K fromKey, boolean fromInclusive,
+                              K toKey, boolean toInclusive) {
+            Comparator<? super K> cmp = m.comparator;
+            if (isDescending) { // flip senses
+                K tk = fromKey;
+                fromKey = toKey;
+                toKey = tk;
+                boolean ti = fromInclusive;
+                fromInclusive = toInclusive;
+                toInclusive = ti;
+            }
+            if (lo != null) {
+                if (fromKey == null) {
+                    fromKey = lo;
+                    fromInclusive = loInclusive;
+                }
+                else {
+                    int c = cpr(cmp, fromKey, lo);
+                    if (c < 0 || (c == 0 && !loInclusive && fromInclusive))
+                        throw new IllegalArgumentException("key out of range");
+                }
+            }
+            if (hi != null) {
+                if (toKey == null) {
+                    toKey = hi;
+                    toInclusive = hiInclusive;
+                }
+                else {
+                    int c = cpr(cmp, toKey, hi);
+                    if (c > 0 || (c == 0 && !hiInclusive && toInclusive))
+                        throw new IllegalArgumentException("key out of range");
+                }
+            }
+            return new SubMap<K,V>(m, fromKey, fromInclusive,
+                                   toKey, toInclusive, isDescending);
+        }
+
+        public SubMap<K,V> subMap(K fromKey, boolean fromInclusive,
+                                  K toKey, boolean toInclusive) {
+            if (fromKey == null || toKey == null)
+                throw new NullPointerException();
+            return newSubMap(fromKey, fromInclusive, toKey, toInclusive);
+        }
+
+        public SubMap<K,V> headMap(K toKey, boolean inclusive) {
+            if (toKey == null)
+                throw new NullPointerException();
+            return newSubMap(null, false, toKey, inclusive);
+        }
+
+        public SubMap<K,V> tailMap(K fromKey, boolean inclusive) {
+            if (fromKey == null)
+                throw new NullPointerException();
+            return newSubMap(fromKey, inclusive, null, false);
+        }
+
+        public SubMap<K,V> subMap(K fromKey, K toKey) {
+            return subMap(fromKey, true, toKey, false);
+        }
+
+        public SubMap<K,V> headMap(K toKey) {
+            return headMap(toKey, false);
+        }
+
+        public SubMap<K,V> tailMap(K fromKey) {
+            return tailMap(fromKey, true);
+        }
+
+        public SubMap<K,V> descendingMap() {
+            return new SubMap<K,V>(m, lo, loInclusive,
+                                   hi, hiInclusive, !isDescending);
+        }
+
+        /* ----------------  Relational methods -------------- */
+
+        public Map.Entry<K,V> ceilingEntry(K key) {
+            return absNear(checkKey(key), rel(GE));
+        }
+
+        public K ceilingKey(K key) {
+            return keyOrNull(absNear(checkKey(key), rel(GE)));
+        }
+
+        public Map.Entry<K,V> lowerEntry(K key) {
+            return absNear(checkKey(key), rel(LT));
+        }
+
+        public K lowerKey(K key) {
+            return keyOrNull(absNear(checkKey(key), rel(LT)));
+        }
+
+        public Map.Entry<K,V> floorEntry(K key) {
+            return absNear(checkKey(key), rel(LE));
+        }
+
+        public K floorKey(K key) {
+            return keyOrNull(absNear(checkKey(key), rel(LE)));
+        }
+
+        public Map.Entry<K,V> higherEntry(K key) {
+            return absNear(checkKey(key), rel(GT));
+        }
+
+        public K higherKey(K key) {
+            return keyOrNull(absNear(checkKey(key), rel(GT)));
+        }
+
+        public K firstKey() {
+            Map.Entry<K,V> e = firstEntry();
+            if (e == null)
+                throw new NoSuchElementException();
+            return e.getKey();
+        }
+
+        public K lastKey() {
+            Map.Entry<K,V> e = lastEntry();
+            if (e == null)
+                throw new NoSuchElementException();
+            return e.getKey();
+        }
+
+        public Map.Entry<K,V> firstEntry() {
+            return isDescending ? absHighest() : absLowest();
+        }
+
+        public Map.Entry<K,V> lastEntry() {
+            return isDescending ? absLowest() : absHighest();
+        }
+
+        public Map.Entry<K,V> pollFirstEntry() {
+            return poll(true);
+        }
+
+        public Map.Entry<K,V> pollLastEntry() {
+            return poll(false);
+        }
+
+        private Map.Entry<K,V> poll(boolean first) {
+            for (Map.Entry<K,V> e;
+                 (e = (first ? firstEntry() : lastEntry())) != null; ) {
+                if (m.remove(e.getKey(), e.getValue()))
+                    return e;
+            }
+            return null;
+        }
+
+        private static <K> K checkKey(K key) {
+            if (key == null)
+                throw new NullPointerException();
+            return key;
+        }
+
+        /* ---------------- Submap Views -------------- */
+
+        public NavigableSet<K> keySet() {
+            KeySet<K,V> ks;
+            if ((ks = keySetView) != null) return ks;
+            return keySetView = new KeySet<>(m, this);
+        }
+
+        public NavigableSet<K> navigableKeySet() {
+            return keySet();
+        }
+
+        public Collection<V> values() {
+            Values<K,V> vs;
+            if ((vs = valuesView) != null) return vs;
+            return valuesView = new Values<>(m, this);
+        }
+
+        public Set<Map.Entry<K,V>> entrySet() {
+            EntrySet<K,V> es;
+            if ((es = entrySetView) != null) return es;
+            return entrySetView = new EntrySet<K,V>(m, this);
+        }
+
+        public NavigableSet<K> descendingKeySet() {
+            return descendingMap().navigableKeySet();
+        }
+    }
+}
@@ -866,7 +866,10 @@ public class ConcurrentLinkedQueue<E> extends AbstractQueue<E>
             Node<E> p, q;
             if ((p = current()) == null || (q = p.next) == null)
                 return null;
-            int i = 0, n = batch = Math.min(batch + 1, MAX_BATCH);
+            // Batch sizes grow geometrically, so that a spliterator
+            // over n elements splits O(log n) times
+            int i = 0, n = batch =
+                (batch == 0) ? 1 : Math.min(batch << 1, MAX_BATCH);
             Object[] a = null;
             do {
                 final E e;
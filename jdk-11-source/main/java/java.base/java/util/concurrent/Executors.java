@@ -45,6 +45,7 @@ import java.security.PrivilegedExceptionAction;
 import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
+import sun.security.action.GetPropertyAction;
 import sun.security.util.SecurityConstants;
 
 /**
@@ -84,6 +85,15 @@ public class Executors {
      * execute subsequent tasks.  The threads in the pool will exist
      * until it is explicitly {@link ExecutorService#shutdown shutdown}.
      *
+     * @implNote If the {@linkplain System#getProperty system property}
+     * {@code java.util.concurrent.Executors.workStealingFixedThreadPool}
+     * is {@code true} and {@code nThreads} is greater than one, the
+     * queue is a {@link WorkStealingBlockingQueue}, which divides the
+     * queue among the threads of the pool and so scales better with
+     * many threads and high task rates, but does not execute tasks
+     * submitted by different threads in FIFO order.  Otherwise the
+     * queue is a {@link LinkedBlockingQueue}.
+     *
      * @param nThreads the number of threads in the pool
      * @return the newly created thread pool
      * @throws IllegalArgumentException if {@code nThreads <= 0}
@@ -91,7 +101,7 @@ public class Executors {
     public static ExecutorService newFixedThreadPool(int nThreads) {
         return new ThreadPoolExecutor(nThreads, nThreads,
                                       0L, TimeUnit.MILLISECONDS,
-                                      new LinkedBlockingQueue<Runnable>());
+                                      fixedThreadPoolQueue(nThreads));
     }
 
     /**
@@ -145,6 +155,8 @@ public class Executors {
      * exist until it is explicitly {@link ExecutorService#shutdown
      * shutdown}.
      *
+     * @implNote The queue is chosen as by {@link #newFixedThreadPool(int)}.
+     *
      * @param nThreads the number of threads in the pool
      * @param threadFactory the factory to use when creating new threads
      * @return the newly created thread pool
@@ -154,10 +166,27 @@ public class Executors {
     public static ExecutorService newFixedThreadPool(int nThreads, ThreadFactory threadFactory) {
         return new ThreadPoolExecutor(nThreads, nThreads,
                                       0L, TimeUnit.MILLISECONDS,
-                                      new LinkedBlockingQueue<Runnable>(),
+                                      fixedThreadPoolQueue(nThreads),
                                       threadFactory);
     }
 
+    /**
+     * Whether fixed thread pools of more than one thread use a
+     * WorkStealingBlockingQueue, as described in newFixedThreadPool.
+     */
+    private static final boolean WORK_STEALING_FIXED_THREAD_POOL =
+        Boolean.parseBoolean(GetPropertyAction.privilegedGetProperty
+            ("java.util.concurrent.Executors.workStealingFixedThreadPool"));
+
+    /**
+     * Returns a new work queue for a fixed thread pool.
+     */
+    private static BlockingQueue<Runnable> fixedThreadPoolQueue(int nThreads) {
+        return (WORK_STEALING_FIXED_THREAD_POOL && nThreads > 1)
+            ? new WorkStealingBlockingQueue<Runnable>(nThreads)
+            : new LinkedBlockingQueue<Runnable>();
+    }
+
     /**
      * Creates an Executor that uses a single worker thread operating
      * off an unbounded queue. (Note however that if this single
@@ -0,0 +1,520 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A scope that owns a group of concurrently computed
+ * {@link CompletableFuture}s, its <em>children</em>, and completes when
+ * all of them have completed, or as soon as any of them fails, in which
+ * case it cancels all the others.  A scope is typically used in a
+ * try-with-resources statement, so that no child outlives the block that
+ * created it:
+ *
+ * <pre> {@code
+ * try (FanOutScope<Price> scope = new FanOutScope<>(executor, 2, TimeUnit.SECONDS)) {
+ *   CompletableFuture<Price> a = scope.fork(() -> quote(supplierA));
+ *   CompletableFuture<Price> b = scope.fork(() -> quote(supplierB));
+ *   scope.add(asyncClient.quote(supplierC));
+ *   scope.join();  // throws ExecutionException with the first failure
+ *   return best(scope.results());
+ * }}</pre>
+ *
+ * <p>Children are either tasks submitted by {@link #fork}, which run in
+ * the scope's executor, or existing futures adopted by {@link #add}.  A
+ * child <em>fails</em> if it completes exceptionally or is cancelled
+ * other than by the scope.  When the first child fails, or the
+ * scope's deadline (if any) passes, or its {@link #join(long, TimeUnit)
+ * join} times out, the scope records that exception as its failure and
+ * cancels all its incomplete children.  Cancelling a forked child
+ * interrupts the thread running it, if any, as by {@link
+ * FutureTask#cancel FutureTask.cancel(true)}; cancelling an added
+ * future completes it with a {@link CancellationException}, so that
+ * actions depending on it are not performed, but does not interrupt
+ * the computation that would have completed it.
+ *
+ * <p>A scope tracks its children with a single count of incomplete
+ * children, so joining <em>n</em> children costs no more than one
+ * counter update per child, with no intermediate futures.  The scope is
+ * <em>joined</em> by {@link #join}, {@link #join(long, TimeUnit)} or
+ * {@link #joinAsync}, after which no more children may be added; it is
+ * complete once it is joined and either all children have completed or
+ * it has failed.  Closing a scope that is not complete cancels its
+ * incomplete children, so that they fail the scope with a
+ * {@code CancellationException}.
+ *
+ * <p>Methods of this class may be invoked by any thread, including
+ * children that fork further children of the same scope before it is
+ * joined.
+ *
+ * @param <T> the result type of the children
+ * @since 12
+ */
+public class FanOutScope<T> implements AutoCloseable {
+    /*
+     * The children are kept in an array guarded by the scope's monitor,
+     * used only to cancel them or collect their results.  Completion
+     * is tracked by "pending", the number of incomplete children plus
+     * one until the scope is joined.  Each child decrements it exactly
+     * once: a forked child (ChildTask) when it finishes running or is
+     * cancelled, whichever comes first, and an added future in a
+     * whenComplete action.  The decrement to zero completes
+     * "completion", which is also completed (exceptionally) by the
+     * first failure.  A failure is recorded by CASing "failure" from
+     * null, and only the winner cancels the children, so that the
+     * cancellations it causes, which are reported back as child
+     * failures, are ignored.
+     *
+     * A child registered after the failure is cancelled by its
+     * registering thread: registration happens under the monitor
+     * before reading failure, and a failing thread sets failure before
+     * taking the monitor to snapshot the children.
+     */
+
+    /** States */
+    private static final int OPEN = 0, JOINED = 1, CLOSED = 2;
+
+    /** The executor running forked children. */
+    private final Executor executor;
+
+    /** Completed when the scope completes; exceptionally on failure. */
+    private final CompletableFuture<Void> completion;
+
+    /** The deadline task, or null if none. */
+    private final ScheduledFuture<?> deadline;
+
+    /** The children, in order of registration; guarded by this. */
+    private CompletableFuture<? extends T>[] children;
+
+    /** The number of children; guarded by this. */
+    private int count;
+
+    /** Number of incomplete children, plus one until joined. */
+    private volatile int pending = 1;
+
+    /** The first failure, or null. */
+    private volatile Throwable failure;
+
+    /** OPEN, JOINED or CLOSED. */
+    private volatile int state;
+
+    /**
+     * Creates a scope whose forked children run in the default
+     * asynchronous execution facility of {@link CompletableFuture}.
+     */
+    public FanOutScope() {
+        this(null, 0L, null, false);
+    }
+
+    /**
+     * Creates a scope whose forked children run in the given executor.
+     *
+     * @param executor the executor to use for forked children
+     * @throws NullPointerException if the executor is null
+     */
+    public FanOutScope(Executor executor) {
+        this(Objects.requireNonNull(executor), 0L, null, false);
+    }
+
+    /**
+     * Creates a scope whose forked children run in the given executor,
+     * and which fails with a {@link TimeoutException} if it has not
+     * completed before the given timeout.
+     *
+     * @param executor the executor to use for forked children
+     * @param timeout how long to wait before failing the scope, in
+     *        units of {@code unit}
+     * @param unit a {@code TimeUnit} determining how to interpret the
+     *        {@code timeout} parameter
+     * @throws NullPointerException if the executor or unit is null
+     */
+    public FanOutScope(Executor executor, long timeout, TimeUnit unit) {
+        this(Objects.requireNonNull(executor), timeout,
+             Objects.requireNonNull(unit), true);
+    }
+
+    @SuppressWarnings("unchecked")
+    private FanOutScope(Executor executor, long timeout, TimeUnit unit,
+                        boolean timed) {
+        this.completion = new CompletableFuture<Void>();
+        this.executor = (executor != null) ? executor
+            : completion.defaultExecutor();
+        this.children = (CompletableFuture<? extends T>[])
+            new CompletableFuture<?>[8];
+        this.deadline = !timed ? null
+            : CompletableFuture.Delayer.delay(
+                () -> fail(new TimeoutException()), timeout, unit);
+    }
+
+    /**
+     * Submits a task to run in this scope's executor, returning a child
+     * future completed with its result, or exceptionally with any
+     * exception it throws.  Cancelling the returned future with
+     * {@code cancel(true)} interrupts the thread running the task.
+     *
+     * <p>If the scope has already failed, the task is not submitted and
+     * the returned future is cancelled.
+     *
+     * @param task the task to run
+     * @return the child future
+     * @throws NullPointerException if the task is null
+     * @throws IllegalStateException if the scope has been joined or closed
+     * @throws RejectedExecutionException if the executor rejects the
+     *         task, in which case the scope fails with that exception
+     */
+    public CompletableFuture<T> fork(Callable<? extends T> task) {
+        ChildTask<T> child = new ChildTask<T>(this, Objects.requireNonNull(task));
+        if (register(child)) {
+            try {
+                executor.execute(child);
+            } catch (RuntimeException | Error ex) {
+                child.completeExceptionally(ex);
+                child.finish(ex);
+                throw ex;
+            }
+        }
+        return child;
+    }
+
+    /**
+     * Adopts the given future as a child of this scope, which fails if
+     * the future completes exceptionally, and cancels the future if the
+     * scope fails first.
+     *
+     * @param future the future to adopt
+     * @param <F> the type of the future
+     * @return the given future
+     * @throws NullPointerException if the future is null
+     * @throws IllegalStateException if the scope has been joined or closed
+     */
+    public <F extends CompletableFuture<? extends T>> F add(F future) {
+        Objects.requireNonNull(future);
+        register(future);
+        future.whenComplete((r, ex) -> childDone(ex));
+        return future;
+    }
+
+    /**
+     * Waits until the scope is complete.
+     *
+     * @throws ExecutionException if the scope failed, with the first
+     *         failure as its cause
+     * @throws InterruptedException if the current thread was interrupted
+     *         while waiting, in which case the scope is left unchanged
+     */
+    public void join() throws InterruptedException, ExecutionException {
+        seal();
+        try {
+            completion.get();
+        } catch (ExecutionException | CancellationException ignore) {
+        }
+        checkFailure();
+    }
+
+    /**
+     * Waits if necessary for at most the given time for the scope to
+     * complete, failing the scope with a {@code TimeoutException} if it
+     * does not.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit the time unit of the timeout argument
+     * @throws ExecutionException if the scope failed, with the first
+     *         failure as its cause
+     * @throws InterruptedException if the current thread was interrupted
+     *         while waiting, in which case the scope is left unchanged
+     * @throws TimeoutException if the wait timed out, in which case the
+     *         incomplete children have been cancelled
+     */
+    public void join(long timeout, TimeUnit unit)
+        throws InterruptedException, ExecutionException, TimeoutException {
+        seal();
+        try {
+            completion.get(timeout, unit);
+        } catch (ExecutionException | CancellationException ignore) {
+        } catch (TimeoutException ex) {
+            fail(ex);
+            if (failure == ex)
+                throw ex;
+        }
+        checkFailure();
+    }
+
+    /**
+     * Joins this scope without waiting, returning a new future that is
+     * completed when the scope completes: normally if all children
+     * completed normally, else exceptionally with a
+     * {@link CompletionException} holding the first failure as its
+     * cause.
+     *
+     * @return the new future
+     */
+    public CompletableFuture<Void> joinAsync() {
+        seal();
+        return completion.handle((r, ex) -> {
+            Throwable f = failure;
+            if (f != null)
+                throw new CompletionException(f);
+            return null;
+        });
+    }
+
+    /**
+     * Returns the results of the children, in the order in which they
+     * were forked or added.
+     *
+     * @return the results of the children
+     * @throws IllegalStateException if the scope has not been joined, or
+     *         has not completed, or has failed
+     */
+    public List<T> results() {
+        if (state == OPEN || !completion.isDone() || failure != null)
+            throw new IllegalStateException();
+        synchronized (this) {
+            List<T> list = new ArrayList<T>(count);
+            for (int i = 0; i < count; i++)
+                list.add(children[i].join());
+            return list;
+        }
+    }
+
+    /**
+     * Returns {@code true} if this scope has failed.
+     *
+     * @return {@code true} if this scope has failed
+     */
+    public boolean isFailed() {
+        return failure != null;
+    }
+
+    /**
+     * Fails this scope with a {@code CancellationException}, cancelling
+     * its incomplete children, unless it has already completed.
+     */
+    public void cancel() {
+        if (!completion.isDone())
+            fail(new CancellationException());
+    }
+
+    /**
+     * Closes this scope, cancelling any incomplete children.  Further
+     * calls to {@code fork} or {@code add} throw
+     * {@code IllegalStateException}.  Closing a scope that is already
+     * closed has no effect.
+     */
+    public void close() {
+        seal();
+        cancel();
+        state = CLOSED;
+    }
+
+    /**
+     * Returns a string identifying this scope, as well as its state.
+     * The state, in brackets, contains the String {@code "Completed
+     * normally"} or the String {@code "Failed"}, or else the number of
+     * incomplete children.
+     *
+     * @return a string identifying this scope, as well as its state
+     */
+    public String toString() {
+        String status = (failure != null) ? "[Failed]"
+            : completion.isDone() ? "[Completed normally]"
+            : "[Incomplete children = " + (pending - (state == OPEN ? 1 : 0)) + "]";
+        return super.toString() + status;
+    }
+
+    /* ---------------- Internals -------------- */
+
+    private void checkFailure() throws ExecutionException {
+        Throwable ex = failure;
+        if (ex != null)
+            throw new ExecutionException(ex);
+    }
+
+    /**
+     * Registers a child, returning false if it has been cancelled
+     * because the scope has failed.
+     */
+    private boolean register(CompletableFuture<? extends T> child) {
+        synchronized (this) {
+            if (state != OPEN)
+                throw new IllegalStateException("Scope has been joined or closed");
+            PENDING.getAndAdd(this, 1);
+            if (count == children.length)
+                children = Arrays.copyOf(children, count << 1);
+            children[count++] = child;
+        }
+        if (failure != null) {
+            child.cancel(true);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Stops registration and releases the scope's own pending count.
+     */
+    private void seal() {
+        if (state == OPEN) {
+            boolean first;
+            synchronized (this) {
+                if (first = (state == OPEN))
+                    state = JOINED;
+            }
+            if (first)
+                childDone(null);
+        }
+    }
+
+    /**
+     * Records a failure, if first and the scope has not completed,
+     * cancelling all children.
+     */
+    void fail(Throwable ex) {
+        if (!completion.isDone() && FAILURE.compareAndSet(this, null, ex)) {
+            CompletableFuture<?>[] cs;
+            synchronized (this) {
+                cs = Arrays.copyOf(children, count);
+            }
+            for (CompletableFuture<?> c : cs)
+                c.cancel(true);
+            completion.completeExceptionally(ex);
+            if (deadline != null)
+                deadline.cancel(false);
+        }
+    }
+
+    /**
+     * Called exactly once per child on its completion, and once when
+     * the scope is joined.
+     */
+    void childDone(Throwable ex) {
+        if (ex != null) {
+            if (ex instanceof CompletionException && ex.getCause() != null)
+                ex = ex.getCause();
+            fail(ex);
+        }
+        if ((int)PENDING.getAndAdd(this, -1) == 1) {
+            completion.complete(null);
+            if (deadline != null)
+                deadline.cancel(false);
+        }
+    }
+
+    /**
+     * A forked child, which is both the future and the task run to
+     * complete it.  Cancellation interrupts the runner as in FutureTask.
+     */
+    @SuppressWarnings("serial")
+    static final class ChildTask<T> extends CompletableFuture<T>
+        implements Runnable, CompletableFuture.AsynchronousCompletionTask {
+        final FanOutScope<?> scope;
+        Callable<? extends T> task;
+        volatile Thread runner;
+        volatile boolean interrupting;
+        volatile int finished;
+
+        ChildTask(FanOutScope<?> scope, Callable<? extends T> task) {
+            this.scope = scope;
+            this.task = task;
+        }
+
+        public void run() {
+            Callable<? extends T> t = task;
+            Throwable ex = null;
+            if (t != null && !isDone() &&
+                RUNNER.compareAndSet(this, null, Thread.currentThread())) {
+                try {
+                    complete(t.call());
+                } catch (Throwable x) {
+                    ex = x;
+                    completeExceptionally(x);
+                } finally {
+                    runner = null;
+                    // wait for any pending interrupt by cancel
+                    while (interrupting)
+                        Thread.onSpinWait();
+                }
+            }
+            task = null;
+            finish(ex);
+        }
+
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (isCancelled()) {
+                if (mayInterruptIfRunning) {
+                    interrupting = true;
+                    try {
+                        Thread r = runner;
+                        if (r != null)
+                            r.interrupt();
+                    } finally {
+                        interrupting = false;
+                    }
+                }
+                finish(new CancellationException());
+            }
+            return cancelled;
+        }
+
+        /** Reports completion to the scope, once. */
+        void finish(Throwable ex) {
+            if (FINISHED.compareAndSet(this, 0, 1))
+                scope.childDone(ex);
+        }
+
+        private static final VarHandle RUNNER;
+        private static final VarHandle FINISHED;
+        static {
+            try {
+                MethodHandles.Lookup l = MethodHandles.lookup();
+                RUNNER = l.findVarHandle(ChildTask.class, "runner", Thread.class);
+                FINISHED = l.findVarHandle(ChildTask.class, "finished", int.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+    }
+
+    // VarHandle mechanics
+    private static final VarHandle PENDING;
+    private static final VarHandle FAILURE;
+    static {
+        try {
+            MethodHandles.Lookup l = MethodHandles.lookup();
+            PENDING = l.findVarHandle(FanOutScope.class, "pending", int.class);
+            FAILURE = l.findVarHandle(FanOutScope.class, "failure", Throwable.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+}
@@ -93,9 +93,11 @@ import java.util.concurrent.locks.LockSupport;
  * <p>In addition to execution and lifecycle control methods, this
  * class provides status check methods (for example
  * {@link #getStealCount}) that are intended to aid in developing,
- * tuning, and monitoring fork/join applications. Also, method
- * {@link #toString} returns indications of pool state in a
- * convenient form for informal monitoring.
+ * tuning, and monitoring fork/join applications. Method {@link
+ * #getWorkerStatistics} additionally reports the activity of each
+ * worker thread, for example to detect imbalance across workers.
+ * Also, method {@link #toString} returns indications of pool state
+ * in a convenient form for informal monitoring.
  *
  * <p>As is the case with other ExecutorServices, there are three
  * main task execution methods summarized in the following table.
@@ -782,6 +784,9 @@ public class ForkJoinPool extends AbstractExecutorService {
         volatile int phase;        // versioned, negative: queued, 1: locked
         int stackPred;             // pool stack (ctl) predecessor link
         int nsteals;               // number of steals
+        int nexecs;                // number of top-level tasks run
+        int nscans;                // number of scans for tasks
+        int nparks;                // number of times parked
         ForkJoinTask<?>[] array;   // the queued tasks; power of 2 size
         final ForkJoinPool pool;   // the containing pool (may be null)
         final ForkJoinWorkerThread owner; // owning thread or null if shared
@@ -1015,9 +1020,10 @@ public class ForkJoinPool extends AbstractExecutorService {
          */
         final void topLevelExec(ForkJoinTask<?> t, WorkQueue q, int n) {
             if (t != null && q != null) { // hoist checks
-                int nstolen = 1;
+                int nstolen = 1, nexec = 0;
                 for (;;) {
                     t.doExec();
+                    ++nexec;
                     if (n-- < 0)
                         break;
                     else if ((t = nextLocalTask()) == null) {
@@ -1029,6 +1035,7 @@ public class ForkJoinPool extends AbstractExecutorService {
                 }
                 ForkJoinWorkerThread thread = owner;
                 nsteals += nstolen;
+                nexecs += nexec;
                 source = 0;
                 if (thread != null)
                     thread.afterTopLevelExec();
@@ -1298,6 +1305,9 @@ public class ForkJoinPool extends AbstractExecutorService {
     // Instance fields
 
     volatile long stealCount;            // collects worker nsteals
+    volatile long execCount;             // collects worker nexecs
+    volatile long scanCount;             // collects worker nscans
+    volatile long parkCount;             // collects worker nparks
     final long keepAlive;                // milliseconds before dropping if idle
     int indexSeed;                       // next worker index
     final int bounds;                    // min, max threads packed as shorts
@@ -1432,6 +1442,9 @@ public class ForkJoinPool extends AbstractExecutorService {
             Object lock = workerNamePrefix;
             int wid = w.id;
             long ns = (long)w.nsteals & 0xffffffffL;
+            long ne = (long)w.nexecs & 0xffffffffL;
+            long nc = (long)w.nscans & 0xffffffffL;
+            long np = (long)w.nparks & 0xffffffffL;
             if (lock != null) {
                 synchronized (lock) {
                     WorkQueue[] ws; int n, i;         // remove index from array
@@ -1439,6 +1452,9 @@ public class ForkJoinPool extends AbstractExecutorService {
                         ws[i = wid & (n - 1)] == w)
                         ws[i] = null;
                     stealCount += ns;
+                    execCount += ne;
+                    scanCount += nc;
+                    parkCount += np;
                 }
             }
             phase = w.phase;
@@ -1591,6 +1607,7 @@ public class ForkJoinPool extends AbstractExecutorService {
         w.array = new ForkJoinTask<?>[INITIAL_QUEUE_CAPACITY]; // initialize
         for (;;) {
             int phase;
+            ++w.nscans;
             if (scan(w, r)) {                     // scan until apparently empty
                 r ^= r << 13; r ^= r >>> 17; r ^= r << 5; // move (xorshift)
             }
@@ -1616,6 +1633,7 @@ public class ForkJoinPool extends AbstractExecutorService {
                 else if (rc <= 0 && pred != 0 && phase == (int)c) {
                     long nc = (UC_MASK & (c - TC_UNIT)) | (SP_MASK & pred);
                     long d = keepAlive + System.currentTimeMillis();
+                    ++w.nparks;
                     LockSupport.parkUntil(this, d);
                     if (ctl == c &&               // drop on timeout if all idle
                         d - System.currentTimeMillis() <= TIMEOUT_SLOP &&
@@ -1624,8 +1642,10 @@ public class ForkJoinPool extends AbstractExecutorService {
                         break;
                     }
                 }
-                else if (w.phase < 0)
+                else if (w.phase < 0) {
+                    ++w.nparks;
                     LockSupport.park(this);       // OK if spuriously woken
+                }
                 w.source = 0;                     // disable signal
             }
         }
@@ -2680,6 +2700,213 @@ public class ForkJoinPool extends AbstractExecutorService {
         return count;
     }
 
+    /**
+     * Returns an estimate of the total number of top-level tasks
+     * executed by worker threads, that is, tasks taken from a queue
+     * by a worker that was not otherwise waiting to join a task.
+     * Tasks run while helping to join other tasks are not counted.
+     * The reported value underestimates the actual total when the
+     * pool is not quiescent.
+     *
+     * @return the number of executed top-level tasks
+     * @since 12
+     */
+    public long getExecutedTaskCount() {
+        long count = execCount;
+        WorkQueue[] ws; WorkQueue w;
+        if ((ws = workQueues) != null) {
+            for (int i = 1; i < ws.length; i += 2) {
+                if ((w = ws[i]) != null)
+                    count += (long)w.nexecs & 0xffffffffL;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns an estimate of the total number of times worker threads
+     * have scanned the queues of the pool for tasks.  A high ratio of
+     * scans to executed tasks suggests that tasks are too small or
+     * too few to keep the workers busy.
+     *
+     * @return the number of scans
+     * @since 12
+     */
+    public long getScanCount() {
+        long count = scanCount;
+        WorkQueue[] ws; WorkQueue w;
+        if ((ws = workQueues) != null) {
+            for (int i = 1; i < ws.length; i += 2) {
+                if ((w = ws[i]) != null)
+                    count += (long)w.nscans & 0xffffffffL;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns an estimate of the total number of times worker threads
+     * have parked for lack of tasks.  Frequent parking and unparking
+     * may indicate that the parallelism level is higher than the
+     * available work can sustain.
+     *
+     * @return the number of parks
+     * @since 12
+     */
+    public long getParkCount() {
+        long count = parkCount;
+        WorkQueue[] ws; WorkQueue w;
+        if ((ws = workQueues) != null) {
+            for (int i = 1; i < ws.length; i += 2) {
+                if ((w = ws[i]) != null)
+                    count += (long)w.nparks & 0xffffffffL;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns a list of statistics for each current worker thread, in
+     * no particular order.  Each element is an estimate obtained
+     * without synchronization, so the counts of different workers, or
+     * of one worker, need not be mutually consistent.  Workers that
+     * have terminated are not included, though their counts remain
+     * reflected in the totals reported by methods such as {@link
+     * #getStealCount}.
+     *
+     * @return the statistics of the current worker threads
+     * @since 12
+     */
+    public List<WorkerStatistics> getWorkerStatistics() {
+        ArrayList<WorkerStatistics> stats = new ArrayList<>();
+        WorkQueue[] ws; WorkQueue w;
+        VarHandle.acquireFence();
+        if ((ws = workQueues) != null) {
+            for (int i = 1; i < ws.length; i += 2) {
+                if ((w = ws[i]) != null)
+                    stats.add(new WorkerStatistics(w));
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * A snapshot of the activity of one worker thread of a {@code
+     * ForkJoinPool}, as returned by method {@link
+     * ForkJoinPool#getWorkerStatistics}.  Counts are cumulative over
+     * the lifetime of the worker, so the activity over an interval
+     * may be obtained by comparing snapshots of the worker with the
+     * same {@linkplain #getPoolIndex pool index} and {@linkplain
+     * #getThreadName thread name}.
+     *
+     * @since 12
+     */
+    public static final class WorkerStatistics {
+        private final int poolIndex;
+        private final String threadName;
+        private final long stealCount;
+        private final long executedTaskCount;
+        private final long scanCount;
+        private final long parkCount;
+        private final int queuedTaskCount;
+
+        WorkerStatistics(WorkQueue w) {
+            ForkJoinWorkerThread thread = w.owner;
+            this.poolIndex = w.getPoolIndex();
+            this.threadName = (thread == null) ? "" : thread.getName();
+            this.stealCount = (long)w.nsteals & 0xffffffffL;
+            this.executedTaskCount = (long)w.nexecs & 0xffffffffL;
+            this.scanCount = (long)w.nscans & 0xffffffffL;
+            this.parkCount = (long)w.nparks & 0xffffffffL;
+            this.queuedTaskCount = w.queueSize();
+        }
+
+        /**
+         * Returns the index of the worker in the pool, as reported by
+         * {@link ForkJoinWorkerThread#getPoolIndex}.
+         *
+         * @return the index of the worker
+         */
+        public int getPoolIndex() {
+            return poolIndex;
+        }
+
+        /**
+         * Returns the name of the worker thread.
+         *
+         * @return the name of the worker thread
+         */
+        public String getThreadName() {
+            return threadName;
+        }
+
+        /**
+         * Returns the number of tasks the worker has stolen from
+         * other queues.
+         *
+         * @return the number of steals
+         */
+        public long getStealCount() {
+            return stealCount;
+        }
+
+        /**
+         * Returns the number of top-level tasks the worker has
+         * executed.
+         *
+         * @return the number of executed top-level tasks
+         * @see ForkJoinPool#getExecutedTaskCount
+         */
+        public long getExecutedTaskCount() {
+            return executedTaskCount;
+        }
+
+        /**
+         * Returns the number of times the worker has scanned the
+         * queues of the pool for tasks.
+         *
+         * @return the number of scans
+         */
+        public long getScanCount() {
+            return scanCount;
+        }
+
+        /**
+         * Returns the number of times the worker has parked for lack
+         * of tasks.
+         *
+         * @return the number of parks
+         */
+        public long getParkCount() {
+            return parkCount;
+        }
+
+        /**
+         * Returns the number of tasks held in the worker's queue.
+         *
+         * @return the number of queued tasks
+         */
+        public int getQueuedTaskCount() {
+            return queuedTaskCount;
+        }
+
+        /**
+         * Returns a string identifying the worker and its counts.
+         *
+         * @return a string identifying the worker and its counts
+         */
+        public String toString() {
+            return "WorkerStatistics[" + threadName +
+                ", index = " + poolIndex +
+                ", steals = " + stealCount +
+                ", executed = " + executedTaskCount +
+                ", scans = " + scanCount +
+                ", parks = " + parkCount +
+                ", tasks = " + queuedTaskCount +
+                "]";
+        }
+    }
+
     /**
      * Returns an estimate of the total number of tasks currently held
      * in queues by worker threads (but not including tasks submitted
@@ -41,6 +41,24 @@ import java.util.Collection;
 class Helpers {
     private Helpers() {}                // non-instantiable
 
+    /**
+     * Returns a snapshot of the elements of c for a batch insertion
+     * into queue q, checking up front that neither c nor any of its
+     * elements is null and that c is not q itself, so that batch
+     * insertions can be performed under a lock without calling foreign
+     * code and without partially inserting a batch that cannot be
+     * inserted.
+     */
+    static Object[] batchArray(Collection<?> q, Collection<?> c) {
+        if (c == q)
+            throw new IllegalArgumentException();
+        final Object[] es = c.toArray();
+        for (Object e : es)
+            if (e == null)
+                throw new NullPointerException();
+        return es;
+    }
+
     /**
      * An implementation of Collection.toString() suitable for classes
      * with locks.  Instead of holding a lock for the entire duration of
@@ -714,6 +714,44 @@ public class LinkedBlockingDeque<E>
         }
     }
 
+    /**
+     * Inserts as many elements of the given collection at the tail of
+     * this queue as there is room for, acquiring the lock once for the
+     * whole batch.  The collection is copied, and checked for null
+     * elements, before the lock is acquired; if it contains a null
+     * element, no element is inserted.
+     *
+     * @throws NullPointerException {@inheritDoc}
+     * @throws IllegalArgumentException {@inheritDoc}
+     * @since 12
+     */
+    @SuppressWarnings("unchecked")
+    public int offerAll(Collection<? extends E> c) {
+        final Object[] es = Helpers.batchArray(this, c);
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            final int n = Math.min(es.length, capacity - count);
+            for (int j = 0; j < n; j++) {
+                Node<E> node = new Node<E>((E) es[j]);
+                Node<E> l = last;
+                node.prev = l;
+                last = node;
+                if (first == null)
+                    first = node;
+                else
+                    l.next = node;
+            }
+            count += n;
+            // takers do not pass signals on, so wake one per element
+            for (int j = 0; j < n && lock.hasWaiters(notEmpty); j++)
+                notEmpty.signal();
+            return n;
+        } finally {
+            lock.unlock();
+        }
+    }
+
     /**
      * @throws UnsupportedOperationException {@inheritDoc}
      * @throws ClassCastException            {@inheritDoc}
@@ -677,6 +677,42 @@ public class LinkedBlockingQueue<E> extends AbstractQueue<E>
         }
     }
 
+    /**
+     * Inserts as many elements of the given collection at the tail of
+     * this queue as there is room for, acquiring the put lock once for the
+     * whole batch.  The collection is copied, and checked for null
+     * elements, before the lock is acquired; if it contains a null
+     * element, no element is inserted.
+     *
+     * @throws NullPointerException {@inheritDoc}
+     * @throws IllegalArgumentException {@inheritDoc}
+     * @since 12
+     */
+    @SuppressWarnings("unchecked")
+    public int offerAll(Collection<? extends E> c) {
+        final Object[] es = Helpers.batchArray(this, c);
+        final AtomicInteger count = this.count;
+        if (es.length == 0 || count.get() == capacity)
+            return 0;
+        final int k, n;
+        final ReentrantLock putLock = this.putLock;
+        putLock.lock();
+        try {
+            if ((n = Math.min(es.length, capacity - count.get())) == 0)
+                return 0;
+            for (int j = 0; j < n; j++)
+                enqueue(new Node<E>((E) es[j]));
+            k = count.getAndAdd(n);
+            if (k + n < capacity)
+                notFull.signal();
+        } finally {
+            putLock.unlock();
+        }
+        if (k == 0)
+            signalNotEmpty();   // takers cascade the signal
+        return n;
+    }
+
     /**
      * @throws UnsupportedOperationException {@inheritDoc}
      * @throws ClassCastException            {@inheritDoc}
@@ -1056,7 +1056,10 @@ public class LinkedTransferQueue<E> extends AbstractQueue<E>
             Node p, q;
             if ((p = current()) == null || (q = p.next) == null)
                 return null;
-            int i = 0, n = batch = Math.min(batch + 1, MAX_BATCH);
+            // Batch sizes grow geometrically, so that a spliterator
+            // over n elements splits O(log n) times
+            int i = 0, n = batch =
+                (batch == 0) ? 1 : Math.min(batch << 1, MAX_BATCH);
             Object[] a = null;
             do {
                 final Object item = p.item;
@@ -0,0 +1,1271 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.lang.ref.Reference;
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+import jdk.internal.misc.Unsafe;
+import sun.nio.ch.DirectBuffer;
+
+/**
+ * A concurrent hash map whose keys and values are stored in serialized
+ * form outside of the Java heap, in slabs of direct memory.  Heap
+ * occupancy is limited to the bin table (one {@code long} per bin) and a
+ * small object per slab, so garbage collection cost does not grow with the
+ * number of mappings.
+ *
+ * <p>Keys and values are converted to and from bytes by the
+ * {@link Serializer}s given at construction.  Keys are compared by their
+ * serialized form, so the key serializer must map equal keys to equal
+ * byte sequences, and {@code hashCode} must be consistent with that
+ * equality.  Values are likewise compared by serialized form in
+ * {@link #remove(Object, Object)} and
+ * {@link #replace(Object, Object, Object)}.  A value crosses back into
+ * the heap only when it is returned, as from {@link #get}; the
+ * {@link #store} and {@link #delete} methods update the map without
+ * materializing the previous value.  Neither keys nor values may be
+ * {@code null}.
+ *
+ * <p>Like {@link ConcurrentHashMap}, retrievals do not block, and
+ * updates lock only the bin they modify.  Iterators and the
+ * {@code size} method are weakly consistent.  Table expansion follows
+ * the {@code ConcurrentHashMap} protocol: transferred bins are marked as
+ * forwarded so that concurrent readers and writers continue in the new
+ * table.  Chains are not converted to trees, since serialized keys have
+ * no ordering.
+ *
+ * <p>Storage is allocated sequentially from slabs, and the space of
+ * removed or replaced records is reclaimed only by {@link #compact},
+ * which moves live records out of mostly-empty slabs and releases those
+ * slabs.  Compaction excludes updates, but not retrievals, while it runs.
+ * The {@link #close} method releases all direct memory; the map must
+ * not be used, by any thread, after it is closed.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @param <V> the type of mapped values
+ * @see ConcurrentHashMap
+ * @since 12
+ */
+public class OffHeapConcurrentHashMap<K,V> extends AbstractMap<K,V>
+    implements ConcurrentMap<K,V>, AutoCloseable {
+
+    /**
+     * Converts objects to and from the bytes stored by an
+     * {@code OffHeapConcurrentHashMap}.
+     *
+     * @param <T> the type of object serialized
+     */
+    public interface Serializer<T> {
+        /**
+         * Returns the exact number of bytes that {@link #serialize}
+         * writes for the given object.
+         *
+         * @param t the object
+         * @return the serialized size in bytes
+         */
+        int serializedSize(T t);
+
+        /**
+         * Writes the given object at the position of the given buffer.
+         *
+         * @param t the object
+         * @param dst the buffer, with at least {@code serializedSize(t)}
+         *        bytes remaining
+         */
+        void serialize(T t, ByteBuffer dst);
+
+        /**
+         * Reads an object from the given buffer, whose remaining bytes
+         * are exactly those written by {@link #serialize}.
+         *
+         * @param src the buffer
+         * @return the object
+         */
+        T deserialize(ByteBuffer src);
+    }
+
+    /*
+     * Overview:
+     *
+     * Each mapping is a record in a slab of direct memory:
+     *
+     *   0: long next    reference of the next record in the bin
+     *   8: int  hash    spread hash of the key
+     *  12: int  klen    serialized key length
+     *  16: int  vlen    serialized value length
+     *  20: key bytes, then value bytes, padded to a multiple of 8
+     *
+     * A record reference packs the slab index into the upper 32 bits
+     * and the offset within the slab into the lower 32.  Slab offsets
+     * start at 8, so no reference is 0, and records are 8-aligned, so
+     * the low bit of a reference is free.  Records are immutable once
+     * published except for their next field.
+     *
+     * The bin table is a long[] of record references, accessed with
+     * Unsafe volatile operations in the manner of ConcurrentHashMap's
+     * tabAt/casTabAt.  A bin is locked by setting its low bit (LOCKED)
+     * with a CAS, standing in for ConcurrentHashMap's synchronized
+     * first node, and unlocked by a volatile write of the new head.
+     * Only the lock holder may relink the chain; retrievals ignore the
+     * lock bit.  Serialization, memory allocation and copying of record
+     * payloads happen before the bin is locked, so lock hold times
+     * are short and spinning is adequate.
+     *
+     * Resizing is performed by a single thread, chosen by CAS on
+     * sizeCtl as in ConcurrentHashMap.  Each old bin is locked, split
+     * into low and high lists (reusing the trailing run that needs no
+     * change, copying the rest, as ConcurrentHashMap does with
+     * "lastRun"), and then replaced by MOVED, which plays the role of a
+     * ForwardingNode: anyone encountering it continues in Table.next.
+     * A transfer that fails (for instance on direct memory exhaustion)
+     * can be resumed from Table.transferIndex.
+     *
+     * Removed and superseded records become garbage that is counted per
+     * slab but not reused.  Updates, resizing and compaction all
+     * dereference records while holding memLock (shared for updates,
+     * exclusive for compaction), so no update can observe a record
+     * being moved.  Retrievals take no lock: they dereference records
+     * through a snapshot of the slabs array, which keeps released
+     * slabs reachable until the retrieval finishes.  Compaction never
+     * modifies the records it moves away from, so a retrieval already
+     * on them sees an intact (if stale) chain.  A retrieval that meets
+     * a reference to a slab missing from its snapshot retries under
+     * the shared lock.
+     */
+
+    /* ---------------- Constants -------------- */
+
+    /**
+     * The default number of bins.
+     */
+    static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * The largest possible table capacity.
+     */
+    static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    /**
+     * The default slab size in bytes.
+     */
+    static final int DEFAULT_SLAB_SIZE = 1 << 20;
+
+    /**
+     * The smallest slab size accepted by the constructor.
+     */
+    static final int MIN_SLAB_SIZE = 1 << 12;
+
+    static final long MOVED  = -1L; // bin transferred to Table.next
+    static final long LOCKED = 1L;  // low bit of a locked bin
+    static final int HASH_BITS = 0x7fffffff; // usable bits of normal hash
+
+    // Record layout
+    static final int NEXT   = 0;
+    static final int HASH   = 8;
+    static final int KLEN   = 12;
+    static final int VLEN   = 16;
+    static final int HEADER = 20;
+
+    /**
+     * Spreads higher bits of hash lower, as in ConcurrentHashMap.
+     */
+    static final int spread(int h) {
+        return (h ^ (h >>> 16)) & HASH_BITS;
+    }
+
+    /**
+     * Returns the padded size of a record with the given payload.
+     */
+    static final int recordSize(int payload) {
+        return (HEADER + payload + 7) & ~7;
+    }
+
+    /* ---------------- Slabs and tables -------------- */
+
+    /**
+     * A region of direct memory from which records are allocated by
+     * bumping top.
+     */
+    static final class Slab {
+        final ByteBuffer buf;  // keeps the memory alive
+        final long address;
+        final int capacity;
+        final int index;
+        volatile int top;      // offset of first unallocated byte
+        volatile int garbage;  // bytes held by dead records
+
+        Slab(int index, int capacity) {
+            this.buf = ByteBuffer.allocateDirect(capacity);
+            this.address = ((DirectBuffer)buf).address();
+            this.capacity = capacity;
+            this.index = index;
+            this.top = 8;
+        }
+    }
+
+    /**
+     * A bin table.  Tables are replaced, never resized in place.
+     */
+    static final class Table {
+        final long[] bins;
+        volatile Table next;   // non-null once a transfer has begun
+        int transferIndex;     // bins [0, transferIndex) remain to move
+
+        Table(int n) {
+            bins = new long[n];
+            transferIndex = n;
+        }
+    }
+
+    static final long binAt(long[] bins, int i) {
+        return U.getLongVolatile(bins, ((long)i << ASHIFT) + ABASE);
+    }
+
+    static final boolean casBinAt(long[] bins, int i, long c, long v) {
+        return U.compareAndSetLong(bins, ((long)i << ASHIFT) + ABASE, c, v);
+    }
+
+    static final void setBinAt(long[] bins, int i, long v) {
+        U.putLongVolatile(bins, ((long)i << ASHIFT) + ABASE, v);
+    }
+
+    /* ---------------- Fields -------------- */
+
+    final Serializer<K> keySerializer;
+    final Serializer<V> valueSerializer;
+    final int slabSize;
+
+    /**
+     * The bin table.
+     */
+    private transient volatile Table table;
+
+    /**
+     * Table initialization and resizing control.  When negative, a
+     * transfer is in progress.  Otherwise holds the element count at
+     * which to resize next.
+     */
+    private transient volatile int sizeCtl;
+
+    /**
+     * All slabs, indexed by slab index; released slabs are null.
+     * Replaced (copy-on-write), never modified once published.
+     */
+    private transient volatile Slab[] slabs;
+
+    /**
+     * The slab currently allocated from.
+     */
+    private transient volatile Slab active;
+
+    /**
+     * Guards slab creation and slab array replacement.
+     */
+    private final Object slabLock = new Object();
+
+    /**
+     * Excludes compaction, clearing and closing from updates.
+     */
+    private final StampedLock memLock = new StampedLock();
+
+    private final LongAdder count = new LongAdder();
+
+    private volatile boolean closed;
+
+    // views
+    private transient EntrySetView<K,V> entrySet;
+
+    /* ---------------- Public operations -------------- */
+
+    /**
+     * Creates a new, empty map with the default initial table size (16)
+     * and slab size (1 MiB).
+     *
+     * @param keySerializer the serializer for keys
+     * @param valueSerializer the serializer for values
+     * @throws NullPointerException if either serializer is null
+     */
+    public OffHeapConcurrentHashMap(Serializer<K> keySerializer,
+                                    Serializer<V> valueSerializer) {
+        this(keySerializer, valueSerializer, DEFAULT_CAPACITY,
+             DEFAULT_SLAB_SIZE);
+    }
+
+    /**
+     * Creates a new, empty map with an initial table size accommodating
+     * the specified number of elements without the need to dynamically
+     * resize, and the given slab size.  Records larger than a slab are
+     * given a slab of their own.
+     *
+     * @param keySerializer the serializer for keys
+     * @param valueSerializer the serializer for values
+     * @param initialCapacity the implementation performs internal
+     *        sizing to accommodate this many elements
+     * @param slabSize the size in bytes of each block of direct memory
+     * @throws IllegalArgumentException if the initial capacity is
+     *         negative or the slab size is less than 4096
+     * @throws NullPointerException if either serializer is null
+     */
+    public OffHeapConcurrentHashMap(Serializer<K> keySerializer,
+                                    Serializer<V> valueSerializer,
+                                    int initialCapacity, int slabSize) {
+        if (keySerializer == null || valueSerializer == null)
+            throw new NullPointerException();
+        if (initialCapacity < 0 || slabSize < MIN_SLAB_SIZE)
+            throw new IllegalArgumentException();
+        this.keySerializer = keySerializer;
+        this.valueSerializer = valueSerializer;
+        this.slabSize = slabSize;
+        int cap = (initialCapacity >= (MAXIMUM_CAPACITY >>> 1)) ?
+            MAXIMUM_CAPACITY :
+            Math.max(tableSizeFor(initialCapacity + (initialCapacity >>> 1) + 1),
+                     DEFAULT_CAPACITY);
+        this.table = new Table(cap);
+        this.sizeCtl = cap - (cap >>> 2);
+        Slab s = new Slab(0, slabSize);
+        this.slabs = new Slab[] { s };
+        this.active = s;
+    }
+
+    private static final int tableSizeFor(int c) {
+        int n = -1 >>> Integer.numberOfLeadingZeros(c - 1);
+        return (n < 0) ? 1 : (n >= MAXIMUM_CAPACITY) ? MAXIMUM_CAPACITY : n + 1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int size() {
+        long n = count.sum();
+        return ((n < 0L) ? 0 :
+                (n > (long)Integer.MAX_VALUE) ? Integer.MAX_VALUE :
+                (int)n);
+    }
+
+    /**
+     * Returns the number of mappings.  This method should be used
+     * instead of {@link #size} because a map may contain more mappings
+     * than can be represented as an int.  The value returned is an
+     * estimate; the actual count may differ if there are concurrent
+     * insertions or removals.
+     *
+     * @return the number of mappings
+     */
+    public long mappingCount() {
+        long n = count.sum();
+        return (n < 0L) ? 0L : n;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isEmpty() {
+        return count.sum() <= 0L;
+    }
+
+    /**
+     * Returns the value to which the specified key is mapped,
+     * or {@code null} if this map contains no mapping for the key.
+     *
+     * @throws NullPointerException if the specified key is null
+     * @throws ClassCastException if the key cannot be handled by the
+     *         key serializer
+     */
+    public V get(Object key) {
+        byte[] kb = serialize(key, null);
+        byte[] vb = find(kb, kb.length, spread(key.hashCode()), true);
+        return (vb == null) ? null :
+            valueSerializer.deserialize(ByteBuffer.wrap(vb));
+    }
+
+    /**
+     * Tests if the specified object is a key in this map.
+     *
+     * @param  key possible key
+     * @return {@code true} if and only if the specified object
+     *         is a key in this map
+     * @throws NullPointerException if the specified key is null
+     */
+    public boolean containsKey(Object key) {
+        byte[] kb = serialize(key, null);
+        return find(kb, kb.length, spread(key.hashCode()), false) != null;
+    }
+
+    private static final byte[] PRESENT = new byte[0];
+
+    /**
+     * Finds the record for the key serialized in the first klen bytes
+     * of kb, returning a copy of its value bytes, or PRESENT if
+     * copyValue is false, or null if absent.
+     */
+    private byte[] find(byte[] kb, int klen, int h, boolean copyValue) {
+        if (closed)
+            throw new IllegalStateException("closed");
+        Slab[] ss = slabs;
+        try {
+            byte[] r = findIn(ss, kb, klen, h, copyValue);
+            if (r != RETRY)
+                return r;
+        } finally {
+            Reference.reachabilityFence(ss);
+        }
+        long stamp = memLock.readLock();
+        try {
+            checkOpen();
+            return findIn(null, kb, klen, h, copyValue);
+        } finally {
+            memLock.unlockRead(stamp);
+        }
+    }
+
+    private static final byte[] RETRY = new byte[0];
+
+    /**
+     * Searches for the key using the given slabs snapshot, or if ss is
+     * null, the current slabs (caller holds memLock).  Returns RETRY if
+     * the snapshot does not cover a record encountered.
+     */
+    private byte[] findIn(Slab[] ss, byte[] kb, int klen, int h,
+                          boolean copyValue) {
+        for (Table t = table;;) {
+            long[] bins = t.bins;
+            long f = binAt(bins, (bins.length - 1) & h);
+            if (f == MOVED) {
+                t = t.next;
+                continue;
+            }
+            for (long r = f & ~LOCKED; r != 0L; ) {
+                long a = (ss == null) ? address(r) : address(ss, r);
+                if (a == 0L)
+                    return RETRY;
+                if (U.getInt(a + HASH) == h && keyMatches(a, kb, klen)) {
+                    if (!copyValue)
+                        return PRESENT;
+                    return copyValue(a);
+                }
+                r = U.getLongVolatile(null, a + NEXT);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Maps the given key to the given value, returning the previous
+     * value.  Unlike {@link #store}, the previous value is deserialized.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}
+     * @throws NullPointerException if the specified key or value is null
+     */
+    @SuppressWarnings("unchecked")
+    public V put(K key, V value) {
+        return (V)update(key, value, null, PUT, true);
+    }
+
+    /**
+     * Maps the given key to the given value, discarding any previous
+     * value without deserializing it.
+     *
+     * @param key key with which the specified value is to be associated
+     * @param value value to be associated with the specified key
+     * @throws NullPointerException if the specified key or value is null
+     */
+    public void store(K key, V value) {
+        update(key, value, null, PUT, false);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return the previous value associated with the specified key,
+     *         or {@code null} if there was no mapping for the key
+     * @throws NullPointerException if the specified key or value is null
+     */
+    @SuppressWarnings("unchecked")
+    public V putIfAbsent(K key, V value) {
+        return (V)update(key, value, null, IF_ABSENT, true);
+    }
+
+    /**
+     * Removes the key (and its corresponding value) from this map.
+     * This method does nothing if the key is not in the map.
+     *
+     * @param  key the key that needs to be removed
+     * @return the previous value associated with {@code key}, or
+     *         {@code null} if there was no mapping for {@code key}
+     * @throws NullPointerException if the specified key is null
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        return (V)update((K)key, null, null, REMOVE, true);
+    }
+
+    /**
+     * Removes the key (and its corresponding value) from this map
+     * without deserializing the value.
+     *
+     * @param  key the key that needs to be removed
+     * @return {@code true} if a mapping was removed
+     * @throws NullPointerException if the specified key is null
+     */
+    @SuppressWarnings("unchecked")
+    public boolean delete(Object key) {
+        return update((K)key, null, null, REMOVE, false) != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the specified key is null
+     */
+    @SuppressWarnings("unchecked")
+    public boolean remove(Object key, Object value) {
+        if (key == null)
+            throw new NullPointerException();
+        return value != null &&
+            update((K)key, null, (V)value, REMOVE, false) != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if any of the arguments are null
+     */
+    public boolean replace(K key, V oldValue, V newValue) {
+        if (key == null || oldValue == null || newValue == null)
+            throw new NullPointerException();
+        return update(key, newValue, oldValue, IF_PRESENT, false) != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return the previous value associated with the specified key,
+     *         or {@code null} if there was no mapping for the key
+     * @throws NullPointerException if the specified key or value is null
+     */
+    @SuppressWarnings("unchecked")
+    public V replace(K key, V value) {
+        if (key == null || value == null)
+            throw new NullPointerException();
+        return (V)update(key, value, null, IF_PRESENT, true);
+    }
+
+    /**
+     * Removes all of the mappings from this map.  The slabs are
+     * released to the garbage collector rather than freed eagerly,
+     * since concurrent retrievals may still be reading them.
+     */
+    public void clear() {
+        long stamp = memLock.writeLock();
+        try {
+            checkOpen();
+            Table t = table;
+            int n = t.bins.length;
+            table = new Table(n);
+            sizeCtl = n - (n >>> 2);
+            count.reset();
+            synchronized (slabLock) {
+                Slab[] ss = slabs;
+                Slab s = new Slab(ss.length, slabSize);
+                Slab[] ns = new Slab[ss.length + 1];
+                ns[s.index] = s;
+                slabs = ns;
+                active = s;
+            }
+        } finally {
+            memLock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Relocates live records out of slabs that are at least half
+     * garbage (or unused space), and releases those slabs.  Updates
+     * are blocked while compaction runs; retrievals are not.  Released
+     * slabs are returned to the garbage collector, since concurrent
+     * retrievals may still be reading them.
+     *
+     * @return the number of bytes of direct memory released
+     */
+    public long compact() {
+        long stamp = memLock.writeLock();
+        try {
+            checkOpen();
+            Slab[] ss = slabs;
+            Slab act = active;
+            boolean[] victim = new boolean[ss.length];
+            long released = 0L;
+            for (Slab s : ss) {
+                if (s != null && s != act &&
+                    (s.top - 8 - s.garbage) * 2L <= s.capacity) {
+                    victim[s.index] = true;
+                    released += s.capacity;
+                }
+            }
+            if (released == 0L)
+                return 0L;
+            Table t = table;
+            if (t.next != null) {       // finish an abandoned transfer
+                transfer(t);
+                int m = table.bins.length;
+                sizeCtl = (m >= MAXIMUM_CAPACITY) ? Integer.MAX_VALUE :
+                    m - (m >>> 2);
+            }
+            long[] bins = table.bins;
+            for (int i = 0; i < bins.length; ++i) {
+                long pred = 0L;
+                for (long r = binAt(bins, i); r != 0L; ) {
+                    long a = address(r);
+                    long next = U.getLong(a + NEXT);
+                    int si = (int)(r >>> 32);
+                    if (si < victim.length && victim[si]) {
+                        long c = copyRecord(a, next);
+                        if (pred == 0L)
+                            setBinAt(bins, i, c);
+                        else
+                            U.putLongVolatile(null, address(pred) + NEXT, c);
+                        pred = c;
+                    }
+                    else
+                        pred = r;
+                    r = next;
+                }
+            }
+            synchronized (slabLock) {
+                Slab[] ns = slabs.clone();
+                for (int i = 0; i < victim.length; ++i) {
+                    if (victim[i])
+                        ns[i] = null;
+                }
+                slabs = ns;
+            }
+            return released;
+        } finally {
+            memLock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Returns the number of bytes of direct memory currently held by
+     * this map, including garbage awaiting {@link #compact}.
+     *
+     * @return the number of bytes of direct memory held
+     */
+    public long directMemoryUsed() {
+        long n = 0L;
+        for (Slab s : slabs) {
+            if (s != null)
+                n += s.capacity;
+        }
+        return n;
+    }
+
+    /**
+     * Releases all direct memory held by this map.  As with {@link
+     * #clear}, the slabs are released to the garbage collector rather
+     * than freed eagerly, since a retrieval that passed its check for
+     * closure may still be reading them.  The map must not be used by
+     * any thread after this method is called; subsequent operations
+     * throw {@code IllegalStateException} on a best-effort basis.
+     * Invoking this method on a closed map has no effect.
+     */
+    public void close() {
+        closed = true;
+        long stamp = memLock.writeLock();
+        try {
+            Slab[] ss = slabs;
+            if (ss.length == 0)
+                return;
+            slabs = new Slab[0];
+            active = null;
+            table = new Table(1);
+            count.reset();
+        } finally {
+            memLock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Returns a {@link Set} view of the mappings contained in this map.
+     * The view's iterators and spliterators are weakly consistent, and
+     * deserialize each key and value as it is returned.
+     *
+     * @return the set view
+     */
+    public Set<Map.Entry<K,V>> entrySet() {
+        EntrySetView<K,V> es;
+        return (es = entrySet) != null ? es : (entrySet = new EntrySetView<K,V>(this));
+    }
+
+    /* ---------------- Update implementation -------------- */
+
+    // update modes
+    static final int PUT        = 0;
+    static final int IF_ABSENT  = 1;
+    static final int IF_PRESENT = 2;
+    static final int REMOVE     = 3;
+
+    /**
+     * Implementation for all updates.  Serializes the key and (unless
+     * removing) the new value, then, holding memLock in shared mode,
+     * locks the bin and applies the update.  If expect is non-null the
+     * update takes effect only if the current value serializes equally.
+     *
+     * @return if needOld, the previous value or null; otherwise a
+     *         non-null object if and only if a previous mapping existed
+     *         and the update took effect (or, for IF_ABSENT, if a
+     *         previous mapping existed)
+     */
+    private Object update(K key, V value, V expect, int mode, boolean needOld) {
+        if (key == null || (mode != REMOVE && value == null))
+            throw new NullPointerException();
+        byte[] rec = serialize(key, value);
+        int klen = keySerializer.serializedSize(key);
+        byte[] eb = (expect == null) ? null : serialize(null, expect);
+        int h = spread(key.hashCode());
+        if (mode == IF_ABSENT) {
+            // Avoid writing a record that would only become garbage
+            byte[] vb = find(rec, klen, h, needOld);
+            if (vb != null)
+                return needOld ? valueSerializer.deserialize(ByteBuffer.wrap(vb)) : vb;
+        }
+        long stamp = memLock.readLock();
+        try {
+            checkOpen();
+            long nr = (mode == REMOVE) ? 0L : writeRecord(h, rec, klen);
+            long old = updateBin(h, rec, klen, nr, eb, mode);
+            if (old == 0L || (old < 0L && mode != IF_ABSENT))
+                return null;
+            if (!needOld)
+                return PRESENT;
+            long a = address(Math.abs(old));
+            return valueSerializer.deserialize(ByteBuffer.wrap(copyValue(a)));
+        } finally {
+            memLock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Applies an update to the bin for h.  Returns the reference of
+     * the previous record for the key, negated if the mapping was left
+     * unchanged, or 0 if there was none.  Unused new records become
+     * garbage.  Caller holds memLock in shared mode.
+     */
+    private long updateBin(int h, byte[] rec, int klen, long nr,
+                           byte[] expect, int mode) {
+        long old = 0L;
+        boolean added = false;
+        for (Table t = table;;) {
+            long[] bins = t.bins;
+            int i = (bins.length - 1) & h;
+            long f = binAt(bins, i);
+            if (f == MOVED) {
+                t = t.next;
+                continue;
+            }
+            if ((f & LOCKED) != 0L || !casBinAt(bins, i, f, f | LOCKED)) {
+                Thread.onSpinWait();
+                continue;
+            }
+            long head = f;
+            try {
+                long pred = 0L, pa = 0L;
+                for (long r = f; r != 0L; ) {
+                    long a = address(r);
+                    long next = U.getLong(a + NEXT);
+                    if (U.getInt(a + HASH) == h && keyMatches(a, rec, klen)) {
+                        if (mode == IF_ABSENT ||
+                            (expect != null && !valueMatches(a, expect))) {
+                            old = -r;
+                            break;
+                        }
+                        old = r;
+                        long succ = next;
+                        if (nr != 0L) {
+                            U.putLong(address(nr) + NEXT, next);
+                            succ = nr;
+                            nr = 0L;
+                        }
+                        if (pred == 0L)
+                            head = succ;
+                        else
+                            U.putLongVolatile(null, pa + NEXT, succ);
+                        retire(r, a);
+                        break;
+                    }
+                    pred = r;
+                    pa = a;
+                    r = next;
+                }
+                if (old == 0L && nr != 0L && mode != IF_PRESENT) {
+                    U.putLong(address(nr) + NEXT, f);
+                    head = nr;
+                    nr = 0L;
+                    added = true;
+                }
+            } finally {
+                setBinAt(bins, i, head);
+                if (nr != 0L)
+                    retire(nr, address(nr));
+            }
+            break;
+        }
+        if (added) {
+            count.increment();
+            int sc;
+            if (count.sum() >= (long)(sc = sizeCtl) && sc >= 0)
+                tryResize(sc);
+        }
+        else if (old > 0L && mode == REMOVE)
+            count.decrement();
+        return old;
+    }
+
+    /**
+     * Expands the table if no other thread is doing so.  Caller holds
+     * memLock in shared mode.
+     */
+    private void tryResize(int sc) {
+        Table t = table;
+        int n = t.bins.length;
+        if (n >= MAXIMUM_CAPACITY ||
+            !U.compareAndSetInt(this, SIZECTL, sc, -1))
+            return;
+        try {
+            if (table == t)
+                transfer(t);
+        } finally {
+            int m = table.bins.length;
+            sizeCtl = (m >= MAXIMUM_CAPACITY) ? Integer.MAX_VALUE :
+                m - (m >>> 2);
+        }
+    }
+
+    /**
+     * Moves the remaining bins of t to t.next, creating it if needed,
+     * then installs t.next as the table.  Caller has claimed sizeCtl.
+     */
+    private void transfer(Table t) {
+        long[] bins = t.bins;
+        int n = bins.length;
+        Table nt = t.next;
+        if (nt == null)
+            t.next = nt = new Table(n << 1);
+        long[] nbins = nt.bins;
+        for (int i = t.transferIndex - 1; i >= 0; t.transferIndex = i--) {
+            long f;
+            while (((f = binAt(bins, i)) & LOCKED) != 0L ||
+                   !casBinAt(bins, i, f, f | LOCKED))
+                Thread.onSpinWait();
+            long lo = 0L, hi = 0L, result = MOVED;
+            try {
+                if (f != 0L) {
+                    long lastRun = f;
+                    int runBit = U.getInt(address(f) + HASH) & n;
+                    for (long p = U.getLong(address(f) + NEXT); p != 0L;
+                         p = U.getLong(address(p) + NEXT)) {
+                        int b = U.getInt(address(p) + HASH) & n;
+                        if (b != runBit) {
+                            runBit = b;
+                            lastRun = p;
+                        }
+                    }
+                    if (runBit == 0)
+                        lo = lastRun;
+                    else
+                        hi = lastRun;
+                    for (long p = f; p != lastRun;
+                         p = U.getLong(address(p) + NEXT)) {
+                        long a = address(p);
+                        if ((U.getInt(a + HASH) & n) == 0)
+                            lo = copyRecord(a, lo);
+                        else
+                            hi = copyRecord(a, hi);
+                    }
+                    for (long p = f; p != lastRun; ) {
+                        long a = address(p);
+                        retire(p, a);
+                        p = U.getLong(a + NEXT);
+                    }
+                }
+                setBinAt(nbins, i, lo);
+                setBinAt(nbins, i + n, hi);
+            } catch (Throwable ex) {
+                result = f;     // leave bin unmoved; transfer can resume
+                throw ex;
+            } finally {
+                setBinAt(bins, i, result);
+            }
+        }
+        t.transferIndex = 0;
+        table = nt;
+    }
+
+    /* ---------------- Record and memory management -------------- */
+
+    private void checkOpen() {
+        if (closed)
+            throw new IllegalStateException("closed");
+    }
+
+    /**
+     * Serializes key followed by value into a heap array; either may
+     * be null.
+     */
+    @SuppressWarnings("unchecked")
+    private byte[] serialize(Object key, V value) {
+        int klen = (key == null) ? 0 : keySerializer.serializedSize((K)key);
+        int vlen = (value == null) ? 0 : valueSerializer.serializedSize(value);
+        if (klen < 0 || vlen < 0 || klen + vlen < 0)
+            throw new IllegalArgumentException("Illegal serialized size");
+        ByteBuffer bb = ByteBuffer.wrap(new byte[klen + vlen]);
+        if (key != null)
+            keySerializer.serialize((K)key, bb);
+        if (bb.position() != klen)
+            throw new IllegalStateException("Key serializer wrote " +
+                                            bb.position() + " bytes, expected " + klen);
+        if (value != null)
+            valueSerializer.serialize(value, bb);
+        if (bb.position() != klen + vlen)
+            throw new IllegalStateException("Value serializer wrote " +
+                                            (bb.position() - klen) +
+                                            " bytes, expected " + vlen);
+        return bb.array();
+    }
+
+    /**
+     * Returns the address of the record, using the given slabs snapshot,
+     * or 0 if the snapshot does not cover it.
+     */
+    static long address(Slab[] ss, long ref) {
+        int si = (int)(ref >>> 32);
+        Slab s;
+        return (si < ss.length && (s = ss[si]) != null) ?
+            s.address + (int)ref : 0L;
+    }
+
+    /**
+     * Returns the address of a record that is known to be live.
+     * Caller holds memLock.
+     */
+    final long address(long ref) {
+        return slabs[(int)(ref >>> 32)].address + (int)ref;
+    }
+
+    private static boolean keyMatches(long a, byte[] rec, int klen) {
+        return U.getInt(a + KLEN) == klen &&
+            bytesMatch(a + HEADER, rec, 0, klen);
+    }
+
+    private static boolean valueMatches(long a, byte[] vb) {
+        return U.getInt(a + VLEN) == vb.length &&
+            bytesMatch(a + HEADER + U.getInt(a + KLEN), vb, 0, vb.length);
+    }
+
+    private static boolean bytesMatch(long addr, byte[] b, int off, int len) {
+        int i = 0;
+        for (long base = BYTE_BASE + off; i <= len - 8; i += 8) {
+            if (U.getLongUnaligned(null, addr + i) !=
+                U.getLongUnaligned(b, base + i))
+                return false;
+        }
+        for (; i < len; ++i) {
+            if (U.getByte(addr + i) != b[off + i])
+                return false;
+        }
+        return true;
+    }
+
+    private static byte[] copyValue(long a) {
+        int klen = U.getInt(a + KLEN), vlen = U.getInt(a + VLEN);
+        byte[] vb = new byte[vlen];
+        U.copyMemory(null, a + HEADER + klen, vb, BYTE_BASE, vlen);
+        return vb;
+    }
+
+    /**
+     * Allocates and fills a new record, unlinked.  Caller holds memLock.
+     */
+    private long writeRecord(int h, byte[] rec, int klen) {
+        long ref = allocate(recordSize(rec.length));
+        long a = address(ref);
+        U.putLong(a + NEXT, 0L);
+        U.putInt(a + HASH, h);
+        U.putInt(a + KLEN, klen);
+        U.putInt(a + VLEN, rec.length - klen);
+        U.copyMemory(rec, BYTE_BASE, null, a + HEADER, rec.length);
+        return ref;
+    }
+
+    /**
+     * Copies the record at address a to a new record with the given
+     * next reference.  Caller holds memLock.
+     */
+    private long copyRecord(long a, long next) {
+        int payload = U.getInt(a + KLEN) + U.getInt(a + VLEN);
+        int size = recordSize(payload);
+        long ref = allocate(size);
+        long c = address(ref);
+        U.copyMemory(null, a, null, c, size);
+        U.putLong(c + NEXT, next);
+        return ref;
+    }
+
+    /**
+     * Accounts the record as garbage in its slab.
+     */
+    private void retire(long ref, long a) {
+        int size = recordSize(U.getInt(a + KLEN) + U.getInt(a + VLEN));
+        Slab s = slabs[(int)(ref >>> 32)];
+        U.getAndAddInt(s, GARBAGE, size);
+    }
+
+    /**
+     * Allocates size bytes, returning the record reference.  Caller
+     * holds memLock.
+     *
+     * @throws OutOfMemoryError if direct memory is exhausted
+     */
+    private long allocate(int size) {
+        for (;;) {
+            Slab s = active;
+            if (s == null)
+                throw new IllegalStateException("closed");
+            int top = s.top;
+            if (top <= s.capacity - size) {
+                if (U.compareAndSetInt(s, TOP, top, top + size))
+                    return ((long)s.index << 32) | top;
+            }
+            else {
+                long ref = newSlab(s, size);
+                if (ref != 0L)
+                    return ref;
+            }
+        }
+    }
+
+    /**
+     * Installs a new active slab to replace the given full one, unless
+     * another thread already has.  A request too large for a standard
+     * slab is satisfied from a dedicated slab, whose reference is
+     * returned; otherwise returns 0.
+     */
+    private long newSlab(Slab full, int size) {
+        synchronized (slabLock) {
+            boolean oversized = size > slabSize - 8;
+            if (!oversized && active != full)
+                return 0L;
+            Slab[] ss = slabs;
+            int index = ss.length;
+            if (index == Integer.MAX_VALUE)
+                throw new IllegalStateException("Too many slabs");
+            Slab s = new Slab(index, oversized ? size + 8 : slabSize);
+            Slab[] ns = Arrays.copyOf(ss, index + 1);
+            ns[index] = s;
+            slabs = ns;
+            if (oversized) {
+                s.top = 8 + size;
+                return ((long)index << 32) | 8;
+            }
+            active = s;
+            return 0L;
+        }
+    }
+
+    /* ---------------- Views -------------- */
+
+    /**
+     * A weakly consistent iterator over the entries of the map.  Each
+     * bin's records are copied to the heap under the shared memLock, one
+     * bin at a time, and deserialized as they are returned.
+     */
+    static final class EntryIterator<K,V> implements Iterator<Map.Entry<K,V>> {
+        final OffHeapConcurrentHashMap<K,V> map;
+        final Table table;
+        final ArrayDeque<byte[][]> pending = new ArrayDeque<>();
+        int index;
+        K lastKey;
+
+        EntryIterator(OffHeapConcurrentHashMap<K,V> map) {
+            this.map = map;
+            this.table = map.table;
+        }
+
+        public boolean hasNext() {
+            while (pending.isEmpty() && index < table.bins.length) {
+                long stamp = map.memLock.readLock();
+                try {
+                    map.checkOpen();
+                    collect(table, index++);
+                } finally {
+                    map.memLock.unlockRead(stamp);
+                }
+            }
+            return !pending.isEmpty();
+        }
+
+        /**
+         * Copies the records of bin i of t, following forwarded bins.
+         */
+        private void collect(Table t, int i) {
+            long f = binAt(t.bins, i);
+            if (f == MOVED) {
+                Table nt = t.next;
+                collect(nt, i);
+                collect(nt, i + t.bins.length);
+                return;
+            }
+            for (long r = f & ~LOCKED; r != 0L; ) {
+                long a = map.address(r);
+                int klen = U.getInt(a + KLEN);
+                byte[] kb = new byte[klen];
+                U.copyMemory(null, a + HEADER, kb, BYTE_BASE, klen);
+                pending.add(new byte[][] { kb, copyValue(a) });
+                r = U.getLongVolatile(null, a + NEXT);
+            }
+        }
+
+        public Map.Entry<K,V> next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            byte[][] kv = pending.poll();
+            K k = map.keySerializer.deserialize(ByteBuffer.wrap(kv[0]));
+            V v = map.valueSerializer.deserialize(ByteBuffer.wrap(kv[1]));
+            lastKey = k;
+            return new MapEntry<K,V>(k, v, map);
+        }
+
+        public void remove() {
+            K k = lastKey;
+            if (k == null)
+                throw new IllegalStateException();
+            lastKey = null;
+            map.delete(k);
+        }
+    }
+
+    /**
+     * Exported Entry for EntryIterator.  As with ConcurrentHashMap's
+     * entries, setValue writes through to the map.
+     */
+    static final class MapEntry<K,V> implements Map.Entry<K,V> {
+        final K key;
+        V val;
+        final OffHeapConcurrentHashMap<K,V> map;
+
+        MapEntry(K key, V val, OffHeapConcurrentHashMap<K,V> map) {
+            this.key = key;
+            this.val = val;
+            this.map = map;
+        }
+        public K getKey()        { return key; }
+        public V getValue()      { return val; }
+        public int hashCode()    { return key.hashCode() ^ val.hashCode(); }
+        public String toString() { return key + "=" + val; }
+
+        public boolean equals(Object o) {
+            Object k, v; Map.Entry<?,?> e;
+            return ((o instanceof Map.Entry) &&
+                    (k = (e = (Map.Entry<?,?>)o).getKey()) != null &&
+                    (v = e.getValue()) != null &&
+                    (k == key || k.equals(key)) &&
+                    (v == val || v.equals(val)));
+        }
+
+        public V setValue(V value) {
+            if (value == null) throw new NullPointerException();
+            V v = val;
+            val = value;
+            map.store(key, value);
+            return v;
+        }
+    }
+
+    static final class EntrySetView<K,V> extends AbstractSet<Map.Entry<K,V>> {
+        final OffHeapConcurrentHashMap<K,V> map;
+
+        EntrySetView(OffHeapConcurrentHashMap<K,V> map) {
+            this.map = map;
+        }
+
+        public int size()                          { return map.size(); }
+        public boolean isEmpty()                   { return map.isEmpty(); }
+        public void clear()                        { map.clear(); }
+        public Iterator<Map.Entry<K,V>> iterator() { return new EntryIterator<K,V>(map); }
+
+        public boolean contains(Object o) {
+            Object k, v, r; Map.Entry<?,?> e;
+            return ((o instanceof Map.Entry) &&
+                    (k = (e = (Map.Entry<?,?>)o).getKey()) != null &&
+                    (r = map.get(k)) != null &&
+                    (v = e.getValue()) != null &&
+                    (v == r || v.equals(r)));
+        }
+
+        public boolean remove(Object o) {
+            Object k, v; Map.Entry<?,?> e;
+            return ((o instanceof Map.Entry) &&
+                    (k = (e = (Map.Entry<?,?>)o).getKey()) != null &&
+                    (v = e.getValue()) != null &&
+                    map.remove(k, v));
+        }
+    }
+
+    // Unsafe mechanics
+    private static final Unsafe U = Unsafe.getUnsafe();
+    private static final long SIZECTL;
+    private static final long TOP;
+    private static final long GARBAGE;
+    private static final int ABASE;
+    private static final int ASHIFT;
+    private static final long BYTE_BASE;
+
+    static {
+        SIZECTL = U.objectFieldOffset
+            (OffHeapConcurrentHashMap.class, "sizeCtl");
+        TOP = U.objectFieldOffset(Slab.class, "top");
+        GARBAGE = U.objectFieldOffset(Slab.class, "garbage");
+
+        ABASE = U.arrayBaseOffset(long[].class);
+        int scale = U.arrayIndexScale(long[].class);
+        if ((scale & (scale - 1)) != 0)
+            throw new ExceptionInInitializerError("array index scale not a power of two");
+        ASHIFT = 31 - Integer.numberOfLeadingZeros(scale);
+        BYTE_BASE = U.arrayBaseOffset(byte[].class);
+    }
+}
@@ -711,6 +711,56 @@ public class PriorityBlockingQueue<E> extends AbstractQueue<E>
         return Helpers.collectionToString(this);
     }
 
+    /**
+     * Inserts all elements of the given collection into this priority
+     * queue, acquiring the lock once for the whole batch.  The
+     * collection is copied, and checked for null elements, before the
+     * lock is acquired; if it contains a null element, no element is
+     * inserted.  As the queue is unbounded, all elements are inserted
+     * unless an element cannot be compared with the elements currently
+     * in the queue, in which case the elements preceding it remain
+     * inserted.
+     *
+     * @return the number of elements in the specified collection
+     * @throws ClassCastException if an element of the specified
+     *         collection cannot be compared with elements currently in
+     *         the priority queue according to the priority queue's ordering
+     * @throws NullPointerException {@inheritDoc}
+     * @throws IllegalArgumentException {@inheritDoc}
+     * @since 12
+     */
+    @SuppressWarnings("unchecked")
+    public int offerAll(Collection<? extends E> c) {
+        final Object[] batch = Helpers.batchArray(this, c);
+        final int k = batch.length;
+        if (k == 0)
+            return 0;
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        int n, cap, added = 0;
+        Object[] es;
+        while (k > (cap = (es = queue).length) - (n = size))
+            tryGrow(es, cap);
+        try {
+            final Comparator<? super E> cmp = comparator;
+            for (Object e : batch) {
+                if (cmp == null)
+                    siftUpComparable(n, (E) e, es);
+                else
+                    siftUpUsingComparator(n, (E) e, es, cmp);
+                size = ++n;
+                added++;
+            }
+        } finally {
+            // wake one taker per element inserted, even if a later
+            // element could not be compared
+            for (int j = 0; j < added && lock.hasWaiters(notEmpty); j++)
+                notEmpty.signal();
+            lock.unlock();
+        }
+        return k;
+    }
+
     /**
      * @throws UnsupportedOperationException {@inheritDoc}
      * @throws ClassCastException            {@inheritDoc}
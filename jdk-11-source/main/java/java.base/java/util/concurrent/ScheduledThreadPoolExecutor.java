@@ -63,6 +63,18 @@ import java.util.concurrent.locks.ReentrantLock;
  * execution time are enabled in first-in-first-out (FIFO) order of
  * submission.
  *
+ * <p>By default, delayed tasks are held in a priority queue, so that
+ * scheduling and cancelling a task take time logarithmic in the
+ * number of queued tasks.  An executor constructed with a <em>tick
+ * duration</em> instead holds them in a hierarchical timer wheel, in
+ * which scheduling and cancelling take constant time.  This suits
+ * large numbers of timeouts that are usually cancelled before they
+ * expire, especially together with {@link #setRemoveOnCancelPolicy}.
+ * Such an executor enables each delayed task at the end of the first
+ * tick that ends at or after its trigger time, so tasks may be
+ * enabled up to one tick later than requested, and tasks enabled by
+ * the same tick are not ordered by trigger time.
+ *
  * <p>When a submitted task is cancelled before it is run, execution
  * is suppressed.  By default, such a cancelled task is not
  * automatically removed from the work queue until its delay elapses.
@@ -148,6 +160,8 @@ public class ScheduledThreadPoolExecutor
      *    the fact that corePoolSize and maximumPoolSize are
      *    effectively identical simplifies some execution mechanics
      *    (see delayedExecute) compared to ThreadPoolExecutor.
+     *    Executors constructed with a tick duration instead use
+     *    TimerWheelQueue, which is similarly unbounded.
      *
      * 3. Supporting optional run-after-shutdown parameters, which
      *    leads to overrides of shutdown methods to remove and cancel
@@ -203,7 +217,9 @@ public class ScheduledThreadPoolExecutor
         RunnableScheduledFuture<V> outerTask = this;
 
         /**
-         * Index into delay queue, to support faster cancellation.
+         * Index into delay queue, to support faster cancellation:
+         * the heap index in a DelayedWorkQueue, or the node index in
+         * a TimerWheelQueue.
          */
         int heapIndex;
 
@@ -514,6 +530,67 @@ public class ScheduledThreadPoolExecutor
               new DelayedWorkQueue(), threadFactory, handler);
     }
 
+    /**
+     * Creates a new {@code ScheduledThreadPoolExecutor} with the
+     * given core pool size, that holds delayed tasks in a timer wheel
+     * with the given tick duration.
+     *
+     * @param corePoolSize the number of threads to keep in the pool, even
+     *        if they are idle, unless {@code allowCoreThreadTimeOut} is set
+     * @param tickDuration the precision with which delayed tasks are
+     *        enabled
+     * @param unit the time unit of the {@code tickDuration} argument
+     * @throws IllegalArgumentException if {@code corePoolSize < 0}
+     *         or {@code tickDuration} is not positive
+     * @throws NullPointerException if {@code unit} is null
+     * @since 12
+     */
+    public ScheduledThreadPoolExecutor(int corePoolSize,
+                                       long tickDuration,
+                                       TimeUnit unit) {
+        super(corePoolSize, Integer.MAX_VALUE,
+              DEFAULT_KEEPALIVE_MILLIS, MILLISECONDS,
+              timerWheelQueue(tickDuration, unit));
+    }
+
+    /**
+     * Creates a new {@code ScheduledThreadPoolExecutor} with the
+     * given initial parameters, that holds delayed tasks in a timer
+     * wheel with the given tick duration.
+     *
+     * @param corePoolSize the number of threads to keep in the pool, even
+     *        if they are idle, unless {@code allowCoreThreadTimeOut} is set
+     * @param tickDuration the precision with which delayed tasks are
+     *        enabled
+     * @param unit the time unit of the {@code tickDuration} argument
+     * @param threadFactory the factory to use when the executor
+     *        creates a new thread
+     * @param handler the handler to use when execution is blocked
+     *        because the thread bounds and queue capacities are reached
+     * @throws IllegalArgumentException if {@code corePoolSize < 0}
+     *         or {@code tickDuration} is not positive
+     * @throws NullPointerException if {@code unit}, {@code threadFactory}
+     *         or {@code handler} is null
+     * @since 12
+     */
+    public ScheduledThreadPoolExecutor(int corePoolSize,
+                                       long tickDuration,
+                                       TimeUnit unit,
+                                       ThreadFactory threadFactory,
+                                       RejectedExecutionHandler handler) {
+        super(corePoolSize, Integer.MAX_VALUE,
+              DEFAULT_KEEPALIVE_MILLIS, MILLISECONDS,
+              timerWheelQueue(tickDuration, unit), threadFactory, handler);
+    }
+
+    private static TimerWheelQueue timerWheelQueue(long tickDuration,
+                                                   TimeUnit unit) {
+        long tickNanos = unit.toNanos(tickDuration);
+        if (tickNanos <= 0L)
+            throw new IllegalArgumentException();
+        return new TimerWheelQueue(tickNanos);
+    }
+
     /**
      * Returns the nanoTime-based trigger time of a delayed action.
      */
@@ -1347,4 +1424,647 @@ public class ScheduledThreadPoolExecutor
             }
         }
     }
+
+    /**
+     * Delay queue based on a hierarchical timer wheel.  As for
+     * DelayedWorkQueue, this class must be declared as a
+     * BlockingQueue<Runnable> even though it can only hold
+     * RunnableScheduledFutures.
+     */
+    static class TimerWheelQueue extends AbstractQueue<Runnable>
+        implements BlockingQueue<Runnable> {
+
+        /*
+         * Time is divided into ticks of tickNanos, counted from
+         * origin, and each task is assigned the first tick that ends
+         * at or after its trigger time.  The wheel has LEVELS levels
+         * of SLOTS buckets each; a bucket at level k holds tasks whose
+         * tick agrees with "current" (the tick up to which the wheel
+         * has been advanced) in all digits (base SLOTS) above digit k
+         * but not in digit k, and is indexed by that digit.  So each
+         * task is placed, in constant time, by the highest bit in
+         * which its tick differs from current, and the tasks of a
+         * bucket at level 0 all expire in the same tick.  When current
+         * reaches the first tick covered by a bucket at a higher
+         * level, its tasks are "cascaded", that is placed again, now
+         * in lower levels.  As ticks are 63-bit, eleven levels of 64
+         * buckets cover all ticks, so there is no overflow list.
+         *
+         * One bit per bucket in the occupied masks makes it cheap to
+         * find the next tick at which a bucket expires or cascades
+         * (buckets at lower levels always come first), and so to skip
+         * runs of empty ticks both when advancing and when computing
+         * how long the leader thread should wait.  Expired tasks move
+         * to the READY list, from which they are taken FIFO.
+         *
+         * Tasks are held in nodes that are slots of parallel arrays,
+         * linked into doubly-linked bucket lists by index, and
+         * recycled through a free list, so that scheduling does not
+         * allocate.  As in DelayedWorkQueue, every ScheduledFutureTask
+         * records its node index in heapIndex, so cancellation unlinks
+         * it in constant time, falling back to linear search for other
+         * kinds of RunnableScheduledFutures.  The leader-follower
+         * waiting scheme is also that of DelayedWorkQueue, with the
+         * leader waiting until the next bucket event.
+         */
+
+        private static final int SLOT_BITS = 6;
+        private static final int SLOTS = 1 << SLOT_BITS;
+        private static final int LEVELS = (Long.SIZE + SLOT_BITS - 1) / SLOT_BITS;
+        private static final int READY = LEVELS * SLOTS;
+        private static final int INITIAL_CAPACITY = 16;
+
+        /** The tick duration, in nanoseconds. */
+        private final long tickNanos;
+
+        /** The nanoTime at which tick zero begins. */
+        private final long origin = System.nanoTime();
+
+        /** The tick up to which expired tasks have been made ready. */
+        private long current;
+
+        /** Heads and tails of bucket lists, and of the READY list. */
+        private final int[] heads = new int[READY + 1];
+        private final int[] tails = new int[READY + 1];
+
+        /** For each level, a mask of the nonempty buckets. */
+        private final long[] occupied = new long[LEVELS];
+
+        /** Node arrays: task, tick, links, and list index (-1 if free). */
+        private RunnableScheduledFuture<?>[] tasks =
+            new RunnableScheduledFuture<?>[INITIAL_CAPACITY];
+        private long[] ticks = new long[INITIAL_CAPACITY];
+        private int[] next = new int[INITIAL_CAPACITY];
+        private int[] prev = new int[INITIAL_CAPACITY];
+        private int[] where = new int[INITIAL_CAPACITY];
+
+        /** Head of the list of free nodes, linked by next. */
+        private int free = -1;
+
+        /** The number of nodes ever allocated. */
+        private int used;
+
+        private int size;
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        /** As in DelayedWorkQueue. */
+        private Thread leader;
+
+        /** The tick the leader is waiting for, if any. */
+        private long leaderTick = Long.MAX_VALUE;
+
+        /**
+         * Condition signalled when a task with an earlier tick is added,
+         * or a new thread may need to become leader.
+         */
+        private final Condition available = lock.newCondition();
+
+        TimerWheelQueue(long tickNanos) {
+            this.tickNanos = tickNanos;
+            Arrays.fill(heads, -1);
+            Arrays.fill(tails, -1);
+        }
+
+        /**
+         * Sets f's heapIndex if it is a ScheduledFutureTask.
+         */
+        private static void setIndex(RunnableScheduledFuture<?> f, int idx) {
+            if (f instanceof ScheduledFutureTask)
+                ((ScheduledFutureTask)f).heapIndex = idx;
+        }
+
+        /** Returns digit k of tick t. */
+        private static int digit(long t, int k) {
+            return (int) (t >>> (k * SLOT_BITS)) & (SLOTS - 1);
+        }
+
+        /** Returns the number of the tick that has most recently ended. */
+        private long clock() {
+            return (System.nanoTime() - origin) / tickNanos;
+        }
+
+        /**
+         * Returns the first tick ending at or after the trigger time of f.
+         */
+        private long tickOf(RunnableScheduledFuture<?> f) {
+            // Trigger times may be up to Long.MAX_VALUE past now, so
+            // may wrap around; compute the time since origin from the
+            // delay, saturating on overflow.
+            long now = System.nanoTime();
+            long delay = (f instanceof ScheduledFutureTask)
+                ? ((ScheduledFutureTask)f).time - now
+                : f.getDelay(NANOSECONDS);
+            long d = (now - origin) + delay;
+            if (d < 0L && delay > 0L)
+                d = Long.MAX_VALUE;
+            return (d <= 0L) ? 0L : (d - 1L) / tickNanos + 1L;
+        }
+
+        /**
+         * Returns the number of nanoseconds until tick t ends.
+         */
+        private long nanosUntil(long t) {
+            if (t >= Long.MAX_VALUE / tickNanos)
+                return Long.MAX_VALUE;
+            return t * tickNanos - (System.nanoTime() - origin);
+        }
+
+        /**
+         * Allocates a node for f.  Call only when holding lock.
+         */
+        private int allocNode(RunnableScheduledFuture<?> f) {
+            int i;
+            if ((i = free) >= 0)
+                free = next[i];
+            else {
+                if ((i = used) >= tasks.length)
+                    grow();
+                used = i + 1;
+            }
+            tasks[i] = f;
+            setIndex(f, i);
+            return i;
+        }
+
+        /**
+         * Frees node i, returning its task.  Call only when holding lock.
+         */
+        private RunnableScheduledFuture<?> freeNode(int i) {
+            RunnableScheduledFuture<?> f = tasks[i];
+            setIndex(f, -1);
+            tasks[i] = null;
+            where[i] = -1;
+            next[i] = free;
+            free = i;
+            return f;
+        }
+
+        /**
+         * Resizes the node arrays.  Call only when holding lock.
+         */
+        private void grow() {
+            int oldCapacity = tasks.length;
+            int newCapacity = oldCapacity + (oldCapacity >> 1); // grow 50%
+            if (newCapacity < 0) // overflow
+                newCapacity = Integer.MAX_VALUE;
+            tasks = Arrays.copyOf(tasks, newCapacity);
+            ticks = Arrays.copyOf(ticks, newCapacity);
+            next = Arrays.copyOf(next, newCapacity);
+            prev = Arrays.copyOf(prev, newCapacity);
+            where = Arrays.copyOf(where, newCapacity);
+        }
+
+        /**
+         * Appends node i to list b.  Call only when holding lock.
+         */
+        private void link(int i, int b) {
+            int t = tails[b];
+            prev[i] = t;
+            next[i] = -1;
+            where[i] = b;
+            tails[b] = i;
+            if (t >= 0)
+                next[t] = i;
+            else {
+                heads[b] = i;
+                if (b < READY)
+                    occupied[b >>> SLOT_BITS] |= 1L << (b & (SLOTS - 1));
+            }
+        }
+
+        /**
+         * Removes node i from its list.  Call only when holding lock.
+         */
+        private void unlink(int i) {
+            int b = where[i], p = prev[i], n = next[i];
+            if (p >= 0)
+                next[p] = n;
+            else
+                heads[b] = n;
+            if (n >= 0)
+                prev[n] = p;
+            else
+                tails[b] = p;
+            if (heads[b] < 0 && b < READY)
+                occupied[b >>> SLOT_BITS] &= ~(1L << (b & (SLOTS - 1)));
+        }
+
+        /**
+         * Links node i into the READY list if its tick has been
+         * reached, else into the bucket for its tick.  Call only when
+         * holding lock.
+         */
+        private void place(int i) {
+            long t = ticks[i], c = current;
+            if (t <= c)
+                link(i, READY);
+            else {
+                int k = (Long.SIZE - 1 - Long.numberOfLeadingZeros(t ^ c))
+                    / SLOT_BITS;
+                link(i, k * SLOTS + digit(t, k));
+            }
+        }
+
+        /**
+         * Returns the lowest level with a nonempty bucket, or -1 if
+         * the wheel is empty.  Call only when holding lock.
+         */
+        private int nextLevel() {
+            for (int k = 0; k < LEVELS; k++)
+                if ((occupied[k] & (-2L << digit(current, k))) != 0L)
+                    return k;
+            return -1;
+        }
+
+        /**
+         * Returns the first tick covered by the next nonempty bucket
+         * at level k, at which it expires or cascades.  Call only when
+         * holding lock.
+         */
+        private long eventTick(int k) {
+            int shift = k * SLOT_BITS, above = shift + SLOT_BITS;
+            long m = occupied[k] & (-2L << digit(current, k));
+            long high = (above >= Long.SIZE) ? 0L
+                : (current >>> above) << above;
+            return high | ((long) Long.numberOfTrailingZeros(m) << shift);
+        }
+
+        /**
+         * Advances the wheel to tick now, expiring and cascading
+         * buckets in order.  Call only when holding lock.
+         */
+        private void advance(long now) {
+            int k;
+            long t;
+            while (current < now) {
+                if ((k = nextLevel()) < 0 || (t = eventTick(k)) > now) {
+                    current = now;
+                    break;
+                }
+                current = t;
+                int b = k * SLOTS + digit(t, k);
+                int i = heads[b];
+                heads[b] = tails[b] = -1;
+                occupied[k] &= ~(1L << digit(t, k));
+                while (i >= 0) {
+                    int n = next[i];
+                    if (k == 0)
+                        link(i, READY);
+                    else
+                        place(i);
+                    i = n;
+                }
+            }
+        }
+
+        /**
+         * Finds index of given object, or -1 if absent.
+         */
+        private int indexOf(Object x) {
+            if (x != null) {
+                if (x instanceof ScheduledFutureTask) {
+                    int i = ((ScheduledFutureTask) x).heapIndex;
+                    // Sanity check; x could conceivably be a
+                    // ScheduledFutureTask from some other pool.
+                    if (i >= 0 && i < used && tasks[i] == x)
+                        return i;
+                } else {
+                    for (int i = 0; i < used; i++)
+                        if (x.equals(tasks[i]))
+                            return i;
+                }
+            }
+            return -1;
+        }
+
+        public boolean contains(Object x) {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                return indexOf(x) != -1;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public boolean remove(Object x) {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                int i = indexOf(x);
+                if (i < 0)
+                    return false;
+                unlink(i);
+                freeNode(i);
+                --size;
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public int size() {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                return size;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public boolean isEmpty() {
+            return size() == 0;
+        }
+
+        public int remainingCapacity() {
+            return Integer.MAX_VALUE;
+        }
+
+        /**
+         * Returns the task that will be enabled first: the first
+         * expired task if any, else, by linear search, the task with
+         * the earliest tick.
+         */
+        public RunnableScheduledFuture<?> peek() {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                advance(clock());
+                int h = heads[READY];
+                if (h < 0 && size > 0) {
+                    for (int i = 0; i < used; i++)
+                        if (tasks[i] != null && (h < 0 || ticks[i] < ticks[h]))
+                            h = i;
+                }
+                return (h < 0) ? null : tasks[h];
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public boolean offer(Runnable x) {
+            if (x == null)
+                throw new NullPointerException();
+            RunnableScheduledFuture<?> e = (RunnableScheduledFuture<?>)x;
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                int i = allocNode(e);
+                long t = ticks[i] = tickOf(e);
+                place(i);
+                ++size;
+                if (t < leaderTick) {
+                    leader = null;
+                    leaderTick = Long.MAX_VALUE;
+                    available.signal();
+                }
+            } finally {
+                lock.unlock();
+            }
+            return true;
+        }
+
+        public void put(Runnable e) {
+            offer(e);
+        }
+
+        public boolean add(Runnable e) {
+            return offer(e);
+        }
+
+        public boolean offer(Runnable e, long timeout, TimeUnit unit) {
+            return offer(e);
+        }
+
+        /**
+         * Advances the wheel to the current time and removes and
+         * returns the first expired task, or null if none.  Call only
+         * when holding lock.
+         */
+        private RunnableScheduledFuture<?> pollExpired() {
+            advance(clock());
+            int i = heads[READY];
+            if (i < 0)
+                return null;
+            unlink(i);
+            --size;
+            return freeNode(i);
+        }
+
+        public RunnableScheduledFuture<?> poll() {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                return pollExpired();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public RunnableScheduledFuture<?> take() throws InterruptedException {
+            final ReentrantLock lock = this.lock;
+            lock.lockInterruptibly();
+            try {
+                for (;;) {
+                    RunnableScheduledFuture<?> first = pollExpired();
+                    if (first != null)
+                        return first;
+                    int k = nextLevel();
+                    if (k < 0 || leader != null)
+                        available.await();
+                    else {
+                        long t = eventTick(k);
+                        Thread thisThread = Thread.currentThread();
+                        leader = thisThread;
+                        leaderTick = t;
+                        try {
+                            available.awaitNanos(nanosUntil(t));
+                        } finally {
+                            if (leader == thisThread) {
+                                leader = null;
+                                leaderTick = Long.MAX_VALUE;
+                            }
+                        }
+                    }
+                }
+            } finally {
+                if (leader == null && size > 0)
+                    available.signal();
+                lock.unlock();
+            }
+        }
+
+        public RunnableScheduledFuture<?> poll(long timeout, TimeUnit unit)
+            throws InterruptedException {
+            long nanos = unit.toNanos(timeout);
+            final ReentrantLock lock = this.lock;
+            lock.lockInterruptibly();
+            try {
+                for (;;) {
+                    RunnableScheduledFuture<?> first = pollExpired();
+                    if (first != null)
+                        return first;
+                    if (nanos <= 0L)
+                        return null;
+                    int k = nextLevel();
+                    if (k < 0)
+                        nanos = available.awaitNanos(nanos);
+                    else {
+                        long t = eventTick(k);
+                        long delay = nanosUntil(t);
+                        if (nanos < delay || leader != null)
+                            nanos = available.awaitNanos(nanos);
+                        else {
+                            Thread thisThread = Thread.currentThread();
+                            leader = thisThread;
+                            leaderTick = t;
+                            try {
+                                long timeLeft = available.awaitNanos(delay);
+                                nanos -= delay - timeLeft;
+                            } finally {
+                                if (leader == thisThread) {
+                                    leader = null;
+                                    leaderTick = Long.MAX_VALUE;
+                                }
+                            }
+                        }
+                    }
+                }
+            } finally {
+                if (leader == null && size > 0)
+                    available.signal();
+                lock.unlock();
+            }
+        }
+
+        public void clear() {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                for (int i = 0; i < used; i++) {
+                    RunnableScheduledFuture<?> t = tasks[i];
+                    if (t != null) {
+                        tasks[i] = null;
+                        setIndex(t, -1);
+                    }
+                }
+                Arrays.fill(heads, -1);
+                Arrays.fill(tails, -1);
+                Arrays.fill(occupied, 0L);
+                free = -1;
+                used = size = 0;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public int drainTo(Collection<? super Runnable> c) {
+            return drainTo(c, Integer.MAX_VALUE);
+        }
+
+        public int drainTo(Collection<? super Runnable> c, int maxElements) {
+            Objects.requireNonNull(c);
+            if (c == this)
+                throw new IllegalArgumentException();
+            if (maxElements <= 0)
+                return 0;
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                advance(clock());
+                int n = 0;
+                for (int i; n < maxElements && (i = heads[READY]) >= 0; ) {
+                    c.add(tasks[i]);   // In this order, in case add() throws.
+                    unlink(i);
+                    freeNode(i);
+                    --size;
+                    ++n;
+                }
+                return n;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Returns the queued tasks, in no particular order.  Call only
+         * when holding lock.
+         */
+        private RunnableScheduledFuture<?>[] snapshot() {
+            RunnableScheduledFuture<?>[] a = new RunnableScheduledFuture<?>[size];
+            for (int i = 0, j = 0; i < used; i++)
+                if (tasks[i] != null)
+                    a[j++] = tasks[i];
+            return a;
+        }
+
+        public Object[] toArray() {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                return Arrays.copyOf(snapshot(), size, Object[].class);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        public <T> T[] toArray(T[] a) {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                RunnableScheduledFuture<?>[] s = snapshot();
+                if (a.length < size)
+                    return (T[]) Arrays.copyOf(s, size, a.getClass());
+                System.arraycopy(s, 0, a, 0, size);
+                if (a.length > size)
+                    a[size] = null;
+                return a;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public Iterator<Runnable> iterator() {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                return new Itr(snapshot());
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Snapshot iterator that works off a copy of the queued tasks.
+         */
+        private class Itr implements Iterator<Runnable> {
+            final RunnableScheduledFuture<?>[] array;
+            int cursor;        // index of next element to return; initially 0
+            int lastRet = -1;  // index of last element returned; -1 if no such
+
+            Itr(RunnableScheduledFuture<?>[] array) {
+                this.array = array;
+            }
+
+            public boolean hasNext() {
+                return cursor < array.length;
+            }
+
+            public Runnable next() {
+                if (cursor >= array.length)
+                    throw new NoSuchElementException();
+                return array[lastRet = cursor++];
+            }
+
+            public void remove() {
+                if (lastRet < 0)
+                    throw new IllegalStateException();
+                TimerWheelQueue.this.remove(array[lastRet]);
+                lastRet = -1;
+            }
+        }
+    }
 }
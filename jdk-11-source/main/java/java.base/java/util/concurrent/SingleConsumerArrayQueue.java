@@ -0,0 +1,698 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import jdk.internal.vm.annotation.Contended;
+
+/**
+ * A bounded {@linkplain BlockingQueue blocking queue} backed by an
+ * array, for use by any number of producer threads but only a
+ * <em>single consumer</em> thread.  This queue orders elements FIFO
+ * (first-in-first-out) with respect to the order in which producers
+ * claim their slots.  Insertion does not acquire a lock unless the
+ * queue is full and the producer must wait, and retrieval never
+ * acquires a lock unless a producer is waiting for space, which makes
+ * this class well suited to funnelling work or events from many
+ * threads into one, such as a logging or I/O thread.
+ *
+ * <p><strong>Only one thread at a time may invoke the retrieval
+ * methods</strong> {@link #poll() poll}, {@link #take take},
+ * {@link #poll(long, TimeUnit) poll} with a timeout, {@link #remove()
+ * remove()}, {@link #drainTo(Collection) drainTo} and {@link #clear
+ * clear}.  This is not checked; the effect of concurrent retrievals
+ * is undefined.  The consumer thread may change over time provided
+ * that the handoff between consumers establishes a
+ * <i>happens-before</i> relation, as for example when the consumer is
+ * a single-threaded executor task.  All other methods may be invoked
+ * by any thread.
+ *
+ * <p>This is a classic "bounded buffer", in which a fixed-sized array
+ * holds elements inserted by producers and extracted by the consumer.
+ * Once created, the capacity cannot be changed.  Attempts to
+ * {@code put} an element into a full queue will result in the
+ * operation blocking; attempts to {@code take} an element from an
+ * empty queue will similarly block.  The {@link #offerAll offerAll}
+ * method inserts a batch of elements by claiming all of their slots
+ * at once, and wakes the consumer only once per batch.
+ *
+ * <p>As for other concurrent collections, the result of {@link #size}
+ * is only an estimate if elements are concurrently inserted or
+ * removed.  Iterators and spliterators traverse a snapshot of the
+ * elements taken when they were created, and do not support removal.
+ * Removal of arbitrary elements, by {@link #remove(Object)} or by the
+ * bulk removal methods, is not supported.
+ *
+ * <p>This class is a member of the
+ * <a href="{@docRoot}/java.base/java/util/package-summary.html#CollectionsFramework">
+ * Java Collections Framework</a>.
+ *
+ * @since 12
+ * @param <E> the type of elements held in this queue
+ */
+public class SingleConsumerArrayQueue<E> extends AbstractQueue<E>
+        implements BlockingQueue<E>, java.io.Serializable {
+    private static final long serialVersionUID = -4271386095562813652L;
+
+    /*
+     * The queue is a ring of slots, each holding an item and a
+     * sequence number, as in Vyukov's bounded MPMC queue restricted to
+     * a single consumer.  Positions are longs that increase without
+     * bound; position p uses slot p % capacity.  The sequence number
+     * of a slot whose next position is p is:
+     *
+     * - 2p,     if the slot is free for a producer to claim position p
+     * - 2p + 1, once the element for position p has been published
+     *
+     * and the consumer frees the slot for the next lap by setting its
+     * sequence to 2(p + capacity).  (Vyukov's encoding of p and p + 1
+     * would make a published slot indistinguishable from a freed one
+     * when the capacity is 1.)  A producer reads the sequence of the
+     * slot at the tail position t: if it is 2t, the producer CASes
+     * tail from t to t + 1, writes the item and publishes it by
+     * setting the sequence to 2t + 1; if it is less than 2t, the slot
+     * still holds an element from the previous lap and the queue is
+     * full; otherwise the tail it read is stale.  The consumer, which
+     * alone advances head, takes the element at position h once the
+     * sequence of its slot is 2h + 1.  Producers thus contend only on tail, and never
+     * on the consumer's head, which is padded onto its own cache line,
+     * as is tail.
+     *
+     * A batch insertion of n elements claims positions t .. t+n-1 with
+     * a single CAS.  The slot at t is checked as above, and slots up
+     * to t + capacity - 1 - head are known to be free because the
+     * consumer frees each slot before advancing head past it.  The
+     * items are then published in order.
+     *
+     * Blocking uses a Dekker-style handshake on each side.  A consumer
+     * finding the queue empty writes itself to the volatile consumer
+     * field and rechecks the head slot before parking; a producer
+     * publishes a slot and only then reads the consumer field,
+     * unparking the consumer if set.  Producers finding the queue full
+     * wait on notFull under putLock, after incrementing putWaiters and
+     * rechecking; the consumer frees slots and only then reads
+     * putWaiters, signalling notFull (under putLock) if there are any.
+     * As in LinkedBlockingQueue, a producer that inserts after waiting
+     * signals the next waiter if there is still room.
+     */
+
+    /** The number of slots. @serial */
+    private final int capacity;
+
+    /** The queued items, indexed by position modulo capacity. */
+    private transient Object[] items;
+
+    /** The sequence numbers of the slots. */
+    private transient long[] sequences;
+
+    /** The position at which the next element will be inserted. */
+    @Contended
+    private transient volatile long tail;
+
+    /** The position of the next element to be retrieved. */
+    @Contended
+    private transient volatile long head;
+
+    /** The consumer, if it is parked waiting for an element. */
+    private transient volatile Thread consumer;
+
+    /** The number of producers waiting on notFull. */
+    private transient volatile int putWaiters;
+
+    /** Lock held by producers waiting for space. */
+    final ReentrantLock putLock;
+
+    /** Condition for waiting puts. */
+    @SuppressWarnings("serial")  // Classes implementing Condition may be serializable.
+    private final Condition notFull;
+
+    /**
+     * Creates a {@code SingleConsumerArrayQueue} with the given (fixed)
+     * capacity.
+     *
+     * @param capacity the capacity of this queue
+     * @throws IllegalArgumentException if {@code capacity < 1}
+     */
+    public SingleConsumerArrayQueue(int capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException();
+        this.capacity = capacity;
+        putLock = new ReentrantLock();
+        notFull = putLock.newCondition();
+        initSlots();
+    }
+
+    private void initSlots() {
+        final long[] seqs = new long[capacity];
+        for (int i = 0; i < seqs.length; i++)
+            seqs[i] = (long) i << 1;
+        items = new Object[capacity];
+        sequences = seqs;
+    }
+
+    /** Unparks the consumer if it is waiting. */
+    private void signalConsumer() {
+        Thread w;
+        if ((w = consumer) != null)
+            LockSupport.unpark(w);
+    }
+
+    /** Signals a waiting producer. Called only by the consumer. */
+    private void signalNotFull() {
+        final ReentrantLock lock = this.putLock;
+        lock.lock();
+        try {
+            notFull.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the element at position p, or null if it has not yet
+     * been published or has already been retrieved.  May be called
+     * by any thread.
+     */
+    @SuppressWarnings("unchecked")
+    private E itemAt(long p) {
+        final long[] seqs = sequences;
+        final int i = (int) (p % capacity);
+        final long published = (p << 1) + 1L;
+        if ((long) SEQ.getVolatile(seqs, i) == published) {
+            Object e = ITEM.getAcquire(items, i);
+            // Recheck that the slot was not consumed while reading it
+            if (e != null && (long) SEQ.getVolatile(seqs, i) == published)
+                return (E) e;
+        }
+        return null;
+    }
+
+    /**
+     * Inserts the specified element at the tail of this queue if it is
+     * possible to do so immediately without exceeding the queue's
+     * capacity, returning {@code true} upon success and {@code false}
+     * if this queue is full.  This method is generally preferable to
+     * method {@link #add}, which can fail to insert an element only by
+     * throwing an exception.
+     *
+     * @throws NullPointerException if the specified element is null
+     */
+    public boolean offer(E e) {
+        Objects.requireNonNull(e);
+        final long[] seqs = sequences;
+        final int cap = capacity;
+        for (long t = tail;;) {
+            final int i = (int) (t % cap);
+            final long s = (long) SEQ.getVolatile(seqs, i);
+            if (s == t << 1) {
+                if (TAIL.compareAndSet(this, t, t + 1L)) {
+                    items[i] = e;
+                    SEQ.setVolatile(seqs, i, (t << 1) + 1L);
+                    signalConsumer();
+                    return true;
+                }
+            }
+            else if (s < t << 1)
+                return false;   // slot still holds an element of the previous lap
+            t = tail;
+        }
+    }
+
+    /**
+     * Inserts the specified element at the tail of this queue, waiting
+     * for space to become available if the queue is full.
+     *
+     * @throws InterruptedException {@inheritDoc}
+     * @throws NullPointerException {@inheritDoc}
+     */
+    public void put(E e) throws InterruptedException {
+        if (!offer(e))
+            awaitAndOffer(e, false, 0L);
+    }
+
+    /**
+     * Inserts the specified element at the tail of this queue, waiting
+     * up to the specified wait time for space to become available if
+     * the queue is full.
+     *
+     * @throws InterruptedException {@inheritDoc}
+     * @throws NullPointerException {@inheritDoc}
+     */
+    public boolean offer(E e, long timeout, TimeUnit unit)
+        throws InterruptedException {
+        return offer(e) || awaitAndOffer(e, true, unit.toNanos(timeout));
+    }
+
+    /**
+     * Waits on notFull until e can be inserted, or, if timed, until
+     * the given wait time elapses.
+     */
+    private boolean awaitAndOffer(E e, boolean timed, long nanos)
+        throws InterruptedException {
+        final ReentrantLock lock = this.putLock;
+        lock.lockInterruptibly();
+        try {
+            putWaiters++;
+            try {
+                while (!offer(e)) {
+                    if (!timed)
+                        notFull.await();
+                    else if (nanos <= 0L)
+                        return false;
+                    else
+                        nanos = notFull.awaitNanos(nanos);
+                }
+            } finally {
+                putWaiters--;
+            }
+            if (putWaiters > 0 && tail - head < capacity)
+                notFull.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Inserts as many elements of the given collection at the tail of
+     * this queue as there is room for, claiming their slots together
+     * and waking the consumer once for the whole batch.  The
+     * collection is copied, and checked for null elements, before any
+     * slot is claimed; if it contains a null element, no element is
+     * inserted.  The elements of the batch are contiguous in this
+     * queue unless the batch is split because the consumer has not yet
+     * freed enough slots.
+     *
+     * @throws NullPointerException {@inheritDoc}
+     * @throws IllegalArgumentException {@inheritDoc}
+     */
+    public int offerAll(Collection<? extends E> c) {
+        final Object[] es = Helpers.batchArray(this, c);
+        final Object[] items = this.items;
+        final long[] seqs = sequences;
+        final int cap = capacity, k = es.length;
+        int done = 0;
+        for (long t = tail; done < k; ) {
+            final long s = (long) SEQ.getVolatile(seqs, (int) (t % cap));
+            if (s < t << 1)
+                break;          // full
+            if (s == t << 1) {
+                // Slots before head + cap are free; the slot at t is
+                // free even if head has not yet been advanced past it.
+                final int n = (int) Math.max(1L, Math.min(k - done,
+                                                 cap - (t - head)));
+                if (TAIL.compareAndSet(this, t, t + n)) {
+                    for (int j = 0; j < n; j++, t++) {
+                        final int i = (int) (t % cap);
+                        items[i] = es[done + j];
+                        SEQ.setRelease(seqs, i, (t << 1) + 1L);
+                    }
+                    done += n;
+                    continue;
+                }
+            }
+            t = tail;
+        }
+        if (done > 0) {
+            VarHandle.fullFence();  // order publication before reading consumer
+            signalConsumer();
+        }
+        return done;
+    }
+
+    /**
+     * Retrieves and removes the element at position h, whose slot has
+     * been published.  Called only by the consumer.
+     */
+    @SuppressWarnings("unchecked")
+    private E dequeue(long h, int i) {
+        final Object[] items = this.items;
+        final E e = (E) items[i];
+        items[i] = null;
+        SEQ.setVolatile(sequences, i, (h + capacity) << 1);
+        head = h + 1L;
+        if (putWaiters > 0)
+            signalNotFull();
+        return e;
+    }
+
+    /**
+     * Retrieves and removes the head of this queue, or returns
+     * {@code null} if this queue is empty.  May be invoked only by the
+     * consumer thread.
+     *
+     * @return the head of this queue, or {@code null} if this queue is empty
+     */
+    public E poll() {
+        final long h = head;
+        final int i = (int) (h % capacity);
+        if ((long) SEQ.getVolatile(sequences, i) != (h << 1) + 1L)
+            return null;
+        return dequeue(h, i);
+    }
+
+    /**
+     * Parks the consumer until the head slot may have been published,
+     * the thread is interrupted, or, if timed, the given wait time
+     * elapses.
+     */
+    private void awaitNotEmpty(boolean timed, long nanos) {
+        final long h = head;
+        consumer = Thread.currentThread();
+        if ((long) SEQ.getVolatile(sequences, (int) (h % capacity))
+            != (h << 1) + 1L) {
+            if (timed)
+                LockSupport.parkNanos(this, nanos);
+            else
+                LockSupport.park(this);
+        }
+        consumer = null;
+    }
+
+    /**
+     * Retrieves and removes the head of this queue, waiting if
+     * necessary until an element becomes available.  May be invoked
+     * only by the consumer thread.
+     *
+     * @throws InterruptedException {@inheritDoc}
+     */
+    public E take() throws InterruptedException {
+        E e;
+        while ((e = poll()) == null) {
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            awaitNotEmpty(false, 0L);
+        }
+        return e;
+    }
+
+    /**
+     * Retrieves and removes the head of this queue, waiting up to the
+     * specified wait time if necessary for an element to become
+     * available.  May be invoked only by the consumer thread.
+     *
+     * @throws InterruptedException {@inheritDoc}
+     */
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        final long deadline = System.nanoTime() + nanos;
+        E e;
+        while ((e = poll()) == null) {
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            if (nanos <= 0L)
+                return null;
+            awaitNotEmpty(true, nanos);
+            nanos = deadline - System.nanoTime();
+        }
+        return e;
+    }
+
+    public E peek() {
+        for (;;) {
+            final long h = head;
+            final E e = itemAt(h);
+            if (e != null || head == h)
+                return e;
+        }
+    }
+
+    /**
+     * Returns the number of elements in this queue.
+     *
+     * @return the number of elements in this queue
+     */
+    public int size() {
+        final long h = head, n = tail - h;
+        return (n <= 0L) ? 0 : (n >= capacity) ? capacity : (int) n;
+    }
+
+    /**
+     * Returns the number of additional elements that this queue can
+     * ideally (in the absence of memory or resource constraints) accept
+     * without blocking.  This is always equal to the initial capacity
+     * of this queue less the current {@code size} of this queue.
+     *
+     * <p>Note that you <em>cannot</em> always tell if an attempt to insert
+     * an element will succeed by inspecting {@code remainingCapacity}
+     * because it may be the case that another thread is about to
+     * insert or remove an element.
+     */
+    public int remainingCapacity() {
+        return capacity - size();
+    }
+
+    /**
+     * Returns {@code true} if this queue contains the specified element.
+     *
+     * @param o object to be checked for containment in this queue
+     * @return {@code true} if this queue contains the specified element
+     */
+    public boolean contains(Object o) {
+        if (o != null) {
+            for (long p = head, t = tail; p < t; p++) {
+                E e = itemAt(p);
+                if (e != null && o.equals(e))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Always throws {@code UnsupportedOperationException}: only the
+     * head of this queue can be removed.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    public boolean remove(Object o) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Returns an array containing all of the elements in this queue, in
+     * proper sequence.
+     *
+     * <p>The returned array will be "safe" in that no references to it are
+     * maintained by this queue.  (In other words, this method must allocate
+     * a new array).  The caller is thus free to modify the returned array.
+     *
+     * <p>This method acts as bridge between array-based and collection-based
+     * APIs.
+     *
+     * @return an array containing all of the elements in this queue
+     */
+    public Object[] toArray() {
+        final ArrayList<E> list = new ArrayList<>();
+        for (long p = head, t = tail; p < t; p++) {
+            E e = itemAt(p);
+            if (e != null)
+                list.add(e);
+        }
+        return list.toArray();
+    }
+
+    public String toString() {
+        return Helpers.collectionToString(this);
+    }
+
+    /**
+     * @throws UnsupportedOperationException {@inheritDoc}
+     * @throws ClassCastException            {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     */
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Removes at most the given number of available elements from this
+     * queue and adds them to the given collection, advancing the head
+     * of the queue and waking waiting producers once for the whole
+     * batch.  May be invoked only by the consumer thread.
+     *
+     * @throws UnsupportedOperationException {@inheritDoc}
+     * @throws ClassCastException            {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     */
+    @SuppressWarnings("unchecked")
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        Objects.requireNonNull(c);
+        if (c == this)
+            throw new IllegalArgumentException();
+        if (maxElements <= 0)
+            return 0;
+        final Object[] items = this.items;
+        final long[] seqs = sequences;
+        final int cap = capacity;
+        long h = head;
+        int n = 0;
+        try {
+            while (n < maxElements) {
+                final int i = (int) (h % cap);
+                if ((long) SEQ.getVolatile(seqs, i) != (h << 1) + 1L)
+                    break;
+                final E e = (E) items[i];
+                items[i] = null;
+                SEQ.setRelease(seqs, i, (h + cap) << 1);
+                h++;
+                n++;
+                c.add(e);
+            }
+        } finally {
+            // Restore invariants even if c.add() threw
+            if (n > 0) {
+                head = h;
+                if (putWaiters > 0)
+                    signalNotFull();
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Returns an iterator over the elements in this queue in proper
+     * sequence.  The elements will be returned in order from first
+     * (head) to last (tail).
+     *
+     * <p>The returned iterator traverses a snapshot of the elements of
+     * this queue taken when it was created, and does not support
+     * {@link Iterator#remove remove}.
+     *
+     * @return an iterator over the elements in this queue in proper sequence
+     */
+    public Iterator<E> iterator() {
+        return new Itr<E>(toArray());
+    }
+
+    /**
+     * Iterator over a snapshot of the queue.
+     */
+    private static final class Itr<E> implements Iterator<E> {
+        private final Object[] array;
+        private int cursor;
+
+        Itr(Object[] array) {
+            this.array = array;
+        }
+
+        public boolean hasNext() {
+            return cursor < array.length;
+        }
+
+        @SuppressWarnings("unchecked")
+        public E next() {
+            if (cursor >= array.length)
+                throw new NoSuchElementException();
+            return (E) array[cursor++];
+        }
+    }
+
+    /**
+     * Returns a {@link Spliterator} over the elements in this queue.
+     *
+     * <p>The returned spliterator traverses a snapshot of the elements
+     * of this queue taken when it was created.
+     *
+     * <p>The {@code Spliterator} reports {@link Spliterator#ORDERED},
+     * {@link Spliterator#NONNULL}, {@link Spliterator#SIZED} and
+     * {@link Spliterator#SUBSIZED}.
+     *
+     * @return a {@code Spliterator} over the elements in this queue
+     */
+    public Spliterator<E> spliterator() {
+        return Spliterators.spliterator
+            (toArray(), Spliterator.ORDERED | Spliterator.NONNULL);
+    }
+
+    /**
+     * Saves this queue to a stream (that is, serializes it).
+     *
+     * @param s the stream
+     * @throws java.io.IOException if an I/O error occurs
+     * @serialData The capacity (int), followed by each element (Object)
+     * in proper sequence, followed by a null
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws java.io.IOException {
+        s.defaultWriteObject();
+        for (Object e : toArray())
+            s.writeObject(e);
+        s.writeObject(null);
+    }
+
+    /**
+     * Reconstitutes this queue from a stream (that is, deserializes it).
+     *
+     * @param s the stream
+     * @throws ClassNotFoundException if the class of a serialized object
+     *         could not be found
+     * @throws java.io.InvalidObjectException if the capacity is invalid
+     *         or there are more elements than the capacity
+     * @throws java.io.IOException if an I/O error occurs
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(java.io.ObjectInputStream s)
+        throws java.io.IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        if (capacity <= 0)
+            throw new java.io.InvalidObjectException("Invalid capacity");
+        initSlots();
+        for (Object e; (e = s.readObject()) != null; )
+            if (!offer((E) e))
+                throw new java.io.InvalidObjectException("Too many elements");
+    }
+
+    // VarHandle mechanics
+    private static final VarHandle TAIL;
+    private static final VarHandle SEQ;
+    private static final VarHandle ITEM;
+    static {
+        try {
+            MethodHandles.Lookup l = MethodHandles.lookup();
+            TAIL = l.findVarHandle(SingleConsumerArrayQueue.class, "tail",
+                                   long.class);
+            SEQ = MethodHandles.arrayElementVarHandle(long[].class);
+            ITEM = MethodHandles.arrayElementVarHandle(Object[].class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+}
@@ -37,9 +37,13 @@ package java.util.concurrent;
 
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.VarHandle;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
 import java.util.concurrent.locks.LockSupport;
 import java.util.function.BiConsumer;
 import java.util.function.BiPredicate;
@@ -93,6 +97,15 @@ import static java.util.concurrent.Flow.Subscription;
  * immediately or with bounded timeout), but provide an opportunity to
  * interpose a handler and then retry.
  *
+ * <p>Producers that generate items in groups may publish them using
+ * method {@link #submitAll(Collection) submitAll}, which acquires
+ * internal locks and arranges consumer tasks once per group rather
+ * than once per item.  Subscribers implementing {@link
+ * BatchSubscriber} receive available items in groups via {@link
+ * BatchSubscriber#onNextBatch onNextBatch}, up to their outstanding
+ * demand, rather than one at a time via {@code onNext}.  Other
+ * subscribers are unaffected.
+ *
  * <p>If any Subscriber method throws an exception, its subscription
  * is cancelled.  If a handler is supplied as a constructor argument,
  * it is invoked before cancellation upon an exception in method
@@ -508,6 +521,67 @@ public class SubmissionPublisher<T> implements Publisher<T>,
         return doOffer(item, Long.MAX_VALUE, null);
     }
 
+    /**
+     * Publishes the given items, in order, to each current subscriber
+     * as if by invoking {@link #submit(Object) submit} for each item
+     * in turn, blocking uninterruptibly while resources for any
+     * subscriber are unavailable.  Internal locks are acquired, and
+     * subscribers are signalled, once for all of the items rather
+     * than once per item.  This method returns an estimate of the
+     * maximum lag (number of items submitted but not yet consumed)
+     * among all current subscribers. This value is at least the number
+     * of items (accounting for these submitted items) if there are any
+     * subscribers and items, else zero.
+     *
+     * <p>If the Executor for this publisher throws a
+     * RejectedExecutionException (or any other RuntimeException or
+     * Error) when attempting to asynchronously notify subscribers,
+     * then this exception is rethrown, in which case not all
+     * subscribers will have been issued all of the items.
+     *
+     * @param items the (non-null) items to publish
+     * @return the estimated maximum lag among subscribers
+     * @throws IllegalStateException if closed
+     * @throws NullPointerException if the collection or any of its
+     *         items is null
+     * @throws RejectedExecutionException if thrown by Executor
+     * @since 12
+     */
+    public int submitAll(Collection<? extends T> items) {
+        Object[] xs = items.toArray(); // copy to screen and fix size
+        for (Object x : xs)
+            if (x == null) throw new NullPointerException();
+        int lag = 0;
+        boolean complete, unowned;
+        synchronized (this) {
+            Thread t = Thread.currentThread(), o;
+            BufferedSubscription<T> b = clients;
+            if ((unowned = ((o = owner) != t)) && o != null)
+                owner = null;                     // disable bias
+            if (b == null)
+                complete = closed;
+            else {
+                complete = false;
+                boolean cleanMe = false;
+                BufferedSubscription<T> next;
+                do {
+                    next = b.next;
+                    int stat = b.offerAll(xs, unowned);
+                    if (stat < 0)                 // closed
+                        cleanMe = true;           // remove later
+                    else if (stat > lag)
+                        lag = stat;
+                } while ((b = next) != null);
+                if (cleanMe)
+                    cleanAndCount();
+            }
+        }
+        if (complete)
+            throw new IllegalStateException("Closed");
+        else
+            return lag;
+    }
+
     /**
      * Publishes the given item, if possible, to each current subscriber
      * by asynchronously invoking its {@link
@@ -910,6 +984,75 @@ public class SubmissionPublisher<T> implements Publisher<T>,
         }
     }
 
+    /**
+     * A {@link Flow.Subscriber} that may receive items from a {@code
+     * SubmissionPublisher} in groups.  When more than one item is
+     * available and requested, the publisher issues them in a single
+     * call to {@link #onNextBatch onNextBatch} rather than in
+     * successive calls to {@link Flow.Subscriber#onNext onNext}.
+     * Items delivered in batches count against demand as if delivered
+     * individually, and a batch never exceeds the outstanding demand.
+     * Other publishers treat a {@code BatchSubscriber} as an ordinary
+     * {@code Subscriber}.
+     *
+     * @param <T> the subscribed item type
+     * @since 12
+     */
+    public static interface BatchSubscriber<T> extends Subscriber<T> {
+        /**
+         * Method invoked with the next items of the Subscription, in
+         * order.  The list is unmodifiable, and may be reused by the
+         * publisher for later batches after this method returns, so
+         * implementations must not retain it; items that are needed
+         * later must be copied out of it.  If this method throws an
+         * exception, the subscription is cancelled, as for {@code
+         * onNext}.
+         *
+         * <p>The default implementation invokes {@link #onNext onNext}
+         * for each item in turn.
+         *
+         * @param items the items, of which there is at least one
+         */
+        default void onNextBatch(List<? extends T> items) {
+            for (T item : items)
+                onNext(item);
+        }
+    }
+
+    /**
+     * The list passed to BatchSubscriber.onNextBatch: an unmodifiable
+     * view of a prefix of an array that is retained across batches by
+     * its BufferedSubscription, to avoid per-batch allocation.
+     */
+    static final class ItemBatch<T> extends AbstractList<T>
+        implements RandomAccess {
+        Object[] items = new Object[0];
+        int size;
+
+        /** Returns items array, resized if necessary to hold n items. */
+        final Object[] ensureCapacity(int n) {
+            Object[] a;
+            if ((a = items).length < n)
+                items = a = new Object[Math.max(n, a.length << 1)];
+            return a;
+        }
+
+        /** Nulls out the first n slots, and sets size to zero. */
+        final void clear(int n) {
+            Arrays.fill(items, 0, n, null);
+            size = 0;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        @SuppressWarnings("unchecked")
+        public T get(int index) {
+            return (T) items[Objects.checkIndex(index, size)];
+        }
+    }
+
     /**
      * A task for consuming buffer items and signals, created and
      * executed whenever they become available. A task consumes as
@@ -1011,6 +1154,7 @@ public class SubmissionPublisher<T> implements Publisher<T>,
         Object[] array;                    // buffer
         final Subscriber<? super T> subscriber;
         final BiConsumer<? super Subscriber<? super T>, ? super Throwable> onNextHandler;
+        final ItemBatch<T> batch;          // non-null if BatchSubscriber
         Executor executor;                 // null on error
         Thread waiter;                     // blocked producer thread
         Throwable pendingError;            // holds until onError issued
@@ -1044,6 +1188,8 @@ public class SubmissionPublisher<T> implements Publisher<T>,
             this.onNextHandler = onNextHandler;
             this.array = array;
             this.maxCapacity = maxBufferCapacity;
+            this.batch = (subscriber instanceof BatchSubscriber) ?
+                new ItemBatch<T>() : null;
         }
 
         // Wrappers for some VarHandle methods
@@ -1090,6 +1236,39 @@ public class SubmissionPublisher<T> implements Publisher<T>,
          * @return negative if closed, 0 if saturated, else estimated lag
          */
         final int offer(T item, boolean unowned) {
+            return startOnOffer(add(item, unowned));
+        }
+
+        /**
+         * Adds all items, blocking while saturated, and starts consumer
+         * task if necessary only after adding all items or upon
+         * saturation.  Used by submitAll.
+         * @return negative if closed, else estimated lag
+         */
+        final int offerAll(Object[] items, boolean unowned) {
+            int stat = 0;
+            for (int i = 0, n = items.length; i < n; ) {
+                @SuppressWarnings("unchecked") T item = (T) items[i];
+                int k;
+                if ((ctl & CLOSED) != 0)
+                    return -1;
+                else if ((k = add(item, unowned)) > 0) {
+                    stat = k;
+                    ++i;
+                }
+                else if (startOnOffer(0) < 0)     // start draining
+                    return -1;
+                else
+                    awaitSpace(Long.MAX_VALUE);
+            }
+            return startOnOffer(stat);
+        }
+
+        /**
+         * Tries to add item, without starting consumer task.
+         * @return 0 if saturated, else estimated lag
+         */
+        final int add(T item, boolean unowned) {
             Object[] a;
             int stat = 0, cap = ((a = array) == null) ? 0 : a.length;
             int t = tail, i = t & (cap - 1), n = t + 1 - head;
@@ -1108,7 +1287,7 @@ public class SubmissionPublisher<T> implements Publisher<T>,
                     stat = n;
                 }
             }
-            return startOnOffer(stat);
+            return stat;
         }
 
         /**
@@ -1284,7 +1463,9 @@ public class SubmissionPublisher<T> implements Publisher<T>,
         final int takeItems(Subscriber<? super T> s, long d, int h) {
             Object[] a;
             int k = 0, cap;
-            if ((a = array) != null && (cap = a.length) > 0) {
+            if (batch != null)
+                k = takeBatch(s, d, h);
+            else if ((a = array) != null && (cap = a.length) > 0) {
                 int m = cap - 1, b = (m >>> 3) + 1; // min(1, cap/8)
                 int n = (d < (long)b) ? (int)d : b;
                 for (; k < n; ++h, ++k) {
@@ -1300,6 +1481,45 @@ public class SubmissionPublisher<T> implements Publisher<T>,
             return k;
         }
 
+        /**
+         * Version of takeItems for BatchSubscribers: takes available
+         * items up to demand and buffer capacity, and issues them in
+         * one call.
+         */
+        final int takeBatch(Subscriber<? super T> s, long d, int h) {
+            Object[] a, items; ItemBatch<T> b;
+            int k = 0, cap;
+            if ((a = array) != null && (cap = a.length) > 0 &&
+                (b = batch) != null) {
+                int m = cap - 1, n = (d < (long)cap) ? (int)d : cap;
+                items = b.ensureCapacity(n);
+                for (; k < n; ++h, ++k) {
+                    Object x = QA.getAndSet(a, h & m, null);
+                    if (waiting != 0)
+                        signalWaiter();
+                    if (x == null)
+                        break;
+                    items[k] = x;
+                }
+                if (k > 0)
+                    consumeBatch(s, b, k);
+            }
+            return k;
+        }
+
+        final void consumeBatch(Subscriber<? super T> s, ItemBatch<T> items,
+                                int n) {
+            try {
+                items.size = n;
+                if (s instanceof BatchSubscriber)
+                    ((BatchSubscriber<? super T>)s).onNextBatch(items);
+            } catch (Throwable ex) {
+                handleOnNext(s, ex);
+            } finally {
+                items.clear(n);
+            }
+        }
+
         final boolean consumeNext(Subscriber<? super T> s, Object x) {
             try {
                 @SuppressWarnings("unchecked") T y = (T) x;
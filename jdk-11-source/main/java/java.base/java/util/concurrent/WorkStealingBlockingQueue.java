@@ -0,0 +1,701 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent;
+
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import jdk.internal.vm.annotation.Contended;
+
+/**
+ * An unbounded {@linkplain BlockingQueue blocking queue} divided into
+ * independently locked stripes, intended as the work queue of a
+ * {@link ThreadPoolExecutor} with many threads and high task rates.
+ *
+ * <p>Each thread inserts elements into, and first retrieves elements
+ * from, a stripe chosen by a per-thread hash, and so in a pool each
+ * worker thread mostly uses its own stripe.  A thread whose stripe is
+ * empty takes elements from the other stripes ("work stealing"), and a
+ * thread that finds its stripe locked by another thread moves to a
+ * different stripe.  Threads contend for a common lock only to wait for
+ * elements when the queue is empty, or to wake such threads.  Used as
+ * the work queue of a {@code ThreadPoolExecutor}, this queue therefore
+ * provides much of the scalability of {@link ForkJoinPool} without
+ * changing the sizing, keep-alive, rejection or lifecycle behavior of
+ * the executor:
+ *
+ * <pre> {@code
+ * ExecutorService pool = new ThreadPoolExecutor(
+ *     n, n, 0L, TimeUnit.MILLISECONDS,
+ *     new WorkStealingBlockingQueue<Runnable>());}</pre>
+ *
+ * <p>Elements of each stripe are ordered FIFO (first-in-first-out), but
+ * there is no ordering among elements of different stripes, so that
+ * elements inserted by different threads, or by one thread that moved
+ * to another stripe, may be retrieved in any order.  As for other
+ * concurrent collections, the result of {@link #size} is only an
+ * estimate if elements are concurrently inserted or removed.
+ * Iterators and spliterators traverse a snapshot of the elements taken
+ * when they were created.
+ *
+ * <p>This class and its iterator implement all of the <em>optional</em>
+ * methods of the {@link Collection} and {@link Iterator} interfaces.
+ *
+ * <p>This class is a member of the
+ * <a href="{@docRoot}/java.base/java/util/package-summary.html#CollectionsFramework">
+ * Java Collections Framework</a>.
+ *
+ * @since 12
+ * @param <E> the type of elements held in this queue
+ */
+public class WorkStealingBlockingQueue<E> extends AbstractQueue<E>
+        implements BlockingQueue<E>, java.io.Serializable {
+    private static final long serialVersionUID = 2957315864051738816L;
+
+    /*
+     * Each stripe is an ArrayDeque guarded by the stripe itself, a
+     * ReentrantLock, and padded to avoid false sharing.  Threads are
+     * mapped to stripes by their ThreadLocalRandom probe, as for the
+     * cells of Striped64: an insertion that fails to tryLock its
+     * stripe advances the probe, moving the thread to another stripe
+     * from then on.
+     *
+     * Each stripe also has a volatile count, updated under its lock,
+     * used both to skip empty stripes without locking them and to
+     * coordinate with waiting takers.  A taker that finds all stripes
+     * empty acquires waitLock, increments waiters, and rescans before
+     * awaiting notEmpty.  An inserter increments a count, and only then
+     * reads waiters, signalling notEmpty (under waitLock) if there are
+     * any.  Because both sides write one volatile and then read the
+     * other, either the inserter sees the waiter or the rescan sees the
+     * element.  Insertions into a queue whose takers are all busy thus
+     * never touch waitLock.  As in LinkedBlockingQueue, a taker that
+     * wakes and finds more elements signals the next waiter.
+     */
+
+    /** Minimum number of stripes. */
+    private static final int MIN_STRIPES = 2;
+
+    /** Maximum number of stripes. */
+    private static final int MAX_STRIPES = 1 << 16;
+
+    /**
+     * A stripe of the queue.
+     */
+    @Contended
+    @SuppressWarnings("serial")
+    static final class Stripe<E> extends ReentrantLock {
+        final ArrayDeque<E> items = new ArrayDeque<>();
+        /** Number of items, written only under lock. */
+        volatile int count;
+    }
+
+    /** The stripes; length is a power of two. */
+    private transient Stripe<E>[] stripes;
+
+    /** Lock held by takers that wait for elements. */
+    private final ReentrantLock waitLock = new ReentrantLock();
+
+    /** Wait queue for waiting takes. */
+    private final Condition notEmpty = waitLock.newCondition();
+
+    /** Number of takers holding or awaiting waitLock; written under it. */
+    private transient volatile int waiters;
+
+    /**
+     * Creates a {@code WorkStealingBlockingQueue} with a number of
+     * stripes suited to the number of available processors.
+     */
+    public WorkStealingBlockingQueue() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a {@code WorkStealingBlockingQueue} with at least the
+     * given number of stripes, which should usually be the number of
+     * threads expected to use the queue concurrently.
+     *
+     * @param stripes the minimum number of stripes
+     * @throws IllegalArgumentException if {@code stripes} is not positive
+     */
+    public WorkStealingBlockingQueue(int stripes) {
+        if (stripes <= 0)
+            throw new IllegalArgumentException();
+        this.stripes = newStripes(stripes);
+    }
+
+    /**
+     * Creates a {@code WorkStealingBlockingQueue} initially containing
+     * the elements of the given collection, added in traversal order of
+     * the collection's iterator.
+     *
+     * @param c the collection of elements to initially contain
+     * @throws NullPointerException if the specified collection or any
+     *         of its elements are null
+     */
+    public WorkStealingBlockingQueue(Collection<? extends E> c) {
+        this();
+        for (E e : c)
+            offer(e);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E> Stripe<E>[] newStripes(int n) {
+        int m = MIN_STRIPES;
+        while (m < n && m < MAX_STRIPES)
+            m <<= 1;
+        Stripe<E>[] ss = (Stripe<E>[]) new Stripe<?>[m];
+        for (int i = 0; i < m; i++)
+            ss[i] = new Stripe<E>();
+        return ss;
+    }
+
+    /** Returns the current thread's probe, initializing it if needed. */
+    private static int probe() {
+        int h;
+        if ((h = ThreadLocalRandom.getProbe()) == 0) {
+            ThreadLocalRandom.localInit();
+            h = ThreadLocalRandom.getProbe();
+        }
+        return h;
+    }
+
+    /**
+     * Signals a waiting take. Called only from offer.
+     */
+    private void signalNotEmpty() {
+        final ReentrantLock lock = this.waitLock;
+        lock.lock();
+        try {
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes and returns an element, preferring the current thread's
+     * stripe, or returns null if all stripes are empty.
+     */
+    private E pollStripes() {
+        Stripe<E>[] ss = stripes;
+        int n = ss.length, h = probe();
+        for (int i = 0; i < n; i++) {
+            Stripe<E> s = ss[(h + i) & (n - 1)];
+            if (s.count > 0) {
+                s.lock();
+                try {
+                    E e = s.items.pollFirst();
+                    if (e != null) {
+                        s.count--;
+                        return e;
+                    }
+                } finally {
+                    s.unlock();
+                }
+            }
+        }
+        return null;
+    }
+
+    /** Returns true if any stripe is nonempty. */
+    private boolean hasItems() {
+        for (Stripe<E> s : stripes)
+            if (s.count > 0)
+                return true;
+        return false;
+    }
+
+    /**
+     * Called by a taker holding waitLock that has removed an element:
+     * signals another waiter if more elements remain.
+     */
+    private void cascade() {
+        if (waiters > 0 && hasItems())
+            notEmpty.signal();
+    }
+
+    /**
+     * Inserts the specified element into this queue.  As the queue is
+     * unbounded, this method will never return {@code false}.
+     *
+     * @return {@code true} (as specified by {@link Queue#offer})
+     * @throws NullPointerException if the specified element is null
+     */
+    public boolean offer(E e) {
+        Objects.requireNonNull(e);
+        Stripe<E>[] ss = stripes;
+        int m = ss.length - 1, h = probe();
+        Stripe<E> s = ss[h & m];
+        if (!s.tryLock()) {
+            // Contended; move this thread to another stripe
+            s = ss[ThreadLocalRandom.advanceProbe(h) & m];
+            s.lock();
+        }
+        try {
+            s.items.addLast(e);
+            s.count++;
+        } finally {
+            s.unlock();
+        }
+        if (waiters > 0)
+            signalNotEmpty();
+        return true;
+    }
+
+    /**
+     * Inserts the specified element into this queue.  As the queue is
+     * unbounded, this method will never block.
+     *
+     * @throws NullPointerException {@inheritDoc}
+     */
+    public void put(E e) {
+        offer(e);
+    }
+
+    /**
+     * Inserts the specified element into this queue.  As the queue is
+     * unbounded, this method will never block or return {@code false}.
+     *
+     * @return {@code true} (as specified by
+     *  {@link BlockingQueue#offer(Object,long,TimeUnit) BlockingQueue.offer})
+     * @throws NullPointerException {@inheritDoc}
+     */
+    public boolean offer(E e, long timeout, TimeUnit unit) {
+        return offer(e);
+    }
+
+    public E poll() {
+        return pollStripes();
+    }
+
+    public E take() throws InterruptedException {
+        E e;
+        if ((e = pollStripes()) != null)
+            return e;
+        final ReentrantLock lock = this.waitLock;
+        lock.lockInterruptibly();
+        try {
+            waiters++;
+            try {
+                while ((e = pollStripes()) == null)
+                    notEmpty.await();
+            } finally {
+                waiters--;
+            }
+            cascade();
+        } finally {
+            lock.unlock();
+        }
+        return e;
+    }
+
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        E e;
+        if ((e = pollStripes()) != null)
+            return e;
+        long nanos = unit.toNanos(timeout);
+        final ReentrantLock lock = this.waitLock;
+        lock.lockInterruptibly();
+        try {
+            waiters++;
+            try {
+                while ((e = pollStripes()) == null) {
+                    if (nanos <= 0L)
+                        return null;
+                    nanos = notEmpty.awaitNanos(nanos);
+                }
+            } finally {
+                waiters--;
+            }
+            cascade();
+        } finally {
+            lock.unlock();
+        }
+        return e;
+    }
+
+    public E peek() {
+        Stripe<E>[] ss = stripes;
+        int n = ss.length, h = probe();
+        for (int i = 0; i < n; i++) {
+            Stripe<E> s = ss[(h + i) & (n - 1)];
+            if (s.count > 0) {
+                s.lock();
+                try {
+                    E e = s.items.peekFirst();
+                    if (e != null)
+                        return e;
+                } finally {
+                    s.unlock();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the number of elements in this queue.
+     *
+     * @return the number of elements in this queue
+     */
+    public int size() {
+        long n = 0L;
+        for (Stripe<E> s : stripes)
+            n += s.count;
+        return (int) Math.min(n, Integer.MAX_VALUE);
+    }
+
+    public boolean isEmpty() {
+        return !hasItems();
+    }
+
+    /**
+     * Always returns {@code Integer.MAX_VALUE} because a
+     * {@code WorkStealingBlockingQueue} is not capacity constrained.
+     *
+     * @return {@code Integer.MAX_VALUE} (as specified by
+     *         {@link BlockingQueue#remainingCapacity()})
+     */
+    public int remainingCapacity() {
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Removes a single instance of the specified element from this queue,
+     * if it is present.  More formally, removes an element {@code e} such
+     * that {@code o.equals(e)}, if this queue contains one or more such
+     * elements.
+     * Returns {@code true} if this queue contained the specified element
+     * (or equivalently, if this queue changed as a result of the call).
+     *
+     * @param o element to be removed from this queue, if present
+     * @return {@code true} if this queue changed as a result of the call
+     */
+    public boolean remove(Object o) {
+        if (o != null) {
+            for (Stripe<E> s : stripes) {
+                if (s.count > 0) {
+                    s.lock();
+                    try {
+                        if (s.items.removeFirstOccurrence(o)) {
+                            s.count--;
+                            return true;
+                        }
+                    } finally {
+                        s.unlock();
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Identity-based version for use in Itr.remove.
+     */
+    void removeEq(Object o) {
+        for (Stripe<E> s : stripes) {
+            s.lock();
+            try {
+                for (Iterator<E> it = s.items.iterator(); it.hasNext(); ) {
+                    if (it.next() == o) {
+                        it.remove();
+                        s.count--;
+                        return;
+                    }
+                }
+            } finally {
+                s.unlock();
+            }
+        }
+    }
+
+    /**
+     * Returns {@code true} if this queue contains the specified element.
+     * More formally, returns {@code true} if and only if this queue contains
+     * at least one element {@code e} such that {@code o.equals(e)}.
+     *
+     * @param o object to be checked for containment in this queue
+     * @return {@code true} if this queue contains the specified element
+     */
+    public boolean contains(Object o) {
+        if (o != null) {
+            for (Stripe<E> s : stripes) {
+                if (s.count > 0) {
+                    s.lock();
+                    try {
+                        if (s.items.contains(o))
+                            return true;
+                    } finally {
+                        s.unlock();
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Atomically removes all of the elements from each stripe of this
+     * queue in turn.  The queue will be empty after this call returns
+     * unless elements are concurrently inserted.
+     */
+    public void clear() {
+        for (Stripe<E> s : stripes) {
+            s.lock();
+            try {
+                s.items.clear();
+                s.count = 0;
+            } finally {
+                s.unlock();
+            }
+        }
+    }
+
+    /**
+     * Inserts all elements of the given collection into this queue,
+     * appending the whole batch to a single stripe under one
+     * acquisition of its lock and signalling waiting takers once.  The
+     * collection is copied, and checked for null elements, before any
+     * lock is acquired; if it contains a null element, no element is
+     * inserted.  As the queue is unbounded, all elements are inserted.
+     *
+     * @return the number of elements in the specified collection
+     * @throws NullPointerException {@inheritDoc}
+     * @throws IllegalArgumentException {@inheritDoc}
+     * @since 12
+     */
+    @SuppressWarnings("unchecked")
+    public int offerAll(Collection<? extends E> c) {
+        final Object[] es = Helpers.batchArray(this, c);
+        if (es.length == 0)
+            return 0;
+        Stripe<E>[] ss = stripes;
+        int m = ss.length - 1, h = probe();
+        Stripe<E> s = ss[h & m];
+        if (!s.tryLock()) {
+            s = ss[ThreadLocalRandom.advanceProbe(h) & m];
+            s.lock();
+        }
+        try {
+            for (Object e : es)
+                s.items.addLast((E) e);
+            s.count += es.length;
+        } finally {
+            s.unlock();
+        }
+        if (waiters > 0)
+            signalNotEmpty();   // takers cascade the signal
+        return es.length;
+    }
+
+    /**
+     * @throws UnsupportedOperationException {@inheritDoc}
+     * @throws ClassCastException            {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     */
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @throws UnsupportedOperationException {@inheritDoc}
+     * @throws ClassCastException            {@inheritDoc}
+     * @throws NullPointerException          {@inheritDoc}
+     * @throws IllegalArgumentException      {@inheritDoc}
+     */
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        Objects.requireNonNull(c);
+        if (c == this)
+            throw new IllegalArgumentException();
+        int n = 0;
+        for (Stripe<E> s : stripes) {
+            if (n >= maxElements)
+                break;
+            if (s.count > 0) {
+                s.lock();
+                try {
+                    for (E e; n < maxElements && (e = s.items.peekFirst()) != null; ) {
+                        c.add(e);
+                        s.items.pollFirst();
+                        s.count--;
+                        n++;
+                    }
+                } finally {
+                    s.unlock();
+                }
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Returns a list of the elements of all stripes, each stripe
+     * locked in turn.
+     */
+    private ArrayList<E> snapshot() {
+        ArrayList<E> list = new ArrayList<>();
+        for (Stripe<E> s : stripes) {
+            if (s.count > 0) {
+                s.lock();
+                try {
+                    list.addAll(s.items);
+                } finally {
+                    s.unlock();
+                }
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Returns an array containing all of the elements in this queue,
+     * in no particular order.
+     *
+     * <p>The returned array will be "safe" in that no references to it are
+     * maintained by this queue.  (In other words, this method must allocate
+     * a new array).  The caller is thus free to modify the returned array.
+     *
+     * <p>This method acts as bridge between array-based and collection-based
+     * APIs.
+     *
+     * @return an array containing all of the elements in this queue
+     */
+    public Object[] toArray() {
+        return snapshot().toArray();
+    }
+
+    /**
+     * Returns an array containing all of the elements in this queue, in
+     * no particular order; the runtime type of the returned array is that
+     * of the specified array, as by {@link Collection#toArray(Object[])}.
+     *
+     * @param a the array into which the elements of the queue are to
+     *          be stored, if it is big enough; otherwise, a new array of the
+     *          same runtime type is allocated for this purpose
+     * @return an array containing all of the elements in this queue
+     * @throws ArrayStoreException if the runtime type of the specified array
+     *         is not a supertype of the runtime type of every element in
+     *         this queue
+     * @throws NullPointerException if the specified array is null
+     */
+    public <T> T[] toArray(T[] a) {
+        return snapshot().toArray(a);
+    }
+
+    /**
+     * Returns an iterator over a snapshot of the elements in this queue,
+     * in no particular order.  The iterator does not reflect later
+     * changes to the queue; its {@code remove} method removes the
+     * element last returned, if it is still present.
+     *
+     * @return an iterator over the elements in this queue
+     */
+    public Iterator<E> iterator() {
+        return new Itr(snapshot().toArray());
+    }
+
+    /**
+     * Snapshot iterator that works off copy of underlying elements.
+     */
+    final class Itr implements Iterator<E> {
+        final Object[] array; // Array of all elements
+        int cursor;           // index of next element to return
+        int lastRet = -1;     // index of last element, or -1 if no such
+
+        Itr(Object[] array) {
+            this.array = array;
+        }
+
+        public boolean hasNext() {
+            return cursor < array.length;
+        }
+
+        @SuppressWarnings("unchecked")
+        public E next() {
+            if (cursor >= array.length)
+                throw new NoSuchElementException();
+            return (E)array[lastRet = cursor++];
+        }
+
+        public void remove() {
+            if (lastRet < 0)
+                throw new IllegalStateException();
+            removeEq(array[lastRet]);
+            lastRet = -1;
+        }
+    }
+
+    /**
+     * Saves this queue to a stream (that is, serializes it).
+     *
+     * @param s the stream
+     * @throws java.io.IOException if an I/O error occurs
+     * @serialData The number of stripes (int), followed by each element
+     * (each an {@code Object}) in no particular order, followed by a
+     * null
+     */
+    private void writeObject(java.io.ObjectOutputStream s)
+        throws java.io.IOException {
+        s.defaultWriteObject();
+        s.writeInt(stripes.length);
+        for (Object e : snapshot())
+            s.writeObject(e);
+        s.writeObject(null);
+    }
+
+    /**
+     * Reconstitutes this queue from a stream (that is, deserializes it).
+     *
+     * @param s the stream
+     * @throws ClassNotFoundException if the class of a serialized object
+     *         could not be found
+     * @throws java.io.IOException if an I/O error occurs
+     */
+    private void readObject(java.io.ObjectInputStream s)
+        throws java.io.IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        int n = s.readInt();
+        if (n <= 0)
+            throw new java.io.InvalidObjectException("Illegal stripe count: " + n);
+        stripes = newStripes(n);
+        for (;;) {
+            @SuppressWarnings("unchecked")
+            E item = (E)s.readObject();
+            if (item == null)
+                break;
+            offer(item);
+        }
+    }
+}
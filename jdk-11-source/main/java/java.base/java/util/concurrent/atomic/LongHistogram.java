@@ -0,0 +1,625 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent.atomic;
+
+import java.io.Serializable;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A concurrent histogram of non-negative {@code long} values, such as
+ * latencies in nanoseconds, with bounded relative error.  Values are
+ * counted in log-linear buckets: each power-of-two range of values is
+ * divided into 2<sup>{@code significantBits}</sup> equal buckets, so
+ * that the width of the bucket holding a value is less than
+ * 2<sup>-{@code significantBits}</sup> of the value, and values less
+ * than 2<sup>{@code significantBits + 1}</sup> are counted exactly.
+ *
+ * <p>As in {@link LongAdder}, when recording (method {@link #record})
+ * is contended across threads, the counts are spread over a set of
+ * shards that may grow dynamically to reduce contention, up to one per
+ * processor.  Recording never blocks or retries: it performs a fixed
+ * number of atomic operations on the shard selected for the current
+ * thread.  Method {@link #snapshot} combines the shards into an
+ * immutable {@link Snapshot}, from which the count, mean, extremes
+ * and percentiles of the recorded values may be obtained.
+ *
+ * <p>A snapshot is not an atomic view of the histogram: values
+ * recorded concurrently with the creation of a snapshot may or may not
+ * be reflected in it, and a value may be reflected in its bucket count
+ * but not in the sum, or vice versa.  Each shard holds
+ * {@code (64 - significantBits) << significantBits} counts at most,
+ * fewer if a lower highest trackable value is given, so the number of
+ * significant bits should be chosen with the space per shard in mind.
+ *
+ * <p>Snapshots may be combined with {@link Snapshot#plus} and
+ * {@link Snapshot#minus}.  For example, to report the distribution of
+ * the values recorded in each interval:
+ *
+ * <pre> {@code
+ * LongHistogram latencies = new LongHistogram(5);
+ * LongHistogram.Snapshot last = latencies.snapshot();
+ * ...
+ * LongHistogram.Snapshot now = latencies.snapshot();
+ * LongHistogram.Snapshot interval = now.minus(last);
+ * last = now;
+ * report(interval.getValueAtPercentile(99.0), interval.getMax());}</pre>
+ *
+ * <p>This class does not define methods such as {@code equals},
+ * {@code hashCode} and {@code compareTo} because instances are
+ * expected to be mutated, and so are not useful as collection keys.
+ *
+ * @since 12
+ */
+public class LongHistogram implements Serializable {
+    private static final long serialVersionUID = -5340127395617093276L;
+
+    /*
+     * Each shard is a long[] holding the bucket counts followed by the
+     * sum of the recorded values.  The table of shards starts with one
+     * shard.  A thread records into the shard selected by its
+     * Striped64 probe, first trying a single CAS on the shard's sum.
+     * If that fails, the thread adds unconditionally instead, and, as
+     * in Striped64, advances its probe and, if the table is smaller
+     * than the number of CPUs, doubles it (under the busy spinlock,
+     * which is tried only once).  The bucket count is then added
+     * unconditionally.  Shards are never removed.
+     *
+     * The bucket of a value v with bit length b, for p significant
+     * bits, is v itself if b <= p + 1, and otherwise e * 2^p + (v >>> e)
+     * where e = b - (p + 1), so that bucket indices are dense and
+     * increase with value.
+     */
+
+    /** The maximum number of significant bits. */
+    private static final int MAX_SIGNIFICANT_BITS = 12;
+
+    /** The number of significant bits of bucketed values. */
+    private final int significantBits;
+
+    /** The highest value that may be recorded. */
+    private final long highestTrackableValue;
+
+    /** The number of buckets, which is also the index of the sum. */
+    private final int buckets;
+
+    /** Table of shards. Length is a power of two. */
+    private transient volatile long[][] shards;
+
+    /** Spinlock (locked via CAS) used when resizing shards. */
+    private transient volatile int busy;
+
+    /**
+     * Creates a new, empty histogram that can record all non-negative
+     * {@code long} values, with the given number of significant bits.
+     *
+     * @param significantBits the number of significant bits with which
+     *        values are recorded, in the range 0 to 12
+     * @throws IllegalArgumentException if {@code significantBits} is
+     *         out of range
+     */
+    public LongHistogram(int significantBits) {
+        this(Long.MAX_VALUE, significantBits);
+    }
+
+    /**
+     * Creates a new, empty histogram that can record values between
+     * zero and the given highest trackable value, inclusive, with the
+     * given number of significant bits.
+     *
+     * @param highestTrackableValue the highest value that may be recorded
+     * @param significantBits the number of significant bits with which
+     *        values are recorded, in the range 0 to 12
+     * @throws IllegalArgumentException if {@code highestTrackableValue}
+     *         is negative, or {@code significantBits} is out of range
+     */
+    public LongHistogram(long highestTrackableValue, int significantBits) {
+        if (highestTrackableValue < 0L ||
+            significantBits < 0 || significantBits > MAX_SIGNIFICANT_BITS)
+            throw new IllegalArgumentException();
+        this.significantBits = significantBits;
+        this.highestTrackableValue = highestTrackableValue;
+        this.buckets = bucketIndex(highestTrackableValue, significantBits) + 1;
+        this.shards = new long[][] { new long[buckets + 1] };
+    }
+
+    /** Returns the bucket index of non-negative value v. */
+    static int bucketIndex(long v, int p) {
+        int e = (Long.SIZE - 1 - p) - Long.numberOfLeadingZeros(v);
+        return (e <= 0) ? (int) v : (e << p) + (int) (v >>> e);
+    }
+
+    /** Returns the lowest value counted in bucket i. */
+    static long lowestValue(int i, int p) {
+        int e = (i >>> p) - 1;
+        return (e <= 0) ? i : (long) (i - (e << p)) << e;
+    }
+
+    /** Returns the highest value counted in bucket i. */
+    static long highestValue(int i, int p) {
+        int e = (i >>> p) - 1;
+        return (e <= 0) ? i : lowestValue(i, p) + ((1L << e) - 1L);
+    }
+
+    /**
+     * Records the given value.
+     *
+     * @param value the value to record
+     * @throws IllegalArgumentException if {@code value} is negative or
+     *         greater than the highest trackable value
+     */
+    public void record(long value) {
+        record(value, 1L);
+    }
+
+    /**
+     * Records the given value the given number of times.
+     *
+     * @param value the value to record
+     * @param count the number of times to record it
+     * @throws IllegalArgumentException if {@code value} is negative or
+     *         greater than the highest trackable value, or {@code count}
+     *         is negative
+     */
+    public void record(long value, long count) {
+        if (value < 0L || value > highestTrackableValue || count < 0L)
+            throw new IllegalArgumentException();
+        final int i = bucketIndex(value, significantBits), s = buckets;
+        final long[][] ss = shards;
+        final int h = Striped64.getProbe();
+        final long[] c = ss[(ss.length - 1) & h];
+        final long x = value * count, sum = (long) COUNTS.getOpaque(c, s);
+        if (!COUNTS.compareAndSet(c, s, sum, sum + x)) {
+            COUNTS.getAndAdd(c, s, x);
+            contended(ss, h);
+        }
+        COUNTS.getAndAdd(c, i, count);
+    }
+
+    /**
+     * Moves the current thread to another shard after contention,
+     * first trying once to expand the table.
+     */
+    private void contended(long[][] ss, int h) {
+        int n = ss.length;
+        if (n < Striped64.NCPU && shards == ss &&
+            busy == 0 && BUSY.compareAndSet(this, 0, 1)) {
+            try {
+                if (shards == ss) {             // Expand table
+                    long[][] ns = Arrays.copyOf(ss, n << 1);
+                    for (int j = n; j < ns.length; j++)
+                        ns[j] = new long[buckets + 1];
+                    shards = ns;
+                }
+            } finally {
+                busy = 0;
+            }
+        }
+        if (h == 0)
+            ThreadLocalRandom.current(); // force initialization
+        else
+            Striped64.advanceProbe(h);
+    }
+
+    /**
+     * Records all values counted in the given snapshot, as if by
+     * recording the highest value of each nonempty bucket as many times
+     * as it is counted, except that the sum of the recorded values is
+     * increased by the sum of the snapshot.
+     *
+     * @param snapshot the snapshot
+     * @throws IllegalArgumentException if the snapshot does not have
+     *         the same number of significant bits as this histogram,
+     *         or counts values greater than the highest trackable value
+     */
+    public void add(Snapshot snapshot) {
+        final long[] counts = snapshot.counts;
+        if (snapshot.significantBits != significantBits ||
+            counts.length > buckets)
+            throw new IllegalArgumentException();
+        final long[][] ss = shards;
+        final long[] c = ss[(ss.length - 1) & Striped64.getProbe()];
+        for (int i = 0; i < counts.length; i++)
+            if (counts[i] != 0L)
+                COUNTS.getAndAdd(c, i, counts[i]);
+        COUNTS.getAndAdd(c, buckets, snapshot.sum);
+    }
+
+    /**
+     * Returns a snapshot of the values recorded so far.  The returned
+     * snapshot is not an atomic view; see the class documentation.
+     *
+     * @return a snapshot of the values recorded so far
+     */
+    public Snapshot snapshot() {
+        final int n = buckets;
+        final long[] counts = new long[n];
+        long sum = 0L;
+        for (long[] c : shards) {
+            for (int i = 0; i < n; i++)
+                counts[i] += (long) COUNTS.getVolatile(c, i);
+            sum += (long) COUNTS.getVolatile(c, n);
+        }
+        return new Snapshot(significantBits, counts, sum);
+    }
+
+    /**
+     * Returns the number of values recorded so far.  The returned
+     * value is <em>NOT</em> an atomic snapshot; invocation in the
+     * absence of concurrent recording returns an accurate result.
+     *
+     * @return the number of values recorded so far
+     */
+    public long getTotalCount() {
+        final int n = buckets;
+        long total = 0L;
+        for (long[] c : shards)
+            for (int i = 0; i < n; i++)
+                total += (long) COUNTS.getVolatile(c, i);
+        return total;
+    }
+
+    /**
+     * Resets the histogram to hold no values.  This method may be a
+     * useful alternative to creating a new histogram, but is only
+     * effective if there are no concurrent recordings.  Because this
+     * method is intrinsically racy, it should only be used when it is
+     * known that no threads are concurrently recording; otherwise take
+     * snapshots and use {@link Snapshot#minus} instead.
+     */
+    public void reset() {
+        for (long[] c : shards)
+            for (int i = 0; i <= buckets; i++)
+                COUNTS.setVolatile(c, i, 0L);
+    }
+
+    /**
+     * Returns the number of significant bits with which values are
+     * recorded.
+     *
+     * @return the number of significant bits
+     */
+    public int getSignificantBits() {
+        return significantBits;
+    }
+
+    /**
+     * Returns the highest value that may be recorded.
+     *
+     * @return the highest trackable value
+     */
+    public long getHighestTrackableValue() {
+        return highestTrackableValue;
+    }
+
+    /**
+     * Returns the String representation of a snapshot of this
+     * histogram.
+     *
+     * @return the String representation of a snapshot of this histogram
+     */
+    public String toString() {
+        return snapshot().toString();
+    }
+
+    /**
+     * An immutable snapshot of the values recorded in a
+     * {@link LongHistogram}.
+     *
+     * @since 12
+     */
+    public static final class Snapshot implements Serializable {
+        private static final long serialVersionUID = 2783911496201850437L;
+
+        /** @serial the number of significant bits */
+        private final int significantBits;
+
+        /** @serial the bucket counts */
+        private final long[] counts;
+
+        /** @serial the sum of the recorded values */
+        private final long sum;
+
+        /** The number of values, computed from counts. */
+        private transient long totalCount;
+
+        Snapshot(int significantBits, long[] counts, long sum) {
+            this.significantBits = significantBits;
+            this.counts = counts;
+            this.sum = sum;
+            this.totalCount = total(counts);
+        }
+
+        private static long total(long[] counts) {
+            long total = 0L;
+            for (long c : counts)
+                total += c;
+            return total;
+        }
+
+        /**
+         * Returns the number of recorded values.
+         *
+         * @return the number of recorded values
+         */
+        public long getTotalCount() {
+            return totalCount;
+        }
+
+        /**
+         * Returns the sum of the recorded values.  The sum is exact,
+         * but wraps around on overflow.
+         *
+         * @return the sum of the recorded values
+         */
+        public long getSum() {
+            return sum;
+        }
+
+        /**
+         * Returns the arithmetic mean of the recorded values, or zero
+         * if there are none.
+         *
+         * @return the mean of the recorded values
+         */
+        public double getMean() {
+            return (totalCount == 0L) ? 0.0d : (double) sum / totalCount;
+        }
+
+        /**
+         * Returns the lowest value equivalent to the lowest recorded
+         * value, that is, the lowest value counted in the same bucket;
+         * or zero if there are no recorded values.
+         *
+         * @return the lowest recorded value, within the precision of
+         *         this histogram
+         */
+        public long getMin() {
+            for (int i = 0; i < counts.length; i++)
+                if (counts[i] > 0L)
+                    return lowestValue(i, significantBits);
+            return 0L;
+        }
+
+        /**
+         * Returns the highest value equivalent to the highest recorded
+         * value, that is, the highest value counted in the same bucket;
+         * or zero if there are no recorded values.
+         *
+         * @return the highest recorded value, within the precision of
+         *         this histogram
+         */
+        public long getMax() {
+            for (int i = counts.length - 1; i >= 0; i--)
+                if (counts[i] > 0L)
+                    return highestValue(i, significantBits);
+            return 0L;
+        }
+
+        /**
+         * Returns the highest value equivalent to the value at the given
+         * percentile: the highest value counted in the first bucket at
+         * which the cumulative count of values reaches the given
+         * percentage of the total count, or zero if there are no
+         * recorded values.
+         *
+         * @param percentile the percentile, in the range 0.0 to 100.0
+         * @return the value at the given percentile, within the
+         *         precision of this histogram
+         * @throws IllegalArgumentException if {@code percentile} is not
+         *         in the range 0.0 to 100.0
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (!(percentile >= 0.0d && percentile <= 100.0d))
+                throw new IllegalArgumentException();
+            long target = Math.max(1L, (long) Math.ceil(
+                percentile / 100.0d * totalCount));
+            long cumulative = 0L;
+            for (int i = 0; i < counts.length; i++) {
+                if ((cumulative += counts[i]) >= target)
+                    return highestValue(i, significantBits);
+            }
+            return 0L;
+        }
+
+        /**
+         * Returns the number of recorded values that are counted in
+         * buckets whose values are all less than or equal to the given
+         * value.
+         *
+         * @param value the value
+         * @return the number of recorded values at or below the given
+         *         value, within the precision of this histogram
+         */
+        public long getCountAtOrBelow(long value) {
+            if (value < 0L)
+                return 0L;
+            int n = Math.min(bucketIndex(value, significantBits) + 1,
+                             counts.length);
+            if (n > 0 && highestValue(n - 1, significantBits) > value)
+                --n;
+            long total = 0L;
+            for (int i = 0; i < n; i++)
+                total += counts[i];
+            return total;
+        }
+
+        /**
+         * Returns a snapshot holding the values of this snapshot
+         * together with those of the given snapshot.
+         *
+         * @param other the other snapshot
+         * @return the combined snapshot
+         * @throws IllegalArgumentException if the snapshots do not have
+         *         the same number of significant bits
+         */
+        public Snapshot plus(Snapshot other) {
+            return combine(other, 1L);
+        }
+
+        /**
+         * Returns a snapshot holding the values of this snapshot that
+         * are not in the given snapshot.  If the given snapshot is an
+         * earlier snapshot of the same histogram, and the histogram was
+         * not reset in between, the result holds the values recorded
+         * between the two snapshots.  Bucket counts that would be
+         * negative are zero in the result.
+         *
+         * @param other the other snapshot
+         * @return the difference of the snapshots
+         * @throws IllegalArgumentException if the snapshots do not have
+         *         the same number of significant bits
+         */
+        public Snapshot minus(Snapshot other) {
+            return combine(other, -1L);
+        }
+
+        private Snapshot combine(Snapshot other, long sign) {
+            if (other.significantBits != significantBits)
+                throw new IllegalArgumentException();
+            final long[] a = counts, b = other.counts;
+            final long[] r = Arrays.copyOf(a, Math.max(a.length, b.length));
+            for (int i = 0; i < b.length; i++)
+                r[i] = Math.max(0L, r[i] + sign * b[i]);
+            return new Snapshot(significantBits, r, sum + sign * other.sum);
+        }
+
+        /**
+         * Returns a string summarizing this snapshot: the count, mean,
+         * minimum, median, 99th percentile, and maximum of the recorded
+         * values.
+         *
+         * @return a string summarizing this snapshot
+         */
+        public String toString() {
+            return "LongHistogram.Snapshot[count=" + totalCount +
+                ", mean=" + getMean() +
+                ", min=" + getMin() +
+                ", p50=" + getValueAtPercentile(50.0d) +
+                ", p99=" + getValueAtPercentile(99.0d) +
+                ", max=" + getMax() + "]";
+        }
+
+        /**
+         * Reconstitutes this snapshot from a stream, validating it.
+         *
+         * @param s the stream
+         * @throws ClassNotFoundException if the class of a serialized object
+         *         could not be found
+         * @throws java.io.IOException if an I/O error occurs, or the
+         *         snapshot is invalid
+         */
+        private void readObject(java.io.ObjectInputStream s)
+            throws java.io.IOException, ClassNotFoundException {
+            s.defaultReadObject();
+            if (significantBits < 0 || significantBits > MAX_SIGNIFICANT_BITS ||
+                counts == null ||
+                counts.length > bucketIndex(Long.MAX_VALUE, significantBits) + 1)
+                throw new java.io.InvalidObjectException("Invalid snapshot");
+            for (long c : counts)
+                if (c < 0L)
+                    throw new java.io.InvalidObjectException("Invalid snapshot");
+            totalCount = total(counts);
+        }
+    }
+
+    /**
+     * Serialization proxy, used to serialize the combined counts
+     * rather than the shards.
+     * @serial include
+     */
+    private static class SerializationProxy implements Serializable {
+        private static final long serialVersionUID = -5340127395617093276L;
+
+        /**
+         * The highest trackable value.
+         * @serial
+         */
+        private final long highestTrackableValue;
+
+        /**
+         * A snapshot of the recorded values.
+         * @serial
+         */
+        private final Snapshot snapshot;
+
+        SerializationProxy(LongHistogram h) {
+            highestTrackableValue = h.highestTrackableValue;
+            snapshot = h.snapshot();
+        }
+
+        /**
+         * Returns a {@code LongHistogram} object with initial state
+         * held by this proxy.
+         *
+         * @return a {@code LongHistogram} object with initial state
+         * held by this proxy
+         */
+        private Object readResolve() {
+            LongHistogram h = new LongHistogram(highestTrackableValue,
+                                                snapshot.significantBits);
+            h.add(snapshot);
+            return h;
+        }
+    }
+
+    /**
+     * Returns a
+     * <a href="../../../../serialized-form.html#java.util.concurrent.atomic.LongHistogram.SerializationProxy">
+     * SerializationProxy</a>
+     * representing the state of this instance.
+     *
+     * @return a {@link SerializationProxy}
+     * representing the state of this instance
+     */
+    private Object writeReplace() {
+        return new SerializationProxy(this);
+    }
+
+    /**
+     * @param s the stream
+     * @throws java.io.InvalidObjectException always
+     */
+    private void readObject(java.io.ObjectInputStream s)
+        throws java.io.InvalidObjectException {
+        throw new java.io.InvalidObjectException("Proxy required");
+    }
+
+    // VarHandle mechanics
+    private static final VarHandle COUNTS;
+    private static final VarHandle BUSY;
+    static {
+        try {
+            MethodHandles.Lookup l = MethodHandles.lookup();
+            COUNTS = MethodHandles.arrayElementVarHandle(long[].class);
+            BUSY = l.findVarHandle(LongHistogram.class, "busy", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+}
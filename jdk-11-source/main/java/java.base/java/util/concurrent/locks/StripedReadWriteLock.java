@@ -0,0 +1,997 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.concurrent.locks;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A reentrant {@link ReadWriteLock} that scales for read-mostly
+ * workloads by spreading the bookkeeping of readers over a table of
+ * padded counters, as {@link java.util.concurrent.atomic.LongAdder}
+ * spreads updates over cells.  In a {@link ReentrantReadWriteLock},
+ * every acquisition and release of the read lock updates one
+ * synchronization state, so readers running on many processors
+ * contend on a single cache line even when no writer is present.
+ * Here each reader increments, and later decrements, the counter
+ * selected by a per-thread hash code, and the table grows upon
+ * contention up to the number of processors, so uncontended readers
+ * never write to a cache line shared with other readers.
+ *
+ * <p>The price is paid by writers.  Acquiring the write lock scans
+ * every counter, and waits until the read lock is no longer held, so
+ * this class is preferable to {@code ReentrantReadWriteLock} only when
+ * reads greatly outnumber writes and are performed concurrently by
+ * many threads.  Each instance uses up to one cache line per processor.
+ *
+ * <p>This class has the following properties:
+ *
+ * <ul>
+ * <li><b>Acquisition order</b>
+ *
+ * <p>Once a thread has begun to acquire the write lock, threads that
+ * do not already hold the read lock cannot acquire it until the write
+ * lock has been released, so that writers are not starved by a
+ * continuous stream of readers.  Threads waiting to acquire the write
+ * lock, and readers blocked by a writer, are granted access in the
+ * order of an internal {@link ReentrantLock} constructed with the same
+ * <em>fairness</em> policy as this lock.
+ *
+ * <li><b>Reentrancy</b>
+ *
+ * <p>As with {@code ReentrantReadWriteLock}, both readers and writers
+ * may reacquire read or write locks they hold, a writer can acquire
+ * the read lock, and a writer can <em>downgrade</em> to a reader by
+ * acquiring the read lock and then releasing the write lock.
+ * Upgrading from a read lock to the write lock is not possible: a
+ * reader that attempts to acquire the write lock waits forever for
+ * its own read lock to be released.
+ *
+ * <li><b>Interruption of lock acquisition</b>
+ *
+ * <p>The read lock and write lock both support interruption during
+ * lock acquisition.
+ *
+ * <li><b>{@link Condition} support</b>
+ *
+ * <p>The write lock provides a {@link Condition} implementation that
+ * behaves in the same way, with respect to the write lock, as the
+ * {@code Condition} implementation of {@code ReentrantReadWriteLock}.
+ * The read lock does not support a {@code Condition} and
+ * {@code readLock().newCondition()} throws
+ * {@code UnsupportedOperationException}.
+ *
+ * <li><b>Instrumentation</b>
+ *
+ * <p>This class supports methods to determine whether locks are held,
+ * which are designed for monitoring system state, not for
+ * synchronization control.
+ * </ul>
+ *
+ * <p>Serialization of this class behaves in the same way as built-in
+ * locks: a deserialized lock is in the unlocked state, regardless of
+ * its state when serialized.
+ *
+ * @since 12
+ * @see ReentrantReadWriteLock
+ */
+public class StripedReadWriteLock implements ReadWriteLock, java.io.Serializable {
+    private static final long serialVersionUID = -2870425613947612823L;
+
+    /*
+     * The read lock is represented by a table of Cells, each holding
+     * the number of read holds taken through it, and a per-thread
+     * ReadHolds recording how many times the thread holds the read
+     * lock and through which cell.  Only the first acquisition by a
+     * thread touches a cell; reentrant acquisitions and releases just
+     * update the thread's ReadHolds.  A thread must release through
+     * the cell it acquired through, since its hash code may meanwhile
+     * have been advanced by other striped classes, and a scan of the
+     * table is only guaranteed to see a zero total once each reader
+     * has both incremented and decremented the same cell.
+     *
+     * The table starts with one cell and, as in Striped64, a reader
+     * whose CAS on its cell fails moves to another cell by advancing
+     * its hash code, doubling the table (under the cellsBusy spinlock)
+     * upon repeated failure until it reaches the nearest power of two
+     * at least the number of processors.  Cells are never removed, and
+     * a grown table contains all cells of the table it replaces.
+     *
+     * Writers are serialized by mutex.  The first acquisition by a
+     * writer sets the volatile "writing" flag, and then waits for the
+     * sum of the cells to reach zero.  A reader increments its cell
+     * and only then rechecks writing, backing out if it is set.
+     * Because both sides write one volatile and then read the other,
+     * either the writer sees the reader's increment or the reader sees
+     * writing.  A reader that finds writing set acquires and releases
+     * mutex around its increment, so it waits behind the writer; the
+     * writer clears writing before releasing mutex, so a reader
+     * holding mutex is never concurrent with a writer.  A waiting
+     * writer publishes itself in waitingWriter before rescanning the
+     * cells, and readers releasing their last hold unpark it.
+     */
+
+    /** Number of CPUS, to place bound on table size */
+    private static final int NCPU = Runtime.getRuntime().availableProcessors();
+
+    /** Maximum number of cells: the nearest power of two >= NCPU. */
+    private static final int MAX_CELLS =
+        (NCPU <= 1) ? 1 : Integer.highestOneBit(NCPU - 1) << 1;
+
+    /** Number of times a writer spins on the cells before parking. */
+    private static final int SPINS = (NCPU > 1) ? 1 << 6 : 0;
+
+    /**
+     * A reader counter, padded (via @Contended) to reduce cache
+     * contention.
+     */
+    @jdk.internal.vm.annotation.Contended static final class Cell {
+        volatile long readers;
+    }
+
+    /**
+     * The number of read holds of a thread, and the cell through
+     * which it acquired them.
+     */
+    static final class ReadHolds {
+        int count;
+        Cell cell;
+    }
+
+    /**
+     * ThreadLocal subclass. Easiest to explicitly define for sake
+     * of deserialization mechanics.
+     */
+    static final class ThreadLocalReadHolds
+        extends ThreadLocal<ReadHolds> {
+        public ReadHolds initialValue() {
+            return new ReadHolds();
+        }
+    }
+
+    /** Serializes writers, and readers blocked by a writer. */
+    private final ReentrantLock mutex;
+
+    /** Inner class providing readlock */
+    private final StripedReadWriteLock.ReadLock readerLock;
+    /** Inner class providing writelock */
+    private final StripedReadWriteLock.WriteLock writerLock;
+
+    /** Table of cells. Length is a power of two. */
+    private transient volatile Cell[] cells;
+
+    /** Spinlock (locked via CAS) used when resizing cells. */
+    private transient volatile int cellsBusy;
+
+    /** True while a writer holds, or is acquiring, the write lock. */
+    private transient volatile boolean writing;
+
+    /** The thread holding the write lock, or null. */
+    private transient volatile Thread owner;
+
+    /** The writer waiting for readers to release, or null. */
+    private transient volatile Thread waitingWriter;
+
+    /** The read holds of the current thread. */
+    private transient ThreadLocalReadHolds readHolds;
+
+    /**
+     * Creates a new {@code StripedReadWriteLock} with the default
+     * (nonfair) ordering properties.
+     */
+    public StripedReadWriteLock() {
+        this(false);
+    }
+
+    /**
+     * Creates a new {@code StripedReadWriteLock} with the given
+     * fairness policy for writers and for readers blocked by writers.
+     *
+     * @param fair {@code true} if this lock should use a fair ordering policy
+     */
+    public StripedReadWriteLock(boolean fair) {
+        mutex = new ReentrantLock(fair);
+        readerLock = new ReadLock(this);
+        writerLock = new WriteLock(this);
+        initReaders();
+    }
+
+    private void initReaders() {
+        cells = new Cell[] { new Cell() };
+        readHolds = new ThreadLocalReadHolds();
+    }
+
+    public StripedReadWriteLock.WriteLock writeLock() { return writerLock; }
+    public StripedReadWriteLock.ReadLock  readLock()  { return readerLock; }
+
+    // Readers
+
+    /**
+     * Increments the cell selected by the current thread's hash code,
+     * moving to other cells, and growing the table, upon contention.
+     *
+     * @return the cell incremented
+     */
+    private Cell incrementCell() {
+        int h;
+        if ((h = getProbe()) == 0) {
+            ThreadLocalRandom.current(); // force initialization
+            h = getProbe();
+        }
+        boolean collide = false;
+        for (;;) {
+            final Cell[] cs = cells;
+            final int n = cs.length;
+            final Cell c = cs[(n - 1) & h];
+            final long v = c.readers;
+            if (READERS.compareAndSet(c, v, v + 1L))
+                return c;
+            if (!collide || n >= MAX_CELLS || cells != cs)
+                collide = true;
+            else if (cellsBusy == 0 && CELLSBUSY.compareAndSet(this, 0, 1)) {
+                try {
+                    if (cells == cs) {          // Expand table
+                        Cell[] ncs = Arrays.copyOf(cs, n << 1);
+                        for (int i = n; i < ncs.length; i++)
+                            ncs[i] = new Cell();
+                        cells = ncs;
+                    }
+                } finally {
+                    cellsBusy = 0;
+                }
+                collide = false;
+            }
+            h = advanceProbe(h);
+        }
+    }
+
+    /**
+     * Decrements the given cell, and wakes up a waiting writer, if any.
+     */
+    private void decrementCell(Cell c) {
+        READERS.getAndAdd(c, -1L);
+        Thread w;
+        if ((w = waitingWriter) != null)
+            LockSupport.unpark(w);
+    }
+
+    /** Returns the number of read holds taken through the cells. */
+    private long readerCount() {
+        long sum = 0L;
+        for (Cell c : cells)
+            sum += c.readers;
+        return sum;
+    }
+
+    /**
+     * Acquires the read lock if this does not require waiting for a
+     * writer: if the current thread already holds the read lock or the
+     * write lock, or if there is no writer.
+     */
+    private boolean tryAcquireReadFast(ReadHolds rh) {
+        final int n = rh.count;
+        if (n > 0) {
+            if (n == Integer.MAX_VALUE)
+                throw new Error("Maximum lock count exceeded");
+            rh.count = n + 1;
+            return true;
+        }
+        if (!writing) {
+            Cell c = incrementCell();
+            if (!writing) {
+                rh.cell = c;
+                rh.count = 1;
+                return true;
+            }
+            decrementCell(c);
+        }
+        if (owner == Thread.currentThread()) {
+            rh.cell = incrementCell();
+            rh.count = 1;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Acquires the read lock while holding mutex, which excludes
+     * writers, then releases mutex.
+     */
+    private void acquireReadLocked(ReadHolds rh) {
+        try {
+            rh.cell = incrementCell();
+            rh.count = 1;
+        } finally {
+            mutex.unlock();
+        }
+    }
+
+    final void acquireRead() {
+        final ReadHolds rh = readHolds.get();
+        if (!tryAcquireReadFast(rh)) {
+            mutex.lock();
+            acquireReadLocked(rh);
+        }
+    }
+
+    final void acquireReadInterruptibly() throws InterruptedException {
+        if (Thread.interrupted())
+            throw new InterruptedException();
+        final ReadHolds rh = readHolds.get();
+        if (!tryAcquireReadFast(rh)) {
+            mutex.lockInterruptibly();
+            acquireReadLocked(rh);
+        }
+    }
+
+    final boolean tryAcquireRead() {
+        final ReadHolds rh = readHolds.get();
+        if (tryAcquireReadFast(rh))
+            return true;
+        if (!mutex.tryLock())
+            return false;
+        acquireReadLocked(rh);
+        return true;
+    }
+
+    final boolean tryAcquireRead(long nanos) throws InterruptedException {
+        if (Thread.interrupted())
+            throw new InterruptedException();
+        final ReadHolds rh = readHolds.get();
+        if (tryAcquireReadFast(rh))
+            return true;
+        if (!mutex.tryLock(nanos, TimeUnit.NANOSECONDS))
+            return false;
+        acquireReadLocked(rh);
+        return true;
+    }
+
+    final void releaseRead() {
+        final ReadHolds rh = readHolds.get();
+        final int n = rh.count;
+        if (n <= 0)
+            throw new IllegalMonitorStateException(
+                "attempt to unlock read lock, not locked by current thread");
+        if ((rh.count = n - 1) == 0) {
+            final Cell c = rh.cell;
+            rh.cell = null;
+            decrementCell(c);
+        }
+    }
+
+    // Writers
+
+    /**
+     * Waits, after writing has been set, until no thread holds the
+     * read lock.
+     *
+     * @return zero on success, a positive value if interruptible and
+     * interrupted, or a negative value if timed and timed out
+     */
+    private int awaitReaders(boolean interruptible, boolean timed,
+                             long nanos) {
+        final long deadline = timed ? System.nanoTime() + nanos : 0L;
+        boolean interrupted = false;
+        Thread w = null;
+        int spins = SPINS;
+        try {
+            while (readerCount() != 0L) {
+                if (spins > 0) {
+                    --spins;
+                    Thread.onSpinWait();
+                }
+                else if (w == null)             // publish, then recheck
+                    waitingWriter = w = Thread.currentThread();
+                else if (Thread.interrupted()) {
+                    if (interruptible)
+                        return 1;
+                    interrupted = true;
+                }
+                else if (!timed)
+                    LockSupport.park(this);
+                else if ((nanos = deadline - System.nanoTime()) > 0L)
+                    LockSupport.parkNanos(this, nanos);
+                else
+                    return -1;
+            }
+            return 0;
+        } finally {
+            if (w != null)
+                waitingWriter = null;
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Completes the first acquisition of the write lock by the
+     * current thread, which holds mutex.
+     *
+     * @return zero on success, or as for awaitReaders; in which case
+     * the acquisition has been abandoned
+     */
+    private int completeWrite(boolean interruptible, boolean timed,
+                              long nanos) {
+        writing = true;
+        int r;
+        if ((r = awaitReaders(interruptible, timed, nanos)) == 0)
+            owner = Thread.currentThread();
+        else {
+            writing = false;
+            mutex.unlock();
+        }
+        return r;
+    }
+
+    final void acquireWrite() {
+        final ReentrantLock mutex = this.mutex;
+        mutex.lock();
+        if (mutex.getHoldCount() == 1)
+            completeWrite(false, false, 0L);
+    }
+
+    final void acquireWriteInterruptibly() throws InterruptedException {
+        final ReentrantLock mutex = this.mutex;
+        mutex.lockInterruptibly();
+        if (mutex.getHoldCount() == 1 && completeWrite(true, false, 0L) != 0)
+            throw new InterruptedException();
+    }
+
+    final boolean tryAcquireWrite() {
+        final ReentrantLock mutex = this.mutex;
+        if (!mutex.tryLock())
+            return false;
+        if (mutex.getHoldCount() == 1) {
+            writing = true;
+            if (readerCount() != 0L) {
+                writing = false;
+                mutex.unlock();
+                return false;
+            }
+            owner = Thread.currentThread();
+        }
+        return true;
+    }
+
+    final boolean tryAcquireWrite(long nanos) throws InterruptedException {
+        final ReentrantLock mutex = this.mutex;
+        final long deadline = System.nanoTime() + nanos;
+        if (!mutex.tryLock(nanos, TimeUnit.NANOSECONDS))
+            return false;
+        int r;
+        if (mutex.getHoldCount() == 1 &&
+            (r = completeWrite(true, true, deadline - System.nanoTime())) != 0) {
+            if (r > 0)
+                throw new InterruptedException();
+            return false;
+        }
+        return true;
+    }
+
+    final void releaseWrite() {
+        final ReentrantLock mutex = this.mutex;
+        if (owner != Thread.currentThread())
+            throw new IllegalMonitorStateException();
+        if (mutex.getHoldCount() == 1) {
+            owner = null;
+            writing = false;
+        }
+        mutex.unlock();
+    }
+
+    /**
+     * The lock returned by method {@link StripedReadWriteLock#readLock}.
+     */
+    public static class ReadLock implements Lock, java.io.Serializable {
+        private static final long serialVersionUID = 4296375028561863452L;
+        private final StripedReadWriteLock lock;
+
+        /**
+         * Constructor for use by subclasses.
+         *
+         * @param lock the outer lock object
+         * @throws NullPointerException if the lock is null
+         */
+        protected ReadLock(StripedReadWriteLock lock) {
+            this.lock = lock;
+        }
+
+        /**
+         * Acquires the read lock.
+         *
+         * <p>Acquires the read lock if the current thread already holds
+         * the read lock or the write lock, or if no writer holds or is
+         * acquiring the write lock, and returns immediately.
+         *
+         * <p>Otherwise the current thread becomes disabled for thread
+         * scheduling purposes and lies dormant until the read lock has
+         * been acquired.
+         */
+        public void lock() {
+            lock.acquireRead();
+        }
+
+        /**
+         * Acquires the read lock unless the current thread is
+         * {@linkplain Thread#interrupt interrupted}.
+         *
+         * <p>Acquires the read lock as for {@link #lock}, except that
+         * the current thread may be interrupted while waiting, in which
+         * case, or if its interrupted status is set on entry to this
+         * method, {@link InterruptedException} is thrown and the
+         * current thread's interrupted status is cleared.
+         *
+         * @throws InterruptedException if the current thread is interrupted
+         */
+        public void lockInterruptibly() throws InterruptedException {
+            lock.acquireReadInterruptibly();
+        }
+
+        /**
+         * Acquires the read lock only if it is available at the time
+         * of invocation, that is, if it could be acquired by
+         * {@link #lock} without waiting for a writer.
+         *
+         * @return {@code true} if the read lock was acquired
+         */
+        public boolean tryLock() {
+            return lock.tryAcquireRead();
+        }
+
+        /**
+         * Acquires the read lock if it becomes available within the
+         * given waiting time and the current thread has not been
+         * {@linkplain Thread#interrupt interrupted}.
+         *
+         * @param timeout the time to wait for the read lock
+         * @param unit the time unit of the timeout argument
+         * @return {@code true} if the read lock was acquired
+         * @throws InterruptedException if the current thread is interrupted
+         * @throws NullPointerException if the time unit is null
+         */
+        public boolean tryLock(long timeout, TimeUnit unit)
+                throws InterruptedException {
+            return lock.tryAcquireRead(unit.toNanos(timeout));
+        }
+
+        /**
+         * Attempts to release this lock.
+         *
+         * <p>If the number of readers is now zero then the lock is made
+         * available for write lock attempts.
+         *
+         * @throws IllegalMonitorStateException if the current thread
+         *         does not hold this lock
+         */
+        public void unlock() {
+            lock.releaseRead();
+        }
+
+        /**
+         * Throws {@code UnsupportedOperationException} because
+         * {@code ReadLocks} do not support conditions.
+         *
+         * @throws UnsupportedOperationException always
+         */
+        public Condition newCondition() {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * Returns a string identifying this lock, as well as its lock state.
+         * The state, in brackets, includes the String {@code "Read locks ="}
+         * followed by the number of held read locks.
+         *
+         * @return a string identifying this lock, as well as its lock state
+         */
+        public String toString() {
+            return super.toString() +
+                "[Read locks = " + lock.getReadLockCount() + "]";
+        }
+    }
+
+    /**
+     * The lock returned by method {@link StripedReadWriteLock#writeLock}.
+     */
+    public static class WriteLock implements Lock, java.io.Serializable {
+        private static final long serialVersionUID = -8173256412508547312L;
+        private final StripedReadWriteLock lock;
+
+        /**
+         * Constructor for use by subclasses.
+         *
+         * @param lock the outer lock object
+         * @throws NullPointerException if the lock is null
+         */
+        protected WriteLock(StripedReadWriteLock lock) {
+            this.lock = lock;
+        }
+
+        /**
+         * Acquires the write lock.
+         *
+         * <p>If the current thread already holds the write lock then the
+         * hold count is incremented by one and the method returns
+         * immediately.  Otherwise the current thread waits until it is
+         * the only writer, and then until neither the read lock nor the
+         * write lock is held by another thread.  From the moment it
+         * becomes the only writer, other threads cannot newly acquire
+         * the read lock.
+         */
+        public void lock() {
+            lock.acquireWrite();
+        }
+
+        /**
+         * Acquires the write lock unless the current thread is
+         * {@linkplain Thread#interrupt interrupted}.
+         *
+         * <p>Acquires the write lock as for {@link #lock}, except that
+         * the current thread may be interrupted while waiting, in which
+         * case, or if its interrupted status is set on entry to this
+         * method, {@link InterruptedException} is thrown, the current
+         * thread's interrupted status is cleared, and readers blocked
+         * by this thread may proceed.
+         *
+         * @throws InterruptedException if the current thread is interrupted
+         */
+        public void lockInterruptibly() throws InterruptedException {
+            lock.acquireWriteInterruptibly();
+        }
+
+        /**
+         * Acquires the write lock only if neither the read nor write
+         * lock is held by another thread, and no other thread is
+         * acquiring the write lock, at the time of invocation.
+         *
+         * @return {@code true} if the lock was free and was acquired
+         * by the current thread, or the write lock was already held
+         * by the current thread; and {@code false} otherwise.
+         */
+        public boolean tryLock() {
+            return lock.tryAcquireWrite();
+        }
+
+        /**
+         * Acquires the write lock if it becomes available within the
+         * given waiting time and the current thread has not been
+         * {@linkplain Thread#interrupt interrupted}.
+         *
+         * @param timeout the time to wait for the write lock
+         * @param unit the time unit of the timeout argument
+         * @return {@code true} if the lock was free and was acquired
+         * by the current thread, or the write lock was already held by the
+         * current thread; and {@code false} if the waiting time
+         * elapsed before the lock could be acquired.
+         * @throws InterruptedException if the current thread is interrupted
+         * @throws NullPointerException if the time unit is null
+         */
+        public boolean tryLock(long timeout, TimeUnit unit)
+                throws InterruptedException {
+            return lock.tryAcquireWrite(unit.toNanos(timeout));
+        }
+
+        /**
+         * Attempts to release this lock.
+         *
+         * <p>If the current thread is the holder of this lock then
+         * the hold count is decremented. If the hold count is now
+         * zero then the lock is released.
+         *
+         * @throws IllegalMonitorStateException if the current thread does not
+         * hold this lock
+         */
+        public void unlock() {
+            lock.releaseWrite();
+        }
+
+        /**
+         * Returns a {@link Condition} instance for use with this
+         * {@link Lock} instance.
+         *
+         * <p>When the condition {@linkplain Condition#await() waiting}
+         * methods are called the write lock is released and, before
+         * they return, the write lock is reacquired and the lock hold
+         * count restored to what it was when the method was called,
+         * as for the write lock of {@link ReentrantReadWriteLock}.
+         *
+         * @return the Condition object
+         */
+        public Condition newCondition() {
+            return lock.new WriterCondition(lock.mutex.newCondition());
+        }
+
+        /**
+         * Returns a string identifying this lock, as well as its lock
+         * state.  The state, in brackets includes either the String
+         * {@code "Unlocked"} or the String {@code "Locked by"}
+         * followed by the {@linkplain Thread#getName name} of the owning thread.
+         *
+         * @return a string identifying this lock, as well as its lock state
+         */
+        public String toString() {
+            Thread o = lock.owner;
+            return super.toString() + ((o == null) ?
+                                       "[Unlocked]" :
+                                       "[Locked by thread " + o.getName() + "]");
+        }
+
+        /**
+         * Queries if this write lock is held by the current thread.
+         * Identical in effect to {@link
+         * StripedReadWriteLock#isWriteLockedByCurrentThread}.
+         *
+         * @return {@code true} if the current thread holds this lock and
+         *         {@code false} otherwise
+         */
+        public boolean isHeldByCurrentThread() {
+            return lock.isWriteLockedByCurrentThread();
+        }
+
+        /**
+         * Queries the number of holds on this write lock by the current
+         * thread.  Identical in effect to {@link
+         * StripedReadWriteLock#getWriteHoldCount}.
+         *
+         * @return the number of holds on this lock by the current thread,
+         *         or zero if this lock is not held by the current thread
+         */
+        public int getHoldCount() {
+            return lock.getWriteHoldCount();
+        }
+    }
+
+    /**
+     * Condition of the write lock: a condition of mutex that gives up
+     * writing while waiting, and waits for readers again once it has
+     * reacquired mutex.
+     */
+    final class WriterCondition implements Condition {
+        private final Condition cond;
+
+        WriterCondition(Condition cond) {
+            this.cond = cond;
+        }
+
+        /** Releases the write lock while mutex is released by cond. */
+        private void release() {
+            if (owner != Thread.currentThread())
+                throw new IllegalMonitorStateException();
+            owner = null;
+            writing = false;
+        }
+
+        /** Restores the write lock once cond has reacquired mutex. */
+        private void reacquire() {
+            writing = true;
+            awaitReaders(false, false, 0L);
+            owner = Thread.currentThread();
+        }
+
+        public void await() throws InterruptedException {
+            release();
+            try {
+                cond.await();
+            } finally {
+                reacquire();
+            }
+        }
+
+        public void awaitUninterruptibly() {
+            release();
+            try {
+                cond.awaitUninterruptibly();
+            } finally {
+                reacquire();
+            }
+        }
+
+        public long awaitNanos(long nanosTimeout) throws InterruptedException {
+            release();
+            try {
+                return cond.awaitNanos(nanosTimeout);
+            } finally {
+                reacquire();
+            }
+        }
+
+        public boolean await(long time, TimeUnit unit)
+                throws InterruptedException {
+            release();
+            try {
+                return cond.await(time, unit);
+            } finally {
+                reacquire();
+            }
+        }
+
+        public boolean awaitUntil(Date deadline) throws InterruptedException {
+            release();
+            try {
+                return cond.awaitUntil(deadline);
+            } finally {
+                reacquire();
+            }
+        }
+
+        public void signal() {
+            cond.signal();
+        }
+
+        public void signalAll() {
+            cond.signalAll();
+        }
+    }
+
+    // Instrumentation and status
+
+    /**
+     * Returns {@code true} if this lock has fairness set true.
+     *
+     * @return {@code true} if this lock has fairness set true
+     */
+    public final boolean isFair() {
+        return mutex.isFair();
+    }
+
+    /**
+     * Queries the number of read locks held for this lock. This
+     * method is designed for use in monitoring system state, not for
+     * synchronization control.  The result is an estimate if threads
+     * concurrently acquire or release the read lock.
+     *
+     * @return the number of read locks held
+     */
+    public int getReadLockCount() {
+        long n = readerCount();
+        return (n <= 0L) ? 0 : (n >= Integer.MAX_VALUE) ? Integer.MAX_VALUE
+            : (int) n;
+    }
+
+    /**
+     * Queries if the write lock is held by any thread. This method is
+     * designed for use in monitoring system state, not for
+     * synchronization control.
+     *
+     * @return {@code true} if any thread holds the write lock and
+     *         {@code false} otherwise
+     */
+    public boolean isWriteLocked() {
+        return owner != null;
+    }
+
+    /**
+     * Queries if the write lock is held by the current thread.
+     *
+     * @return {@code true} if the current thread holds the write lock and
+     *         {@code false} otherwise
+     */
+    public boolean isWriteLockedByCurrentThread() {
+        return owner == Thread.currentThread();
+    }
+
+    /**
+     * Queries the number of reentrant write holds on this lock by the
+     * current thread.
+     *
+     * @return the number of holds on the write lock by the current thread,
+     *         or zero if the write lock is not held by the current thread
+     */
+    public int getWriteHoldCount() {
+        return isWriteLockedByCurrentThread() ? mutex.getHoldCount() : 0;
+    }
+
+    /**
+     * Queries the number of reentrant read holds on this lock by the
+     * current thread.
+     *
+     * @return the number of holds on the read lock by the current thread,
+     *         or zero if the read lock is not held by the current thread
+     */
+    public int getReadHoldCount() {
+        return readHolds.get().count;
+    }
+
+    /**
+     * Returns a string identifying this lock, as well as its lock state.
+     * The state, in brackets, includes the String {@code "Write locks ="}
+     * followed by the number of reentrantly held write locks, and the
+     * String {@code "Read locks ="} followed by the number of held
+     * read locks.
+     *
+     * @return a string identifying this lock, as well as its lock state
+     */
+    public String toString() {
+        int w = (owner == null) ? 0 : mutex.getHoldCount();
+        return super.toString() +
+            "[Write locks = " + w + ", Read locks = " + getReadLockCount() + "]";
+    }
+
+    /**
+     * Reconstitutes this lock from a stream (that is, deserializes it).
+     *
+     * @param s the stream
+     * @throws ClassNotFoundException if the class of a serialized object
+     *         could not be found
+     * @throws java.io.IOException if an I/O error occurs
+     */
+    private void readObject(java.io.ObjectInputStream s)
+        throws java.io.IOException, ClassNotFoundException {
+        s.defaultReadObject();
+        initReaders();
+    }
+
+    /**
+     * Returns the probe value for the current thread.
+     * Duplicated from ThreadLocalRandom because of packaging restrictions.
+     */
+    static final int getProbe() {
+        return (int) THREAD_PROBE.get(Thread.currentThread());
+    }
+
+    /**
+     * Pseudo-randomly advances and records the given probe value for the
+     * given thread.
+     * Duplicated from ThreadLocalRandom because of packaging restrictions.
+     */
+    static final int advanceProbe(int probe) {
+        probe ^= probe << 13;   // xorshift
+        probe ^= probe >>> 17;
+        probe ^= probe << 5;
+        THREAD_PROBE.set(Thread.currentThread(), probe);
+        return probe;
+    }
+
+    // VarHandle mechanics
+    private static final VarHandle READERS;
+    private static final VarHandle CELLSBUSY;
+    private static final VarHandle THREAD_PROBE;
+    static {
+        try {
+            MethodHandles.Lookup l = MethodHandles.lookup();
+            READERS = l.findVarHandle(Cell.class, "readers", long.class);
+            CELLSBUSY = l.findVarHandle(StripedReadWriteLock.class,
+                                        "cellsBusy", int.class);
+            l = java.security.AccessController.doPrivileged(
+                    new java.security.PrivilegedAction<>() {
+                        public MethodHandles.Lookup run() {
+                            try {
+                                return MethodHandles.privateLookupIn(Thread.class, MethodHandles.lookup());
+                            } catch (ReflectiveOperationException e) {
+                                throw new ExceptionInInitializerError(e);
+                            }
+                        }});
+            THREAD_PROBE = l.findVarHandle(Thread.class,
+                    "threadLocalRandomProbe", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+}
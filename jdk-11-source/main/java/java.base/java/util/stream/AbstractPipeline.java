@@ -26,6 +26,9 @@ package java.util.stream;
 
 import java.util.Objects;
 import java.util.Spliterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.function.IntFunction;
 import java.util.function.Supplier;
 
@@ -142,12 +145,25 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
 
     private Runnable sourceCloseAction;
 
+    /**
+     * Releases resources held by stateful operations for the current
+     * evaluation, or null if none are held; only valid for the source stage.
+     */
+    private Runnable sourceResourceAction;
+
     /**
      * True if pipeline is parallel, otherwise the pipeline is sequential; only
      * valid for the source stage.
      */
     private boolean parallel;
 
+    /**
+     * The pool in which parallel evaluation is performed, or null if the
+     * common pool (or the pool of the calling worker thread); only valid
+     * for the source stage.
+     */
+    private ForkJoinPool parallelPool;
+
     /**
      * Constructor for the head of a stream pipeline.
      *
@@ -229,9 +245,30 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
             throw new IllegalStateException(MSG_STREAM_LINKED);
         linkedOrConsumed = true;
 
-        return isParallel()
-               ? terminalOp.evaluateParallel(this, sourceSpliterator(terminalOp.getOpFlags()))
-               : terminalOp.evaluateSequential(this, sourceSpliterator(terminalOp.getOpFlags()));
+        try {
+            return isParallel()
+                   ? evaluateInPool(() -> terminalOp.evaluateParallel(this, sourceSpliterator(terminalOp.getOpFlags())))
+                   : terminalOp.evaluateSequential(this, sourceSpliterator(terminalOp.getOpFlags()));
+        } finally {
+            releaseResources();
+        }
+    }
+
+    /**
+     * Performs a parallel evaluation in the pool of the pipeline, if one
+     * was given and the current thread is not already a worker thread of
+     * that pool, otherwise in the current thread.
+     *
+     * @param <R> the type of result
+     * @param evaluation the evaluation
+     * @return the result
+     */
+    private <R> R evaluateInPool(Supplier<R> evaluation) {
+        ForkJoinPool pool = sourceStage.parallelPool;
+        if (pool == null || ForkJoinTask.getPool() == pool)
+            return evaluation.get();
+        else
+            return pool.invoke(ForkJoinTask.adapt((Callable<R>) evaluation::get));
     }
 
     /**
@@ -246,6 +283,17 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
             throw new IllegalStateException(MSG_STREAM_LINKED);
         linkedOrConsumed = true;
 
+        try {
+            return isParallel()
+                   ? evaluateInPool(() -> toArrayNode(generator))
+                   : toArrayNode(generator);
+        } finally {
+            releaseResources();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Node<E_OUT> toArrayNode(IntFunction<E_OUT[]> generator) {
         // If the last intermediate operation is stateful then
         // evaluate directly to avoid an extra collection step
         if (isParallel() && previousStage != null && opIsStateful()) {
@@ -302,6 +350,7 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
     @SuppressWarnings("unchecked")
     public final S sequential() {
         sourceStage.parallel = false;
+        sourceStage.parallelPool = null;
         return (S) this;
     }
 
@@ -309,6 +358,16 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
     @SuppressWarnings("unchecked")
     public final S parallel() {
         sourceStage.parallel = true;
+        sourceStage.parallelPool = null;
+        return (S) this;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public final S parallel(ForkJoinPool pool) {
+        Objects.requireNonNull(pool);
+        sourceStage.parallel = true;
+        sourceStage.parallelPool = pool;
         return (S) this;
     }
 
@@ -317,6 +376,7 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
         linkedOrConsumed = true;
         sourceSupplier = null;
         sourceSpliterator = null;
+        releaseResources();
         if (sourceStage.sourceCloseAction != null) {
             Runnable closeAction = sourceStage.sourceCloseAction;
             sourceStage.sourceCloseAction = null;
@@ -338,6 +398,37 @@ abstract class AbstractPipeline<E_IN, E_OUT, S extends BaseStream<E_OUT, S>>
         return (S) this;
     }
 
+    /**
+     * Registers an action that releases resources a stateful operation
+     * holds for the current evaluation.  The action is run when the
+     * terminal operation completes, normally or abruptly, or, if the
+     * pipeline is instead traversed through its iterator or spliterator,
+     * when the pipeline is closed.  The resources may already have been
+     * released by the operation when the action is run.
+     *
+     * @param action the action releasing the resources
+     */
+    final void registerResource(Runnable action) {
+        Objects.requireNonNull(action);
+        Runnable existing = sourceStage.sourceResourceAction;
+        sourceStage.sourceResourceAction =
+                (existing == null)
+                ? action
+                : Streams.composeWithExceptions(existing, action);
+    }
+
+    /**
+     * Runs, at most once, the actions registered by
+     * {@link #registerResource(Runnable)}.
+     */
+    private void releaseResources() {
+        Runnable action = sourceStage.sourceResourceAction;
+        if (action != null) {
+            sourceStage.sourceResourceAction = null;
+            action.run();
+        }
+    }
+
     // Primitive specialization use co-variant overrides, hence is not final
     @Override
     @SuppressWarnings("unchecked")
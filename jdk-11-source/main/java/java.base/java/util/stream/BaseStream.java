@@ -29,8 +29,10 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.Objects;
 import java.util.Spliterator;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.IntConsumer;
 import java.util.function.Predicate;
 
@@ -124,6 +126,45 @@ public interface BaseStream<T, S extends BaseStream<T, S>>
      */
     S parallel();
 
+    /**
+     * Returns an equivalent stream that is parallel, and whose parallel
+     * operations are executed in the given pool rather than in the
+     * {@link ForkJoinPool#commonPool() common pool}.  May return itself,
+     * either because the stream was already parallel in the given pool,
+     * or because the underlying stream state was modified.  As with
+     * {@link #parallel()} and {@link #sequential()}, the most recent
+     * such call applies to the whole pipeline.
+     *
+     * <p>When a terminal operation is executed, its parallel computation
+     * is submitted to the given pool, and the calling thread waits for
+     * its result, unless the calling thread is already a worker thread
+     * of that pool.  The computation is divided among the tasks of the
+     * pool according to its {@linkplain ForkJoinPool#getParallelism
+     * parallelism}.  This allows computations of differing priority to
+     * be isolated from one another, and from other users of the common
+     * pool.  Traversal of the {@link #iterator() iterator} or {@link
+     * #spliterator() spliterator} of a parallel stream is not performed
+     * in the given pool.
+     *
+     * <p>This is an <a href="package-summary.html#StreamOps">intermediate
+     * operation</a>.
+     *
+     * @implSpec
+     * The default implementation checks that {@code pool} is non-null
+     * and returns {@link #parallel()}, so that parallel operations are
+     * executed in the common pool.  Streams created by the JDK override
+     * this method to execute parallel operations in the given pool.
+     *
+     * @param pool the pool in which to execute parallel operations
+     * @return a parallel stream
+     * @throws NullPointerException if {@code pool} is null
+     * @since 12
+     */
+    default S parallel(ForkJoinPool pool) {
+        Objects.requireNonNull(pool);
+        return parallel();
+    }
+
     /**
      * Returns an equivalent stream that is
      * <a href="package-summary.html#Ordering">unordered</a>.  May return
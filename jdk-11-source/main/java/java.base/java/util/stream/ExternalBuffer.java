@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.stream;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * Describes how a stateful stream operation may buffer elements outside
+ * the heap.  An {@code ExternalBuffer} is passed to {@link
+ * Stream#sorted(java.util.Comparator, ExternalBuffer) Stream.sorted} or {@link
+ * Stream#distinct(ExternalBuffer) Stream.distinct} to bound the number
+ * of elements that the operation holds in memory at any one time.  When
+ * that number is reached, the buffered elements are sorted and written
+ * as a <em>run</em> to a temporary file, and the runs are later merged
+ * to produce the result of the operation.  This allows these operations
+ * to be applied to streams whose contents do not fit in the heap, at the
+ * cost of writing every element to disk and reading it back at least
+ * once.
+ *
+ * <p>Elements are written and read by an {@link Encoder} and a {@link
+ * Decoder} supplied by the caller.  The decoder must reconstruct each
+ * element from the bytes written by the encoder, such that the decoded
+ * element compares equal to the original under the comparator used for
+ * sorting and, for {@code distinct}, under {@link Object#equals} and
+ * with the same {@link Object#hashCode}.  For example, a buffer for
+ * {@code String} elements holding at most one million elements in
+ * memory may be created with:
+ * <pre>{@code
+ *     ExternalBuffer<String> buffer =
+ *         ExternalBuffer.of(1_000_000, (s, out) -> out.writeUTF(s), DataInput::readUTF);
+ * }</pre>
+ *
+ * <p>Temporary files are created in the default temporary-file directory,
+ * or in the directory given to {@link #inDirectory}, and are deleted when
+ * the operation has completed.  An {@link java.io.IOException} raised
+ * while writing or reading a temporary file, including one raised by
+ * the encoder or decoder, is thrown from the terminal operation wrapped
+ * in an {@link java.io.UncheckedIOException}.
+ *
+ * <p>Instances of this class are immutable, and may be shared between
+ * stream pipelines.
+ *
+ * @param <T> the type of elements buffered
+ * @see Stream#sorted(java.util.Comparator, ExternalBuffer)
+ * @see Stream#distinct(ExternalBuffer)
+ * @since 12
+ */
+public final class ExternalBuffer<T> {
+
+    /**
+     * Writes an element to a temporary file.
+     *
+     * @param <T> the type of elements written
+     * @since 12
+     */
+    @FunctionalInterface
+    public interface Encoder<T> {
+        /**
+         * Writes the given element to the given output.
+         *
+         * @param t the element, which may be {@code null} if the stream
+         *        contains {@code null} elements
+         * @param out the output to write to
+         * @throws IOException if an I/O error occurs
+         */
+        void encode(T t, DataOutput out) throws IOException;
+    }
+
+    /**
+     * Reads an element from a temporary file.
+     *
+     * @param <T> the type of elements read
+     * @since 12
+     */
+    @FunctionalInterface
+    public interface Decoder<T> {
+        /**
+         * Reads an element, previously written by the corresponding
+         * {@link Encoder}, from the given input.
+         *
+         * @param in the input to read from
+         * @return the element
+         * @throws IOException if an I/O error occurs
+         */
+        T decode(DataInput in) throws IOException;
+    }
+
+    private final int maxElements;
+    private final Encoder<? super T> encoder;
+    private final Decoder<? extends T> decoder;
+    private final Path directory; // null for the default directory
+
+    private ExternalBuffer(int maxElements,
+                           Encoder<? super T> encoder,
+                           Decoder<? extends T> decoder,
+                           Path directory) {
+        this.maxElements = maxElements;
+        this.encoder = encoder;
+        this.decoder = decoder;
+        this.directory = directory;
+    }
+
+    /**
+     * Returns an {@code ExternalBuffer} that holds at most the given
+     * number of elements in memory, and writes and reads elements using
+     * the given encoder and decoder.
+     *
+     * @param <T> the type of elements buffered
+     * @param maxElements the maximum number of elements held in memory
+     * @param encoder the encoder used to write elements
+     * @param decoder the decoder used to read elements
+     * @return the {@code ExternalBuffer}
+     * @throws IllegalArgumentException if {@code maxElements} is less
+     *         than one
+     * @throws NullPointerException if {@code encoder} or {@code decoder}
+     *         is null
+     */
+    public static <T> ExternalBuffer<T> of(int maxElements,
+                                           Encoder<? super T> encoder,
+                                           Decoder<? extends T> decoder) {
+        if (maxElements < 1)
+            throw new IllegalArgumentException("maxElements: " + maxElements);
+        return new ExternalBuffer<>(maxElements,
+                                    Objects.requireNonNull(encoder),
+                                    Objects.requireNonNull(decoder),
+                                    null);
+    }
+
+    /**
+     * Returns an {@code ExternalBuffer} like this one, that creates its
+     * temporary files in the given directory.
+     *
+     * @param directory the directory in which to create temporary files
+     * @return the {@code ExternalBuffer}
+     * @throws NullPointerException if {@code directory} is null
+     */
+    public ExternalBuffer<T> inDirectory(Path directory) {
+        return new ExternalBuffer<>(maxElements, encoder, decoder,
+                                    Objects.requireNonNull(directory));
+    }
+
+    /**
+     * Returns the maximum number of elements held in memory.
+     *
+     * @return the maximum number of elements held in memory
+     */
+    public int maxElements() {
+        return maxElements;
+    }
+
+    Encoder<? super T> encoder() {
+        return encoder;
+    }
+
+    Decoder<? extends T> decoder() {
+        return decoder;
+    }
+
+    Path directory() {
+        return directory;
+    }
+}
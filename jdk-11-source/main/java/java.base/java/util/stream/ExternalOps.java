@@ -0,0 +1,888 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.stream;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * Factory methods for transforming streams into sorted or duplicate-free
+ * streams, holding a bounded number of elements in memory and spilling
+ * the rest to temporary files as described by an {@link ExternalBuffer}.
+ *
+ * <p>Elements are accumulated in memory until the limit of the buffer
+ * is reached, at which point they are sorted and written to a run file.
+ * The result is produced by a k-way merge of the runs and of the
+ * elements remaining in memory.  To bound the number of open files, runs
+ * are merged by level: a new run has level zero, and whenever
+ * {@link #MERGE_FACTOR} consecutive runs of the same level exist they are
+ * merged into one run of the next level.  Each element is thus rewritten
+ * once per level, a number logarithmic in the number of runs, and at most
+ * {@code MERGE_FACTOR - 1} runs of each level are open at a time.  Ties
+ * are broken in favour of earlier runs, so sorting is stable.
+ *
+ * <p>Duplicate elimination sorts elements tagged with their position in
+ * the encounter order by hash code, drops all but the first of each set
+ * of equal elements while merging, and then, for ordered streams, sorts
+ * the survivors back into encounter order.
+ *
+ * <p>The runs of an evaluation are closed, and so deleted, once its
+ * result is exhausted, when the terminal operation completes normally or
+ * abruptly, or, if the result is traversed through the stream's iterator
+ * or spliterator, when the stream is closed.
+ *
+ * <p>The upstream of these operations is always evaluated sequentially,
+ * since the operations act as a full barrier and the element buffer is
+ * not shared between threads.
+ *
+ * @since 12
+ */
+final class ExternalOps {
+
+    private ExternalOps() { }
+
+    /**
+     * The number of runs of the same level that, once reached, are
+     * merged into one run of the next level.
+     */
+    static final int MERGE_FACTOR = 16;
+
+    /**
+     * The size of the buffers used to write and read runs.
+     */
+    static final int IO_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Appends a "sorted" operation to the provided stream.
+     *
+     * @param <T> the type of both input and output elements
+     * @param upstream a reference stream with element type T
+     * @param buffer the buffer describing how elements are spilled
+     */
+    static <T> Stream<T> makeRef(AbstractPipeline<?, T, ?> upstream,
+                                 ExternalBuffer<T> buffer) {
+        // Will throw CCE when we try to sort if T is not Comparable
+        @SuppressWarnings("unchecked")
+        Comparator<? super T> comp = (Comparator<? super T>) Comparator.naturalOrder();
+        return new OfSorted<>(upstream, comp, true, buffer);
+    }
+
+    /**
+     * Appends a "sorted" operation to the provided stream.
+     *
+     * @param <T> the type of both input and output elements
+     * @param upstream a reference stream with element type T
+     * @param comparator the comparator to order elements by
+     * @param buffer the buffer describing how elements are spilled
+     */
+    static <T> Stream<T> makeRef(AbstractPipeline<?, T, ?> upstream,
+                                 Comparator<? super T> comparator,
+                                 ExternalBuffer<T> buffer) {
+        return new OfSorted<>(upstream, Objects.requireNonNull(comparator),
+                              false, buffer);
+    }
+
+    /**
+     * Appends a "distinct" operation to the provided stream.
+     *
+     * @param <T> the type of both input and output elements
+     * @param upstream a reference stream with element type T
+     * @param buffer the buffer describing how elements are spilled
+     */
+    static <T> Stream<T> makeDistinctRef(AbstractPipeline<?, T, ?> upstream,
+                                         ExternalBuffer<T> buffer) {
+        return new OfDistinct<>(upstream, buffer);
+    }
+
+    /**
+     * Base of the operations, which accumulate all elements in an
+     * {@link Accumulator} and then push or describe its result.
+     */
+    private abstract static class ExternalOp<T>
+            extends ReferencePipeline.StatefulOp<T, T> {
+        final ExternalBuffer<T> buffer;
+
+        ExternalOp(AbstractPipeline<?, T, ?> upstream, int opFlags,
+                   ExternalBuffer<T> buffer) {
+            super(upstream, StreamShape.REFERENCE, opFlags);
+            this.buffer = Objects.requireNonNull(buffer);
+        }
+
+        /**
+         * Returns true if, given the combined stream and operation flags
+         * of the upstream, this operation need not do anything.
+         */
+        abstract boolean isNoOp(int flags);
+
+        /**
+         * Returns a new accumulator for an evaluation with the given
+         * combined stream and operation flags of the upstream.
+         */
+        abstract Accumulator<T> accumulator(int flags);
+
+        @Override
+        public Sink<T> opWrapSink(int flags, Sink<T> sink) {
+            Objects.requireNonNull(sink);
+            return isNoOp(flags) ? sink : new ExternalSink(flags, sink);
+        }
+
+        /**
+         * Accumulates the output of the upstream, and returns a
+         * spliterator over the result.  The accumulator is released if
+         * the upstream fails, and otherwise when the result is exhausted,
+         * the terminal operation completes, or the stream is closed.
+         */
+        <P_IN> Spliterator<T> accumulate(PipelineHelper<T> helper,
+                                         Spliterator<P_IN> spliterator) {
+            Accumulator<T> acc = accumulator(helper.getStreamAndOpFlags());
+            registerResource(acc::close);
+            try {
+                helper.wrapAndCopyInto(acc, spliterator);
+                return acc.result();
+            } catch (Throwable ex) {
+                acc.close();
+                throw ex;
+            }
+        }
+
+        @Override
+        public <P_IN> Node<T> opEvaluateParallel(PipelineHelper<T> helper,
+                                                 Spliterator<P_IN> spliterator,
+                                                 IntFunction<T[]> generator) {
+            if (isNoOp(helper.getStreamAndOpFlags()))
+                return helper.evaluate(spliterator, false, generator);
+            Spliterator<T> s = accumulate(helper, spliterator);
+            long size = s.getExactSizeIfKnown();
+            Node.Builder<T> builder = Nodes.builder(size, generator);
+            builder.begin(size);
+            s.forEachRemaining(builder);
+            builder.end();
+            return builder.build();
+        }
+
+        @Override
+        public <P_IN> Spliterator<T> opEvaluateParallelLazy(PipelineHelper<T> helper,
+                                                            Spliterator<P_IN> spliterator) {
+            if (isNoOp(helper.getStreamAndOpFlags()))
+                return helper.wrapSpliterator(spliterator);
+            return accumulate(helper, spliterator);
+        }
+
+        /**
+         * {@link Sink} that accumulates elements, and pushes the result
+         * downstream at the end.
+         */
+        final class ExternalSink extends Sink.ChainedReference<T, T> {
+            private final int flags;
+            private Accumulator<T> acc;
+            // true if cancellationRequested() has been called
+            private boolean cancellationRequestedCalled;
+
+            ExternalSink(int flags, Sink<? super T> downstream) {
+                super(downstream);
+                this.flags = flags;
+            }
+
+            @Override
+            public void begin(long size) {
+                // Released when the terminal operation completes, should
+                // the upstream fail before end() is reached
+                acc = accumulator(flags);
+                registerResource(acc::close);
+            }
+
+            @Override
+            public void end() {
+                Accumulator<T> a = acc;
+                acc = null;
+                try {
+                    Spliterator<T> s = a.result();
+                    downstream.begin(s.getExactSizeIfKnown());
+                    if (!cancellationRequestedCalled) {
+                        s.forEachRemaining(downstream);
+                    }
+                    else {
+                        while (!downstream.cancellationRequested() &&
+                               s.tryAdvance(downstream)) { }
+                    }
+                } finally {
+                    a.close();
+                }
+                downstream.end();
+            }
+
+            @Override
+            public void accept(T t) {
+                acc.accept(t);
+            }
+
+            /**
+             * Records if cancellation is requested so short-circuiting
+             * behaviour can be preserved when the result is pushed
+             * downstream.
+             *
+             * @return false, as this sink never short-circuits.
+             */
+            @Override
+            public boolean cancellationRequested() {
+                cancellationRequestedCalled = true;
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Specialized subtype for sorting reference streams.
+     */
+    private static final class OfSorted<T> extends ExternalOp<T> {
+        private final Comparator<? super T> comparator;
+        private final boolean isNaturalSort;
+
+        OfSorted(AbstractPipeline<?, T, ?> upstream,
+                 Comparator<? super T> comparator, boolean isNaturalSort,
+                 ExternalBuffer<T> buffer) {
+            super(upstream,
+                  StreamOpFlag.IS_ORDERED | (isNaturalSort
+                                             ? StreamOpFlag.IS_SORTED
+                                             : StreamOpFlag.NOT_SORTED),
+                  buffer);
+            this.comparator = comparator;
+            this.isNaturalSort = isNaturalSort;
+        }
+
+        @Override
+        boolean isNoOp(int flags) {
+            // If the input is already naturally sorted and this operation
+            // also naturally sorts then this is a no-op
+            return isNaturalSort && StreamOpFlag.SORTED.isKnown(flags);
+        }
+
+        @Override
+        Accumulator<T> accumulator(int flags) {
+            RunSorter<T> sorter = new RunSorter<>(comparator, buffer.encoder(),
+                                                  buffer.decoder(), buffer);
+            return new Accumulator<T>() {
+                public void accept(T t) {
+                    sorter.add(t);
+                }
+                Spliterator<T> result() {
+                    return sorter.result(Spliterator.ORDERED);
+                }
+                void close() {
+                    sorter.close();
+                }
+            };
+        }
+    }
+
+    /**
+     * Specialized subtype for removing duplicates from reference streams.
+     */
+    private static final class OfDistinct<T> extends ExternalOp<T> {
+        OfDistinct(AbstractPipeline<?, T, ?> upstream, ExternalBuffer<T> buffer) {
+            super(upstream, StreamOpFlag.IS_DISTINCT | StreamOpFlag.NOT_SIZED,
+                  buffer);
+        }
+
+        @Override
+        boolean isNoOp(int flags) {
+            return StreamOpFlag.DISTINCT.isKnown(flags);
+        }
+
+        @Override
+        Accumulator<T> accumulator(int flags) {
+            return new DistinctAccumulator<>(buffer,
+                                             StreamOpFlag.ORDERED.isKnown(flags));
+        }
+    }
+
+    /**
+     * Accumulates the elements of an operation, and provides its result.
+     * An accumulator is used for a single evaluation.
+     */
+    private abstract static class Accumulator<T> implements Sink<T> {
+        /**
+         * Returns a spliterator over the result, which releases the
+         * resources of this accumulator once it is exhausted.  Called
+         * once, after all elements have been accepted.
+         */
+        abstract Spliterator<T> result();
+
+        /**
+         * Releases the resources of this accumulator.  May be called
+         * more than once.
+         */
+        abstract void close();
+    }
+
+    /**
+     * An element tagged with its position in the encounter order, and
+     * its hash code.
+     */
+    private static final class Tagged<T> {
+        final long seq;
+        final T t;
+        final int hash;
+
+        Tagged(long seq, T t) {
+            this.seq = seq;
+            this.t = t;
+            this.hash = Objects.hashCode(t);
+        }
+
+        static final Comparator<Tagged<?>> BY_HASH = (a, b) -> {
+            int c = Integer.compare(a.hash, b.hash);
+            return (c != 0) ? c : Long.compare(a.seq, b.seq);
+        };
+
+        static final Comparator<Tagged<?>> BY_SEQ =
+            (a, b) -> Long.compare(a.seq, b.seq);
+    }
+
+    /**
+     * Accumulator for duplicate elimination.  Duplicates within the
+     * elements held in memory are dropped as they are accepted, so if no
+     * run is ever spilled the elements are emitted as they are buffered,
+     * in encounter order.
+     */
+    private static final class DistinctAccumulator<T> extends Accumulator<T> {
+        private final ExternalBuffer<T> buffer;
+        private final boolean ordered;
+        // Elements accepted since the last spill
+        private HashSet<T> seen = new HashSet<>();
+        private final RunSorter<Tagged<T>> byHash;
+        private RunSorter<Tagged<T>> bySeq;
+        private long seq;
+
+        DistinctAccumulator(ExternalBuffer<T> buffer, boolean ordered) {
+            this.buffer = buffer;
+            this.ordered = ordered;
+            this.byHash = newSorter(Tagged.BY_HASH);
+        }
+
+        private RunSorter<Tagged<T>> newSorter(Comparator<Tagged<?>> comparator) {
+            ExternalBuffer.Encoder<? super T> encoder = buffer.encoder();
+            ExternalBuffer.Decoder<? extends T> decoder = buffer.decoder();
+            return new RunSorter<>(
+                comparator,
+                (r, out) -> { out.writeLong(r.seq); encoder.encode(r.t, out); },
+                in -> { long s = in.readLong(); return new Tagged<>(s, decoder.decode(in)); },
+                buffer);
+        }
+
+        @Override
+        public void accept(T t) {
+            if (seen.add(t) && byHash.add(new Tagged<>(seq++, t)))
+                seen.clear();
+        }
+
+        @Override
+        Spliterator<T> result() {
+            seen = null;
+            Spliterator<Tagged<T>> s;
+            if (!byHash.hasSpilled())
+                s = byHash.buffered(Spliterator.ORDERED);
+            else {
+                s = new FirstOccurrences<>(byHash.result(0));
+                if (ordered) {
+                    bySeq = newSorter(Tagged.BY_SEQ);
+                    s.forEachRemaining(bySeq::add);
+                    s = bySeq.result(Spliterator.ORDERED);
+                }
+            }
+            return new Untagging<>(s);
+        }
+
+        @Override
+        void close() {
+            seen = null;
+            byHash.close();
+            if (bySeq != null)
+                bySeq.close();
+        }
+    }
+
+    /**
+     * Filters a spliterator of tagged elements ordered by hash code and
+     * then position, passing only the first occurrence of each element.
+     */
+    private static final class FirstOccurrences<T>
+            implements Spliterator<Tagged<T>>, Consumer<Tagged<T>> {
+        private final Spliterator<Tagged<T>> s;
+        // Distinct elements with the current hash code
+        private final HashSet<T> group = new HashSet<>();
+        private int hash;
+        private Tagged<T> next;
+
+        FirstOccurrences(Spliterator<Tagged<T>> s) {
+            this.s = s;
+        }
+
+        @Override
+        public void accept(Tagged<T> r) {
+            next = r;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Tagged<T>> action) {
+            Objects.requireNonNull(action);
+            while (s.tryAdvance(this)) {
+                Tagged<T> r = next;
+                next = null;
+                if (r.hash != hash) {
+                    group.clear();
+                    hash = r.hash;
+                }
+                if (group.add(r.t)) {
+                    action.accept(r);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Spliterator<Tagged<T>> trySplit() {
+            return null;
+        }
+
+        @Override
+        public long estimateSize() {
+            return s.estimateSize();
+        }
+
+        @Override
+        public int characteristics() {
+            return 0;
+        }
+    }
+
+    /**
+     * Maps a spliterator of tagged elements to the elements.
+     */
+    private static final class Untagging<T> implements Spliterator<T> {
+        private final Spliterator<Tagged<T>> s;
+
+        Untagging(Spliterator<Tagged<T>> s) {
+            this.s = s;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            Objects.requireNonNull(action);
+            return s.tryAdvance(r -> action.accept(r.t));
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            Objects.requireNonNull(action);
+            s.forEachRemaining(r -> action.accept(r.t));
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            return null;
+        }
+
+        @Override
+        public long estimateSize() {
+            return s.estimateSize();
+        }
+
+        @Override
+        public int characteristics() {
+            return s.characteristics();
+        }
+    }
+
+    /**
+     * A sorted run of records in a temporary file.  The file is opened
+     * with {@link StandardOpenOption#DELETE_ON_CLOSE}, so that it is
+     * deleted when the run is closed.
+     */
+    private static final class Run {
+        final FileChannel channel;
+        long count;
+        int level;      // number of merges that produced this run
+
+        private Run(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        static Run create(Path directory) throws IOException {
+            Path file = (directory == null)
+                ? Files.createTempFile("stream", ".run")
+                : Files.createTempFile(directory, "stream", ".run");
+            try {
+                return new Run(FileChannel.open(file,
+                                                StandardOpenOption.READ,
+                                                StandardOpenOption.WRITE,
+                                                StandardOpenOption.DELETE_ON_CLOSE));
+            } catch (Throwable ex) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException ioe) {
+                    ex.addSuppressed(ioe);
+                }
+                throw ex;
+            }
+        }
+
+        DataOutputStream output() {
+            return new DataOutputStream(new BufferedOutputStream(
+                Channels.newOutputStream(channel), IO_BUFFER_SIZE));
+        }
+
+        DataInputStream input() throws IOException {
+            channel.position(0L);
+            return new DataInputStream(new BufferedInputStream(
+                Channels.newInputStream(channel), IO_BUFFER_SIZE));
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException ignore) {
+                // the contents are no longer needed
+            }
+        }
+    }
+
+    /**
+     * A source of records in sorted order, from a run or from memory.
+     * Sources are ordered by their head record, and then by index, so
+     * that records of earlier sources are merged first.
+     */
+    private abstract static class Source<R> {
+        final int index;
+        R head;
+
+        Source(int index) {
+            this.index = index;
+        }
+
+        /**
+         * Reads the next record into head, returning false if there is
+         * none.
+         */
+        abstract boolean advance() throws IOException;
+    }
+
+    private static final class RunSource<R> extends Source<R> {
+        private final DataInputStream in;
+        private final ExternalBuffer.Decoder<? extends R> decoder;
+        private long remaining;
+
+        RunSource(int index, Run run, ExternalBuffer.Decoder<? extends R> decoder)
+            throws IOException {
+            super(index);
+            this.in = run.input();
+            this.decoder = decoder;
+            this.remaining = run.count;
+        }
+
+        @Override
+        boolean advance() throws IOException {
+            if (remaining == 0L)
+                return false;
+            --remaining;
+            head = decoder.decode(in);
+            return true;
+        }
+    }
+
+    private static final class ListSource<R> extends Source<R> {
+        private final ArrayList<R> list;
+        private int i;
+
+        ListSource(int index, ArrayList<R> list) {
+            super(index);
+            this.list = list;
+        }
+
+        @Override
+        boolean advance() {
+            if (i >= list.size())
+                return false;
+            head = list.get(i);
+            list.set(i++, null); // release for GC
+            return true;
+        }
+    }
+
+    /**
+     * A k-way merge of sources.
+     */
+    private static final class Merger<R> {
+        private final PriorityQueue<Source<R>> queue;
+
+        Merger(Comparator<? super R> comparator, ArrayList<Source<R>> sources)
+            throws IOException {
+            queue = new PriorityQueue<>(Math.max(1, sources.size()), (a, b) -> {
+                int c = comparator.compare(a.head, b.head);
+                return (c != 0) ? c : Integer.compare(a.index, b.index);
+            });
+            for (Source<R> s : sources) {
+                if (s.advance())
+                    queue.add(s);
+            }
+        }
+
+        boolean hasNext() {
+            return !queue.isEmpty();
+        }
+
+        R next() throws IOException {
+            Source<R> s = queue.poll();
+            R r = s.head;
+            if (s.advance())
+                queue.add(s);
+            else
+                s.head = null;
+            return r;
+        }
+    }
+
+    /**
+     * Sorts records, holding at most the number of records given by an
+     * {@link ExternalBuffer} in memory and spilling the rest to runs.
+     * I/O errors are thrown as {@link UncheckedIOException}.
+     */
+    private static final class RunSorter<R> {
+        private final Comparator<? super R> comparator;
+        private final ExternalBuffer.Encoder<? super R> encoder;
+        private final ExternalBuffer.Decoder<? extends R> decoder;
+        private final int maxElements;
+        private final Path directory;
+        private ArrayList<R> list = new ArrayList<>();
+        private final ArrayList<Run> runs = new ArrayList<>();
+        private long count;
+
+        RunSorter(Comparator<? super R> comparator,
+                  ExternalBuffer.Encoder<? super R> encoder,
+                  ExternalBuffer.Decoder<? extends R> decoder,
+                  ExternalBuffer<?> buffer) {
+            this.comparator = comparator;
+            this.encoder = encoder;
+            this.decoder = decoder;
+            this.maxElements = buffer.maxElements();
+            this.directory = buffer.directory();
+        }
+
+        /**
+         * Adds a record, returning true if the records held in memory
+         * were spilled as a result.
+         */
+        boolean add(R r) {
+            list.add(r);
+            count++;
+            if (list.size() < maxElements)
+                return false;
+            try {
+                spill();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            return true;
+        }
+
+        boolean hasSpilled() {
+            return !runs.isEmpty();
+        }
+
+        /**
+         * Writes the records held in memory to a new run, and then, while
+         * the last MERGE_FACTOR runs have the same level, merges them into
+         * a run of the next level.  Levels never increase along the list
+         * of runs, so those runs are contiguous and the merged run takes
+         * their place in encounter order.
+         */
+        private void spill() throws IOException {
+            list.sort(comparator);
+            runs.add(write(null, list));
+            list.clear();
+            for (int n; (n = runs.size()) >= MERGE_FACTOR &&
+                     runs.get(n - MERGE_FACTOR).level == runs.get(n - 1).level; ) {
+                List<Run> group = runs.subList(n - MERGE_FACTOR, n);
+                Run merged = write(merger(group, null), null);
+                merged.level = group.get(0).level + 1;
+                for (Run run : group)
+                    run.close();
+                group.clear();
+                runs.add(merged);
+            }
+        }
+
+        /**
+         * Writes the records of the given merger, or of the given list,
+         * to a new run.
+         */
+        private Run write(Merger<R> merger, ArrayList<R> records)
+            throws IOException {
+            Run run = Run.create(directory);
+            try {
+                DataOutputStream out = run.output();
+                long n = 0L;
+                if (merger != null) {
+                    for (; merger.hasNext(); n++)
+                        encoder.encode(merger.next(), out);
+                }
+                else {
+                    for (R r : records) {
+                        encoder.encode(r, out);
+                        n++;
+                    }
+                }
+                out.flush();
+                run.count = n;
+                return run;
+            } catch (Throwable ex) {
+                run.close();
+                throw ex;
+            }
+        }
+
+        /**
+         * Returns a merger of the given runs, followed by the given list
+         * of records if it is non-null.
+         */
+        private Merger<R> merger(List<Run> runs, ArrayList<R> records)
+            throws IOException {
+            ArrayList<Source<R>> sources = new ArrayList<>(runs.size() + 1);
+            for (Run run : runs)
+                sources.add(new RunSource<>(sources.size(), run, decoder));
+            if (records != null)
+                sources.add(new ListSource<>(sources.size(), records));
+            return new Merger<>(comparator, sources);
+        }
+
+        /**
+         * Returns a spliterator over the records held in memory, in the
+         * order added.  Called only if no records were spilled.
+         */
+        Spliterator<R> buffered(int characteristics) {
+            return new MergeSpliterator<>(this, null, characteristics);
+        }
+
+        /**
+         * Returns a spliterator over all records in sorted order, which
+         * closes this sorter once it is exhausted.
+         */
+        Spliterator<R> result(int characteristics) {
+            list.sort(comparator);
+            try {
+                return new MergeSpliterator<>(this, merger(runs, list), characteristics);
+            } catch (IOException ex) {
+                close();
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        void close() {
+            list = null;
+            for (Run run : runs)
+                run.close();
+            runs.clear();
+        }
+    }
+
+    /**
+     * Spliterator over the output of a {@link RunSorter}.  It does not
+     * split, so that a parallel downstream does not copy the possibly
+     * very large result into memory.
+     */
+    private static final class MergeSpliterator<R> implements Spliterator<R> {
+        private final RunSorter<R> sorter;
+        private final Merger<R> merger; // null if reading the list directly
+        private final int characteristics;
+        private int index;              // for reading the list directly
+        private long est;
+
+        MergeSpliterator(RunSorter<R> sorter, Merger<R> merger,
+                         int characteristics) {
+            this.sorter = sorter;
+            this.merger = merger;
+            this.characteristics = characteristics | Spliterator.SIZED;
+            this.est = sorter.count;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super R> action) {
+            Objects.requireNonNull(action);
+            if (est <= 0L)
+                return false;
+            R r;
+            if (merger == null)
+                r = sorter.list.get(index++);
+            else {
+                try {
+                    r = merger.next();
+                } catch (IOException ex) {
+                    est = 0L;
+                    sorter.close();
+                    throw new UncheckedIOException(ex);
+                }
+            }
+            if (--est == 0L)
+                sorter.close();
+            action.accept(r);
+            return true;
+        }
+
+        @Override
+        public Spliterator<R> trySplit() {
+            return null;
+        }
+
+        @Override
+        public long estimateSize() {
+            return est;
+        }
+
+        @Override
+        public int characteristics() {
+            return characteristics;
+        }
+    }
+}
@@ -0,0 +1,568 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.stream;
+
+import java.util.ArrayList;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CountedCompleter;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Factory methods for applying {@link Gatherer}s to streams.
+ *
+ * <p>Sequential evaluation wraps the downstream sink in a sink that
+ * integrates each element.  Parallel evaluation of a gatherer with a
+ * combiner uses a {@link GatherTask}, in which each leaf integrates its
+ * portion of the input into its own state and collects the elements it
+ * pushes into a node; a leaf whose integrator short-circuits cancels the
+ * tasks that follow it in encounter order.  When further operations
+ * follow the gatherer, such a task is run over successive batches of the
+ * input by a {@link BatchedGatherSpliterator}, so that an infinite input
+ * or a short-circuiting downstream does not force evaluation of the
+ * whole input.  A gatherer without a combiner is evaluated in parallel
+ * pipelines by a {@link GatherSpliterator} that lazily pulls elements
+ * from the upstream.
+ *
+ * @since 12
+ */
+final class GatherOps {
+
+    private GatherOps() { }
+
+    static final Supplier<Object> DEFAULT_INITIALIZER = () -> null;
+
+    static final BinaryOperator<Object> DEFAULT_COMBINER = (l, r) -> {
+        throw new UnsupportedOperationException("This Gatherer is sequential-only");
+    };
+
+    static final BiConsumer<?, ?> DEFAULT_FINISHER = (s, d) -> { };
+
+    private static final BinaryOperator<Object> STATELESS_COMBINER = (l, r) -> l;
+
+    @SuppressWarnings("unchecked")
+    static <A> BinaryOperator<A> statelessCombiner() {
+        return (BinaryOperator<A>) STATELESS_COMBINER;
+    }
+
+    /**
+     * Simple implementation class for {@code Gatherer}.
+     *
+     * @param <T> the type of input elements
+     * @param <A> the type of the state
+     * @param <R> the type of output elements
+     */
+    static final class GathererImpl<T, A, R> implements Gatherer<T, A, R> {
+        private final Supplier<A> initializer;
+        private final Integrator<A, T, R> integrator;
+        private final BinaryOperator<A> combiner;
+        private final BiConsumer<A, Downstream<? super R>> finisher;
+
+        GathererImpl(Supplier<A> initializer,
+                     Integrator<A, T, R> integrator,
+                     BinaryOperator<A> combiner,
+                     BiConsumer<A, Downstream<? super R>> finisher) {
+            this.initializer = initializer;
+            this.integrator = integrator;
+            this.combiner = combiner;
+            this.finisher = finisher;
+        }
+
+        @Override
+        public Supplier<A> initializer() { return initializer; }
+
+        @Override
+        public Integrator<A, T, R> integrator() { return integrator; }
+
+        @Override
+        public BinaryOperator<A> combiner() { return combiner; }
+
+        @Override
+        public BiConsumer<A, Downstream<? super R>> finisher() { return finisher; }
+    }
+
+    /**
+     * Appends a "gather" operation to the provided stream.
+     *
+     * @param <T> the type of input elements
+     * @param <A> the type of the state of the gatherer
+     * @param <R> the type of output elements
+     * @param upstream a reference stream with element type T
+     * @param gatherer the gatherer
+     * @return the new stream
+     */
+    static <T, A, R> Stream<R> makeRef(AbstractPipeline<?, T, ?> upstream,
+                                       Gatherer<? super T, A, R> gatherer) {
+        return new GatherOp<>(upstream, gatherer);
+    }
+
+    /**
+     * The "gather" operation.
+     */
+    private static final class GatherOp<T, A, R>
+            extends ReferencePipeline.StatefulOp<T, R> {
+        final Supplier<A> initializer;
+        final Gatherer.Integrator<A, ? super T, R> integrator;
+        final BinaryOperator<A> combiner;
+        final BiConsumer<A, Gatherer.Downstream<? super R>> finisher;
+
+        GatherOp(AbstractPipeline<?, T, ?> upstream,
+                 Gatherer<? super T, A, R> gatherer) {
+            this(upstream, gatherer.initializer(), gatherer.integrator(),
+                 gatherer.combiner(), gatherer.finisher());
+        }
+
+        private GatherOp(AbstractPipeline<?, T, ?> upstream,
+                         Supplier<A> initializer,
+                         Gatherer.Integrator<A, ? super T, R> integrator,
+                         BinaryOperator<A> combiner,
+                         BiConsumer<A, Gatherer.Downstream<? super R>> finisher) {
+            super(upstream, StreamShape.REFERENCE,
+                  StreamOpFlag.NOT_SORTED | StreamOpFlag.NOT_DISTINCT |
+                  StreamOpFlag.NOT_SIZED |
+                  ((integrator instanceof Gatherer.Integrator.Greedy)
+                   ? 0 : StreamOpFlag.IS_SHORT_CIRCUIT));
+            this.initializer = Objects.requireNonNull(initializer);
+            this.integrator = Objects.requireNonNull(integrator);
+            this.combiner = Objects.requireNonNull(combiner);
+            this.finisher = Objects.requireNonNull(finisher);
+        }
+
+        boolean isParallelizable() {
+            return combiner != DEFAULT_COMBINER;
+        }
+
+        @Override
+        Sink<T> opWrapSink(int flags, Sink<R> sink) {
+            Objects.requireNonNull(sink);
+            return new GatherSink(sink);
+        }
+
+        @Override
+        <P_IN> Node<R> opEvaluateParallel(PipelineHelper<R> helper,
+                                          Spliterator<P_IN> spliterator,
+                                          IntFunction<R[]> generator) {
+            Node.Builder<R> nb;
+            if (isParallelizable()) {
+                @SuppressWarnings("unchecked")
+                PipelineHelper<T> h = (PipelineHelper<T>) (PipelineHelper<?>) helper;
+                Partial<A, R> p = new GatherTask<>(this, h, spliterator).invoke();
+                if (finisher == DEFAULT_FINISHER)
+                    return p.output;
+                nb = Nodes.builder(-1, generator);
+                nb.begin(-1);
+                finisher.accept(p.state, new NodeDownstream<>(nb));
+                nb.end();
+                return Nodes.conc(StreamShape.REFERENCE, p.output, nb.build());
+            }
+            else {
+                Spliterator<R> s = opEvaluateParallelLazy(helper, spliterator);
+                nb = Nodes.builder(-1, generator);
+                nb.begin(-1);
+                s.forEachRemaining(nb);
+                nb.end();
+                return nb.build();
+            }
+        }
+
+        @Override
+        <P_IN> Spliterator<R> opEvaluateParallelLazy(PipelineHelper<R> helper,
+                                                     Spliterator<P_IN> spliterator) {
+            // The helper describes the upstream, whose output type is T
+            @SuppressWarnings("unchecked")
+            PipelineHelper<T> h = (PipelineHelper<T>) (PipelineHelper<?>) helper;
+            if (isParallelizable())
+                return new BatchedGatherSpliterator<>(this, h, spliterator);
+            return new GatherSpliterator<>(this, h.wrapSpliterator(spliterator));
+        }
+
+        /**
+         * {@link Sink} for sequential evaluation.
+         */
+        final class GatherSink extends Sink.ChainedReference<T, R>
+                implements Gatherer.Downstream<R> {
+            private A state;
+            private boolean rejected;
+
+            GatherSink(Sink<? super R> downstream) {
+                super(downstream);
+            }
+
+            @Override
+            public void begin(long size) {
+                state = initializer.get();
+                rejected = false;
+                downstream.begin(-1);
+            }
+
+            @Override
+            public void accept(T t) {
+                if (!rejected && !integrator.integrate(state, t, this))
+                    rejected = true;
+            }
+
+            @Override
+            public boolean cancellationRequested() {
+                return rejected || downstream.cancellationRequested();
+            }
+
+            @Override
+            public void end() {
+                finisher.accept(state, this);
+                state = null;
+                downstream.end();
+            }
+
+            @Override
+            public boolean push(R r) {
+                downstream.accept(r);
+                return !downstream.cancellationRequested();
+            }
+
+            @Override
+            public boolean isRejecting() {
+                return downstream.cancellationRequested();
+            }
+        }
+    }
+
+    /**
+     * Downstream collecting elements into a node builder.
+     */
+    private static final class NodeDownstream<R> implements Gatherer.Downstream<R> {
+        private final Node.Builder<R> nb;
+
+        NodeDownstream(Node.Builder<R> nb) {
+            this.nb = nb;
+        }
+
+        @Override
+        public boolean push(R r) {
+            nb.accept(r);
+            return true;
+        }
+    }
+
+    /**
+     * The result of gathering a portion of the input in parallel: the
+     * state, the elements pushed, and whether the integrator
+     * short-circuited.  An empty result, for a canceled task, has a
+     * {@code null} output.
+     */
+    private static final class Partial<A, R> {
+        final A state;
+        final Node<R> output;
+        final boolean shortCircuited;
+
+        Partial(A state, Node<R> output, boolean shortCircuited) {
+            this.state = state;
+            this.output = output;
+            this.shortCircuited = shortCircuited;
+        }
+
+        boolean isEmpty() {
+            return output == null;
+        }
+    }
+
+    /**
+     * {@code ForkJoinTask} for parallel evaluation of a gatherer with a
+     * combiner.
+     */
+    @SuppressWarnings("serial")
+    private static final class GatherTask<P_IN, T, A, R>
+            extends AbstractShortCircuitTask<P_IN, T, Partial<A, R>,
+                                             GatherTask<P_IN, T, A, R>> {
+        private final GatherOp<T, A, R> op;
+
+        GatherTask(GatherOp<T, A, R> op, PipelineHelper<T> helper,
+                   Spliterator<P_IN> spliterator) {
+            super(helper, spliterator);
+            this.op = op;
+        }
+
+        GatherTask(GatherTask<P_IN, T, A, R> parent, Spliterator<P_IN> spliterator) {
+            super(parent, spliterator);
+            this.op = parent.op;
+        }
+
+        @Override
+        protected GatherTask<P_IN, T, A, R> makeChild(Spliterator<P_IN> spliterator) {
+            return new GatherTask<>(this, spliterator);
+        }
+
+        @Override
+        protected Partial<A, R> getEmptyResult() {
+            return new Partial<>(null, null, false);
+        }
+
+        @Override
+        protected Partial<A, R> doLeaf() {
+            A state = op.initializer.get();
+            Node.Builder<R> nb = Nodes.builder();
+            Gatherer.Downstream<R> downstream = new NodeDownstream<>(nb);
+            Gatherer.Integrator<A, ? super T, R> integrator = op.integrator;
+            boolean[] rejected = new boolean[1];
+            Sink<T> sink = new Sink<T>() {
+                @Override
+                public void accept(T t) {
+                    if (!rejected[0] && !integrator.integrate(state, t, downstream))
+                        rejected[0] = true;
+                }
+
+                @Override
+                public boolean cancellationRequested() {
+                    return rejected[0];
+                }
+            };
+            nb.begin(-1);
+            if (integrator instanceof Gatherer.Integrator.Greedy)
+                helper.wrapAndCopyInto(sink, spliterator);
+            else
+                helper.copyIntoWithCancel(helper.wrapSink(sink), spliterator);
+            nb.end();
+            if (rejected[0])
+                cancelLaterNodes();
+            return new Partial<>(state, nb.build(), rejected[0]);
+        }
+
+        @Override
+        public void onCompletion(CountedCompleter<?> caller) {
+            if (!isLeaf()) {
+                Partial<A, R> l = leftChild.getLocalResult();
+                Partial<A, R> r = rightChild.getLocalResult();
+                Partial<A, R> result;
+                if (l.shortCircuited || r.isEmpty())
+                    result = l;
+                else if (l.isEmpty())
+                    result = r;
+                else
+                    result = new Partial<>(op.combiner.apply(l.state, r.state),
+                                           Nodes.conc(StreamShape.REFERENCE,
+                                                      l.output, r.output),
+                                           r.shortCircuited);
+                setLocalResult(result);
+            }
+            super.onCompletion(caller);
+        }
+    }
+
+    /**
+     * Spliterator for lazy parallel evaluation of a gatherer with a
+     * combiner.  It pulls elements from the source in batches of
+     * geometrically increasing size, gathers each batch with a {@link
+     * GatherTask}, and combines the resulting state with that of the
+     * batches before it.  Splitting returns the output of the next batch,
+     * as {@code Spliterators.AbstractSpliterator} does for its elements.
+     */
+    private static final class BatchedGatherSpliterator<P_IN, T, A, R>
+            implements Spliterator<R>, Consumer<P_IN> {
+        static final int BATCH_UNIT = 1 << 10;  // batch array size increment
+        static final int MAX_BATCH = 1 << 25;  // max batch array size
+        private final GatherOp<T, A, R> op;
+        private final PipelineHelper<T> helper;
+        private final Spliterator<P_IN> source;
+        private Spliterator<R> current;  // output of the last batch, or null
+        private Object[] batch;          // batch being filled
+        private int size;                // number of elements in batch
+        private int batchSize = BATCH_UNIT;
+        private A state;
+        private boolean started, exhausted, finished;
+
+        BatchedGatherSpliterator(GatherOp<T, A, R> op, PipelineHelper<T> helper,
+                                 Spliterator<P_IN> source) {
+            this.op = op;
+            this.helper = helper;
+            this.source = source;
+        }
+
+        @Override
+        public void accept(P_IN e) {
+            batch[size++] = e;
+        }
+
+        /**
+         * Gathers the next batch of the source, or applies the finisher
+         * once the source is exhausted, setting current to the output.
+         * Returns false if there is nothing left to gather.
+         */
+        private boolean advance() {
+            if (finished)
+                return false;
+            if (!exhausted) {
+                Object[] a = batch = new Object[batchSize];
+                size = 0;
+                while (size < a.length && source.tryAdvance(this)) { }
+                batch = null;
+                int n = size;
+                if (n > 0) {
+                    @SuppressWarnings("unchecked")
+                    Spliterator<P_IN> s = (Spliterator<P_IN>) Spliterators.spliterator(
+                        a, 0, n, source.characteristics() & Spliterator.ORDERED);
+                    Partial<A, R> p = new GatherTask<>(op, helper, s).invoke();
+                    state = started ? op.combiner.apply(state, p.state) : p.state;
+                    started = true;
+                    if (p.shortCircuited || n < a.length)
+                        exhausted = true;
+                    else
+                        batchSize = Math.min(batchSize << 1, MAX_BATCH);
+                    current = p.output.spliterator();
+                    return true;
+                }
+                exhausted = true;
+            }
+            finished = true;
+            A s = started ? state : op.initializer.get();
+            state = null;
+            if (op.finisher == DEFAULT_FINISHER)
+                return false;
+            Node.Builder<R> nb = Nodes.builder();
+            nb.begin(-1);
+            op.finisher.accept(s, new NodeDownstream<>(nb));
+            nb.end();
+            current = nb.build().spliterator();
+            return true;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super R> action) {
+            Objects.requireNonNull(action);
+            do {
+                if (current != null && current.tryAdvance(action))
+                    return true;
+                current = null;
+            } while (advance());
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super R> action) {
+            Objects.requireNonNull(action);
+            do {
+                if (current != null)
+                    current.forEachRemaining(action);
+                current = null;
+            } while (advance());
+        }
+
+        @Override
+        public Spliterator<R> trySplit() {
+            if (current == null && !advance())
+                return null;
+            Spliterator<R> s = current;
+            current = null;
+            return s;
+        }
+
+        @Override
+        public long estimateSize() {
+            if (!finished)
+                return Long.MAX_VALUE;
+            return (current == null) ? 0L : current.estimateSize();
+        }
+
+        @Override
+        public int characteristics() {
+            return source.characteristics() & Spliterator.ORDERED;
+        }
+    }
+
+    /**
+     * Spliterator for lazy evaluation of a gatherer, which pulls elements
+     * from the upstream as needed to produce the next output element.
+     * It does not split.
+     */
+    private static final class GatherSpliterator<T, A, R>
+            implements Spliterator<R>, Consumer<T>, Gatherer.Downstream<R> {
+        private final GatherOp<T, A, R> op;
+        private final Spliterator<T> upstream;
+        private final ArrayList<R> buffer = new ArrayList<>();
+        private int index;
+        private A state;
+        private boolean started, rejected, finished;
+
+        GatherSpliterator(GatherOp<T, A, R> op, Spliterator<T> upstream) {
+            this.op = op;
+            this.upstream = upstream;
+        }
+
+        @Override
+        public void accept(T t) {
+            if (!op.integrator.integrate(state, t, this))
+                rejected = true;
+        }
+
+        @Override
+        public boolean push(R r) {
+            buffer.add(r);
+            return true;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super R> action) {
+            Objects.requireNonNull(action);
+            while (index >= buffer.size()) {
+                buffer.clear();
+                index = 0;
+                if (finished)
+                    return false;
+                if (!started) {
+                    started = true;
+                    state = op.initializer.get();
+                }
+                if (rejected || !upstream.tryAdvance(this)) {
+                    finished = true;
+                    op.finisher.accept(state, this);
+                    state = null;
+                }
+            }
+            R r = buffer.get(index);
+            buffer.set(index++, null);
+            action.accept(r);
+            return true;
+        }
+
+        @Override
+        public Spliterator<R> trySplit() {
+            return null;
+        }
+
+        @Override
+        public long estimateSize() {
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public int characteristics() {
+            return upstream.characteristics() & Spliterator.ORDERED;
+        }
+    }
+}
@@ -0,0 +1,376 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.stream;
+
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+
+/**
+ * An intermediate operation that transforms a stream of input elements
+ * into a stream of output elements, optionally applying a final action
+ * when the end of the upstream is reached.  Gatherers are applied to a
+ * stream with {@link Stream#gather(Gatherer) Stream.gather}, and allow
+ * stateful intermediate operations such as windowing, scanning or
+ * de-duplication of adjacent elements to be written without giving up
+ * laziness or short-circuiting.  {@link Gatherers} provides several
+ * common gatherers.
+ *
+ * <p>A gatherer is specified by four functions that work together:
+ * <ul>
+ * <li>The <em>initializer</em> creates a new, potentially mutable,
+ * private state for an evaluation.</li>
+ * <li>The <em>integrator</em> integrates a new input element, possibly
+ * updating the state and possibly pushing elements to the {@link
+ * Downstream}.  It returns {@code false} if no further input elements
+ * are wanted, in which case the operation short-circuits.</li>
+ * <li>The <em>combiner</em>, if present, merges two states into one,
+ * which allows the gatherer to be evaluated in parallel.</li>
+ * <li>The <em>finisher</em> performs a final action, possibly pushing
+ * more elements, once all input elements have been integrated.</li>
+ * </ul>
+ *
+ * <p>When a gatherer is evaluated sequentially, a single state is
+ * created with the initializer, every input element is passed to the
+ * integrator in encounter order until it returns {@code false} or the
+ * input is exhausted, and then the finisher is invoked with that state.
+ *
+ * <p>When a gatherer with a combiner is evaluated in parallel, the input
+ * is partitioned, a state is created for each partition and the elements
+ * of each partition are integrated into it, and the states are then
+ * combined with the combiner before the finisher is invoked.  The
+ * elements pushed while integrating the partitions are delivered in
+ * encounter order.  If the integrator returns {@code false} for a
+ * partition, the partitions that follow it in encounter order, and the
+ * elements they pushed, are discarded.  A gatherer without a combiner
+ * is evaluated sequentially, lazily pulling elements from the upstream,
+ * even in a parallel stream.
+ *
+ * <p>Like other stream operations, the functions of a gatherer must be
+ * <a href="package-summary.html#NonInterference">non-interfering</a>,
+ * and the integrator and combiner should only modify the state they are
+ * given.
+ *
+ * @apiNote
+ * The following gatherer passes on each element that differs from the
+ * element preceding it:
+ * <pre>{@code
+ *     class Last<T> { T value; boolean present; }
+ *     Gatherer<String, ?, String> dedupAdjacent = Gatherer.ofSequential(
+ *         Last<String>::new,
+ *         Gatherer.Integrator.ofGreedy((last, s, downstream) -> {
+ *             if (last.present && Objects.equals(last.value, s))
+ *                 return true;
+ *             last.value = s;
+ *             last.present = true;
+ *             return downstream.push(s);
+ *         }));
+ * }</pre>
+ *
+ * @param <T> the type of input elements to the gather operation
+ * @param <A> the potentially mutable state type of the gather operation
+ *        (often hidden as an implementation detail)
+ * @param <R> the type of output elements from the gather operation
+ * @see Stream#gather(Gatherer)
+ * @see Gatherers
+ * @since 12
+ */
+public interface Gatherer<T, A, R> {
+
+    /**
+     * Returns a function that produces a new state for an evaluation.
+     *
+     * @implSpec
+     * The default implementation returns {@link #defaultInitializer()},
+     * which produces a {@code null} state.
+     *
+     * @return the initializer of this gatherer
+     */
+    default Supplier<A> initializer() {
+        return defaultInitializer();
+    }
+
+    /**
+     * Returns the function that integrates input elements.
+     *
+     * @return the integrator of this gatherer
+     */
+    Integrator<A, T, R> integrator();
+
+    /**
+     * Returns a function that combines two states into one, for parallel
+     * evaluation.  The combiner may return either of its arguments, or
+     * a new state.
+     *
+     * @implSpec
+     * The default implementation returns {@link #defaultCombiner()},
+     * which indicates that this gatherer can only be evaluated
+     * sequentially.
+     *
+     * @return the combiner of this gatherer
+     */
+    default BinaryOperator<A> combiner() {
+        return defaultCombiner();
+    }
+
+    /**
+     * Returns a function that performs a final action with the state of
+     * an evaluation, once all input elements have been integrated.
+     *
+     * @implSpec
+     * The default implementation returns {@link #defaultFinisher()},
+     * which does nothing.
+     *
+     * @return the finisher of this gatherer
+     */
+    default BiConsumer<A, Downstream<? super R>> finisher() {
+        return defaultFinisher();
+    }
+
+    /**
+     * Returns an initializer which produces a {@code null} state, for
+     * gatherers without state.
+     *
+     * @param <A> the type of the state
+     * @return the default initializer
+     */
+    @SuppressWarnings("unchecked")
+    static <A> Supplier<A> defaultInitializer() {
+        return (Supplier<A>) GatherOps.DEFAULT_INITIALIZER;
+    }
+
+    /**
+     * Returns a combiner which indicates that a gatherer can only be
+     * evaluated sequentially.  It throws {@code
+     * UnsupportedOperationException} if invoked.
+     *
+     * @param <A> the type of the state
+     * @return the default combiner
+     */
+    @SuppressWarnings("unchecked")
+    static <A> BinaryOperator<A> defaultCombiner() {
+        return (BinaryOperator<A>) GatherOps.DEFAULT_COMBINER;
+    }
+
+    /**
+     * Returns a finisher which does nothing.
+     *
+     * @param <A> the type of the state
+     * @param <R> the type of output elements
+     * @return the default finisher
+     */
+    @SuppressWarnings("unchecked")
+    static <A, R> BiConsumer<A, Downstream<? super R>> defaultFinisher() {
+        return (BiConsumer<A, Downstream<? super R>>) GatherOps.DEFAULT_FINISHER;
+    }
+
+    /**
+     * Returns a new, stateless gatherer that can be evaluated in parallel,
+     * with the given integrator.
+     *
+     * @param <T> the type of input elements
+     * @param <R> the type of output elements
+     * @param integrator the integrator
+     * @return the new gatherer
+     * @throws NullPointerException if {@code integrator} is null
+     */
+    static <T, R> Gatherer<T, Void, R> of(Integrator<Void, T, R> integrator) {
+        return of(defaultInitializer(), integrator,
+                  GatherOps.statelessCombiner(), defaultFinisher());
+    }
+
+    /**
+     * Returns a new gatherer that can be evaluated in parallel, with the
+     * given initializer, integrator, combiner and finisher.
+     *
+     * @param <T> the type of input elements
+     * @param <A> the type of the state
+     * @param <R> the type of output elements
+     * @param initializer the initializer
+     * @param integrator the integrator
+     * @param combiner the combiner
+     * @param finisher the finisher
+     * @return the new gatherer
+     * @throws NullPointerException if any argument is null
+     */
+    static <T, A, R> Gatherer<T, A, R> of(Supplier<A> initializer,
+                                          Integrator<A, T, R> integrator,
+                                          BinaryOperator<A> combiner,
+                                          BiConsumer<A, Downstream<? super R>> finisher) {
+        return new GatherOps.GathererImpl<>(Objects.requireNonNull(initializer),
+                                            Objects.requireNonNull(integrator),
+                                            Objects.requireNonNull(combiner),
+                                            Objects.requireNonNull(finisher));
+    }
+
+    /**
+     * Returns a new, stateless gatherer that is evaluated sequentially,
+     * with the given integrator.
+     *
+     * @param <T> the type of input elements
+     * @param <R> the type of output elements
+     * @param integrator the integrator
+     * @return the new gatherer
+     * @throws NullPointerException if {@code integrator} is null
+     */
+    static <T, R> Gatherer<T, Void, R> ofSequential(Integrator<Void, T, R> integrator) {
+        return of(defaultInitializer(), integrator, defaultCombiner(),
+                  defaultFinisher());
+    }
+
+    /**
+     * Returns a new gatherer that is evaluated sequentially, with the
+     * given initializer and integrator.
+     *
+     * @param <T> the type of input elements
+     * @param <A> the type of the state
+     * @param <R> the type of output elements
+     * @param initializer the initializer
+     * @param integrator the integrator
+     * @return the new gatherer
+     * @throws NullPointerException if any argument is null
+     */
+    static <T, A, R> Gatherer<T, A, R> ofSequential(Supplier<A> initializer,
+                                                    Integrator<A, T, R> integrator) {
+        return of(initializer, integrator, defaultCombiner(), defaultFinisher());
+    }
+
+    /**
+     * Returns a new gatherer that is evaluated sequentially, with the
+     * given initializer, integrator and finisher.
+     *
+     * @param <T> the type of input elements
+     * @param <A> the type of the state
+     * @param <R> the type of output elements
+     * @param initializer the initializer
+     * @param integrator the integrator
+     * @param finisher the finisher
+     * @return the new gatherer
+     * @throws NullPointerException if any argument is null
+     */
+    static <T, A, R> Gatherer<T, A, R> ofSequential(Supplier<A> initializer,
+                                                    Integrator<A, T, R> integrator,
+                                                    BiConsumer<A, Downstream<? super R>> finisher) {
+        return of(initializer, integrator, defaultCombiner(), finisher);
+    }
+
+    /**
+     * The receiver of the elements pushed by a gatherer.
+     *
+     * @param <T> the type of elements pushed
+     * @since 12
+     */
+    interface Downstream<T> {
+        /**
+         * Pushes an element downstream.
+         *
+         * @param element the element to push
+         * @return {@code false} if no further elements are wanted, in
+         *         which case the gatherer should stop pushing elements
+         */
+        boolean push(T element);
+
+        /**
+         * Returns {@code true} if no further elements are wanted.  The
+         * result of {@link #push} gives the same information, so this
+         * method need only be used to avoid computing an element that
+         * would be rejected.
+         *
+         * @implSpec
+         * The default implementation returns {@code false}.
+         *
+         * @return {@code true} if no further elements are wanted
+         */
+        default boolean isRejecting() {
+            return false;
+        }
+    }
+
+    /**
+     * Integrates input elements into the state of a gatherer, possibly
+     * pushing elements downstream.
+     *
+     * @param <A> the type of the state
+     * @param <T> the type of input elements
+     * @param <R> the type of output elements
+     * @since 12
+     */
+    @FunctionalInterface
+    interface Integrator<A, T, R> {
+        /**
+         * Integrates the given element.
+         *
+         * @param state the state of the evaluation
+         * @param element the element to integrate
+         * @param downstream the receiver of elements pushed
+         * @return {@code true} if further elements are wanted, or
+         *         {@code false} to short-circuit the operation
+         */
+        boolean integrate(A state, T element, Downstream<? super R> downstream);
+
+        /**
+         * Returns the given lambda or method reference as an integrator.
+         *
+         * @param <A> the type of the state
+         * @param <T> the type of input elements
+         * @param <R> the type of output elements
+         * @param integrator the integrator
+         * @return the integrator
+         */
+        static <A, T, R> Integrator<A, T, R> of(Integrator<A, T, R> integrator) {
+            return integrator;
+        }
+
+        /**
+         * Returns the given lambda or method reference as a greedy
+         * integrator.
+         *
+         * @param <A> the type of the state
+         * @param <T> the type of input elements
+         * @param <R> the type of output elements
+         * @param greedy the integrator
+         * @return the greedy integrator
+         */
+        static <A, T, R> Greedy<A, T, R> ofGreedy(Greedy<A, T, R> greedy) {
+            return greedy;
+        }
+
+        /**
+         * An integrator that never short-circuits by itself: it returns
+         * {@code false} only when the downstream rejects an element.
+         * This allows the gather operation to be evaluated without
+         * checking for cancellation after each element.
+         *
+         * @param <A> the type of the state
+         * @param <T> the type of input elements
+         * @param <R> the type of output elements
+         * @since 12
+         */
+        @FunctionalInterface
+        interface Greedy<A, T, R> extends Integrator<A, T, R> { }
+    }
+}
@@ -0,0 +1,323 @@
+/*
+ * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.stream;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Implementations of {@link Gatherer} that provide useful intermediate
+ * operations, such as windowing elements and computing running values.
+ *
+ * @see Gatherer
+ * @see Stream#gather(Gatherer)
+ * @since 12
+ */
+public final class Gatherers {
+
+    private Gatherers() { }
+
+    /**
+     * Returns a gatherer that groups elements into lists of the given
+     * size, in encounter order.  The last list may contain fewer
+     * elements than the given size, if the number of input elements is
+     * not a multiple of it.  The lists are unmodifiable.
+     *
+     * <p>For example:
+     * <pre>{@code
+     *     // yields [[1, 2, 3], [4, 5, 6], [7, 8]]
+     *     List<List<Integer>> windows =
+     *         Stream.of(1, 2, 3, 4, 5, 6, 7, 8).gather(Gatherers.windowFixed(3))
+     *                                          .collect(Collectors.toList());
+     * }</pre>
+     *
+     * @param <T> the type of elements
+     * @param windowSize the number of elements in each window
+     * @return a gatherer of fixed-size windows
+     * @throws IllegalArgumentException if {@code windowSize} is less than
+     *         one
+     */
+    public static <T> Gatherer<T, ?, List<T>> windowFixed(int windowSize) {
+        if (windowSize < 1)
+            throw new IllegalArgumentException("windowSize: " + windowSize);
+
+        class FixedWindow {
+            Object[] window = new Object[windowSize];
+            int count;
+
+            boolean integrate(T t, Gatherer.Downstream<? super List<T>> downstream) {
+                window[count++] = t;
+                if (count < windowSize)
+                    return true;
+                Object[] full = window;
+                window = new Object[windowSize];
+                count = 0;
+                return downstream.push(listOf(full));
+            }
+
+            void finish(Gatherer.Downstream<? super List<T>> downstream) {
+                if (count > 0 && !downstream.isRejecting())
+                    downstream.push(listOf(Arrays.copyOf(window, count)));
+                window = null;
+            }
+        }
+        return Gatherer.<T, FixedWindow, List<T>>ofSequential(
+            FixedWindow::new,
+            Gatherer.Integrator.<FixedWindow, T, List<T>>ofGreedy(FixedWindow::integrate),
+            FixedWindow::finish);
+    }
+
+    /**
+     * Returns a gatherer that produces, for each run of the given number
+     * of consecutive elements, a list of those elements, in encounter
+     * order.  Each window after the first drops the first element of the
+     * previous window and adds the next element.  If there are fewer
+     * input elements than the given size, a single list containing all
+     * of them is produced.  The lists are unmodifiable.
+     *
+     * <p>For example:
+     * <pre>{@code
+     *     // yields [[1, 2], [2, 3], [3, 4]]
+     *     List<List<Integer>> windows =
+     *         Stream.of(1, 2, 3, 4).gather(Gatherers.windowSliding(2))
+     *                              .collect(Collectors.toList());
+     * }</pre>
+     *
+     * @param <T> the type of elements
+     * @param windowSize the number of elements in each window
+     * @return a gatherer of sliding windows
+     * @throws IllegalArgumentException if {@code windowSize} is less than
+     *         one
+     */
+    public static <T> Gatherer<T, ?, List<T>> windowSliding(int windowSize) {
+        if (windowSize < 1)
+            throw new IllegalArgumentException("windowSize: " + windowSize);
+
+        class SlidingWindow {
+            Object[] window = new Object[windowSize];
+            int count;
+
+            boolean integrate(T t, Gatherer.Downstream<? super List<T>> downstream) {
+                if (count < windowSize) {
+                    window[count++] = t;
+                    if (count < windowSize)
+                        return true;
+                }
+                else {
+                    // The previous window was handed downstream, so
+                    // shift into a new array
+                    Object[] next = new Object[windowSize];
+                    System.arraycopy(window, 1, next, 0, windowSize - 1);
+                    next[windowSize - 1] = t;
+                    window = next;
+                }
+                return downstream.push(listOf(window));
+            }
+
+            void finish(Gatherer.Downstream<? super List<T>> downstream) {
+                if (count > 0 && count < windowSize && !downstream.isRejecting())
+                    downstream.push(listOf(Arrays.copyOf(window, count)));
+                window = null;
+            }
+        }
+        return Gatherer.<T, SlidingWindow, List<T>>ofSequential(
+            SlidingWindow::new,
+            Gatherer.Integrator.<SlidingWindow, T, List<T>>ofGreedy(SlidingWindow::integrate),
+            SlidingWindow::finish);
+    }
+
+    /**
+     * Returns a gatherer that produces, for each element, the result of
+     * applying the given function to the previous result and the
+     * element, starting from the given initial value.  This is a
+     * prefix scan: the initial value itself is not produced.
+     *
+     * <p>For example:
+     * <pre>{@code
+     *     // yields [1, 3, 6, 10]
+     *     List<Integer> sums =
+     *         Stream.of(1, 2, 3, 4).gather(Gatherers.scan(() -> 0, Integer::sum))
+     *                              .collect(Collectors.toList());
+     * }</pre>
+     *
+     * @param <T> the type of input elements
+     * @param <R> the type of results
+     * @param initial supplier of the initial value
+     * @param scanner function combining the previous result and the next
+     *        element into the next result
+     * @return a gatherer computing a prefix scan
+     * @throws NullPointerException if any argument is null
+     */
+    public static <T, R> Gatherer<T, ?, R> scan(
+            Supplier<R> initial,
+            BiFunction<? super R, ? super T, ? extends R> scanner) {
+        Objects.requireNonNull(initial);
+        Objects.requireNonNull(scanner);
+
+        class State {
+            R current = initial.get();
+
+            boolean integrate(T t, Gatherer.Downstream<? super R> downstream) {
+                return downstream.push(current = scanner.apply(current, t));
+            }
+        }
+        return Gatherer.<T, State, R>ofSequential(
+            State::new,
+            Gatherer.Integrator.<State, T, R>ofGreedy(State::integrate));
+    }
+
+    /**
+     * Returns a gatherer that applies the given function to each element,
+     * running up to the given number of invocations concurrently in
+     * other threads, and produces the results in encounter order.
+     *
+     * <p>The invocations run in threads of a pool private to each
+     * evaluation of the gatherer, which is shut down when the evaluation
+     * completes; idle threads of an abandoned evaluation terminate after
+     * a short time.  If an invocation of the function throws an
+     * unchecked exception or error, the remaining invocations are
+     * cancelled and it is rethrown by the stream operation.  If the thread
+     * waiting for a result is interrupted, the remaining invocations are
+     * cancelled and a {@link CancellationException} is thrown, with the
+     * interrupt status of the thread set.
+     *
+     * @apiNote
+     * This gatherer is intended for functions that block, such as remote
+     * calls, so that several may be in progress at once, without making
+     * the stream parallel.
+     *
+     * @param <T> the type of input elements
+     * @param <R> the type of results
+     * @param maxConcurrency the maximum number of concurrent invocations
+     * @param mapper the function to apply to each element
+     * @return a gatherer applying a function concurrently
+     * @throws IllegalArgumentException if {@code maxConcurrency} is less
+     *         than one
+     * @throws NullPointerException if {@code mapper} is null
+     */
+    public static <T, R> Gatherer<T, ?, R> mapConcurrent(
+            int maxConcurrency,
+            Function<? super T, ? extends R> mapper) {
+        if (maxConcurrency < 1)
+            throw new IllegalArgumentException("maxConcurrency: " + maxConcurrency);
+        Objects.requireNonNull(mapper);
+
+        class State {
+            final ArrayDeque<Future<R>> window =
+                new ArrayDeque<>(Math.min(maxConcurrency, 16));
+            final ThreadPoolExecutor executor;
+
+            State() {
+                executor = new ThreadPoolExecutor(
+                    maxConcurrency, maxConcurrency,
+                    1L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                    r -> {
+                        Thread t = new Thread(r, "Gatherers.mapConcurrent");
+                        t.setDaemon(true);
+                        return t;
+                    });
+                executor.allowCoreThreadTimeOut(true);
+            }
+
+            boolean integrate(T t, Gatherer.Downstream<? super R> downstream) {
+                window.add(executor.submit(() -> mapper.apply(t)));
+                // Push completed results, and wait for the oldest while
+                // the window is full
+                Future<R> f;
+                while ((f = window.peek()) != null &&
+                       (f.isDone() || window.size() >= maxConcurrency)) {
+                    if (!pushHead(downstream)) {
+                        cancelAll();
+                        return false;
+                    }
+                }
+                return true;
+            }
+
+            void finish(Gatherer.Downstream<? super R> downstream) {
+                try {
+                    while (!window.isEmpty() && pushHead(downstream)) { }
+                } finally {
+                    cancelAll();
+                }
+            }
+
+            private boolean pushHead(Gatherer.Downstream<? super R> downstream) {
+                R r;
+                try {
+                    r = window.poll().get();
+                } catch (ExecutionException ex) {
+                    cancelAll();
+                    Throwable cause = ex.getCause();
+                    if (cause instanceof RuntimeException)
+                        throw (RuntimeException) cause;
+                    if (cause instanceof Error)
+                        throw (Error) cause;
+                    throw new IllegalStateException(cause);
+                } catch (InterruptedException ex) {
+                    cancelAll();
+                    Thread.currentThread().interrupt();
+                    CancellationException ce = new CancellationException();
+                    ce.initCause(ex);
+                    throw ce;
+                }
+                return downstream.push(r);
+            }
+
+            private void cancelAll() {
+                Future<R> f;
+                while ((f = window.poll()) != null)
+                    f.cancel(true);
+                executor.shutdown();
+            }
+        }
+        return Gatherer.<T, State, R>ofSequential(
+            State::new,
+            Gatherer.Integrator.<State, T, R>of(State::integrate),
+            State::finish);
+    }
+
+    /**
+     * Returns an unmodifiable list view of the given array, which may
+     * contain nulls and must not be modified afterwards.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> listOf(Object[] elements) {
+        return Collections.unmodifiableList((List<T>) Arrays.asList(elements));
+    }
+}
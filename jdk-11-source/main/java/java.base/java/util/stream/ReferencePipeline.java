@@ -165,18 +165,17 @@ abstract class ReferencePipeline<P_IN, P_OUT>
                                      StreamOpFlag.NOT_SIZED) {
             @Override
             Sink<P_OUT> opWrapSink(int flags, Sink<P_OUT> sink) {
-                return new Sink.ChainedReference<P_OUT, P_OUT>(sink) {
-                    @Override
-                    public void begin(long size) {
-                        downstream.begin(-1);
-                    }
-
-                    @Override
-                    public void accept(P_OUT u) {
-                        if (predicate.test(u))
-                            downstream.accept(u);
-                    }
-                };
+                if (sink instanceof MapSink)
+                    return fuseMap(predicate, (MapSink<P_OUT, ?>) sink);
+                else if (sink instanceof MapToIntSink)
+                    return fuseMapToInt(predicate, (MapToIntSink<P_OUT>) sink);
+                else if (sink instanceof FilterSink) {
+                    FilterSink<P_OUT> f = (FilterSink<P_OUT>) sink;
+                    Predicate<? super P_OUT> next = f.predicate;
+                    return new FilterSink<>(u -> predicate.test(u) && next.test(u),
+                                            f.downstream);
+                }
+                return new FilterSink<>(predicate, sink);
             }
         };
     }
@@ -189,12 +188,11 @@ abstract class ReferencePipeline<P_IN, P_OUT>
                                      StreamOpFlag.NOT_SORTED | StreamOpFlag.NOT_DISTINCT) {
             @Override
             Sink<P_OUT> opWrapSink(int flags, Sink<R> sink) {
-                return new Sink.ChainedReference<P_OUT, R>(sink) {
-                    @Override
-                    public void accept(P_OUT u) {
-                        downstream.accept(mapper.apply(u));
-                    }
-                };
+                if (sink instanceof MapSink)
+                    return composeMap(mapper, (MapSink<R, ?>) sink);
+                else if (sink instanceof MapToIntSink)
+                    return composeMapToInt(mapper, (MapToIntSink<R>) sink);
+                return new MapSink<>(mapper, sink);
             }
         };
     }
@@ -206,12 +204,7 @@ abstract class ReferencePipeline<P_IN, P_OUT>
                                               StreamOpFlag.NOT_SORTED | StreamOpFlag.NOT_DISTINCT) {
             @Override
             Sink<P_OUT> opWrapSink(int flags, Sink<Integer> sink) {
-                return new Sink.ChainedReference<P_OUT, Integer>(sink) {
-                    @Override
-                    public void accept(P_OUT u) {
-                        downstream.accept(mapper.applyAsInt(u));
-                    }
-                };
+                return new MapToIntSink<>(mapper, sink);
             }
         };
     }
@@ -463,6 +456,28 @@ abstract class ReferencePipeline<P_IN, P_OUT>
         return SortedOps.makeRef(this, comparator);
     }
 
+    @Override
+    public final <R> Stream<R> gather(Gatherer<? super P_OUT, ?, R> gatherer) {
+        Objects.requireNonNull(gatherer);
+        return GatherOps.makeRef(this, gatherer);
+    }
+
+    @Override
+    public final Stream<P_OUT> distinct(ExternalBuffer<P_OUT> buffer) {
+        return ExternalOps.makeDistinctRef(this, buffer);
+    }
+
+    @Override
+    public final Stream<P_OUT> sorted(ExternalBuffer<P_OUT> buffer) {
+        return ExternalOps.makeRef(this, buffer);
+    }
+
+    @Override
+    public final Stream<P_OUT> sorted(Comparator<? super P_OUT> comparator,
+                                      ExternalBuffer<P_OUT> buffer) {
+        return ExternalOps.makeRef(this, comparator, buffer);
+    }
+
     @Override
     public final Stream<P_OUT> limit(long maxSize) {
         if (maxSize < 0)
@@ -736,4 +751,142 @@ abstract class ReferencePipeline<P_IN, P_OUT>
                                                        Spliterator<P_IN> spliterator,
                                                        IntFunction<E_OUT[]> generator);
     }
+
+    // Fused sinks for stateless filter, map and mapToInt stages
+
+    /*
+     * Adjacent filter, map and mapToInt stages are fused when their
+     * sinks are wrapped: rather than wrapping the sink of the
+     * following stage, a filter or map stage that finds it is wrapping
+     * one of the sinks below absorbs that stage's function into a
+     * single sink over the same downstream.  This removes one sink,
+     * and one level of accept, begin, end and cancellationRequested
+     * calls per element, for each fused stage, without changing the
+     * pipeline stages themselves, their flags, or the order in which
+     * user functions are invoked.  Stages are wrapped from last to
+     * first, so chains of any length fuse pairwise into one sink.
+     */
+
+    /** Sink for filter stages. */
+    static final class FilterSink<T> extends Sink.ChainedReference<T, T> {
+        final Predicate<? super T> predicate;
+
+        FilterSink(Predicate<? super T> predicate, Sink<? super T> downstream) {
+            super(downstream);
+            this.predicate = predicate;
+        }
+
+        @Override
+        public void begin(long size) {
+            downstream.begin(-1);
+        }
+
+        @Override
+        public void accept(T u) {
+            if (predicate.test(u))
+                downstream.accept(u);
+        }
+    }
+
+    /** Sink for map stages. */
+    static final class MapSink<T, R> extends Sink.ChainedReference<T, R> {
+        final Function<? super T, ? extends R> mapper;
+
+        MapSink(Function<? super T, ? extends R> mapper, Sink<? super R> downstream) {
+            super(downstream);
+            this.mapper = mapper;
+        }
+
+        @Override
+        public void accept(T u) {
+            downstream.accept(mapper.apply(u));
+        }
+    }
+
+    /** Sink for mapToInt stages. */
+    static final class MapToIntSink<T> extends Sink.ChainedReference<T, Integer> {
+        final ToIntFunction<? super T> mapper;
+
+        MapToIntSink(ToIntFunction<? super T> mapper, Sink<? super Integer> downstream) {
+            super(downstream);
+            this.mapper = mapper;
+        }
+
+        @Override
+        public void accept(T u) {
+            downstream.accept(mapper.applyAsInt(u));
+        }
+    }
+
+    /** Sink for a filter stage fused with the following map stage. */
+    static final class FilterMapSink<T, R> extends Sink.ChainedReference<T, R> {
+        final Predicate<? super T> predicate;
+        final Function<? super T, ? extends R> mapper;
+
+        FilterMapSink(Predicate<? super T> predicate,
+                      Function<? super T, ? extends R> mapper,
+                      Sink<? super R> downstream) {
+            super(downstream);
+            this.predicate = predicate;
+            this.mapper = mapper;
+        }
+
+        @Override
+        public void begin(long size) {
+            downstream.begin(-1);
+        }
+
+        @Override
+        public void accept(T u) {
+            if (predicate.test(u))
+                downstream.accept(mapper.apply(u));
+        }
+    }
+
+    /** Sink for a filter stage fused with the following mapToInt stage. */
+    static final class FilterMapToIntSink<T> extends Sink.ChainedReference<T, Integer> {
+        final Predicate<? super T> predicate;
+        final ToIntFunction<? super T> mapper;
+
+        FilterMapToIntSink(Predicate<? super T> predicate,
+                           ToIntFunction<? super T> mapper,
+                           Sink<? super Integer> downstream) {
+            super(downstream);
+            this.predicate = predicate;
+            this.mapper = mapper;
+        }
+
+        @Override
+        public void begin(long size) {
+            downstream.begin(-1);
+        }
+
+        @Override
+        public void accept(T u) {
+            if (predicate.test(u))
+                downstream.accept(mapper.applyAsInt(u));
+        }
+    }
+
+    private static <T, R> Sink<T> fuseMap(Predicate<? super T> predicate,
+                                          MapSink<T, R> sink) {
+        return new FilterMapSink<>(predicate, sink.mapper, sink.downstream);
+    }
+
+    private static <T> Sink<T> fuseMapToInt(Predicate<? super T> predicate,
+                                            MapToIntSink<T> sink) {
+        return new FilterMapToIntSink<>(predicate, sink.mapper, sink.downstream);
+    }
+
+    private static <T, U, R> Sink<T> composeMap(Function<? super T, ? extends U> mapper,
+                                                MapSink<U, R> sink) {
+        Function<? super U, ? extends R> next = sink.mapper;
+        return new MapSink<T, R>(u -> next.apply(mapper.apply(u)), sink.downstream);
+    }
+
+    private static <T, U> Sink<T> composeMapToInt(Function<? super T, ? extends U> mapper,
+                                                  MapToIntSink<U> sink) {
+        ToIntFunction<? super U> next = sink.mapper;
+        return new MapToIntSink<T>(u -> next.applyAsInt(mapper.apply(u)), sink.downstream);
+    }
 }
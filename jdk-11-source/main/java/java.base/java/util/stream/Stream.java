@@ -342,6 +342,54 @@ public interface Stream<T> extends BaseStream<T, Stream<T>> {
      */
     DoubleStream flatMapToDouble(Function<? super T, ? extends DoubleStream> mapper);
 
+    /**
+     * Returns a stream consisting of the results of applying the given
+     * {@link Gatherer} to the elements of this stream.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">stateful
+     * intermediate operation</a>.  It is
+     * <a href="package-summary.html#StreamOps">short-circuiting</a> if the
+     * gatherer's integrator is not {@linkplain Gatherer.Integrator.Greedy
+     * greedy}.
+     *
+     * @apiNote
+     * Gatherers allow stateful intermediate operations, such as those
+     * provided by {@link Gatherers}, to be defined outside of this
+     * interface.  For example, the following groups the elements of a
+     * stream into lists of three:
+     * <pre>{@code
+     *     Stream<List<String>> triples = strings.gather(Gatherers.windowFixed(3));
+     * }</pre>
+     *
+     * @implNote
+     * In a parallel pipeline, a gatherer with a combiner that is followed by
+     * further operations is applied to successive batches of the input, of
+     * geometrically increasing size, each gathered in parallel.  An infinite
+     * stream, or a short-circuiting downstream operation, therefore does not
+     * cause the whole input to be gathered.  A gatherer without a combiner
+     * is applied sequentially, pulling elements from the upstream only as
+     * the downstream requests them.
+     *
+     * @implSpec
+     * The default implementation obtains the {@link #spliterator() spliterator}
+     * of this stream, creates a stream over it with the same parallelism
+     * using {@link StreamSupport#stream(Spliterator, boolean)}, registers
+     * {@link #close()} as its close handler, and returns the result of
+     * applying the gatherer to that stream.
+     *
+     * @param <R> the element type of the new stream
+     * @param gatherer a gatherer
+     * @return the new stream
+     * @throws NullPointerException if {@code gatherer} is null
+     * @since 12
+     */
+    default <R> Stream<R> gather(Gatherer<? super T, ?, R> gatherer) {
+        Objects.requireNonNull(gatherer);
+        return StreamSupport.stream(spliterator(), isParallel())
+                            .onClose(this::close)
+                            .gather(gatherer);
+    }
+
     /**
      * Returns a stream consisting of the distinct elements (according to
      * {@link Object#equals(Object)}) of this stream.
@@ -404,6 +452,126 @@ public interface Stream<T> extends BaseStream<T, Stream<T>> {
      */
     Stream<T> sorted(Comparator<? super T> comparator);
 
+    /**
+     * Returns a stream consisting of the distinct elements (according to
+     * {@link Object#equals(Object)}) of this stream, holding at most the
+     * number of elements given by the provided {@link ExternalBuffer} in
+     * memory, and spilling the remainder to temporary files.
+     *
+     * <p>For ordered streams, the selection of distinct elements is stable
+     * (for duplicated elements, the element appearing first in the encounter
+     * order is preserved.)  For unordered streams, no stability guarantees
+     * are made.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">stateful
+     * intermediate operation</a>.
+     *
+     * @apiNote
+     * This method is intended for streams whose distinct elements do not
+     * fit in memory.  Every element is written to disk and read back at
+     * least once, and elements are compared using their hash codes, so
+     * the buffer's decoder must reconstruct elements that are equal to,
+     * and have the same hash code as, the elements encoded.  The elements
+     * preceding this operation in the pipeline are produced sequentially,
+     * even if the stream is parallel.
+     *
+     * @implSpec
+     * The default implementation checks that {@code buffer} is non-null
+     * and returns {@link #distinct()}, so that all distinct elements are
+     * held in memory.  Streams created by the JDK override this method to
+     * spill elements as described by the buffer.
+     *
+     * @param buffer the buffer describing how elements are spilled
+     * @return the new stream
+     * @throws NullPointerException if {@code buffer} is null
+     * @since 12
+     */
+    default Stream<T> distinct(ExternalBuffer<T> buffer) {
+        Objects.requireNonNull(buffer);
+        return distinct();
+    }
+
+    /**
+     * Returns a stream consisting of the elements of this stream, sorted
+     * according to natural order, holding at most the number of elements
+     * given by the provided {@link ExternalBuffer} in memory, and spilling
+     * the remainder to temporary files.  If the elements of this stream
+     * are not {@code Comparable}, a {@code java.lang.ClassCastException}
+     * may be thrown when the terminal operation is executed.
+     *
+     * <p>For ordered streams, the sort is stable.  For unordered streams, no
+     * stability guarantees are made.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">stateful
+     * intermediate operation</a>.
+     *
+     * @implSpec
+     * The default implementation checks that {@code buffer} is non-null
+     * and returns {@link #sorted()}.  Streams created by the JDK override
+     * this method to spill elements as described by the buffer.
+     *
+     * @param buffer the buffer describing how elements are spilled
+     * @return the new stream
+     * @throws NullPointerException if {@code buffer} is null
+     * @see #sorted(Comparator, ExternalBuffer)
+     * @since 12
+     */
+    default Stream<T> sorted(ExternalBuffer<T> buffer) {
+        Objects.requireNonNull(buffer);
+        return sorted();
+    }
+
+    /**
+     * Returns a stream consisting of the elements of this stream, sorted
+     * according to the provided {@code Comparator}, holding at most the
+     * number of elements given by the provided {@link ExternalBuffer} in
+     * memory, and spilling the remainder to temporary files.
+     *
+     * <p>For ordered streams, the sort is stable.  For unordered streams, no
+     * stability guarantees are made.
+     *
+     * <p>This is a <a href="package-summary.html#StreamOps">stateful
+     * intermediate operation</a>.
+     *
+     * @apiNote
+     * This method is intended for streams whose contents do not fit in
+     * memory.  Elements are sorted in memory in runs of at most
+     * {@link ExternalBuffer#maxElements()} elements, which are written to
+     * temporary files and then merged, so every element is written to
+     * disk and read back at least once when the stream holds more
+     * elements than that.  The elements preceding this operation in the
+     * pipeline are produced sequentially, even if the stream is parallel.
+     * For example, the following sorts the lines of a large file while
+     * holding at most one million lines in memory:
+     * <pre>{@code
+     *     ExternalBuffer<String> buffer =
+     *         ExternalBuffer.of(1_000_000, (s, out) -> out.writeUTF(s), DataInput::readUTF);
+     *     try (Stream<String> lines = Files.lines(path)) {
+     *         lines.sorted(Comparator.naturalOrder(), buffer)
+     *              .forEachOrdered(System.out::println);
+     *     }
+     * }</pre>
+     *
+     * @implSpec
+     * The default implementation checks that {@code buffer} is non-null
+     * and returns {@link #sorted(Comparator) sorted(comparator)}.  Streams
+     * created by the JDK override this method to spill elements as
+     * described by the buffer.
+     *
+     * @param comparator a <a href="package-summary.html#NonInterference">non-interfering</a>,
+     *                   <a href="package-summary.html#Statelessness">stateless</a>
+     *                   {@code Comparator} to be used to compare stream elements
+     * @param buffer the buffer describing how elements are spilled
+     * @return the new stream
+     * @throws NullPointerException if {@code buffer} is null
+     * @since 12
+     */
+    default Stream<T> sorted(Comparator<? super T> comparator,
+                             ExternalBuffer<T> buffer) {
+        Objects.requireNonNull(buffer);
+        return sorted(comparator);
+    }
+
     /**
      * Returns a stream consisting of the elements of this stream, additionally
      * performing the provided action on each element as elements are consumed